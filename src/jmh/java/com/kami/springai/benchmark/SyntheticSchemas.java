@@ -0,0 +1,135 @@
+package com.kami.springai.benchmark;
+
+import com.kami.springai.text2sql.model.DatabaseSchema;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试用的合成数据库结构
+ *
+ * 前三张表固定为 users / orders / products，其余按业务前缀生成，
+ * 每张表带主键、业务字段和指向前一张表的外键。
+ */
+public final class SyntheticSchemas {
+
+    private static final String[] PREFIXES = {"crm", "erp", "wms", "oms", "hr", "fin", "log", "mkt"};
+    private static final String[] COMMENTS = {"客户", "合同", "库存", "发货单", "员工", "凭证", "日志", "活动"};
+
+    /**
+     * 基准测试使用的典型问题
+     */
+    public static final List<String> QUESTIONS = List.of(
+            "查询所有用户",
+            "查询年龄大于25的用户姓名",
+            "统计每个用户的订单数",
+            "查询最近10个订单的金额和状态",
+            "查询价格最高的5个商品",
+            "统计crm_customer_42中状态是1的记录数量",
+            "按照创建时间分组统计订单和商品的平均金额");
+
+    /**
+     * 基准测试使用的典型SQL
+     */
+    public static final List<String> SQLS = List.of(
+            "SELECT * FROM `users` LIMIT 100;",
+            "SELECT `name` FROM `users` WHERE `age` > 25 LIMIT 100;",
+            "SELECT `user_id`, COUNT(*) AS `order_count` FROM `orders` GROUP BY `user_id` LIMIT 100;",
+            "SELECT `amount`, `status` FROM `orders` ORDER BY `created_at` DESC LIMIT 10;",
+            "SELECT * FROM `products` ORDER BY `price` DESC LIMIT 5;",
+            "SELECT COUNT(*) FROM `crm_customer_42` WHERE `status` = 1;",
+            "SELECT o.`created_at`, AVG(o.`amount`), AVG(p.`price`) FROM `orders` o "
+                    + "JOIN `products` p ON o.`product_id` = p.`id` GROUP BY o.`created_at` LIMIT 100;");
+
+    private SyntheticSchemas() {
+    }
+
+    /**
+     * 生成包含 tableCount 张表的结构
+     */
+    public static DatabaseSchema generate(int tableCount) {
+        List<DatabaseSchema.Table> tables = new ArrayList<>(tableCount);
+        tables.add(table("users", "用户", List.of(
+                column("id", "BIGINT", true, "主键"),
+                column("name", "VARCHAR(64)", false, "姓名"),
+                column("age", "INT", false, "年龄"),
+                column("email", "VARCHAR(128)", false, "邮箱"),
+                column("status", "TINYINT", false, "状态"),
+                column("created_at", "DATETIME", false, "创建时间")), List.of()));
+        tables.add(table("orders", "订单", List.of(
+                column("id", "BIGINT", true, "主键"),
+                column("user_id", "BIGINT", false, "用户ID"),
+                column("product_id", "BIGINT", false, "商品ID"),
+                column("amount", "DECIMAL(10,2)", false, "金额"),
+                column("status", "TINYINT", false, "状态"),
+                column("created_at", "DATETIME", false, "创建时间")),
+                List.of(foreignKey("user_id", "users"), foreignKey("product_id", "products"))));
+        tables.add(table("products", "商品", List.of(
+                column("id", "BIGINT", true, "主键"),
+                column("name", "VARCHAR(128)", false, "名称"),
+                column("price", "DECIMAL(10,2)", false, "价格"),
+                column("stock", "INT", false, "库存"),
+                column("created_at", "DATETIME", false, "创建时间")), List.of()));
+
+        for (int i = tables.size(); i < tableCount; i++) {
+            int domain = i % PREFIXES.length;
+            String name = PREFIXES[domain] + "_" + entityName(domain) + "_" + i;
+            String previous = tables.get(i - 1).getName();
+            tables.add(table(name, COMMENTS[domain] + i, List.of(
+                    column("id", "BIGINT", true, "主键"),
+                    column("code", "VARCHAR(32)", false, "编码"),
+                    column("name", "VARCHAR(128)", false, "名称"),
+                    column("status", "TINYINT", false, "状态"),
+                    column("amount", "DECIMAL(12,2)", false, "金额"),
+                    column("ref_id", "BIGINT", false, "关联ID"),
+                    column("created_at", "DATETIME", false, "创建时间"),
+                    column("updated_at", "DATETIME", false, "更新时间")),
+                    List.of(foreignKey("ref_id", previous))));
+        }
+        return DatabaseSchema.builder()
+                .databaseName("bench_" + tableCount)
+                .tables(tables)
+                .build();
+    }
+
+    private static String entityName(int domain) {
+        return switch (domain) {
+            case 0 -> "customer";
+            case 1 -> "contract";
+            case 2 -> "stock";
+            case 3 -> "shipment";
+            case 4 -> "employee";
+            case 5 -> "voucher";
+            case 6 -> "event";
+            default -> "campaign";
+        };
+    }
+
+    private static DatabaseSchema.Table table(String name, String comment, List<DatabaseSchema.Column> columns,
+                                              List<DatabaseSchema.ForeignKey> foreignKeys) {
+        return DatabaseSchema.Table.builder()
+                .name(name)
+                .comment(comment)
+                .columns(columns)
+                .foreignKeys(foreignKeys)
+                .build();
+    }
+
+    private static DatabaseSchema.Column column(String name, String type, boolean primaryKey, String comment) {
+        return DatabaseSchema.Column.builder()
+                .name(name)
+                .type(type)
+                .nullable(!primaryKey)
+                .primaryKey(primaryKey)
+                .comment(comment)
+                .build();
+    }
+
+    private static DatabaseSchema.ForeignKey foreignKey(String column, String referencedTable) {
+        return DatabaseSchema.ForeignKey.builder()
+                .columnName(column)
+                .referencedTable(referencedTable)
+                .referencedColumn("id")
+                .build();
+    }
+}
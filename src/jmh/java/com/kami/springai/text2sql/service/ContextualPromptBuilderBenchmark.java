@@ -0,0 +1,51 @@
+package com.kami.springai.text2sql.service;
+
+import com.kami.springai.benchmark.SyntheticSchemas;
+import com.kami.springai.text2sql.model.DatabaseSchema;
+import com.kami.springai.text2sql.model.QuerySemantic;
+import com.kami.springai.text2sql.model.SchemaPromptCards;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 提示词拼装基准：系统提示词、结构描述渲染和用户提示词
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ContextualPromptBuilderBenchmark {
+
+    @Param({"10", "500", "5000"})
+    private int tableCount;
+
+    private final ContextualPromptBuilder promptBuilder = new ContextualPromptBuilder();
+    private DatabaseSchema schema;
+    private SchemaPromptCards cards;
+    private QuerySemantic semantic;
+    private String question;
+
+    @Setup
+    public void setUp() {
+        schema = SyntheticSchemas.generate(tableCount);
+        cards = SchemaPromptCards.from(schema);
+        question = SyntheticSchemas.QUESTIONS.get(2);
+        semantic = new SemanticAnalyzer().analyzeQuery(question, schema.getTables());
+    }
+
+    @Benchmark
+    public String systemPrompt() {
+        return promptBuilder.buildEnhancedSystemPrompt(semantic, schema);
+    }
+
+    @Benchmark
+    public String renderSchemaCards() {
+        return cards.render(schema);
+    }
+
+    @Benchmark
+    public String userPrompt() {
+        return promptBuilder.buildContextualUserPrompt(question, semantic, cards.render(schema), List.of());
+    }
+}
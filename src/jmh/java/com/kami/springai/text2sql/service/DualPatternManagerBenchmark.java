@@ -0,0 +1,68 @@
+package com.kami.springai.text2sql.service;
+
+import com.kami.springai.benchmark.SyntheticSchemas;
+import com.kami.springai.text2sql.model.DatabaseSchema;
+import com.kami.springai.text2sql.model.EntitySemantic;
+import com.kami.springai.text2sql.model.GeneralizedSqlPattern;
+import com.kami.springai.text2sql.model.IntentSemantic;
+import com.kami.springai.text2sql.model.QuerySemantic;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 学习模式匹配基准：每张表学习一个用户模式，按意图和实体类型查找
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DualPatternManagerBenchmark {
+
+    @Param({"10", "500", "5000"})
+    private int tableCount;
+
+    private DualPatternManager patternManager;
+    private List<String> intentSemantics;
+    private List<String> entityTypes;
+
+    @Setup
+    public void setUp() {
+        patternManager = new DualPatternManager(new GeneralizedLearner());
+        DatabaseSchema schema = SyntheticSchemas.generate(tableCount);
+        for (DatabaseSchema.Table table : schema.getTables()) {
+            String question = "查询" + table.getComment() + "中状态是1的记录";
+            String sql = "SELECT * FROM `" + table.getName() + "` WHERE `status` = 1 LIMIT 100;";
+            patternManager.learnFromUserFeedback(YamlConfigManager.FeedbackType.POSITIVE, question, sql,
+                    null, semantic(table.getName()));
+        }
+
+        QuerySemantic probe = semantic(schema.getTables().get(schema.getTables().size() / 2).getName());
+        intentSemantics = List.of(probe.getIntent().getPrimaryIntent());
+        entityTypes = List.of(probe.getEntities().get(0).getSemanticType());
+    }
+
+    @Benchmark
+    public List<GeneralizedSqlPattern> findMatchingPatterns() {
+        return patternManager.findMatchingPatterns(intentSemantics, entityTypes);
+    }
+
+    private static QuerySemantic semantic(String tableName) {
+        return QuerySemantic.builder()
+                .intent(IntentSemantic.builder()
+                        .primaryIntent("filter_" + tableName)
+                        .intentSemantics(List.of())
+                        .relevantTables(List.of(tableName))
+                        .build())
+                .entities(List.of(EntitySemantic.builder()
+                        .entityName(tableName)
+                        .semanticType(tableName + "_like")
+                        .tableName(tableName)
+                        .primary(true)
+                        .confidence(0.9)
+                        .build()))
+                .conditions(List.of())
+                .confidence(0.9)
+                .build();
+    }
+}
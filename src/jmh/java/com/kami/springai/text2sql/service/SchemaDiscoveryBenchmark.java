@@ -0,0 +1,77 @@
+package com.kami.springai.text2sql.service;
+
+import com.kami.springai.benchmark.SyntheticSchemas;
+import com.kami.springai.datasource.service.DynamicDataSourceManager;
+import com.kami.springai.text2sql.model.DatabaseSchema;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 结构发现基准：H2内存库中N张表，information_schema 批量加载对比 DatabaseMetaData 逐表加载
+ *
+ * 内存库没有网络往返，真实MySQL上逐表加载的差距按 3N+1 次往返的延迟放大
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SchemaDiscoveryBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int tableCount;
+
+    private final InformationSchemaLoader loader = new InformationSchemaLoader();
+    private SchemaDiscoveryService discoveryService;
+    private Connection connection;
+
+    @Setup
+    public void setUp() throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:discovery_" + tableCount + ";DB_CLOSE_DELAY=-1");
+        connection = dataSource.getConnection();
+        DatabaseSchema schema = SyntheticSchemas.generate(tableCount);
+        try (Statement statement = connection.createStatement()) {
+            for (DatabaseSchema.Table table : schema.getTables()) {
+                StringBuilder ddl = new StringBuilder("CREATE TABLE IF NOT EXISTS ").append(table.getName()).append(" (");
+                for (DatabaseSchema.Column column : table.getColumns()) {
+                    ddl.append(column.getName()).append(' ').append(column.getType())
+                            .append(column.isPrimaryKey() ? " PRIMARY KEY" : "")
+                            .append(" COMMENT '").append(column.getComment()).append("', ");
+                }
+                ddl.setLength(ddl.length() - 2);
+                statement.execute(ddl.append(')').toString());
+                statement.execute("COMMENT ON TABLE " + table.getName() + " IS '" + table.getComment() + "'");
+            }
+            for (DatabaseSchema.Table table : schema.getTables()) {
+                for (DatabaseSchema.ForeignKey foreignKey : table.getForeignKeys()) {
+                    statement.execute("ALTER TABLE " + table.getName() + " ADD FOREIGN KEY (" + foreignKey.getColumnName()
+                            + ") REFERENCES " + foreignKey.getReferencedTable() + "(" + foreignKey.getReferencedColumn() + ")");
+                }
+            }
+        }
+        discoveryService = new SchemaDiscoveryService(new DynamicDataSourceManager(), loader);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public List<DatabaseSchema.Table> informationSchema() throws SQLException {
+        return loader.load(connection);
+    }
+
+    @Benchmark
+    public List<DatabaseSchema.Table> databaseMetaData() throws SQLException {
+        return discoveryService.loadTablesWithMetaData(connection, connection.getCatalog());
+    }
+}
@@ -0,0 +1,36 @@
+package com.kami.springai.text2sql.service;
+
+import com.kami.springai.benchmark.SyntheticSchemas;
+import com.kami.springai.text2sql.model.DatabaseSchema;
+import com.kami.springai.text2sql.model.QuerySemantic;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 语义分析基准：每次分析都遍历全部表名和注释
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SemanticAnalyzerBenchmark {
+
+    @Param({"10", "500", "5000"})
+    private int tableCount;
+
+    private final SemanticAnalyzer analyzer = new SemanticAnalyzer();
+    private List<DatabaseSchema.Table> tables;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        tables = SyntheticSchemas.generate(tableCount).getTables();
+    }
+
+    @Benchmark
+    public QuerySemantic analyzeQuery() {
+        String question = SyntheticSchemas.QUESTIONS.get(next++ % SyntheticSchemas.QUESTIONS.size());
+        return analyzer.analyzeQuery(question, tables);
+    }
+}
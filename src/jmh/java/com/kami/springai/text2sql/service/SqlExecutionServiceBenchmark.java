@@ -0,0 +1,72 @@
+package com.kami.springai.text2sql.service;
+
+import com.kami.springai.datasource.service.DynamicDataSourceManager;
+import com.kami.springai.text2sql.config.Text2SqlMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询结果物化基准：H2内存库中读取N行并转换为列名-值映射
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SqlExecutionServiceBenchmark {
+
+    @Param({"100", "1000"})
+    private int rowCount;
+
+    private SqlExecutionService executionService;
+    private Connection keepAlive;
+    private String sql;
+
+    @Setup
+    public void setUp() throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:bench_" + rowCount + ";DB_CLOSE_DELAY=-1");
+        keepAlive = dataSource.getConnection();
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS orders (id BIGINT PRIMARY KEY, user_id BIGINT, "
+                    + "amount DECIMAL(10,2), status TINYINT, remark VARCHAR(128), created_at TIMESTAMP)");
+            statement.execute("DELETE FROM orders");
+        }
+        try (PreparedStatement insert = keepAlive.prepareStatement(
+                "INSERT INTO orders VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP)")) {
+            for (int i = 0; i < rowCount; i++) {
+                insert.setLong(1, i);
+                insert.setLong(2, i % 97);
+                insert.setBigDecimal(3, java.math.BigDecimal.valueOf(i * 13L, 2));
+                insert.setInt(4, i % 3);
+                insert.setString(5, "订单备注" + i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+
+        executionService = new SqlExecutionService(new DynamicDataSourceManager() {
+            @Override
+            public DataSource getCurrentDataSource() {
+                return dataSource;
+            }
+        }, new Text2SqlMetrics(new SimpleMeterRegistry()));
+        sql = "SELECT * FROM orders LIMIT " + rowCount;
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        keepAlive.close();
+    }
+
+    @Benchmark
+    public SqlExecutionService.QueryResult executeQuery() {
+        return executionService.executeQuery(sql);
+    }
+}
@@ -0,0 +1,23 @@
+package com.kami.springai.text2sql.validation;
+
+import com.kami.springai.benchmark.SyntheticSchemas;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL安全检查基准（与数据库结构无关）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SqlValidationServiceBenchmark {
+
+    private final SqlValidationService validationService = new SqlValidationService();
+    private int next;
+
+    @Benchmark
+    public SqlValidationService.ValidationResult validateSql() {
+        return validationService.validateSql(SyntheticSchemas.SQLS.get(next++ % SyntheticSchemas.SQLS.size()));
+    }
+}
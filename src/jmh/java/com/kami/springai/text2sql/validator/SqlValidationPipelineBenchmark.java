@@ -0,0 +1,36 @@
+package com.kami.springai.text2sql.validator;
+
+import com.kami.springai.benchmark.SyntheticSchemas;
+import com.kami.springai.text2sql.config.Text2SqlMetrics;
+import com.kami.springai.text2sql.model.DatabaseSchema;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 验证流水线基准：语法、安全、语义（对照结构）和性能检查
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SqlValidationPipelineBenchmark {
+
+    @Param({"10", "500", "5000"})
+    private int tableCount;
+
+    private final SqlValidationPipeline pipeline = new SqlValidationPipeline(new Text2SqlMetrics(new SimpleMeterRegistry()));
+    private DatabaseSchema schema;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        schema = SyntheticSchemas.generate(tableCount);
+    }
+
+    @Benchmark
+    public ValidationPipelineResult validateSql() {
+        int index = next++ % SyntheticSchemas.SQLS.size();
+        return pipeline.validateSql(SyntheticSchemas.SQLS.get(index), SyntheticSchemas.QUESTIONS.get(index), schema);
+    }
+}
@@ -0,0 +1,416 @@
+package com.kami.springai.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.kami.springai.SpringAiApplication;
+import com.kami.springai.datasource.service.DynamicDataSourceManager;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 端到端压测
+ *
+ * 在H2内存库上初始化测试表，以 stub-llm 配置文件启动应用（不访问DeepSeek），
+ * 按配置的并发和接口比例压测 Text2SQL、SQL执行和数据源接口，
+ * 用 HdrHistogram 统计延迟分位数、吞吐量和错误率，并写出JSON报告。
+ *
+ * 参数（系统属性，Gradle 中用 -P 传入）：
+ * - loadtest.concurrency - 并发请求数，默认32
+ * - loadtest.duration - 测量时长(秒)，默认30
+ * - loadtest.warmup - 预热时长(秒)，预热期间的结果不计入报告，默认5
+ * - loadtest.mix - 接口比例，默认 text2sql:6,execute-sql:3,datasources:1
+ * - loadtest.extra-tables - 额外生成的空表数量，用于模拟大结构，默认0
+ * - text2sql.* - 直接作为应用配置，例如 text2sql.llm.stub.latency.median-ms=200
+ *
+ * 第一个命令行参数为报告目录。
+ */
+public class LoadTestRunner {
+
+    private static final String DATABASE = "loadtest";
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private static final List<String> QUESTIONS = List.of(
+            "查询所有用户",
+            "查询年龄大于25的用户姓名",
+            "统计用户总数",
+            "查询最近10个订单",
+            "统计每个用户的订单数",
+            "查询所有商品",
+            "查询价格最高的5个商品");
+
+    private static final List<String> SQLS = List.of(
+            "SELECT * FROM users LIMIT 100",
+            "SELECT name FROM users WHERE age > 25 LIMIT 100",
+            "SELECT COUNT(*) AS total FROM users",
+            "SELECT * FROM orders ORDER BY created_at DESC LIMIT 10",
+            "SELECT user_id, COUNT(*) AS order_count FROM orders GROUP BY user_id LIMIT 100",
+            "SELECT * FROM products ORDER BY price DESC LIMIT 5");
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final int concurrency = Integer.getInteger("loadtest.concurrency", 32);
+    private final int durationSeconds = Integer.getInteger("loadtest.duration", 30);
+    private final int warmupSeconds = Integer.getInteger("loadtest.warmup", 5);
+    private final int extraTables = Integer.getInteger("loadtest.extra-tables", 0);
+    private final String mix = System.getProperty("loadtest.mix", "text2sql:6,execute-sql:3,datasources:1");
+
+    private String baseUrl;
+    private String dataSourceId;
+
+    public static void main(String[] args) throws Exception {
+        Path reportDir = Paths.get(args.length > 0 ? args[0] : "build/reports/loadtest");
+        int exitCode = new LoadTestRunner().run(reportDir);
+        System.exit(exitCode);
+    }
+
+    private int run(Path reportDir) throws Exception {
+        seedDatabase();
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringAiApplication.class)
+                .profiles("stub-llm")
+                .properties("server.port=0", "logging.level.root=WARN", "logging.level.com.kami=WARN")
+                .run();
+        try {
+            baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+            dataSourceId = registerDataSource();
+            // SQL执行接口没有请求级的数据源参数，使用当前活跃数据源
+            context.getBean(DynamicDataSourceManager.class).setActiveDataSource(dataSourceId);
+
+            List<Scenario> scenarios = buildScenarios();
+            System.out.printf("压测开始: 并发=%d, 预热=%ds, 时长=%ds, 比例=%s%n",
+                    concurrency, warmupSeconds, durationSeconds, mix);
+
+            drive(scenarios, warmupSeconds);
+            scenarios.forEach(Scenario::reset);
+            long start = System.nanoTime();
+            drive(scenarios, durationSeconds);
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+            Map<String, Object> report = buildReport(scenarios, elapsedSeconds);
+            writeReport(reportDir, report);
+            printSummary(scenarios, elapsedSeconds);
+            return 0;
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * 初始化H2内存库（DB_CLOSE_DELAY=-1，应用中的数据源连接到同一个库）
+     */
+    private void seedDatabase() throws SQLException {
+        String url = "jdbc:h2:mem:" + DATABASE + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=false";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, name VARCHAR(64), age INT, "
+                    + "email VARCHAR(128), status TINYINT, created_at TIMESTAMP)");
+            statement.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, name VARCHAR(128), "
+                    + "price DECIMAL(10,2), stock INT, created_at TIMESTAMP)");
+            statement.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, user_id BIGINT REFERENCES users(id), "
+                    + "product_id BIGINT REFERENCES products(id), amount DECIMAL(10,2), status TINYINT, created_at TIMESTAMP)");
+            statement.execute("COMMENT ON TABLE users IS '用户'");
+            statement.execute("COMMENT ON TABLE products IS '商品'");
+            statement.execute("COMMENT ON TABLE orders IS '订单'");
+
+            insertRows(connection, "INSERT INTO users VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP)", 1000, (insert, i) -> {
+                insert.setLong(1, i);
+                insert.setString(2, "用户" + i);
+                insert.setInt(3, 18 + i % 50);
+                insert.setString(4, "user" + i + "@example.com");
+                insert.setInt(5, i % 2);
+            });
+            insertRows(connection, "INSERT INTO products VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)", 200, (insert, i) -> {
+                insert.setLong(1, i);
+                insert.setString(2, "商品" + i);
+                insert.setBigDecimal(3, java.math.BigDecimal.valueOf(100 + i * 37L, 2));
+                insert.setInt(4, i % 100);
+            });
+            insertRows(connection, "INSERT INTO orders VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP)", 5000, (insert, i) -> {
+                insert.setLong(1, i);
+                insert.setLong(2, i % 1000);
+                insert.setLong(3, i % 200);
+                insert.setBigDecimal(4, java.math.BigDecimal.valueOf(500 + i * 13L, 2));
+                insert.setInt(5, i % 4);
+            });
+            for (int i = 0; i < extraTables; i++) {
+                statement.execute("CREATE TABLE extra_table_" + i + " (id BIGINT PRIMARY KEY, code VARCHAR(32), "
+                        + "name VARCHAR(128), status TINYINT, amount DECIMAL(12,2), created_at TIMESTAMP)");
+            }
+        }
+    }
+
+    private void insertRows(Connection connection, String sql, int count, RowWriter writer) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                writer.write(insert, i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * 通过数据源接口注册H2数据源
+     */
+    private String registerDataSource() throws IOException, InterruptedException {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("name", "loadtest-h2");
+        config.put("type", "h2");
+        config.put("host", "localhost");
+        config.put("database", DATABASE);
+        config.put("username", "sa");
+        config.put("password", "");
+        config.put("driverClassName", "org.h2.Driver");
+        config.put("minimumIdle", 2);
+        config.put("maximumPoolSize", Math.max(10, concurrency));
+
+        HttpResponse<String> response = send(post("/api/datasources", config));
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("注册数据源失败: " + response.body());
+        }
+        return objectMapper.readTree(response.body()).path("data").path("id").asText();
+    }
+
+    private List<Scenario> buildScenarios() {
+        List<Scenario> scenarios = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] nameAndWeight = part.trim().split(":");
+            String name = nameAndWeight[0].trim();
+            int weight = nameAndWeight.length > 1 ? Integer.parseInt(nameAndWeight[1].trim()) : 1;
+            if (weight > 0) {
+                scenarios.add(new Scenario(name, weight));
+            }
+        }
+        if (scenarios.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix 没有有效的接口: " + mix);
+        }
+        return scenarios;
+    }
+
+    /**
+     * 以固定并发持续发送请求，每个工作线程按权重轮流选择接口
+     */
+    private void drive(List<Scenario> scenarios, int seconds) throws InterruptedException {
+        if (seconds <= 0) {
+            return;
+        }
+        List<Scenario> schedule = new ArrayList<>();
+        for (Scenario scenario : scenarios) {
+            for (int i = 0; i < scenario.weight; i++) {
+                schedule.add(scenario);
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+        for (int worker = 0; worker < concurrency; worker++) {
+            int offset = worker;
+            workers.execute(() -> {
+                long iteration = offset;
+                while (System.nanoTime() < deadline) {
+                    Scenario scenario = schedule.get((int) (iteration % schedule.size()));
+                    execute(scenario, iteration);
+                    iteration++;
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(seconds + 120L, TimeUnit.SECONDS);
+    }
+
+    private void execute(Scenario scenario, long iteration) {
+        long start = System.nanoTime();
+        boolean success;
+        try {
+            HttpResponse<String> response = send(request(scenario.name, iteration));
+            success = isSuccess(scenario.name, response);
+        } catch (Exception e) {
+            success = false;
+        }
+        long micros = (System.nanoTime() - start) / 1000;
+        scenario.histogram.recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+        if (!success) {
+            scenario.errors.incrementAndGet();
+        }
+    }
+
+    private HttpRequest request(String scenario, long iteration) throws IOException {
+        return switch (scenario) {
+            case "text2sql" -> post("/api/mcp/text2sql", Map.of(
+                    "prompt", QUESTIONS.get((int) (iteration % QUESTIONS.size())),
+                    "dataSourceId", dataSourceId));
+            case "execute-sql" -> post("/api/mcp/execute-sql", Map.of(
+                    "sql", SQLS.get((int) (iteration % SQLS.size()))));
+            case "datasources" -> get(iteration % 2 == 0
+                    ? "/api/datasources"
+                    : "/api/datasources/" + dataSourceId + "/status");
+            default -> throw new IllegalArgumentException("未知的压测接口: " + scenario);
+        };
+    }
+
+    /**
+     * MCP接口失败时仍返回200，需检查响应中的 success 字段
+     */
+    private boolean isSuccess(String scenario, HttpResponse<String> response) throws IOException {
+        if (response.statusCode() != 200) {
+            return false;
+        }
+        if (scenario.equals("datasources")) {
+            return true;
+        }
+        JsonNode body = objectMapper.readTree(response.body());
+        return body.path("success").asBoolean(false);
+    }
+
+    private HttpRequest post(String path, Object body) throws IOException {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofMinutes(2))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                .build();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofMinutes(2))
+                .GET()
+                .build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private Map<String, Object> buildReport(List<Scenario> scenarios, double elapsedSeconds) {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("concurrency", concurrency);
+        config.put("durationSeconds", durationSeconds);
+        config.put("warmupSeconds", warmupSeconds);
+        config.put("mix", mix);
+        config.put("extraTables", extraTables);
+        config.put("stubLatencyProfile", System.getProperty("text2sql.llm.stub.latency.profile", "application-stub-llm.yml"));
+
+        Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long totalErrors = 0;
+        Map<String, Object> results = new LinkedHashMap<>();
+        for (Scenario scenario : scenarios) {
+            Histogram snapshot = scenario.histogram.copy();
+            total.add(snapshot);
+            totalErrors += scenario.errors.get();
+            results.put(scenario.name, summarize(snapshot, scenario.errors.get(), elapsedSeconds));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.put("config", config);
+        report.put("total", summarize(total, totalErrors, elapsedSeconds));
+        report.put("scenarios", results);
+        return report;
+    }
+
+    private static Map<String, Object> summarize(Histogram histogram, long errors, double elapsedSeconds) {
+        long requests = histogram.getTotalCount();
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("p50", millis(histogram.getValueAtPercentile(50)));
+        latency.put("p95", millis(histogram.getValueAtPercentile(95)));
+        latency.put("p99", millis(histogram.getValueAtPercentile(99)));
+        latency.put("max", millis(histogram.getMaxValue()));
+        latency.put("mean", Math.round(histogram.getMean() / 10.0) / 100.0);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", requests);
+        summary.put("errors", errors);
+        summary.put("errorRate", requests > 0 ? (double) errors / requests : 0.0);
+        summary.put("throughputPerSecond", Math.round(requests / elapsedSeconds * 100) / 100.0);
+        summary.put("latencyMs", latency);
+        return summary;
+    }
+
+    private static double millis(long micros) {
+        return Math.round(micros / 10.0) / 100.0;
+    }
+
+    private void writeReport(Path reportDir, Map<String, Object> report) throws IOException {
+        Files.createDirectories(reportDir);
+        String json = objectMapper.writeValueAsString(report);
+        String fileName = "loadtest-" + Instant.now().toString().replace(":", "-") + ".json";
+        Files.writeString(reportDir.resolve(fileName), json);
+        Files.writeString(reportDir.resolve("latest.json"), json);
+        System.out.println("压测报告: " + reportDir.resolve(fileName).toAbsolutePath());
+    }
+
+    private void printSummary(List<Scenario> scenarios, double elapsedSeconds) {
+        System.out.printf("%-12s %10s %8s %10s %10s %10s %10s%n",
+                "接口", "请求数", "错误率", "吞吐(/s)", "p50(ms)", "p95(ms)", "p99(ms)");
+        for (Scenario scenario : scenarios) {
+            Histogram histogram = scenario.histogram;
+            long requests = histogram.getTotalCount();
+            System.out.printf("%-12s %10d %7.2f%% %10.1f %10.2f %10.2f %10.2f%n",
+                    scenario.name,
+                    requests,
+                    requests > 0 ? 100.0 * scenario.errors.get() / requests : 0.0,
+                    requests / elapsedSeconds,
+                    millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(95)),
+                    millis(histogram.getValueAtPercentile(99)));
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(PreparedStatement insert, int index) throws SQLException;
+    }
+
+    /**
+     * 单个压测接口的延迟直方图（微秒）和错误计数
+     */
+    private static class Scenario {
+        private final String name;
+        private final int weight;
+        private final ConcurrentHistogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final AtomicLong errors = new AtomicLong();
+
+        Scenario(String name, int weight) {
+            this.name = name;
+            this.weight = weight;
+        }
+
+        void reset() {
+            histogram.reset();
+            errors.set(0);
+        }
+    }
+}
@@ -1,27 +1,64 @@
 package com.kami.springai.common.cache;
 
+import com.kami.springai.datasource.service.DataSourceContextHolder;
+import com.kami.springai.datasource.service.DataSourceRepository;
+import com.kami.springai.datasource.service.DynamicDataSourceManager;
 import com.kami.springai.text2sql.model.DatabaseSchema;
+import com.kami.springai.text2sql.model.SchemaPromptCards;
 import com.kami.springai.text2sql.service.SchemaDiscoveryService;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 数据库结构缓存服务
+ *
+ * 缓存条目有两级过期时间：
+ * - 超过软过期时间（soft-ttl）仍立即返回缓存的结构，同时在后台刷新，每个数据源同时只有一个刷新
+ * - 超过硬过期时间（hard-ttl）才由调用方同步重新加载
+ * 后台刷新失败时保留上一次成功加载的结构，记录失败原因和结构的存活时间，间隔 refresh-retry-interval 后再重试。
+ * 同一数据源同时只有一次加载（同步或后台），并发的调用方等待并共享这次加载的结果，
+ * 重启或过期后的并发请求不会各自发起结构发现。
+ * 结构指纹变化时写入磁盘快照（见 SchemaSnapshotStore），启动时恢复已注册数据源的快照，
+ * 首次使用时先返回快照中的结构，同时在后台与数据库校验（有表版本时只比对摘要）。
+ *
+ * 刷新优先增量进行：比对每张表的版本摘要，只重新加载新增和变化的表、移除已删除的表，
+ * 组装出新的结构版本后整体替换缓存条目。驱动不支持表版本时回退到完整的结构发现。
  */
 @Slf4j
 @Service
@@ -29,11 +66,51 @@ import java.util.concurrent.TimeUnit;
 public class SchemaCache {
 
     private final SchemaDiscoveryService schemaDiscoveryService;
+    private final ObjectProvider<SchemaChangeListener> schemaChangeListeners;
     private final ConcurrentMap<String, CacheEntry> localCache = new ConcurrentHashMap<>();
-    private static final long CACHE_TTL_MINUTES = 30; // 缓存30分钟
     private static final long CLEANUP_INTERVAL_MINUTES = 5; // 每5分钟清理一次
     private ScheduledExecutorService cleanupExecutor;
 
+    @Value("${text2sql.schema.incremental-refresh:true}")
+    private boolean incrementalRefresh;
+
+    @Value("${text2sql.schema.soft-ttl:1800}")
+    private long softTtlSeconds;
+
+    @Value("${text2sql.schema.hard-ttl:7200}")
+    private long hardTtlSeconds;
+
+    @Value("${text2sql.schema.refresh-retry-interval:60}")
+    private long refreshRetryIntervalSeconds;
+
+    @Value("${text2sql.schema.max-retained-baselines:50}")
+    private int maxRetainedBaselines;
+
+    @Autowired
+    @Qualifier("virtualThreadExecutor")
+    private Executor refreshExecutor;
+
+    @Autowired(required = false)
+    private SchemaSnapshotStore snapshotStore;
+
+    @Autowired(required = false)
+    private DynamicDataSourceManager dataSourceManager;
+
+    @Autowired(required = false)
+    private DataSourceRepository dataSourceRepository;
+
+    // 每个数据源进行中的加载（同步加载或后台刷新）
+    private final ConcurrentMap<String, CompletableFuture<DatabaseSchema>> loadsInFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong fullRefreshes = new AtomicLong();
+    private final AtomicLong incrementalRefreshes = new AtomicLong();
+    private final AtomicLong unchangedRefreshes = new AtomicLong();
+    private final AtomicLong reloadedTables = new AtomicLong();
+    private final AtomicLong staleServed = new AtomicLong();
+    private final AtomicLong backgroundRefreshes = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+    private final AtomicLong coalescedLoads = new AtomicLong();
+
     @PostConstruct
     public void init() {
         // 初始化清理任务
@@ -49,6 +126,26 @@ public class SchemaCache {
             CLEANUP_INTERVAL_MINUTES, CLEANUP_INTERVAL_MINUTES, TimeUnit.MINUTES);
         
         log.info("Schema cache cleanup scheduled every {} minutes", CLEANUP_INTERVAL_MINUTES);
+
+        restoreSnapshots();
+    }
+
+    /**
+     * 从磁盘快照恢复已注册数据源的结构，恢复的条目在首次使用时后台校验
+     */
+    private void restoreSnapshots() {
+        if (snapshotStore == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<SchemaSnapshot> snapshots = snapshotStore.loadAll(this::isRegistered);
+        for (SchemaSnapshot snapshot : snapshots) {
+            localCache.putIfAbsent(snapshot.getDataSourceId(), restoredEntry(snapshot));
+        }
+        if (!snapshots.isEmpty()) {
+            log.info("已从快照恢复 {} 个数据源的数据库结构，耗时 {}ms",
+                    snapshots.size(), (System.nanoTime() - start) / 1_000_000);
+        }
     }
     
     @PreDestroy
@@ -67,17 +164,33 @@ public class SchemaCache {
     }
     
     /**
-     * 定期清理过期缓存条目
+     * 定期清理超过硬过期时间的缓存条目
+     *
+     * 已注册数据源带表版本的条目作为下次增量刷新的基线保留，最多保留 max-retained-baselines 个最近加载的
      */
     @Scheduled(fixedDelay = 300000) // 5分钟执行一次
     public void cleanupExpiredEntries() {
         int removedCount = 0;
+        List<Map.Entry<String, CacheEntry>> baselines = new ArrayList<>();
         for (var entry : localCache.entrySet()) {
-            if (entry.getValue().isExpired()) {
-                localCache.remove(entry.getKey());
+            if (!entry.getValue().isExpired(hardTtlSeconds)) {
+                continue;
+            }
+            if (isRefreshBaseline(entry.getValue()) && isRegistered(entry.getKey())) {
+                baselines.add(entry);
+            } else if (localCache.remove(entry.getKey(), entry.getValue())) {
                 removedCount++;
             }
         }
+        if (baselines.size() > maxRetainedBaselines) {
+            baselines.sort(Comparator.comparing((Map.Entry<String, CacheEntry> entry) -> entry.getValue().getCreateTime())
+                    .reversed());
+            for (var entry : baselines.subList(Math.max(maxRetainedBaselines, 0), baselines.size())) {
+                if (localCache.remove(entry.getKey(), entry.getValue())) {
+                    removedCount++;
+                }
+            }
+        }
         if (removedCount > 0) {
             log.info("Cleaned up {} expired cache entries", removedCount);
         }
@@ -85,6 +198,8 @@ public class SchemaCache {
 
     /**
      * 获取数据库结构（带缓存）
+     *
+     * 缓存未超过硬过期时间时总是立即返回，超过软过期时间的同时触发后台刷新
      */
     @Cacheable(value = "database-schema", key = "#dataSourceId")
     public DatabaseSchema getSchema(String dataSourceId) {
@@ -92,51 +207,431 @@ public class SchemaCache {
         
         // 先检查本地缓存
         CacheEntry entry = localCache.get(dataSourceId);
-        if (entry != null && !entry.isExpired()) {
+        if (entry != null && !entry.isExpired(hardTtlSeconds)) {
+            if (needsRefresh(entry)) {
+                if (!entry.isRestored()) {
+                    staleServed.incrementAndGet();
+                }
+                scheduleRefresh(dataSourceId, entry);
+            }
             log.debug("从本地缓存获取数据源[{}]的数据库结构", dataSourceId);
             return entry.getSchema();
         }
         
-        // 缓存未命中，从数据库获取
+        // 缓存未命中或超过硬过期时间，同步从数据库获取；已有加载在进行时等待其结果
+        CompletableFuture<DatabaseSchema> load = new CompletableFuture<>();
+        CompletableFuture<DatabaseSchema> inFlight = loadsInFlight.putIfAbsent(dataSourceId, load);
+        if (inFlight != null) {
+            coalescedLoads.incrementAndGet();
+            return awaitLoad(dataSourceId, inFlight, entry);
+        }
+
         try {
-            DatabaseSchema schema = schemaDiscoveryService.discoverSchema(dataSourceId);
-            
-            // 更新本地缓存
-            localCache.put(dataSourceId, CacheEntry.builder()
-                    .schema(schema)
-                    .createTime(LocalDateTime.now())
-                    .build());
-            
-            log.info("数据源[{}]的数据库结构已缓存", dataSourceId);
+            // 获得加载权之前可能刚有一次加载完成
+            CacheEntry current = localCache.get(dataSourceId);
+            DatabaseSchema schema = current != null && !current.isExpired(hardTtlSeconds)
+                    ? current.getSchema()
+                    : refresh(dataSourceId, current);
+            load.complete(schema);
             return schema;
-            
         } catch (Exception e) {
+            load.completeExceptionally(e);
             log.error("获取数据库结构失败: {}", e.getMessage(), e);
             
             // 如果有过期缓存，返回过期缓存作为备用
             if (entry != null) {
+                recordRefreshFailure(dataSourceId, entry, e);
                 log.warn("使用过期缓存作为备用: {}", dataSourceId);
                 return entry.getSchema();
             }
             
             throw e;
+        } finally {
+            loadsInFlight.remove(dataSourceId, load);
+        }
+    }
+
+    /**
+     * 等待其他调用方进行中的加载，失败时与加载方一样回退到过期缓存
+     */
+    private DatabaseSchema awaitLoad(String dataSourceId, CompletableFuture<DatabaseSchema> inFlight, CacheEntry entry) {
+        log.debug("等待数据源[{}]进行中的结构加载", dataSourceId);
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (entry != null) {
+                log.warn("使用过期缓存作为备用: {}", dataSourceId);
+                return entry.getSchema();
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("获取数据库结构失败: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * 超过软过期时间或从快照恢复后尚未校验
+     */
+    private boolean needsRefresh(CacheEntry entry) {
+        return entry.isRestored() || entry.isStale(softTtlSeconds);
+    }
+
+    /**
+     * 在后台刷新超过软过期时间（或待校验）的结构；已有刷新在进行或上次失败后未到重试间隔时不重复提交
+     */
+    private void scheduleRefresh(String dataSourceId, CacheEntry entry) {
+        if (entry.isRetryPending(refreshRetryIntervalSeconds) || loadsInFlight.containsKey(dataSourceId)) {
+            return;
+        }
+        CompletableFuture<DatabaseSchema> refresh = new CompletableFuture<>();
+        if (loadsInFlight.putIfAbsent(dataSourceId, refresh) != null) {
+            return;
+        }
+
+        backgroundRefreshes.incrementAndGet();
+        log.debug("数据源[{}]的数据库结构已缓存 {} 秒，后台刷新", dataSourceId, entry.getAgeSeconds());
+        // 数据源不存在时结构发现回退到上下文中的数据源，后台线程沿用调用方的上下文
+        String contextDataSourceId = DataSourceContextHolder.getDataSourceId();
+        try {
+            refreshExecutor.execute(() -> {
+                if (contextDataSourceId != null) {
+                    DataSourceContextHolder.setDataSourceId(contextDataSourceId);
+                }
+                CacheEntry current = localCache.get(dataSourceId);
+                try {
+                    if (current != null && !needsRefresh(current)) {
+                        // 期间已由其他调用方刷新
+                        refresh.complete(current.getSchema());
+                        return;
+                    }
+                    refresh.complete(refresh(dataSourceId, current));
+                } catch (Exception e) {
+                    recordRefreshFailure(dataSourceId, current, e);
+                    refresh.completeExceptionally(e);
+                } finally {
+                    DataSourceContextHolder.clear();
+                    loadsInFlight.remove(dataSourceId, refresh);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loadsInFlight.remove(dataSourceId, refresh);
+            refresh.completeExceptionally(e);
+            log.warn("数据源[{}]的结构后台刷新提交失败: {}", dataSourceId, e.getMessage());
+        }
+    }
+
+    /**
+     * 重新加载结构并替换缓存条目：有上一版本的表版本时增量刷新，否则完整发现
+     */
+    private DatabaseSchema refresh(String dataSourceId, CacheEntry entry) {
+        if (entry != null && isRefreshBaseline(entry)) {
+            DatabaseSchema refreshed = refreshIncrementally(dataSourceId, entry);
+            if (refreshed != null) {
+                return refreshed;
+            }
+        }
+
+        // 表版本在结构发现之前读取：期间发生的变更会在下次刷新时被当作变化的表重新加载
+        Map<String, String> tableVersions = incrementalRefresh
+                ? schemaDiscoveryService.loadTableVersions(dataSourceId)
+                : null;
+        DatabaseSchema schema = schemaDiscoveryService.discoverSchema(dataSourceId);
+        String fingerprint = SchemaFingerprint.of(schema);
+        
+        // 更新本地缓存，同时预先渲染各表的提示词卡片
+        CacheEntry loaded = CacheEntry.builder()
+                .schema(schema)
+                .fingerprint(fingerprint)
+                .promptCards(SchemaPromptCards.from(schema))
+                .tableVersions(tableVersions)
+                .createTime(LocalDateTime.now())
+                .build();
+        localCache.put(dataSourceId, loaded);
+        String previousFingerprint = entry != null ? entry.getFingerprint() : null;
+        if (!fingerprint.equals(previousFingerprint)) {
+            persistSnapshot(dataSourceId, loaded);
+        }
+        if (entry != null) {
+            fullRefreshes.incrementAndGet();
+        }
+        
+        log.info("数据源[{}]的数据库结构已缓存, 指纹: {}", dataSourceId, fingerprint);
+        
+        // 结构发生变化时通知下游缓存
+        if (previousFingerprint != null && !previousFingerprint.equals(fingerprint)) {
+            notifySchemaChanged(dataSourceId, previousFingerprint, fingerprint);
+        }
+        return schema;
+    }
+
+    /**
+     * 记录刷新失败，缓存条目仍是上一次成功加载的结构
+     */
+    private void recordRefreshFailure(String dataSourceId, CacheEntry entry, Exception e) {
+        refreshFailures.incrementAndGet();
+        if (entry == null) {
+            return;
+        }
+        localCache.computeIfPresent(dataSourceId, (key, current) -> current != entry ? current : current.toBuilder()
+                .failedRefreshes(current.getFailedRefreshes() + 1)
+                .lastRefreshError(e.getMessage())
+                .lastRefreshFailedAt(LocalDateTime.now())
+                .build());
+        log.warn("数据源[{}]的结构刷新失败，继续使用 {} 秒前加载的结构: {}",
+                dataSourceId, entry.getAgeSeconds(), e.getMessage());
+    }
+
+    /**
+     * 按表版本增量刷新，无法比对表版本或重新加载失败时返回null
+     */
+    private DatabaseSchema refreshIncrementally(String dataSourceId, CacheEntry entry) {
+        long start = System.nanoTime();
+        Map<String, String> currentVersions = schemaDiscoveryService.loadTableVersions(dataSourceId);
+        if (currentVersions == null) {
+            return null;
+        }
+
+        Map<String, String> previousVersions = entry.getTableVersions();
+        Set<String> dropped = new HashSet<>(previousVersions.keySet());
+        dropped.removeAll(currentVersions.keySet());
+        Set<String> changed = new LinkedHashSet<>();
+        int added = 0;
+        for (Map.Entry<String, String> version : currentVersions.entrySet()) {
+            String previous = previousVersions.get(version.getKey());
+            if (previous == null) {
+                added++;
+                changed.add(version.getKey());
+            } else if (!previous.equals(version.getValue())) {
+                changed.add(version.getKey());
+            }
+        }
+
+        if (changed.isEmpty() && dropped.isEmpty()) {
+            localCache.put(dataSourceId, entry.toBuilder()
+                    .tableVersions(currentVersions)
+                    .createTime(LocalDateTime.now())
+                    .failedRefreshes(0)
+                    .lastRefreshError(null)
+                    .lastRefreshFailedAt(null)
+                    .restored(false)
+                    .build());
+            unchangedRefreshes.incrementAndGet();
+            log.debug("数据源[{}]的数据库结构未变化，耗时 {}ms", dataSourceId, (System.nanoTime() - start) / 1_000_000);
+            return entry.getSchema();
+        }
+
+        List<DatabaseSchema.Table> reloaded = schemaDiscoveryService.loadTables(dataSourceId, changed);
+        if (reloaded == null) {
+            return null;
+        }
+
+        // 同名表（不同模式下）可能有多张，按名称分组；组内与完整加载一样按模式排序
+        Map<String, Deque<DatabaseSchema.Table>> reloadedByName = new LinkedHashMap<>();
+        for (DatabaseSchema.Table table : reloaded) {
+            reloadedByName.computeIfAbsent(table.getName(), name -> new ArrayDeque<>()).add(table);
+        }
+
+        // 保持原有顺序：跳过已删除的表，变化的表按顺序逐一原位替换，新增的表追加在末尾
+        DatabaseSchema previousSchema = entry.getSchema();
+        List<DatabaseSchema.Table> tables = new ArrayList<>(currentVersions.size());
+        for (DatabaseSchema.Table table : previousSchema.getTables()) {
+            if (dropped.contains(table.getName())) {
+                continue;
+            }
+            if (changed.contains(table.getName())) {
+                Deque<DatabaseSchema.Table> replacement = reloadedByName.get(table.getName());
+                if (replacement != null && !replacement.isEmpty()) {
+                    tables.add(replacement.poll());
+                }
+                continue;
+            }
+            tables.add(table);
+        }
+        reloadedByName.values().forEach(tables::addAll);
+
+        DatabaseSchema schema = DatabaseSchema.builder()
+                .databaseName(previousSchema.getDatabaseName())
+                .tables(List.copyOf(tables))
+                .build();
+        String fingerprint = SchemaFingerprint.of(schema);
+        CacheEntry refreshed = CacheEntry.builder()
+                .schema(schema)
+                .fingerprint(fingerprint)
+                .promptCards(SchemaPromptCards.from(schema, entry.getPromptCards(), changed))
+                .tableVersions(currentVersions)
+                .createTime(LocalDateTime.now())
+                .build();
+        localCache.put(dataSourceId, refreshed);
+        if (!fingerprint.equals(entry.getFingerprint())) {
+            persistSnapshot(dataSourceId, refreshed);
+        }
+        incrementalRefreshes.incrementAndGet();
+        reloadedTables.addAndGet(reloaded.size());
+
+        log.info("数据源[{}]的数据库结构已增量刷新: 新增 {}，变化 {}，删除 {} 张表，耗时 {}ms, 指纹: {}",
+                dataSourceId, added, changed.size() - added, dropped.size(),
+                (System.nanoTime() - start) / 1_000_000, fingerprint);
+        if (!fingerprint.equals(entry.getFingerprint())) {
+            notifySchemaChanged(dataSourceId, entry.getFingerprint(), fingerprint);
+        }
+        return schema;
+    }
+
+    private boolean isRefreshBaseline(CacheEntry entry) {
+        return incrementalRefresh && entry.getTableVersions() != null;
+    }
+
+    /**
+     * 数据源是否仍在运行时或持久化配置中；未接入数据源管理时视为已注册
+     */
+    private boolean isRegistered(String dataSourceId) {
+        if (dataSourceManager == null && dataSourceRepository == null) {
+            return true;
+        }
+        return (dataSourceManager != null && dataSourceManager.getDataSourceById(dataSourceId).isPresent())
+                || (dataSourceRepository != null && dataSourceRepository.findById(dataSourceId).isPresent());
+    }
+
+    /**
+     * 在后台写入结构快照（只在结构指纹变化时调用）；写入前条目已被替换或清除时跳过
+     */
+    private void persistSnapshot(String dataSourceId, CacheEntry entry) {
+        if (snapshotStore == null || !snapshotStore.isEnabled()) {
+            return;
+        }
+        SchemaSnapshot snapshot = toSnapshot(dataSourceId, entry);
+        try {
+            refreshExecutor.execute(() -> {
+                if (localCache.get(dataSourceId) == entry) {
+                    snapshotStore.save(snapshot);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("数据源[{}]的结构快照写入提交失败: {}", dataSourceId, e.getMessage());
+        }
+    }
+
+    private static SchemaSnapshot toSnapshot(String dataSourceId, CacheEntry entry) {
+        return SchemaSnapshot.builder()
+                .dataSourceId(dataSourceId)
+                .fingerprint(entry.getFingerprint())
+                .schema(entry.getSchema())
+                .tableVersions(entry.getTableVersions())
+                .savedAt(System.currentTimeMillis())
+                .build();
+    }
+
+    private static CacheEntry restoredEntry(SchemaSnapshot snapshot) {
+        return CacheEntry.builder()
+                .schema(snapshot.getSchema())
+                .fingerprint(snapshot.getFingerprint())
+                .promptCards(SchemaPromptCards.from(snapshot.getSchema()))
+                .tableVersions(snapshot.getTableVersions())
+                .createTime(LocalDateTime.now())
+                .restored(true)
+                .build();
+    }
+
+    /**
+     * 导出数据源当前结构的快照（二进制），未缓存时先加载
+     */
+    public byte[] exportSnapshot(String dataSourceId) {
+        CacheEntry entry = localCache.get(dataSourceId);
+        if (entry == null) {
+            getSchema(dataSourceId);
+            entry = localCache.get(dataSourceId);
         }
+        if (entry == null) {
+            throw new IllegalStateException("数据源[" + dataSourceId + "]没有可导出的数据库结构");
+        }
+        return SchemaSnapshotCodec.encode(toSnapshot(dataSourceId, entry));
+    }
+
+    /**
+     * 导入结构快照作为数据源的当前结构（例如无法直连数据库的隔离环境），
+     * 与其他恢复的快照一样在首次使用时后台校验
+     *
+     * @throws IllegalArgumentException 快照无效
+     */
+    public SchemaSnapshot importSnapshot(String dataSourceId, byte[] data) {
+        SchemaSnapshot snapshot = SchemaSnapshotCodec.decode(ByteBuffer.wrap(data));
+        snapshot.setDataSourceId(dataSourceId);
+        snapshot.setSavedAt(System.currentTimeMillis());
+
+        CacheEntry previous = localCache.put(dataSourceId, restoredEntry(snapshot));
+        if (snapshotStore != null) {
+            snapshotStore.save(snapshot);
+        }
+        log.info("已导入数据源[{}]的结构快照: {} 张表, 指纹: {}", dataSourceId,
+                snapshot.getSchema().getTables() != null ? snapshot.getSchema().getTables().size() : 0,
+                snapshot.getFingerprint());
+        if (previous != null && !previous.getFingerprint().equals(snapshot.getFingerprint())) {
+            notifySchemaChanged(dataSourceId, previous.getFingerprint(), snapshot.getFingerprint());
+        }
+        return snapshot;
+    }
+
+    /**
+     * 获取已缓存且未超过硬过期时间的结构，不触发加载或后台刷新；未缓存时返回null
+     */
+    public DatabaseSchema peekSchema(String dataSourceId) {
+        CacheEntry entry = localCache.get(dataSourceId);
+        return entry != null && !entry.isExpired(hardTtlSeconds) ? entry.getSchema() : null;
+    }
+
+    /**
+     * 获取数据源当前缓存结构的版本（指纹），未缓存时返回null
+     */
+    public String getSchemaVersion(String dataSourceId) {
+        CacheEntry entry = localCache.get(dataSourceId);
+        return entry != null ? entry.getFingerprint() : null;
+    }
+
+    /**
+     * 获取数据源当前缓存结构的提示词卡片，未缓存时返回null
+     */
+    public SchemaPromptCards getPromptCards(String dataSourceId) {
+        CacheEntry entry = localCache.get(dataSourceId);
+        return entry != null ? entry.getPromptCards() : null;
     }
 
     /**
      * 清除缓存
      */
     public void clearCache(String dataSourceId) {
-        localCache.remove(dataSourceId);
+        CacheEntry removed = localCache.remove(dataSourceId);
+        if (snapshotStore != null) {
+            snapshotStore.delete(dataSourceId);
+        }
         log.info("已清除数据源[{}]的数据库结构缓存", dataSourceId);
+        if (removed != null) {
+            notifySchemaChanged(dataSourceId, removed.getFingerprint(), null);
+        }
     }
 
     /**
      * 清除所有缓存
      */
     public void clearAllCache() {
+        var removed = new java.util.HashMap<>(localCache);
         localCache.clear();
+        if (snapshotStore != null) {
+            snapshotStore.deleteAll();
+        }
         log.info("已清除所有数据库结构缓存");
+        removed.forEach((dataSourceId, entry) -> notifySchemaChanged(dataSourceId, entry.getFingerprint(), null));
+    }
+
+    private void notifySchemaChanged(String dataSourceId, String previousVersion, String currentVersion) {
+        log.info("数据源[{}]的数据库结构版本变化: {} -> {}", dataSourceId, previousVersion, currentVersion);
+        schemaChangeListeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onSchemaChanged(dataSourceId, previousVersion, currentVersion);
+            } catch (Exception e) {
+                log.warn("结构变更通知失败: {}", e.getMessage());
+            }
+        });
     }
 
     /**
@@ -144,26 +639,87 @@ public class SchemaCache {
      */
     public CacheStats getCacheStats() {
         long expiredCount = localCache.values().stream()
-                .filter(CacheEntry::isExpired)
+                .filter(entry -> entry.isExpired(hardTtlSeconds))
+                .count();
+        long staleCount = localCache.values().stream()
+                .filter(entry -> entry.isStale(softTtlSeconds))
+                .count();
+        long restoredCount = localCache.values().stream()
+                .filter(CacheEntry::isRestored)
                 .count();
+        Map<String, Long> ageSeconds = new LinkedHashMap<>();
+        Map<String, String> refreshErrors = new LinkedHashMap<>();
+        localCache.forEach((dataSourceId, entry) -> {
+            ageSeconds.put(dataSourceId, entry.getAgeSeconds());
+            if (entry.getLastRefreshError() != null) {
+                refreshErrors.put(dataSourceId, entry.getLastRefreshError());
+            }
+        });
         
         return CacheStats.builder()
                 .localCacheSize(localCache.size())
                 .expiredCount((int) expiredCount)
                 .cacheEnabled(true)
                 .redisConnected(false) // 简化版本暂不支持Redis
+                .incrementalRefresh(incrementalRefresh)
+                .fullRefreshes(fullRefreshes.get())
+                .incrementalRefreshes(incrementalRefreshes.get())
+                .unchangedRefreshes(unchangedRefreshes.get())
+                .reloadedTables(reloadedTables.get())
+                .softTtlSeconds(softTtlSeconds)
+                .hardTtlSeconds(hardTtlSeconds)
+                .staleCount((int) staleCount)
+                .staleServed(staleServed.get())
+                .backgroundRefreshes(backgroundRefreshes.get())
+                .loadsInFlight(loadsInFlight.size())
+                .coalescedLoads(coalescedLoads.get())
+                .refreshFailures(refreshFailures.get())
+                .maxAgeSeconds(ageSeconds.values().stream().mapToLong(Long::longValue).max().orElse(0))
+                .ageSeconds(ageSeconds)
+                .refreshErrors(refreshErrors)
+                .restoredCount((int) restoredCount)
+                .snapshots(snapshotStore != null ? snapshotStore.getStats() : null)
                 .build();
     }
 
     @Data
-    @Builder
+    @Builder(toBuilder = true)
     @AllArgsConstructor
     private static class CacheEntry {
         private DatabaseSchema schema;
+        private String fingerprint;
+        private SchemaPromptCards promptCards;
+        /**
+         * 表名 -> 表版本摘要，驱动不支持时为null（只能完整刷新）
+         */
+        private Map<String, String> tableVersions;
         private LocalDateTime createTime;
-        
-        public boolean isExpired() {
-            return createTime.plusMinutes(CACHE_TTL_MINUTES).isBefore(LocalDateTime.now());
+        /**
+         * 上次成功加载之后连续失败的刷新次数
+         */
+        private int failedRefreshes;
+        private String lastRefreshError;
+        private LocalDateTime lastRefreshFailedAt;
+        /**
+         * 从快照恢复或导入，尚未与数据库校验
+         */
+        private boolean restored;
+
+        public long getAgeSeconds() {
+            return Duration.between(createTime, LocalDateTime.now()).getSeconds();
+        }
+
+        public boolean isStale(long softTtlSeconds) {
+            return createTime.plusSeconds(softTtlSeconds).isBefore(LocalDateTime.now());
+        }
+
+        public boolean isExpired(long hardTtlSeconds) {
+            return createTime.plusSeconds(hardTtlSeconds).isBefore(LocalDateTime.now());
+        }
+
+        public boolean isRetryPending(long retryIntervalSeconds) {
+            return lastRefreshFailedAt != null
+                    && lastRefreshFailedAt.plusSeconds(retryIntervalSeconds).isAfter(LocalDateTime.now());
         }
     }
 
@@ -175,11 +731,57 @@ public class SchemaCache {
         private int expiredCount;
         private boolean cacheEnabled;
         private boolean redisConnected;
+        private boolean incrementalRefresh;
+        private long fullRefreshes;
+        private long incrementalRefreshes;
+        /**
+         * 比对表版本后确认结构未变化的刷新次数
+         */
+        private long unchangedRefreshes;
+        /**
+         * 增量刷新累计重新加载的表数
+         */
+        private long reloadedTables;
+        private long softTtlSeconds;
+        private long hardTtlSeconds;
+        /**
+         * 超过软过期时间、等待后台刷新的条目数
+         */
+        private int staleCount;
+        /**
+         * 超过软过期时间仍直接返回缓存的次数
+         */
+        private long staleServed;
+        private long backgroundRefreshes;
+        private int loadsInFlight;
+        /**
+         * 等待并共享其他调用方加载结果的次数
+         */
+        private long coalescedLoads;
+        private long refreshFailures;
+        private long maxAgeSeconds;
+        /**
+         * 数据源 -> 缓存结构距上次成功加载的秒数
+         */
+        private Map<String, Long> ageSeconds;
+        /**
+         * 数据源 -> 最近一次刷新失败的原因（刷新成功后清除）
+         */
+        private Map<String, String> refreshErrors;
+        /**
+         * 从快照恢复、尚未与数据库校验的条目数
+         */
+        private int restoredCount;
+        private SchemaSnapshotStore.SnapshotStats snapshots;
         
         @Override
         public String toString() {
-            return String.format("CacheStats{localSize=%d, expired=%d, enabled=%s, redis=%s}", 
-                    localCacheSize, expiredCount, cacheEnabled, redisConnected);
+            return String.format("CacheStats{localSize=%d, expired=%d, stale=%d, restored=%d, maxAge=%ds, enabled=%s, redis=%s, "
+                            + "refreshes(full=%d, incremental=%d, unchanged=%d, reloadedTables=%d, "
+                            + "background=%d, failed=%d, coalesced=%d)}",
+                    localCacheSize, expiredCount, staleCount, restoredCount, maxAgeSeconds, cacheEnabled, redisConnected,
+                    fullRefreshes, incrementalRefreshes, unchangedRefreshes, reloadedTables,
+                    backgroundRefreshes, refreshFailures, coalescedLoads);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.kami.springai.common.cache;
+
+/**
+ * 数据库结构变更监听器
+ *
+ * SchemaCache 加载到与之前指纹不同的结构，或结构缓存被清除时回调，
+ * 依赖结构版本的下游缓存据此失效。
+ */
+public interface SchemaChangeListener {
+
+    /**
+     * 数据源结构发生变化
+     *
+     * @param dataSourceId 数据源ID
+     * @param previousVersion 之前的结构指纹，可能为null
+     * @param currentVersion 当前的结构指纹，缓存被清除时为null
+     */
+    void onSchemaChanged(String dataSourceId, String previousVersion, String currentVersion);
+}
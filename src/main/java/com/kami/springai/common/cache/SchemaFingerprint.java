@@ -0,0 +1,86 @@
+package com.kami.springai.common.cache;
+
+import com.kami.springai.text2sql.model.DatabaseSchema;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 数据库结构指纹工具
+ *
+ * 对表、字段、外键和注释做摘要，结构不变时指纹不变，可作为结构版本号使用。
+ */
+public final class SchemaFingerprint {
+
+    private SchemaFingerprint() {
+    }
+
+    /**
+     * 计算整个数据库结构的指纹
+     */
+    public static String of(DatabaseSchema schema) {
+        if (schema == null) {
+            return "empty";
+        }
+
+        MessageDigest digest = newDigest();
+        update(digest, schema.getDatabaseName());
+        if (schema.getTables() != null) {
+            for (DatabaseSchema.Table table : schema.getTables()) {
+                updateTable(digest, table);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest(), 0, 8);
+    }
+
+    /**
+     * 计算单张表的指纹
+     */
+    public static String of(DatabaseSchema.Table table) {
+        MessageDigest digest = newDigest();
+        updateTable(digest, table);
+        return HexFormat.of().formatHex(digest.digest(), 0, 8);
+    }
+
+    private static void updateTable(MessageDigest digest, DatabaseSchema.Table table) {
+        update(digest, "T");
+        update(digest, table.getName());
+        update(digest, table.getComment());
+
+        if (table.getColumns() != null) {
+            for (DatabaseSchema.Column column : table.getColumns()) {
+                update(digest, "C");
+                update(digest, column.getName());
+                update(digest, column.getType());
+                update(digest, column.isNullable() ? "1" : "0");
+                update(digest, column.isPrimaryKey() ? "1" : "0");
+                update(digest, column.getComment());
+            }
+        }
+
+        if (table.getForeignKeys() != null) {
+            for (DatabaseSchema.ForeignKey foreignKey : table.getForeignKeys()) {
+                update(digest, "F");
+                update(digest, foreignKey.getRelationshipDescription());
+            }
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        // 分隔符，避免相邻字段拼接产生歧义
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+}
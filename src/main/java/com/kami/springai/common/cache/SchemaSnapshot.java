@@ -0,0 +1,27 @@
+package com.kami.springai.common.cache;
+
+import com.kami.springai.text2sql.model.DatabaseSchema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 数据库结构快照：某个数据源的一个结构版本，可写入磁盘或导出到其他环境
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SchemaSnapshot {
+    private String dataSourceId;
+    private String fingerprint;
+    private DatabaseSchema schema;
+    /**
+     * 表名 -> 表版本摘要，用于恢复后增量校验；驱动不支持时为null
+     */
+    private Map<String, String> tableVersions;
+    private long savedAt;
+}
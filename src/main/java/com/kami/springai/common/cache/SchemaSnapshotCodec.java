@@ -0,0 +1,300 @@
+package com.kami.springai.common.cache;
+
+import com.kami.springai.text2sql.model.DatabaseSchema;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 数据库结构快照的二进制编码
+ *
+ * 格式（大端）：魔数 "SCMS"、格式版本、保存时间、字符串表，之后是数据源ID、指纹、库名、表版本、表（字段、外键），
+ * 最后是之前所有字节的 CRC32。
+ * 字段名、类型、注释等在大库中大量重复，字符串表只存一份（长度前缀的 UTF-8），正文中以变长整数引用：
+ * 0 表示null，i + 1 表示字符串表第 i 项；列表以变长整数数量前缀，0 表示null，n + 1 表示 n 个元素。
+ * 解码时校验魔数、版本、CRC 并重新计算指纹，任一不符即视为无效快照。
+ */
+public final class SchemaSnapshotCodec {
+
+    private static final int MAGIC = 0x53434D53; // "SCMS"
+    private static final short FORMAT_VERSION = 1;
+
+    private static final int FLAG_NULLABLE = 1;
+    private static final int FLAG_PRIMARY_KEY = 2;
+
+    private SchemaSnapshotCodec() {
+    }
+
+    /**
+     * 编码快照
+     */
+    public static byte[] encode(SchemaSnapshot snapshot) {
+        // 先编码正文并收集字符串表，再依次写出头部、字符串表和正文
+        Encoder body = new Encoder();
+        body.writeString(snapshot.getDataSourceId());
+        body.writeString(snapshot.getFingerprint());
+
+        DatabaseSchema schema = snapshot.getSchema();
+        body.writeString(schema.getDatabaseName());
+
+        Map<String, String> tableVersions = snapshot.getTableVersions();
+        body.writeCount(tableVersions != null ? tableVersions.size() : -1);
+        if (tableVersions != null) {
+            for (Map.Entry<String, String> version : tableVersions.entrySet()) {
+                body.writeString(version.getKey());
+                body.writeString(version.getValue());
+            }
+        }
+
+        List<DatabaseSchema.Table> tables = schema.getTables();
+        body.writeCount(tables != null ? tables.size() : -1);
+        if (tables != null) {
+            for (DatabaseSchema.Table table : tables) {
+                writeTable(body, table);
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.bytes.size() + body.strings.size() * 16 + 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(FORMAT_VERSION);
+            out.writeLong(snapshot.getSavedAt());
+            out.writeInt(body.strings.size());
+            for (String value : body.strings.keySet()) {
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(utf8.length);
+                out.write(utf8);
+            }
+            body.bytes.writeTo(out);
+
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeInt((int) crc.getValue());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 解码快照，读取 buffer 剩余的全部字节
+     *
+     * @throws IllegalArgumentException 格式、校验和或指纹不符
+     */
+    public static SchemaSnapshot decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        int end = buffer.limit();
+        if (end - start < Integer.BYTES * 2 + Short.BYTES + Long.BYTES) {
+            throw new IllegalArgumentException("快照过短");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(start, end - start - Integer.BYTES));
+        if ((int) crc.getValue() != buffer.getInt(end - Integer.BYTES)) {
+            throw new IllegalArgumentException("快照校验和不符");
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("不是数据库结构快照");
+            }
+            short version = buffer.getShort();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("不支持的快照格式版本: " + version);
+            }
+            long savedAt = buffer.getLong();
+
+            int stringCount = buffer.getInt();
+            if (stringCount < 0 || stringCount > buffer.remaining()) {
+                throw new IllegalArgumentException("快照字符串表损坏");
+            }
+            String[] strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                byte[] utf8 = new byte[buffer.getInt()];
+                buffer.get(utf8);
+                strings[i] = new String(utf8, StandardCharsets.UTF_8);
+            }
+            Decoder body = new Decoder(buffer, strings);
+
+            String dataSourceId = body.readString();
+            String fingerprint = body.readString();
+            String databaseName = body.readString();
+
+            int versionCount = body.readCount();
+            Map<String, String> tableVersions = null;
+            if (versionCount >= 0) {
+                tableVersions = new HashMap<>(versionCount * 2);
+                for (int i = 0; i < versionCount; i++) {
+                    tableVersions.put(body.readString(), body.readString());
+                }
+            }
+
+            int tableCount = body.readCount();
+            List<DatabaseSchema.Table> tables = null;
+            if (tableCount >= 0) {
+                tables = new ArrayList<>(tableCount);
+                for (int i = 0; i < tableCount; i++) {
+                    tables.add(readTable(body));
+                }
+            }
+            if (buffer.position() != end - Integer.BYTES) {
+                throw new IllegalArgumentException("快照末尾有多余数据");
+            }
+
+            DatabaseSchema schema = DatabaseSchema.builder()
+                    .databaseName(databaseName)
+                    .tables(tables)
+                    .build();
+            if (!SchemaFingerprint.of(schema).equals(fingerprint)) {
+                throw new IllegalArgumentException("快照指纹不符: " + fingerprint);
+            }
+            return SchemaSnapshot.builder()
+                    .dataSourceId(dataSourceId)
+                    .fingerprint(fingerprint)
+                    .schema(schema)
+                    .tableVersions(tableVersions)
+                    .savedAt(savedAt)
+                    .build();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("快照已截断或损坏", e);
+        }
+    }
+
+    private static void writeTable(Encoder out, DatabaseSchema.Table table) {
+        out.writeString(table.getName());
+        out.writeString(table.getComment());
+
+        List<DatabaseSchema.Column> columns = table.getColumns();
+        out.writeCount(columns != null ? columns.size() : -1);
+        if (columns != null) {
+            for (DatabaseSchema.Column column : columns) {
+                out.writeString(column.getName());
+                out.writeString(column.getType());
+                out.bytes.write((column.isNullable() ? FLAG_NULLABLE : 0) | (column.isPrimaryKey() ? FLAG_PRIMARY_KEY : 0));
+                out.writeString(column.getComment());
+            }
+        }
+
+        List<DatabaseSchema.ForeignKey> foreignKeys = table.getForeignKeys();
+        out.writeCount(foreignKeys != null ? foreignKeys.size() : -1);
+        if (foreignKeys != null) {
+            for (DatabaseSchema.ForeignKey foreignKey : foreignKeys) {
+                out.writeString(foreignKey.getColumnName());
+                out.writeString(foreignKey.getReferencedTable());
+                out.writeString(foreignKey.getReferencedColumn());
+            }
+        }
+    }
+
+    private static DatabaseSchema.Table readTable(Decoder in) {
+        String name = in.readString();
+        String comment = in.readString();
+
+        int columnCount = in.readCount();
+        List<DatabaseSchema.Column> columns = null;
+        if (columnCount >= 0) {
+            columns = new ArrayList<>(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                String columnName = in.readString();
+                String type = in.readString();
+                int flags = in.buffer.get();
+                columns.add(DatabaseSchema.Column.builder()
+                        .name(columnName)
+                        .type(type)
+                        .nullable((flags & FLAG_NULLABLE) != 0)
+                        .primaryKey((flags & FLAG_PRIMARY_KEY) != 0)
+                        .comment(in.readString())
+                        .build());
+            }
+        }
+
+        int foreignKeyCount = in.readCount();
+        List<DatabaseSchema.ForeignKey> foreignKeys = null;
+        if (foreignKeyCount >= 0) {
+            foreignKeys = new ArrayList<>(foreignKeyCount);
+            for (int i = 0; i < foreignKeyCount; i++) {
+                foreignKeys.add(DatabaseSchema.ForeignKey.builder()
+                        .columnName(in.readString())
+                        .referencedTable(in.readString())
+                        .referencedColumn(in.readString())
+                        .build());
+            }
+        }
+
+        return DatabaseSchema.Table.builder()
+                .name(name)
+                .comment(comment)
+                .columns(columns)
+                .foreignKeys(foreignKeys)
+                .build();
+    }
+
+    /**
+     * 正文编码：字符串写为字符串表引用，数量和引用均为变长整数
+     */
+    private static class Encoder {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+        void writeString(String value) {
+            writeVarInt(value == null ? 0 : strings.computeIfAbsent(value, key -> strings.size()) + 1);
+        }
+
+        void writeCount(int count) {
+            writeVarInt(count + 1);
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                bytes.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes.write(value);
+        }
+    }
+
+    private static class Decoder {
+        private final ByteBuffer buffer;
+        private final String[] strings;
+
+        Decoder(ByteBuffer buffer, String[] strings) {
+            this.buffer = buffer;
+            this.strings = strings;
+        }
+
+        String readString() {
+            int reference = readVarInt();
+            return reference == 0 ? null : strings[reference - 1];
+        }
+
+        int readCount() {
+            int count = readVarInt() - 1;
+            if (count > buffer.remaining()) {
+                throw new IllegalArgumentException("快照列表长度损坏");
+            }
+            return count;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("快照变长整数损坏");
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.kami.springai.common.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 数据库结构快照的磁盘存储
+ *
+ * 每个数据源保留最新的一个快照，文件名为 {Base64URL(数据源ID)}.{指纹}.snapshot；
+ * 先写临时文件再原子替换，新版本写入后删除同一数据源的旧版本。
+ * 启动时以内存映射方式读取仍存在的数据源的快照，无效的快照跳过，由调用方重新发现结构。
+ */
+@Slf4j
+@Component
+public class SchemaSnapshotStore {
+
+    private static final String SUFFIX = ".snapshot";
+
+    @Value("${text2sql.schema.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${text2sql.schema.snapshot.dir:data/schema-snapshots}")
+    private String directory;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong restored = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 读取目录中 include 接受的数据源的快照，同一数据源有多个版本时取保存时间最新的；
+     * 其他数据源的快照按文件名判断，不读取直接删除
+     */
+    public List<SchemaSnapshot> loadAll(Predicate<String> include) {
+        Path dir = Paths.get(directory);
+        if (!enabled || !Files.isDirectory(dir)) {
+            return List.of();
+        }
+
+        Map<String, SchemaSnapshot> latest = new LinkedHashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String dataSourceId = dataSourceIdOf(file);
+                if (dataSourceId != null && !include.test(dataSourceId)) {
+                    Files.deleteIfExists(file);
+                    discarded.incrementAndGet();
+                    log.info("数据源[{}]已不存在，删除其结构快照 {}", dataSourceId, file.getFileName());
+                    continue;
+                }
+                SchemaSnapshot snapshot = read(file);
+                if (snapshot == null || !include.test(snapshot.getDataSourceId())) {
+                    continue;
+                }
+                latest.merge(snapshot.getDataSourceId(), snapshot,
+                        (current, candidate) -> candidate.getSavedAt() > current.getSavedAt() ? candidate : current);
+            }
+        } catch (IOException e) {
+            log.warn("读取结构快照目录失败: {}", e.getMessage());
+        }
+        restored.addAndGet(latest.size());
+        return new ArrayList<>(latest.values());
+    }
+
+    /**
+     * 保存快照并删除同一数据源的旧版本
+     */
+    public synchronized void save(SchemaSnapshot snapshot) {
+        if (!enabled) {
+            return;
+        }
+        Path dir = Paths.get(directory);
+        String prefix = filePrefix(snapshot.getDataSourceId());
+        Path target = dir.resolve(prefix + snapshot.getFingerprint() + SUFFIX);
+        try {
+            Files.createDirectories(dir);
+            Path temp = dir.resolve(prefix + snapshot.getFingerprint() + SUFFIX + ".tmp");
+            Files.write(temp, SchemaSnapshotCodec.encode(snapshot));
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            deleteFiles(prefix, target);
+            written.incrementAndGet();
+            log.debug("数据源[{}]的结构快照已保存: {}", snapshot.getDataSourceId(), target);
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            log.warn("保存数据源[{}]的结构快照失败: {}", snapshot.getDataSourceId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 删除数据源的全部快照
+     */
+    public synchronized void delete(String dataSourceId) {
+        if (enabled) {
+            deleteFiles(filePrefix(dataSourceId), null);
+        }
+    }
+
+    /**
+     * 删除全部快照
+     */
+    public synchronized void deleteAll() {
+        if (enabled) {
+            deleteFiles("", null);
+        }
+    }
+
+    public SnapshotStats getStats() {
+        return SnapshotStats.builder()
+                .enabled(enabled)
+                .directory(directory)
+                .written(written.get())
+                .restored(restored.get())
+                .failed(failed.get())
+                .discarded(discarded.get())
+                .build();
+    }
+
+    private SchemaSnapshot read(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return SchemaSnapshotCodec.decode(buffer);
+        } catch (IOException | IllegalArgumentException e) {
+            failed.incrementAndGet();
+            log.warn("跳过无效的结构快照 {}: {}", file.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void deleteFiles(String prefix, Path keep) {
+        Path dir = Paths.get(directory);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, prefix + "*" + SUFFIX)) {
+            for (Path file : files) {
+                if (!file.equals(keep)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("删除结构快照失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从文件名前缀解码数据源ID，文件名不符合格式时返回null
+     */
+    private static String dataSourceIdOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(name.substring(0, dot)), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 数据源ID编码为文件名安全的前缀（Base64URL 不含 '.'，可与指纹分隔）
+     */
+    private static String filePrefix(String dataSourceId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(dataSourceId.getBytes(StandardCharsets.UTF_8)) + ".";
+    }
+
+    /**
+     * 结构快照统计
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class SnapshotStats {
+        private boolean enabled;
+        private String directory;
+        private long written;
+        private long restored;
+        /**
+         * 写入失败和读取到无效快照的次数
+         */
+        private long failed;
+        /**
+         * 启动时因数据源已不存在而删除的快照数
+         */
+        private long discarded;
+    }
+}
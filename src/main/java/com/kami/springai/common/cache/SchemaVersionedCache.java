@@ -0,0 +1,224 @@
+package com.kami.springai.common.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按数据源结构版本失效的LRU缓存
+ *
+ * 以 (数据源ID, 结构指纹, 查询键, 上下文) 为键，容量有上限按LRU淘汰，写入超过TTL的条目视为过期；
+ * 同一数据源出现新的结构指纹或收到结构变更通知时清除该数据源的全部条目。
+ * 只负责存取和淘汰，是否算作命中由使用方判断并调用 {@link #recordHit()} / {@link #recordMiss()}。
+ */
+@Slf4j
+public final class SchemaVersionedCache<V> {
+
+    private final String name;
+    private final boolean enabled;
+    private final long ttlSeconds;
+    private final int maxEntries;
+
+    // accessOrder=true 的 LinkedHashMap 实现LRU，所有访问在 this 上同步
+    private final LinkedHashMap<CacheKey, CacheEntry<V>> entries = new LinkedHashMap<>(256, 0.75f, true);
+    // 每个数据源最近一次看到的结构指纹
+    private final ConcurrentMap<String, String> schemaVersions = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    /**
+     * @param name 缓存名称，用于日志
+     */
+    public SchemaVersionedCache(String name, boolean enabled, long ttlSeconds, int maxEntries) {
+        this.name = name;
+        this.enabled = enabled;
+        this.ttlSeconds = ttlSeconds;
+        this.maxEntries = maxEntries;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 查询未过期的缓存值，不存在、已过期或缓存关闭时返回null；不计入命中统计
+     */
+    public V get(String dataSourceId, String schemaVersion, String key, String context) {
+        if (!enabled) {
+            return null;
+        }
+        checkSchemaVersion(dataSourceId, schemaVersion);
+
+        CacheKey cacheKey = CacheKey.of(dataSourceId, schemaVersion, key, context);
+        synchronized (this) {
+            CacheEntry<V> entry = entries.get(cacheKey);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired(ttlSeconds)) {
+                entries.remove(cacheKey);
+                evictionCount.incrementAndGet();
+                return null;
+            }
+            return entry.getValue();
+        }
+    }
+
+    /**
+     * 写入缓存，超出容量时淘汰最久未访问的条目
+     */
+    public void put(String dataSourceId, String schemaVersion, String key, String context, V value) {
+        if (!enabled || value == null) {
+            return;
+        }
+        checkSchemaVersion(dataSourceId, schemaVersion);
+
+        CacheKey cacheKey = CacheKey.of(dataSourceId, schemaVersion, key, context);
+        synchronized (this) {
+            entries.put(cacheKey, new CacheEntry<>(value, System.currentTimeMillis()));
+            Iterator<CacheKey> iterator = entries.keySet().iterator();
+            while (entries.size() > maxEntries && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    public void recordHit() {
+        hitCount.incrementAndGet();
+    }
+
+    public void recordMiss() {
+        missCount.incrementAndGet();
+    }
+
+    /**
+     * 清除指定数据源的全部缓存条目
+     */
+    public void invalidate(String dataSourceId) {
+        String normalizedId = Objects.toString(dataSourceId, "");
+        int removed = 0;
+        synchronized (this) {
+            Iterator<Map.Entry<CacheKey, CacheEntry<V>>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().getKey().getDataSourceId().equals(normalizedId)) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
+        }
+        invalidationCount.addAndGet(removed);
+        if (removed > 0) {
+            log.info("已清除数据源[{}]的 {} 条{}", dataSourceId, removed, name);
+        }
+    }
+
+    /**
+     * 清除所有缓存
+     */
+    public synchronized void clearAll() {
+        invalidationCount.addAndGet(entries.size());
+        entries.clear();
+        schemaVersions.clear();
+    }
+
+    /**
+     * 数据源结构发生变化：清除该数据源的条目并记录新的结构指纹，currentVersion 为null表示结构缓存被清除
+     */
+    public void onSchemaChanged(String dataSourceId, String currentVersion) {
+        invalidate(dataSourceId);
+        if (currentVersion != null) {
+            schemaVersions.put(Objects.toString(dataSourceId, ""), currentVersion);
+        } else {
+            schemaVersions.remove(Objects.toString(dataSourceId, ""));
+        }
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public CacheStats getCacheStats() {
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return CacheStats.builder()
+                .size(size)
+                .maxEntries(maxEntries)
+                .hitCount(hitCount.get())
+                .missCount(missCount.get())
+                .evictionCount(evictionCount.get())
+                .invalidationCount(invalidationCount.get())
+                .enabled(enabled)
+                .build();
+    }
+
+    private void checkSchemaVersion(String dataSourceId, String schemaVersion) {
+        if (schemaVersion == null) {
+            return;
+        }
+        String previous = schemaVersions.put(Objects.toString(dataSourceId, ""), schemaVersion);
+        if (previous != null && !previous.equals(schemaVersion)) {
+            invalidate(dataSourceId);
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class CacheKey {
+        private String dataSourceId;
+        private String schemaVersion;
+        private String key;
+        private String context;
+
+        static CacheKey of(String dataSourceId, String schemaVersion, String key, String context) {
+            return new CacheKey(
+                    Objects.toString(dataSourceId, ""),
+                    Objects.toString(schemaVersion, ""),
+                    Objects.toString(key, ""),
+                    context != null ? context.trim() : "");
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class CacheEntry<V> {
+        private V value;
+        private long createTimeMillis;
+
+        boolean isExpired(long ttlSeconds) {
+            return System.currentTimeMillis() - createTimeMillis > ttlSeconds * 1000;
+        }
+    }
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class CacheStats {
+        private int size;
+        private int maxEntries;
+        private long hitCount;
+        private long missCount;
+        private long evictionCount;
+        private long invalidationCount;
+        private boolean enabled;
+
+        public double getHitRate() {
+            long total = hitCount + missCount;
+            return total == 0 ? 0.0 : (double) hitCount / total;
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package com.kami.springai.common.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 近似问题索引
+ *
+ * 对规范化后的查询做字符n-gram MinHash签名，并用LSH分桶快速找出候选问题，
+ * 再以n-gram集合的Jaccard相似度精确打分。相似度超过阈值时复用历史问题已验证的SQL，
+ * 例如"查询所有用户"与"请帮我查询全部用户"。索引按 (数据源ID, 结构指纹) 隔离，
+ * 查询中的数字和引号内字面量必须完全一致，避免把"大于25"的SQL用于"大于30"；
+ * 否定、比较和排序方向词（未/已、大于/小于、升序/降序等）也必须完全一致——
+ * 长问题中这些词只影响少数n-gram，相似度仍会超过阈值，而重新验证只检查语法和结构，发现不了含义相反。
+ */
+@Slf4j
+@Service
+public class SimilarQueryIndex implements SchemaChangeListener {
+
+    private static final int SHINGLE_SIZE = 2;
+    private static final int NUM_HASHES = 64;
+    private static final int BANDS = 16;
+    private static final int ROWS_PER_BAND = NUM_HASHES / BANDS;
+
+    // 语气词，对查询含义没有影响（"的"、"了"一般可能改变含义，保留；数量修饰词后的"的"单独处理）
+    private static final Pattern FILLER_PATTERN = Pattern.compile("请|帮我|帮忙|给我|一下|吗|呢|吧|啊");
+    // 数量修饰词之后的"的"（"全部的用户"与"所有用户"含义相同），短问题中多一个字就会让二元组重合度跌破阈值
+    private static final Pattern QUANTIFIER_PARTICLE_PATTERN = Pattern.compile("(所有|每个|各个|其他|其余|其它)的");
+    // 否定、比较和排序方向词，较长的词在前
+    private static final Pattern POLARITY_PATTERN = Pattern.compile(
+            "不等于|不超过|不少于|不低于|不高于|大于等于|小于等于|大于|小于|超过|高于|低于|不足|以上|以下|至少|至多"
+                    + "|最多|最少|等于|>=|<=|!=|<>|>|<|=|升序|降序|倒序|正序|从高到低|从低到高|从大到小|从小到大"
+                    + "|从早到晚|从晚到早|最高|最低|最大|最小|最早|最晚|最新|最旧|没有|未|不|非|无|否|已");
+    // 数字和引号内的字面量
+    private static final Pattern LITERAL_PATTERN = Pattern.compile("\\d+(?:\\.\\d+)?|'[^']*'|\"[^\"]*\"|“[^”]*”");
+
+    // 常见同义词归一
+    private static final Map<String, String> SYNONYMS = new LinkedHashMap<>();
+
+    static {
+        SYNONYMS.put("全部", "所有");
+        SYNONYMS.put("全体", "所有");
+        SYNONYMS.put("列出", "查询");
+        SYNONYMS.put("显示", "查询");
+        SYNONYMS.put("查看", "查询");
+        SYNONYMS.put("查找", "查询");
+        SYNONYMS.put("获取", "查询");
+        SYNONYMS.put("多少", "数量");
+    }
+
+    private final long[] hashSeeds = new long[NUM_HASHES];
+
+    @Value("${text2sql.cache.similar-enabled:true}")
+    private boolean enabled;
+
+    @Value("${text2sql.cache.similarity-threshold:0.8}")
+    private double similarityThreshold;
+
+    @Value("${text2sql.cache.similar-max-entries-per-datasource:2000}")
+    private int maxEntriesPerScope;
+
+    private final ConcurrentMap<String, Scope> scopes = new ConcurrentHashMap<>();
+
+    private final AtomicLong lookupCount = new AtomicLong();
+    private final AtomicLong candidateCount = new AtomicLong();
+    private final AtomicLong matchCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public SimilarQueryIndex() {
+        // 固定种子，保证多次运行签名一致、便于排查
+        Random random = new Random(0x5EEDL);
+        for (int i = 0; i < NUM_HASHES; i++) {
+            hashSeeds[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * 查找相似的历史问题，未找到或相似度低于阈值时返回null
+     */
+    public Match findSimilar(String dataSourceId, String schemaVersion, String userQuery, String context) {
+        if (!enabled) {
+            return null;
+        }
+        lookupCount.incrementAndGet();
+
+        String normalized = normalize(userQuery);
+        Set<Integer> shingles = shingles(normalized);
+        if (shingles.isEmpty()) {
+            return null;
+        }
+        List<String> literals = literals(userQuery);
+        List<String> polarity = polarityTokens(normalized);
+        String contextKey = context != null ? context.trim() : "";
+        int[] signature = signature(shingles);
+
+        Scope scope = scopes.get(scopeKey(dataSourceId, schemaVersion));
+        if (scope == null) {
+            return null;
+        }
+
+        Entry best = null;
+        double bestScore = 0.0;
+        int candidates = 0;
+        synchronized (scope) {
+            for (Entry entry : scope.candidates(signature)) {
+                if (!entry.getContext().equals(contextKey) || !entry.getLiterals().equals(literals)
+                        || !entry.getPolarity().equals(polarity)) {
+                    continue;
+                }
+                candidates++;
+                double score = jaccard(shingles, entry.getShingles());
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = entry;
+                }
+            }
+        }
+        candidateCount.addAndGet(candidates);
+
+        boolean accepted = best != null && bestScore >= similarityThreshold;
+        // 相似度轨迹，用于调整阈值；包含用户原始问题，只在DEBUG级别输出
+        log.debug("近似问题检索: dataSource={}, query=\"{}\", candidates={}, bestMatch=\"{}\", similarity={}, threshold={}, accepted={}",
+                dataSourceId, userQuery, candidates, best != null ? best.getQuery() : "",
+                String.format("%.3f", bestScore), similarityThreshold, accepted);
+
+        if (!accepted) {
+            return null;
+        }
+        matchCount.incrementAndGet();
+        return new Match(best.getQuery(), best.getSql(), bestScore);
+    }
+
+    /**
+     * 记录一个已通过验证的问题及其SQL
+     */
+    public void add(String dataSourceId, String schemaVersion, String userQuery, String context, String sql) {
+        if (!enabled || sql == null) {
+            return;
+        }
+        String normalized = normalize(userQuery);
+        Set<Integer> shingles = shingles(normalized);
+        if (shingles.isEmpty()) {
+            return;
+        }
+
+        Entry entry = new Entry(userQuery, normalized, context != null ? context.trim() : "",
+                literals(userQuery), polarityTokens(normalized), shingles, sql);
+        Scope scope = scopes.computeIfAbsent(scopeKey(dataSourceId, schemaVersion), key -> new Scope());
+        synchronized (scope) {
+            scope.add(entry, signature(shingles), maxEntriesPerScope);
+        }
+    }
+
+    /**
+     * 复用的SQL未通过重新验证
+     */
+    public void recordRejected(Match match) {
+        rejectedCount.incrementAndGet();
+        log.debug("近似问题SQL重新验证未通过: matchedQuery=\"{}\", similarity={}",
+                match.getMatchedQuery(), String.format("%.3f", match.getSimilarity()));
+    }
+
+    @Override
+    public void onSchemaChanged(String dataSourceId, String previousVersion, String currentVersion) {
+        String prefix = Objects.toString(dataSourceId, "") + "|";
+        scopes.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    /**
+     * 获取索引统计信息
+     */
+    public IndexStats getIndexStats() {
+        int size = scopes.values().stream().mapToInt(scope -> {
+            synchronized (scope) {
+                return scope.size();
+            }
+        }).sum();
+        return IndexStats.builder()
+                .size(size)
+                .scopeCount(scopes.size())
+                .lookupCount(lookupCount.get())
+                .candidateCount(candidateCount.get())
+                .matchCount(matchCount.get())
+                .rejectedCount(rejectedCount.get())
+                .similarityThreshold(similarityThreshold)
+                .enabled(enabled)
+                .build();
+    }
+
+    /**
+     * 规范化查询：在结果缓存的规范化基础上去掉空白、虚词并归一同义词，去掉数量修饰词后的"的"
+     */
+    static String normalize(String query) {
+        String normalized = Text2SqlResultCache.normalizeQuery(query).replace(" ", "");
+        normalized = FILLER_PATTERN.matcher(normalized).replaceAll("");
+        for (Map.Entry<String, String> synonym : SYNONYMS.entrySet()) {
+            normalized = normalized.replace(synonym.getKey(), synonym.getValue());
+        }
+        return QUANTIFIER_PARTICLE_PATTERN.matcher(normalized).replaceAll("$1");
+    }
+
+    private static List<String> literals(String query) {
+        List<String> literals = new ArrayList<>();
+        if (query == null) {
+            return literals;
+        }
+        Matcher matcher = LITERAL_PATTERN.matcher(query);
+        while (matcher.find()) {
+            literals.add(matcher.group());
+        }
+        return literals;
+    }
+
+    /**
+     * 按出现顺序提取否定、比较和排序方向词
+     */
+    static List<String> polarityTokens(String normalized) {
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = POLARITY_PATTERN.matcher(normalized);
+        while (matcher.find()) {
+            tokens.add(matcher.group());
+        }
+        return tokens;
+    }
+
+    private static Set<Integer> shingles(String normalized) {
+        Set<Integer> shingles = new HashSet<>();
+        if (normalized.length() < SHINGLE_SIZE) {
+            if (!normalized.isEmpty()) {
+                shingles.add(normalized.hashCode());
+            }
+            return shingles;
+        }
+        for (int i = 0; i + SHINGLE_SIZE <= normalized.length(); i++) {
+            shingles.add(normalized.substring(i, i + SHINGLE_SIZE).hashCode());
+        }
+        return shingles;
+    }
+
+    private int[] signature(Set<Integer> shingles) {
+        int[] signature = new int[NUM_HASHES];
+        java.util.Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int shingle : shingles) {
+            for (int i = 0; i < NUM_HASHES; i++) {
+                int hash = mix(shingle ^ hashSeeds[i]);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * SplitMix64 混淆函数，不同种子近似给出相互独立的哈希排列
+     */
+    private static int mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (int) (z >>> 33);
+    }
+
+    private static double jaccard(Set<Integer> a, Set<Integer> b) {
+        int intersection = 0;
+        for (Integer shingle : a) {
+            if (b.contains(shingle)) {
+                intersection++;
+            }
+        }
+        int union = a.size() + b.size() - intersection;
+        return union == 0 ? 0.0 : (double) intersection / union;
+    }
+
+    private static String scopeKey(String dataSourceId, String schemaVersion) {
+        return Objects.toString(dataSourceId, "") + "|" + Objects.toString(schemaVersion, "");
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int row = band * ROWS_PER_BAND; row < (band + 1) * ROWS_PER_BAND; row++) {
+            key = key * 31 + signature[row];
+        }
+        return key;
+    }
+
+    /**
+     * 单个 (数据源, 结构版本) 下的LSH桶，调用方负责同步
+     */
+    private static class Scope {
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+        private final Map<String, long[]> bandKeys = new HashMap<>();
+        private final Map<Long, Set<String>> buckets = new HashMap<>();
+
+        void add(Entry entry, int[] signature, int maxEntries) {
+            String id = entry.getNormalized() + "|" + entry.getContext() + "|" + entry.getLiterals();
+            remove(id);
+
+            long[] keys = new long[BANDS];
+            for (int band = 0; band < BANDS; band++) {
+                keys[band] = bandKey(signature, band);
+                buckets.computeIfAbsent(keys[band], k -> new HashSet<>()).add(id);
+            }
+            entries.put(id, entry);
+            bandKeys.put(id, keys);
+
+            Iterator<String> iterator = entries.keySet().iterator();
+            while (entries.size() > maxEntries && iterator.hasNext()) {
+                String oldest = iterator.next();
+                iterator.remove();
+                removeBuckets(oldest);
+            }
+        }
+
+        List<Entry> candidates(int[] signature) {
+            Set<String> ids = new HashSet<>();
+            for (int band = 0; band < BANDS; band++) {
+                Set<String> bucket = buckets.get(bandKey(signature, band));
+                if (bucket != null) {
+                    ids.addAll(bucket);
+                }
+            }
+            List<Entry> candidates = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                Entry entry = entries.get(id);
+                if (entry != null) {
+                    candidates.add(entry);
+                }
+            }
+            return candidates;
+        }
+
+        int size() {
+            return entries.size();
+        }
+
+        private void remove(String id) {
+            if (entries.remove(id) != null) {
+                removeBuckets(id);
+            }
+        }
+
+        private void removeBuckets(String id) {
+            long[] keys = bandKeys.remove(id);
+            if (keys == null) {
+                return;
+            }
+            for (long key : keys) {
+                Set<String> bucket = buckets.get(key);
+                if (bucket != null) {
+                    bucket.remove(id);
+                    if (bucket.isEmpty()) {
+                        buckets.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class Entry {
+        private String query;
+        private String normalized;
+        private String context;
+        private List<String> literals;
+        private List<String> polarity;
+        private Set<Integer> shingles;
+        private String sql;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Match {
+        private String matchedQuery;
+        private String sql;
+        private double similarity;
+    }
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class IndexStats {
+        private int size;
+        private int scopeCount;
+        private long lookupCount;
+        private long candidateCount;
+        private long matchCount;
+        private long rejectedCount;
+        private double similarityThreshold;
+        private boolean enabled;
+    }
+}
@@ -0,0 +1,99 @@
+package com.kami.springai.common.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 相同键的并发请求合并执行
+ *
+ * 同一个键在执行期间只有一次计算（领头请求），其余请求挂到同一个结果上，
+ * 失败会传给所有等待者。每个调用方拿到的是共享结果的副本，
+ * 单个调用方取消或中断只影响自己的等待，不会取消共享计算。
+ */
+public class SingleFlightGroup<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong leaders = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * 执行或加入同键的进行中计算，计算在 executor 上执行，与调用方线程无关
+     */
+    public CompletableFuture<V> execute(K key, Supplier<V> computation, Executor executor) {
+        CompletableFuture<V> leader = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, leader);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing.copy();
+        }
+
+        leaders.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    leader.complete(computation.get());
+                } catch (Throwable e) {
+                    failures.incrementAndGet();
+                    leader.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, leader);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, leader);
+            failures.incrementAndGet();
+            leader.completeExceptionally(e);
+        }
+        return leader.copy();
+    }
+
+    /**
+     * 当前进行中的计算数
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    public SingleFlightStats getStats() {
+        long leaderCount = leaders.get();
+        long coalescedCount = coalesced.get();
+        long total = leaderCount + coalescedCount;
+        return SingleFlightStats.builder()
+                .inFlight(inFlight.size())
+                .leaders(leaderCount)
+                .coalesced(coalescedCount)
+                .coalesceRate(total > 0 ? (double) coalescedCount / total : 0.0)
+                .failures(failures.get())
+                .build();
+    }
+
+    /**
+     * 合并执行统计
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class SingleFlightStats {
+        private int inFlight;
+        /**
+         * 实际执行计算的请求数
+         */
+        private long leaders;
+        /**
+         * 挂到进行中计算上、未单独执行的请求数
+         */
+        private long coalesced;
+        private double coalesceRate;
+        private long failures;
+    }
+}
@@ -0,0 +1,219 @@
+package com.kami.springai.common.cache;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SQL解释缓存
+ *
+ * 以 (数据源ID, 结构指纹, SQL指纹, 上下文) 为键缓存大模型生成的SQL解释，按LRU和TTL淘汰；
+ * 数据源结构指纹变化时清除该数据源的全部条目。
+ * 指纹相同但常量不同的SQL，把缓存解释中出现的原常量替换为新常量后直接返回；
+ * 变化的原常量在解释中不是恰好出现一次，或同一个原常量对应多个不同新值时无法替换，按未命中处理。
+ */
+@Slf4j
+@Service
+public class SqlExplanationCache implements SchemaChangeListener {
+
+    @Value("${text2sql.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${text2sql.cache.explain-ttl:1800}")
+    private long ttlSeconds;
+
+    @Value("${text2sql.cache.explain-max-entries:500}")
+    private int maxEntries;
+
+    @Value("${text2sql.cache.explain-literal-substitution:true}")
+    private boolean literalSubstitution;
+
+    private SchemaVersionedCache<CachedExplanation> cache;
+
+    private final AtomicLong substitutionHitCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        cache = new SchemaVersionedCache<>("SQL解释缓存", enabled, ttlSeconds, maxEntries);
+    }
+
+    /**
+     * 查询缓存的解释，未命中返回null
+     */
+    public String get(String dataSourceId, String schemaVersion, SqlFingerprint fingerprint, String context) {
+        if (!cache.isEnabled()) {
+            return null;
+        }
+        CachedExplanation entry = cache.get(dataSourceId, schemaVersion, fingerprint.getCanonical(), context);
+        if (entry == null) {
+            cache.recordMiss();
+            return null;
+        }
+
+        if (entry.getLiterals().equals(fingerprint.getLiterals())) {
+            cache.recordHit();
+            log.debug("SQL解释缓存命中: {}", fingerprint.getHash());
+            return entry.getExplanation();
+        }
+        String substituted = literalSubstitution
+                ? substituteLiterals(entry.getExplanation(), entry.getLiterals(), fingerprint.getLiterals())
+                : null;
+        if (substituted == null) {
+            cache.recordMiss();
+            return null;
+        }
+        cache.recordHit();
+        substitutionHitCount.incrementAndGet();
+        log.debug("SQL解释缓存命中（替换常量）: {}", fingerprint.getHash());
+        return substituted;
+    }
+
+    /**
+     * 缓存SQL解释
+     */
+    public void put(String dataSourceId, String schemaVersion, SqlFingerprint fingerprint, String context,
+                    String explanation) {
+        if (explanation == null) {
+            return;
+        }
+        cache.put(dataSourceId, schemaVersion, fingerprint.getCanonical(), context,
+                new CachedExplanation(explanation, fingerprint.getLiterals()));
+    }
+
+    /**
+     * 清除指定数据源的全部缓存条目
+     */
+    public void invalidate(String dataSourceId) {
+        cache.invalidate(dataSourceId);
+    }
+
+    /**
+     * 清除所有缓存
+     */
+    public void clearAll() {
+        cache.clearAll();
+    }
+
+    @Override
+    public void onSchemaChanged(String dataSourceId, String previousVersion, String currentVersion) {
+        cache.onSchemaChanged(dataSourceId, currentVersion);
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public CacheStats getCacheStats() {
+        return CacheStats.builder()
+                .cache(cache.getCacheStats())
+                .substitutionHitCount(substitutionHitCount.get())
+                .build();
+    }
+
+    /**
+     * 把解释中的原常量替换为新常量。每个变化的原常量必须在解释中恰好独立出现一次
+     * （前后不紧邻字母、数字或小数点），否则无法确定解释中哪一处对应SQL中的常量，返回null；
+     * 同一个原常量需要替换成不同的值时也返回null
+     */
+    static String substituteLiterals(String explanation, List<String> cachedLiterals, List<String> literals) {
+        if (cachedLiterals.size() != literals.size()) {
+            return null;
+        }
+        Map<String, String> replacements = new HashMap<>();
+        for (int i = 0; i < literals.size(); i++) {
+            String from = cachedLiterals.get(i);
+            String to = literals.get(i);
+            String previous = replacements.putIfAbsent(from, to);
+            if (previous != null && !previous.equals(to)) {
+                return null;
+            }
+        }
+        replacements.entrySet().removeIf(entry -> entry.getKey().equals(entry.getValue()));
+        if (replacements.isEmpty()) {
+            return explanation;
+        }
+
+        // 位置 -> 原常量，按位置顺序替换
+        TreeMap<Integer, String> positions = new TreeMap<>();
+        for (String from : replacements.keySet()) {
+            int position = uniqueOccurrence(explanation, from);
+            if (position < 0) {
+                return null;
+            }
+            positions.put(position, from);
+        }
+
+        StringBuilder result = new StringBuilder(explanation.length() + 16);
+        int copied = 0;
+        for (Map.Entry<Integer, String> occurrence : positions.entrySet()) {
+            int position = occurrence.getKey();
+            if (position < copied) {
+                // 两个原常量在解释中重叠
+                return null;
+            }
+            result.append(explanation, copied, position).append(replacements.get(occurrence.getValue()));
+            copied = position + occurrence.getValue().length();
+        }
+        result.append(explanation, copied, explanation.length());
+        return result.toString();
+    }
+
+    /**
+     * 常量在文本中唯一一处独立出现的位置，没有出现或出现多次时返回-1
+     */
+    private static int uniqueOccurrence(String text, String literal) {
+        if (literal.isEmpty()) {
+            return -1;
+        }
+        int found = -1;
+        for (int position = text.indexOf(literal); position >= 0; position = text.indexOf(literal, position + 1)) {
+            if (isStandalone(text, position, literal.length())) {
+                if (found >= 0) {
+                    return -1;
+                }
+                found = position;
+            }
+        }
+        return found;
+    }
+
+    private static boolean isStandalone(String text, int start, int length) {
+        int end = start + length;
+        return (start == 0 || !isLiteralChar(text.charAt(start - 1)))
+                && (end == text.length() || !isLiteralChar(text.charAt(end)));
+    }
+
+    private static boolean isLiteralChar(char c) {
+        // 只看ASCII字母数字，中文说明中常量通常紧邻汉字，如 "状态为1的记录"
+        return (c < 128 && Character.isLetterOrDigit(c)) || c == '_' || c == '.';
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class CachedExplanation {
+        private String explanation;
+        private List<String> literals;
+    }
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class CacheStats {
+        @JsonUnwrapped
+        private SchemaVersionedCache.CacheStats cache;
+        /**
+         * 通过常量替换命中的次数（包含在 hitCount 中）
+         */
+        private long substitutionHitCount;
+    }
+}
@@ -0,0 +1,141 @@
+package com.kami.springai.common.cache;
+
+import lombok.Getter;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.DateValue;
+import net.sf.jsqlparser.expression.DoubleValue;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.expression.TimeValue;
+import net.sf.jsqlparser.expression.TimestampValue;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.util.deparser.ExpressionDeParser;
+import net.sf.jsqlparser.util.deparser.SelectDeParser;
+import net.sf.jsqlparser.util.deparser.StatementDeParser;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * SQL指纹
+ *
+ * 解析SQL后重新生成语句，常量替换为 ?，去掉反引号并统一空白和大小写，
+ * 只有常量不同的SQL指纹相同。被替换的常量按出现顺序保留在 {@link #getLiterals()} 中。
+ * 无法解析的SQL退化为按空白和大小写规范化后的原文。
+ */
+@Getter
+public final class SqlFingerprint {
+
+    /**
+     * 规范化后的SQL
+     */
+    private final String canonical;
+
+    /**
+     * 规范化SQL的摘要
+     */
+    private final String hash;
+
+    /**
+     * 按出现顺序被替换的常量值（字符串常量不含引号）
+     */
+    private final List<String> literals;
+
+    private SqlFingerprint(String canonical, List<String> literals) {
+        this.canonical = canonical;
+        this.hash = digest(canonical);
+        this.literals = Collections.unmodifiableList(literals);
+    }
+
+    /**
+     * 计算SQL指纹
+     */
+    public static SqlFingerprint of(String sql) {
+        String trimmed = sql != null ? sql.trim().replaceAll(";+$", "") : "";
+        List<String> literals = new ArrayList<>();
+        String deparsed;
+        try {
+            deparsed = deparse(CCJSqlParserUtil.parse(trimmed), literals);
+        } catch (JSQLParserException | RuntimeException e) {
+            literals.clear();
+            deparsed = trimmed;
+        }
+        String canonical = deparsed.replace("`", "")
+                .replaceAll("\\s+", " ")
+                .trim()
+                .toUpperCase(Locale.ROOT);
+        return new SqlFingerprint(canonical, literals);
+    }
+
+    private static String deparse(Statement statement, List<String> literals) {
+        StringBuilder buffer = new StringBuilder();
+        ExpressionDeParser expressionDeParser = new LiteralDeParser(literals);
+        SelectDeParser selectDeParser = new SelectDeParser(expressionDeParser, buffer);
+        expressionDeParser.setSelectVisitor(selectDeParser);
+        expressionDeParser.setBuffer(buffer);
+        statement.accept(new StatementDeParser(expressionDeParser, selectDeParser, buffer));
+        return buffer.toString();
+    }
+
+    private static String digest(String canonical) {
+        try {
+            byte[] bytes = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(bytes, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 不可用", e);
+        }
+    }
+
+    /**
+     * 将常量输出为 ? 并记录常量值
+     */
+    private static class LiteralDeParser extends ExpressionDeParser {
+        private final List<String> literals;
+
+        LiteralDeParser(List<String> literals) {
+            this.literals = literals;
+        }
+
+        @Override
+        public void visit(LongValue longValue) {
+            placeholder(longValue.getStringValue());
+        }
+
+        @Override
+        public void visit(DoubleValue doubleValue) {
+            placeholder(doubleValue.toString());
+        }
+
+        @Override
+        public void visit(StringValue stringValue) {
+            placeholder(stringValue.getValue());
+        }
+
+        @Override
+        public void visit(DateValue dateValue) {
+            placeholder(dateValue.getValue().toString());
+        }
+
+        @Override
+        public void visit(TimeValue timeValue) {
+            placeholder(timeValue.getValue().toString());
+        }
+
+        @Override
+        public void visit(TimestampValue timestampValue) {
+            placeholder(timestampValue.getValue().toString());
+        }
+
+        private void placeholder(String value) {
+            literals.add(value);
+            getBuffer().append('?');
+        }
+    }
+}
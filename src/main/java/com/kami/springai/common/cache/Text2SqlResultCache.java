@@ -0,0 +1,99 @@
+package com.kami.springai.common.cache;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Text2SQL结果缓存
+ *
+ * 以 (数据源ID, 结构指纹, 规范化查询, 上下文) 为键缓存已通过验证的SQL，
+ * 重复的问题无需再做语义分析和调用大模型。容量有上限，按LRU淘汰；
+ * 数据源结构指纹变化时自动清除该数据源的全部条目。
+ */
+@Slf4j
+@Service
+public class Text2SqlResultCache implements SchemaChangeListener {
+
+    @Value("${text2sql.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${text2sql.cache.query-ttl:300}")
+    private long ttlSeconds;
+
+    @Value("${text2sql.cache.query-max-entries:1000}")
+    private int maxEntries;
+
+    private SchemaVersionedCache<String> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new SchemaVersionedCache<>("Text2SQL结果缓存", enabled, ttlSeconds, maxEntries);
+    }
+
+    /**
+     * 查询缓存的SQL，未命中返回null
+     */
+    public String get(String dataSourceId, String schemaVersion, String userQuery, String context) {
+        if (!cache.isEnabled()) {
+            return null;
+        }
+        String normalizedQuery = normalizeQuery(userQuery);
+        String sql = cache.get(dataSourceId, schemaVersion, normalizedQuery, context);
+        if (sql == null) {
+            cache.recordMiss();
+            return null;
+        }
+        cache.recordHit();
+        log.debug("Text2SQL结果缓存命中: {}", normalizedQuery);
+        return sql;
+    }
+
+    /**
+     * 缓存已通过验证的SQL
+     */
+    public void put(String dataSourceId, String schemaVersion, String userQuery, String context, String sql) {
+        cache.put(dataSourceId, schemaVersion, normalizeQuery(userQuery), context, sql);
+    }
+
+    /**
+     * 清除指定数据源的全部缓存条目
+     */
+    public void invalidate(String dataSourceId) {
+        cache.invalidate(dataSourceId);
+    }
+
+    /**
+     * 清除所有缓存
+     */
+    public void clearAll() {
+        cache.clearAll();
+    }
+
+    @Override
+    public void onSchemaChanged(String dataSourceId, String previousVersion, String currentVersion) {
+        cache.onSchemaChanged(dataSourceId, currentVersion);
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public SchemaVersionedCache.CacheStats getCacheStats() {
+        return cache.getCacheStats();
+    }
+
+    /**
+     * 规范化用户查询：去除首尾空白和句末标点，合并连续空白，转小写
+     */
+    public static String normalizeQuery(String query) {
+        if (query == null) {
+            return "";
+        }
+        String normalized = query.trim()
+                .replaceAll("\\s+", " ")
+                .replaceAll("[。？?！!.，,；;\\s]+$", "")
+                .toLowerCase();
+        return normalized;
+    }
+}
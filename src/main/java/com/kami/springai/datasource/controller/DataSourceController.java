@@ -1,5 +1,7 @@
 package com.kami.springai.datasource.controller;
 
+import com.kami.springai.common.cache.SchemaCache;
+import com.kami.springai.common.cache.SchemaSnapshot;
 import com.kami.springai.datasource.model.DataSourceConfig;
 import com.kami.springai.datasource.model.DataSourceDTO;
 import com.kami.springai.datasource.model.DataSourceStatus;
@@ -9,7 +11,9 @@ import com.kami.springai.text2sql.service.SchemaDiscoveryService;
 import com.kami.springai.text2sql.model.DatabaseSchema;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -37,6 +41,9 @@ public class DataSourceController {
 
     @Autowired
     private SchemaDiscoveryService schemaDiscoveryService;
+
+    @Autowired
+    private SchemaCache schemaCache;
     
     /**
      * 获取所有数据源
@@ -195,6 +202,8 @@ public class DataSourceController {
     public ResponseEntity<?> deleteDataSource(@PathVariable String id) {
         try {
             dataSourceManager.destroyDataSource(id);
+            // 同时清除结构缓存和磁盘快照，下游缓存随结构变更通知失效
+            schemaCache.clearCache(id);
             return ResponseEntity.ok(Map.of(
                 "success", true,
                 "message", "数据源删除成功"
@@ -341,6 +350,44 @@ public class DataSourceController {
         }
     }
 
+    /**
+     * 导出数据源的结构快照（二进制），可导入到无法直连数据库的环境
+     */
+    @GetMapping("/{id}/schema/snapshot")
+    public ResponseEntity<?> exportSchemaSnapshot(@PathVariable String id) {
+        try {
+            byte[] snapshot = schemaCache.exportSnapshot(id);
+            return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"schema.snapshot\"")
+                .body(snapshot);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("success", false, "message", "导出结构快照失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 导入结构快照作为数据源的当前结构
+     */
+    @PutMapping(value = "/{id}/schema/snapshot", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Map<String, Object>> importSchemaSnapshot(@PathVariable String id, @RequestBody byte[] body) {
+        try {
+            SchemaSnapshot snapshot = schemaCache.importSnapshot(id, body);
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "fingerprint", snapshot.getFingerprint(),
+                "tables", snapshot.getSchema().getTables() != null ? snapshot.getSchema().getTables().size() : 0
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("success", false, "message", "无效的结构快照: " + e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("success", false, "message", "导入结构快照失败: " + e.getMessage()));
+        }
+    }
+
     /**
      * 获取测试数据源的表结构信息（用于测试前端解析）
      */
@@ -1,7 +1,22 @@
 package com.kami.springai.mcp.controller;
 
+import com.kami.springai.common.cache.SchemaCache;
+import com.kami.springai.common.cache.SimilarQueryIndex;
+import com.kami.springai.common.cache.SingleFlightGroup;
+import com.kami.springai.common.cache.SqlExplanationCache;
+import com.kami.springai.common.cache.Text2SqlResultCache;
 import com.kami.springai.mcp.server.SimpleMcpServer;
-// import com.kami.springai.common.cache.SchemaCache;
+import com.kami.springai.text2sql.service.AsyncTaskTable;
+import com.kami.springai.text2sql.service.HedgedSqlGenerator;
+import com.kami.springai.text2sql.service.LlmGateway;
+import com.kami.springai.text2sql.service.SchemaDiscoveryService;
+import com.kami.springai.text2sql.service.SchemaLinker;
+import com.kami.springai.text2sql.service.SqlAstExplainer;
+import com.kami.springai.text2sql.service.SqlExplanationService;
+import com.kami.springai.text2sql.service.SqlTemplateRenderer;
+import com.kami.springai.text2sql.service.Text2SqlJobService;
+import com.kami.springai.text2sql.service.Text2SqlService;
+import com.kami.springai.text2sql.validator.SqlRepairEngine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
@@ -9,6 +24,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -23,6 +39,20 @@ import java.util.Map;
 public class HealthController {
 
     private final SimpleMcpServer simpleMcpServer;
+    private final SchemaCache schemaCache;
+    private final SchemaDiscoveryService schemaDiscoveryService;
+    private final Text2SqlResultCache resultCache;
+    private final SqlExplanationCache explanationCache;
+    private final SimilarQueryIndex similarQueryIndex;
+    private final SchemaLinker schemaLinker;
+    private final LlmGateway llmGateway;
+    private final HedgedSqlGenerator hedgedSqlGenerator;
+    private final SqlRepairEngine repairEngine;
+    private final SqlAstExplainer astExplainer;
+    private final SqlTemplateRenderer templateRenderer;
+    private final Text2SqlJobService text2SqlJobService;
+    private final SqlExplanationService sqlExplanationService;
+    private final Text2SqlService text2SqlService;
 
     /**
      * 基本健康检查
@@ -60,6 +90,99 @@ public class HealthController {
         }
     }
 
+    /**
+     * 缓存状态
+     */
+    @GetMapping("/cache")
+    public Map<String, Object> cacheStats() {
+        return Map.of(
+            "schema_cache", schemaCache.getCacheStats(),
+            "text2sql_result_cache", resultCache.getCacheStats(),
+            "sql_explanation_cache", explanationCache.getCacheStats(),
+            "similar_query_index", similarQueryIndex.getIndexStats()
+        );
+    }
+
+    /**
+     * 结构链接状态（提示词裁剪及预计节省的token数）
+     */
+    @GetMapping("/schema-linking")
+    public SchemaLinker.LinkStats schemaLinkingStats() {
+        return schemaLinker.getLinkStats();
+    }
+
+    /**
+     * 大模型调用状态（延迟分位数、token用量、HTTP连接池）
+     */
+    @GetMapping("/llm")
+    public LlmGateway.GatewayStats llmStats() {
+        return llmGateway.getGatewayStats();
+    }
+
+    /**
+     * 对冲生成状态（对冲率、浪费的token数）
+     */
+    @GetMapping("/llm/hedging")
+    public HedgedSqlGenerator.HedgingStats hedgingStats() {
+        return hedgedSqlGenerator.getHedgingStats();
+    }
+
+    /**
+     * 本地SQL修复状态（避免的大模型修复次数）
+     */
+    @GetMapping("/sql-repair")
+    public SqlRepairEngine.RepairStats sqlRepairStats() {
+        return repairEngine.getRepairStats();
+    }
+
+    /**
+     * AST解释器状态（无需调用大模型的SQL解释占比）
+     */
+    @GetMapping("/sql-explainer")
+    public SqlAstExplainer.ExplainerStats sqlExplainerStats() {
+        return astExplainer.getExplainerStats();
+    }
+
+    /**
+     * 学习模式模板渲染状态（由模式直接提供、未调用大模型的请求数）
+     */
+    @GetMapping("/patterns")
+    public SqlTemplateRenderer.TemplateStats patternStats() {
+        return templateRenderer.getTemplateStats();
+    }
+
+    /**
+     * 相同问题并发请求合并状态（被合并、未单独调用大模型的请求数）
+     */
+    @GetMapping("/single-flight")
+    public SingleFlightGroup.SingleFlightStats singleFlightStats() {
+        return text2SqlService.getSingleFlightStats();
+    }
+
+    /**
+     * 异步Text2SQL任务表状态
+     */
+    @GetMapping("/jobs")
+    public Text2SqlJobService.JobStats jobStats() {
+        return text2SqlJobService.getJobStats();
+    }
+
+    /**
+     * 各数据源最近一次结构发现的方式、进度和耗时
+     */
+    @GetMapping("/schema-discovery")
+    public List<SchemaDiscoveryService.DiscoveryStats> schemaDiscoveryStats() {
+        return schemaDiscoveryService.getDiscoveryStats();
+    }
+
+    /**
+     * 延迟SQL解释表状态
+     */
+    @GetMapping("/explanations")
+    public AsyncTaskTable.TaskStats explanationStats() {
+        return sqlExplanationService.getStats();
+    }
+
     /**
      * 测试Text2SQL转换
      */
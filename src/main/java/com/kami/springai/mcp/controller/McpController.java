@@ -2,12 +2,25 @@ package com.kami.springai.mcp.controller;
 
 import com.kami.springai.mcp.model.McpRequest;
 import com.kami.springai.mcp.model.McpResponse;
+import com.kami.springai.mcp.model.Text2SqlBatchRequest;
+import com.kami.springai.mcp.model.Text2SqlJobRequest;
 import com.kami.springai.mcp.service.McpService;
 import com.kami.springai.mcp.server.SimpleMcpServer;
+import com.kami.springai.text2sql.model.BatchSqlResult;
+import com.kami.springai.text2sql.model.SqlExplanationTask;
+import com.kami.springai.text2sql.model.SqlStreamEvent;
+import com.kami.springai.text2sql.model.Text2SqlJob;
+import com.kami.springai.text2sql.service.SqlExplanationService;
+import com.kami.springai.text2sql.service.Text2SqlJobService;
+import com.kami.springai.text2sql.service.Text2SqlService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import java.util.concurrent.CompletableFuture;
 
@@ -19,6 +32,9 @@ public class McpController {
 
     private final McpService mcpService;
     private final SimpleMcpServer simpleMcpServer;
+    private final Text2SqlService text2SqlService;
+    private final Text2SqlJobService text2SqlJobService;
+    private final SqlExplanationService sqlExplanationService;
 
     /**
      * 执行文件系统MCP任务
@@ -204,6 +220,9 @@ public class McpController {
 
     /**
      * Text2SQL转换
+     *
+     * 默认SQL通过验证后立即返回，解释未完成时返回 explanationId，
+     * 通过 /text2sql/explanations/{explanationId} 获取；explain=inline 时一并返回解释
      */
     @PostMapping("/text2sql")
     public ResponseEntity<SimpleMcpServer.ToolResult> convertTextToSql(@RequestBody McpRequest request) {
@@ -219,6 +238,7 @@ public class McpController {
             java.util.Map<String, Object> parameters = new java.util.HashMap<>();
             parameters.put("query", request.getPrompt());
             parameters.put("context", request.getContext());
+            parameters.put("explain", request.getExplain());
 
             SimpleMcpServer.ToolResult result = simpleMcpServer.executeTool("text_to_sql", parameters);
             return ResponseEntity.ok(result);
@@ -232,6 +252,197 @@ public class McpController {
         }
     }
 
+    /**
+     * Text2SQL流式转换（SSE）
+     *
+     * 事件类型：token 为模型输出片段，sql 为验证通过的最终SQL，error 为失败信息
+     */
+    @PostMapping(value = "/text2sql/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamTextToSql(@RequestBody McpRequest request) {
+        try {
+            if (request.getDataSourceId() != null) {
+                com.kami.springai.datasource.service.DataSourceContextHolder.setDataSourceId(request.getDataSourceId());
+                log.info("设置数据源上下文: {}", request.getDataSourceId());
+            } else {
+                log.warn("Text2SQL流式请求中未提供数据源ID");
+            }
+
+            if (request.getPrompt() == null || request.getPrompt().trim().isEmpty()) {
+                return Flux.just(toServerSentEvent(SqlStreamEvent.error("Query parameter is required")));
+            }
+
+            // 数据源上下文只在当前线程有效：streamSql 在返回Flux之前读取数据源ID，
+            // 结构获取和提示词构建在订阅时于虚拟线程上进行，不依赖这里的线程上下文
+            return text2SqlService.streamSql(request.getPrompt(), request.getContext())
+                    .map(this::toServerSentEvent);
+
+        } catch (Exception e) {
+            log.error("Text2SQL流式转换失败", e);
+            return Flux.just(toServerSentEvent(SqlStreamEvent.error("转换失败: " + e.getMessage())));
+        } finally {
+            com.kami.springai.datasource.service.DataSourceContextHolder.clear();
+        }
+    }
+
+    /**
+     * Text2SQL批量转换（SSE）
+     *
+     * 每个问题完成后立即推送一个 result 事件（按完成顺序，index 为问题在请求中的下标），
+     * 请求整体无效时推送一个 error 事件
+     */
+    @PostMapping(value = "/text2sql/batch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<BatchSqlResult>> batchTextToSql(@RequestBody Text2SqlBatchRequest request) {
+        try {
+            if (request.getDataSourceId() != null) {
+                com.kami.springai.datasource.service.DataSourceContextHolder.setDataSourceId(request.getDataSourceId());
+                log.info("设置数据源上下文: {}", request.getDataSourceId());
+            } else {
+                log.warn("Text2SQL批量请求中未提供数据源ID");
+            }
+
+            if (request.getQuestions() == null || request.getQuestions().isEmpty()) {
+                return Flux.just(toBatchErrorEvent("Questions parameter is required"));
+            }
+
+            String dataSourceId = com.kami.springai.datasource.service.DataSourceContextHolder.getDataSourceId();
+            return text2SqlService.convertBatch(dataSourceId, request.getQuestions(), request.getContext(), request.getPackSize())
+                    .map(result -> ServerSentEvent.<BatchSqlResult>builder()
+                            .id(String.valueOf(result.getIndex()))
+                            .event("result")
+                            .data(result)
+                            .build())
+                    .onErrorResume(e -> {
+                        log.error("Text2SQL批量转换失败", e);
+                        return Flux.just(toBatchErrorEvent("转换失败: " + e.getMessage()));
+                    });
+
+        } catch (Exception e) {
+            log.error("Text2SQL批量转换失败", e);
+            return Flux.just(toBatchErrorEvent("转换失败: " + e.getMessage()));
+        } finally {
+            com.kami.springai.datasource.service.DataSourceContextHolder.clear();
+        }
+    }
+
+    /**
+     * 提交异步Text2SQL任务，立即返回任务ID
+     *
+     * 任务表已满时返回429，客户端通过轮询、完成事件或回调地址获取结果
+     */
+    @PostMapping("/text2sql/jobs")
+    public ResponseEntity<Text2SqlJob> submitTextToSqlJob(@RequestBody Text2SqlJobRequest request) {
+        if (request.getPrompt() == null || request.getPrompt().trim().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        String dataSourceId = request.getDataSourceId() != null
+                ? request.getDataSourceId()
+                : com.kami.springai.datasource.service.DataSourceContextHolder.getDataSourceId();
+        if (dataSourceId == null) {
+            log.warn("Text2SQL任务请求中未提供数据源ID");
+        }
+
+        try {
+            Text2SqlJob job = text2SqlJobService.submit(
+                    dataSourceId, request.getPrompt(), request.getContext(), request.getCallbackUrl());
+            return ResponseEntity.accepted().body(job);
+        } catch (IllegalArgumentException e) {
+            log.warn("Text2SQL任务提交失败: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            log.warn("Text2SQL任务提交失败: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+    }
+
+    /**
+     * 查询异步Text2SQL任务
+     */
+    @GetMapping("/text2sql/jobs/{jobId}")
+    public ResponseEntity<Text2SqlJob> getTextToSqlJob(@PathVariable String jobId) {
+        Text2SqlJob job = text2SqlJobService.getJob(jobId);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 订阅异步Text2SQL任务（SSE）
+     *
+     * 先推送一个 status 事件（当前快照），任务完成时推送 completed 事件后结束；
+     * 断开订阅不会取消任务
+     */
+    @GetMapping(value = "/text2sql/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Text2SqlJob>> textToSqlJobEvents(@PathVariable String jobId) {
+        Text2SqlJob job = text2SqlJobService.getJob(jobId);
+        if (job == null) {
+            return Flux.just(ServerSentEvent.<Text2SqlJob>builder().event("error").comment("任务不存在: " + jobId).build());
+        }
+        if (job.isDone()) {
+            return Flux.just(toJobEvent("completed", job));
+        }
+        return Flux.just(toJobEvent("status", job))
+                .concatWith(text2SqlJobService.awaitCompletion(jobId).map(done -> toJobEvent("completed", done)));
+    }
+
+    /**
+     * 查询Text2SQL返回的延迟解释
+     */
+    @GetMapping("/text2sql/explanations/{explanationId}")
+    public ResponseEntity<SqlExplanationTask> getSqlExplanation(@PathVariable String explanationId) {
+        SqlExplanationTask task = sqlExplanationService.get(explanationId);
+        return task != null ? ResponseEntity.ok(task) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 订阅Text2SQL返回的延迟解释（SSE）
+     *
+     * 先推送一个 status 事件（当前快照），解释完成时推送 completed 事件后结束
+     */
+    @GetMapping(value = "/text2sql/explanations/{explanationId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<SqlExplanationTask>> sqlExplanationEvents(@PathVariable String explanationId) {
+        SqlExplanationTask task = sqlExplanationService.get(explanationId);
+        if (task == null) {
+            return Flux.just(ServerSentEvent.<SqlExplanationTask>builder().event("error").comment("解释不存在: " + explanationId).build());
+        }
+        if (task.isDone()) {
+            return Flux.just(toExplanationEvent("completed", task));
+        }
+        return Flux.just(toExplanationEvent("status", task))
+                .concatWith(sqlExplanationService.awaitCompletion(explanationId).map(done -> toExplanationEvent("completed", done)));
+    }
+
+    private ServerSentEvent<SqlExplanationTask> toExplanationEvent(String event, SqlExplanationTask task) {
+        return ServerSentEvent.<SqlExplanationTask>builder()
+                .id(task.getExplanationId())
+                .event(event)
+                .data(task)
+                .build();
+    }
+
+    private ServerSentEvent<Text2SqlJob> toJobEvent(String event, Text2SqlJob job) {
+        return ServerSentEvent.<Text2SqlJob>builder()
+                .id(job.getJobId())
+                .event(event)
+                .data(job)
+                .build();
+    }
+
+    private ServerSentEvent<BatchSqlResult> toBatchErrorEvent(String message) {
+        return ServerSentEvent.<BatchSqlResult>builder()
+                .event("error")
+                .data(BatchSqlResult.builder()
+                        .index(-1)
+                        .error(message)
+                        .source(BatchSqlResult.SOURCE_ERROR)
+                        .build())
+                .build();
+    }
+
+    private ServerSentEvent<String> toServerSentEvent(SqlStreamEvent event) {
+        return ServerSentEvent.<String>builder()
+                .event(event.getType())
+                .data(event.getContent())
+                .build();
+    }
+
     /**
      * SQL执行
      */
@@ -27,4 +27,7 @@ public class McpRequest {
 
     @JsonProperty("dataSourceId")
     private String dataSourceId; // 数据源ID，用于Text2SQL功能
+
+    @JsonProperty("explain")
+    private String explain; // Text2SQL解释方式：async（默认）、inline、none
 }
\ No newline at end of file
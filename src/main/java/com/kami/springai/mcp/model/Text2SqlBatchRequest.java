@@ -0,0 +1,26 @@
+package com.kami.springai.mcp.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Text2SqlBatchRequest {
+
+    @JsonProperty("questions")
+    private List<String> questions;
+
+    @JsonProperty("context")
+    private String context; // 所有问题共用的额外上下文
+
+    @JsonProperty("dataSourceId")
+    private String dataSourceId;
+
+    @JsonProperty("packSize")
+    private Integer packSize; // 每次大模型调用合并的问题数，为空时使用配置值
+}
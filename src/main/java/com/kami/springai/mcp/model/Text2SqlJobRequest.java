@@ -0,0 +1,24 @@
+package com.kami.springai.mcp.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Text2SqlJobRequest {
+
+    @JsonProperty("prompt")
+    private String prompt;
+
+    @JsonProperty("context")
+    private String context; // 额外上下文信息
+
+    @JsonProperty("dataSourceId")
+    private String dataSourceId;
+
+    @JsonProperty("callbackUrl")
+    private String callbackUrl; // 任务完成后以POST方式回调该地址，请求体为任务快照
+}
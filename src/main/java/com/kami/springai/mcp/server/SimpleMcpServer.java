@@ -1,8 +1,12 @@
 package com.kami.springai.mcp.server;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.kami.springai.text2sql.model.DatabaseSchema;
+import com.kami.springai.text2sql.model.ExplainedSql;
+import com.kami.springai.text2sql.model.SqlExplanationTask;
 import com.kami.springai.text2sql.service.SchemaDiscoveryService;
 import com.kami.springai.text2sql.service.SqlExecutionService;
+import com.kami.springai.text2sql.service.SqlExplanationService;
 import com.kami.springai.text2sql.service.Text2SqlService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,6 +26,17 @@ public class SimpleMcpServer {
     private final SchemaDiscoveryService schemaDiscoveryService;
     private final Text2SqlService text2SqlService;
     private final SqlExecutionService sqlExecutionService;
+    private final SqlExplanationService sqlExplanationService;
+
+    /**
+     * text_to_sql 的解释方式：
+     * - "async" - SQL通过验证后立即返回，解释并行生成，未完成时返回 explanation_id 供稍后获取
+     * - "inline" - 一次大模型调用同时生成SQL和解释，一并返回
+     * - "none" - 只返回SQL
+     */
+    public static final String EXPLAIN_ASYNC = "async";
+    public static final String EXPLAIN_INLINE = "inline";
+    public static final String EXPLAIN_NONE = "none";
 
     /**
      * 获取服务器信息
@@ -45,7 +60,8 @@ public class SimpleMcpServer {
                         .description("将自然语言查询转换为SQL语句")
                         .parameters(java.util.Map.of(
                             "query", "自然语言查询内容",
-                            "context", "额外上下文信息（可选）"
+                            "context", "额外上下文信息（可选）",
+                            "explain", "解释方式：async（默认，稍后调用get_sql_explanation凭explanation_id获取）、inline（与SQL一并返回）、none"
                         ))
                         .build(),
                     ToolInfo.builder()
@@ -68,6 +84,13 @@ public class SimpleMcpServer {
                         .parameters(java.util.Map.of(
                             "sql", "要解释的SQL语句"
                         ))
+                        .build(),
+                    ToolInfo.builder()
+                        .name("get_sql_explanation")
+                        .description("获取text_to_sql返回的延迟解释")
+                        .parameters(java.util.Map.of(
+                            "explanation_id", "text_to_sql返回的解释ID"
+                        ))
                         .build()
                 ))
                 .build();
@@ -85,6 +108,7 @@ public class SimpleMcpServer {
                 case "execute_sql" -> handleExecuteSql(parameters);
                 case "get_database_schema" -> handleGetDatabaseSchema(parameters);
                 case "explain_sql" -> handleExplainSql(parameters);
+                case "get_sql_explanation" -> handleGetSqlExplanation(parameters);
                 default -> ToolResult.error("Unknown tool: " + toolName);
             };
         } catch (Exception e) {
@@ -96,15 +120,37 @@ public class SimpleMcpServer {
     private ToolResult handleTextToSql(java.util.Map<String, Object> parameters) {
         String query = (String) parameters.get("query");
         String context = (String) parameters.get("context");
+        String explain = parameters.get("explain") != null ? (String) parameters.get("explain") : EXPLAIN_ASYNC;
         
         if (query == null || query.trim().isEmpty()) {
             return ToolResult.error("Query parameter is required");
         }
+        if (!EXPLAIN_ASYNC.equals(explain) && !EXPLAIN_INLINE.equals(explain) && !EXPLAIN_NONE.equals(explain)) {
+            return ToolResult.error("Unsupported explain mode: " + explain);
+        }
         
         try {
-            // 使用真实的Text2SQL服务
-            String sql = text2SqlService.convertToSql(query, context);
-            String explanation = text2SqlService.explainSql(sql, context);
+            String dataSourceId = com.kami.springai.datasource.service.DataSourceContextHolder.getDataSourceId();
+            String sql;
+            String explanation = null;
+            String explanationId = null;
+
+            if (EXPLAIN_INLINE.equals(explain)) {
+                ExplainedSql explained = text2SqlService.convertAndExplain(dataSourceId, query, context);
+                sql = explained.getSql();
+                explanation = explained.getExplanation();
+            } else {
+                // 使用真实的Text2SQL服务，SQL通过验证后即返回，不等待解释
+                sql = text2SqlService.convertToSql(query, context);
+                if (EXPLAIN_ASYNC.equals(explain)) {
+                    SqlExplanationTask task = submitExplanation(dataSourceId, sql, context);
+                    if (task != null && task.isDone()) {
+                        explanation = task.getExplanation();
+                    } else if (task != null) {
+                        explanationId = task.getExplanationId();
+                    }
+                }
+            }
             
             String result = String.format("""
                 自然语言查询: %s
@@ -113,12 +159,15 @@ public class SimpleMcpServer {
                 ```sql
                 %s
                 ```
-                
-                查询说明:
-                %s
-                """, query, sql, explanation);
+                %s""", query, sql, formatExplanation(explanation, explanationId));
             
-            return ToolResult.success(result);
+            return ToolResult.builder()
+                    .success(true)
+                    .content(result)
+                    .sql(sql)
+                    .explanation(explanation)
+                    .explanationId(explanationId)
+                    .build();
             
         } catch (Exception e) {
             log.error("Text2SQL转换失败: {}", e.getMessage(), e);
@@ -126,6 +175,28 @@ public class SimpleMcpServer {
         }
     }
 
+    /**
+     * 提交延迟解释，解释表已满时放弃解释，不影响SQL返回
+     */
+    private SqlExplanationTask submitExplanation(String dataSourceId, String sql, String context) {
+        try {
+            return sqlExplanationService.submit(dataSourceId, sql, context);
+        } catch (IllegalStateException e) {
+            log.warn("SQL解释未提交: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private String formatExplanation(String explanation, String explanationId) {
+        if (explanation != null) {
+            return "\n查询说明:\n" + explanation + "\n";
+        }
+        if (explanationId != null) {
+            return "\n查询说明: 正在生成（解释ID: " + explanationId + "，可调用 get_sql_explanation 获取）\n";
+        }
+        return "";
+    }
+
     private ToolResult handleExecuteSql(java.util.Map<String, Object> parameters) {
         String sql = (String) parameters.get("sql");
         
@@ -209,6 +280,40 @@ public class SimpleMcpServer {
         }
     }
 
+    /**
+     * 按解释ID获取延迟解释：已完成时返回解释，仍在生成时返回状态，供调用方稍后重试
+     */
+    private ToolResult handleGetSqlExplanation(java.util.Map<String, Object> parameters) {
+        String explanationId = (String) parameters.get("explanation_id");
+
+        if (explanationId == null || explanationId.trim().isEmpty()) {
+            return ToolResult.error("explanation_id parameter is required");
+        }
+
+        SqlExplanationTask task = sqlExplanationService.get(explanationId.trim());
+        if (task == null) {
+            return ToolResult.error("解释不存在或已过期: " + explanationId);
+        }
+        if (SqlExplanationTask.FAILED.equals(task.getStatus())) {
+            return ToolResult.error("SQL解释失败: " + task.getError());
+        }
+        if (!task.isDone()) {
+            return ToolResult.builder()
+                    .success(true)
+                    .content("查询说明: 正在生成（解释ID: " + task.getExplanationId() + "），请稍后重试")
+                    .sql(task.getSql())
+                    .explanationId(task.getExplanationId())
+                    .build();
+        }
+        return ToolResult.builder()
+                .success(true)
+                .content(task.getExplanation())
+                .sql(task.getSql())
+                .explanation(task.getExplanation())
+                .explanationId(task.getExplanationId())
+                .build();
+    }
+
     private String formatDatabaseSchema(DatabaseSchema schema) {
         StringBuilder sb = new StringBuilder();
         sb.append("数据库结构信息:\n");
@@ -285,6 +390,13 @@ public class SimpleMcpServer {
         private boolean success;
         private String content;
         private String error;
+        // text_to_sql 的结构化结果，其他工具为空
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private String sql;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private String explanation;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private String explanationId;
         
         public static ToolResult success(String content) {
             return ToolResult.builder()
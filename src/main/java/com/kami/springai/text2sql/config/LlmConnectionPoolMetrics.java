@@ -0,0 +1,79 @@
+package com.kami.springai.text2sql.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 大模型HTTP连接池指标
+ *
+ * 作为 Reactor Netty 的 MeterRegistrar 接收每个远端地址对应连接池的实时指标，
+ * 不依赖 Micrometer 注册表，供健康检查接口查询。
+ */
+public class LlmConnectionPoolMetrics implements ConnectionProvider.MeterRegistrar {
+
+    private final Map<String, PoolEntry> pools = new ConcurrentHashMap<>();
+
+    @Override
+    public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+        pools.put(key(id, remoteAddress), new PoolEntry(poolName, String.valueOf(remoteAddress), metrics));
+    }
+
+    @Override
+    public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+        pools.remove(key(id, remoteAddress));
+    }
+
+    /**
+     * 获取各连接池当前状态
+     */
+    public List<PoolStats> getPoolStats() {
+        return pools.values().stream()
+                .map(entry -> PoolStats.builder()
+                        .poolName(entry.poolName)
+                        .remoteAddress(entry.remoteAddress)
+                        .acquired(entry.metrics.acquiredSize())
+                        .allocated(entry.metrics.allocatedSize())
+                        .idle(entry.metrics.idleSize())
+                        .pendingAcquire(entry.metrics.pendingAcquireSize())
+                        .maxAllocated(entry.metrics.maxAllocatedSize())
+                        .maxPendingAcquire(entry.metrics.maxPendingAcquireSize())
+                        .build())
+                .toList();
+    }
+
+    private static String key(String id, SocketAddress remoteAddress) {
+        return id + "|" + remoteAddress;
+    }
+
+    @AllArgsConstructor
+    private static class PoolEntry {
+        private final String poolName;
+        private final String remoteAddress;
+        private final ConnectionPoolMetrics metrics;
+    }
+
+    /**
+     * 连接池状态
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class PoolStats {
+        private String poolName;
+        private String remoteAddress;
+        private int acquired;
+        private int allocated;
+        private int idle;
+        private int pendingAcquire;
+        private int maxAllocated;
+        private int maxPendingAcquire;
+    }
+}
@@ -0,0 +1,168 @@
+package com.kami.springai.text2sql.config;
+
+import io.micrometer.observation.ObservationRegistry;
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.observation.ChatModelObservationConvention;
+import org.springframework.ai.deepseek.DeepSeekChatModel;
+import org.springframework.ai.deepseek.api.DeepSeekApi;
+import org.springframework.ai.model.SimpleApiKey;
+import org.springframework.ai.model.deepseek.autoconfigure.DeepSeekChatProperties;
+import org.springframework.ai.model.deepseek.autoconfigure.DeepSeekConnectionProperties;
+import org.springframework.ai.model.tool.DefaultToolExecutionEligibilityPredicate;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionEligibilityPredicate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ReactorClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * 大模型HTTP客户端配置
+ *
+ * 为 DeepSeek API 客户端提供专用的长连接池（HTTP/2 优先，协商失败回退 HTTP/1.1），
+ * 避免每次调用重新建立 TCP 连接和 TLS 握手。连接池只用于大模型客户端，
+ * 不通过 RestClient/WebClient 定制器影响应用中的其他HTTP客户端。
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties({DeepSeekConnectionProperties.class, DeepSeekChatProperties.class})
+public class LlmHttpClientConfig {
+
+    @Value("${text2sql.llm.pool.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${text2sql.llm.pool.pending-acquire-max-count:500}")
+    private int pendingAcquireMaxCount;
+
+    @Value("${text2sql.llm.pool.pending-acquire-timeout:10}")
+    private long pendingAcquireTimeoutSeconds;
+
+    @Value("${text2sql.llm.pool.max-idle-time:120}")
+    private long maxIdleTimeSeconds;
+
+    @Value("${text2sql.llm.pool.max-life-time:900}")
+    private long maxLifeTimeSeconds;
+
+    @Value("${text2sql.llm.connect-timeout:5000}")
+    private int connectTimeoutMillis;
+
+    @Value("${text2sql.llm.response-timeout:120}")
+    private long responseTimeoutSeconds;
+
+    @Value("${text2sql.llm.http2-enabled:true}")
+    private boolean http2Enabled;
+
+    @Bean
+    public LlmConnectionPoolMetrics llmConnectionPoolMetrics() {
+        return new LlmConnectionPoolMetrics();
+    }
+
+    /**
+     * 大模型调用专用连接池
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider llmConnectionProvider(LlmConnectionPoolMetrics poolMetrics) {
+        log.info("初始化大模型HTTP连接池: maxConnections={}, maxIdleTime={}s", maxConnections, maxIdleTimeSeconds);
+        return ConnectionProvider.builder("llm")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofSeconds(pendingAcquireTimeoutSeconds))
+                .maxIdleTime(Duration.ofSeconds(maxIdleTimeSeconds))
+                .maxLifeTime(Duration.ofSeconds(maxLifeTimeSeconds))
+                .evictInBackground(Duration.ofSeconds(30))
+                .lifo()
+                .metrics(true, () -> poolMetrics)
+                .build();
+    }
+
+    @Bean
+    public HttpClient llmHttpClient(ConnectionProvider llmConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(llmConnectionProvider)
+                .keepAlive(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(Duration.ofSeconds(responseTimeoutSeconds));
+        if (http2Enabled) {
+            // 明文连接（如本地桩服务）不支持 h2，自动使用 HTTP/1.1
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+        return httpClient;
+    }
+
+    /**
+     * 使用大模型连接池的 RestClient.Builder，每次返回新实例
+     */
+    public RestClient.Builder llmRestClientBuilder(HttpClient llmHttpClient) {
+        return RestClient.builder().requestFactory(new ReactorClientHttpRequestFactory(llmHttpClient));
+    }
+
+    /**
+     * 使用大模型连接池的 WebClient.Builder，每次返回新实例
+     */
+    public WebClient.Builder llmWebClientBuilder(HttpClient llmHttpClient) {
+        return WebClient.builder().clientConnector(new ReactorClientHttpConnector(llmHttpClient));
+    }
+
+    /**
+     * DeepSeek 对话模型，替代自动配置创建的实例
+     *
+     * 与自动配置的区别只在于 API 客户端显式使用大模型连接池，容器中共享的 RestClient.Builder /
+     * WebClient.Builder（如任务回调客户端）保持默认配置，不占用大模型连接。
+     */
+    @Bean
+    @ConditionalOnProperty(name = "spring.ai.model.chat", havingValue = "deepseek", matchIfMissing = true)
+    public DeepSeekChatModel deepSeekChatModel(DeepSeekConnectionProperties connectionProperties,
+                                               DeepSeekChatProperties chatProperties,
+                                               HttpClient llmHttpClient,
+                                               ToolCallingManager toolCallingManager,
+                                               RetryTemplate retryTemplate,
+                                               ResponseErrorHandler responseErrorHandler,
+                                               ObjectProvider<ObservationRegistry> observationRegistry,
+                                               ObjectProvider<ChatModelObservationConvention> observationConvention,
+                                               ObjectProvider<ToolExecutionEligibilityPredicate> toolExecutionEligibilityPredicate) {
+        String baseUrl = StringUtils.hasText(chatProperties.getBaseUrl())
+                ? chatProperties.getBaseUrl() : connectionProperties.getBaseUrl();
+        String apiKey = StringUtils.hasText(chatProperties.getApiKey())
+                ? chatProperties.getApiKey() : connectionProperties.getApiKey();
+        Assert.hasText(baseUrl, "DeepSeek base URL must be set");
+        Assert.hasText(apiKey, "DeepSeek API key must be set");
+
+        DeepSeekApi deepSeekApi = DeepSeekApi.builder()
+                .baseUrl(baseUrl)
+                .apiKey(new SimpleApiKey(apiKey))
+                .completionsPath(chatProperties.getCompletionsPath())
+                .betaPrefixPath(chatProperties.getBetaPrefixPath())
+                .restClientBuilder(llmRestClientBuilder(llmHttpClient))
+                .webClientBuilder(llmWebClientBuilder(llmHttpClient))
+                .responseErrorHandler(responseErrorHandler)
+                .build();
+
+        DeepSeekChatModel chatModel = DeepSeekChatModel.builder()
+                .deepSeekApi(deepSeekApi)
+                .defaultOptions(chatProperties.getOptions())
+                .toolCallingManager(toolCallingManager)
+                .toolExecutionEligibilityPredicate(
+                        toolExecutionEligibilityPredicate.getIfUnique(DefaultToolExecutionEligibilityPredicate::new))
+                .retryTemplate(retryTemplate)
+                .observationRegistry(observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP))
+                .build();
+        observationConvention.ifAvailable(chatModel::setObservationConvention);
+        return chatModel;
+    }
+}
@@ -0,0 +1,118 @@
+package com.kami.springai.text2sql.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Text2SQL流水线指标
+ *
+ * 按阶段记录耗时和结果，通过 Micrometer 注册表由 actuator 的 metrics 端点导出：
+ * - text2sql.stage：各阶段耗时，标签 stage / datasource / query_type / outcome
+ * - text2sql.validator：每个验证器的耗时，标签 validator / outcome
+ * - text2sql.generation.attempts：每次请求的生成尝试次数，标签 datasource / query_type / outcome
+ *
+ * query_type 取语义分析的主要意图，语义分析之前的阶段为 unknown。
+ */
+@Component
+@RequiredArgsConstructor
+public class Text2SqlMetrics {
+
+    public static final String STAGE_TOTAL = "total";
+    public static final String STAGE_SCHEMA_FETCH = "schema_fetch";
+    public static final String STAGE_RESULT_CACHE = "result_cache";
+    public static final String STAGE_SEMANTIC_ANALYSIS = "semantic_analysis";
+    public static final String STAGE_PATTERN_LOOKUP = "pattern_lookup";
+    public static final String STAGE_LLM_GENERATION = "llm_generation";
+    public static final String STAGE_LLM_REPAIR = "llm_repair";
+    public static final String STAGE_LLM_EXPLAIN = "llm_explain";
+    public static final String STAGE_VALIDATION = "validation";
+    public static final String STAGE_LOCAL_REPAIR = "local_repair";
+    public static final String STAGE_SQL_EXECUTION = "sql_execution";
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_FAILURE = "failure";
+    public static final String OUTCOME_HIT = "hit";
+    public static final String OUTCOME_MISS = "miss";
+    public static final String OUTCOME_PASSED = "passed";
+    public static final String OUTCOME_REJECTED = "rejected";
+
+    public static final String QUERY_TYPE_BATCH = "batch";
+
+    private static final String UNKNOWN = "unknown";
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 开始计时
+     */
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * 结束计时并记录阶段耗时
+     */
+    public void stop(Timer.Sample sample, String stage, String dataSourceId, String queryType, String outcome) {
+        sample.stop(stageTimer(stage, dataSourceId, queryType, outcome));
+    }
+
+    /**
+     * 执行并记录阶段耗时，抛出异常时结果为 failure
+     */
+    public <T> T record(String stage, String dataSourceId, String queryType, Supplier<T> body) {
+        Timer.Sample sample = start();
+        String outcome = OUTCOME_FAILURE;
+        try {
+            T result = body.get();
+            outcome = OUTCOME_SUCCESS;
+            return result;
+        } finally {
+            stop(sample, stage, dataSourceId, queryType, outcome);
+        }
+    }
+
+    /**
+     * 记录单个验证器的耗时
+     */
+    public void recordValidator(String validator, boolean valid, long nanos) {
+        Timer.builder("text2sql.validator")
+                .description("SQL验证器耗时")
+                .tag("validator", tagValue(validator))
+                .tag("outcome", valid ? OUTCOME_PASSED : OUTCOME_REJECTED)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次请求的生成尝试次数
+     */
+    public void recordAttempts(String dataSourceId, String queryType, String outcome, int attempts) {
+        DistributionSummary.builder("text2sql.generation.attempts")
+                .description("每次请求的SQL生成尝试次数")
+                .tag("datasource", tagValue(dataSourceId))
+                .tag("query_type", tagValue(queryType))
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(attempts);
+    }
+
+    private Timer stageTimer(String stage, String dataSourceId, String queryType, String outcome) {
+        return Timer.builder("text2sql.stage")
+                .description("Text2SQL流水线各阶段耗时")
+                .tag("stage", stage)
+                .tag("datasource", tagValue(dataSourceId))
+                .tag("query_type", tagValue(queryType))
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static String tagValue(String value) {
+        return value != null && !value.isBlank() ? value : UNKNOWN;
+    }
+}
@@ -0,0 +1,40 @@
+package com.kami.springai.text2sql.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量Text2SQL的单条结果
+ *
+ * source 取值：
+ * - "cache" - 命中Text2SQL结果缓存
+ * - "packed" - 与其他问题合并在同一次大模型调用中生成
+ * - "single" - 单独走完整生成流程
+ * - "error" - 生成失败，原因见 error
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchSqlResult {
+    public static final String SOURCE_CACHE = "cache";
+    public static final String SOURCE_PACKED = "packed";
+    public static final String SOURCE_SINGLE = "single";
+    public static final String SOURCE_ERROR = "error";
+
+    /**
+     * 问题在请求列表中的下标
+     */
+    private int index;
+    private String question;
+    private String sql;
+    private String error;
+    private String source;
+    /**
+     * 与列表中更早出现的相同问题合并处理
+     */
+    private boolean deduplicated;
+    private long elapsedMs;
+}
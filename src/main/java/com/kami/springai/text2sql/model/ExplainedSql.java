@@ -0,0 +1,21 @@
+package com.kami.springai.text2sql.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 通过验证的SQL及其解释
+ *
+ * combined 为 true 表示SQL和解释来自同一次大模型调用
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExplainedSql {
+    private String sql;
+    private String explanation;
+    private boolean combined;
+}
@@ -6,7 +6,6 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.List;
-import java.util.Map;
 
 /**
  * 泛化SQL模式
@@ -46,33 +45,3 @@ public class GeneralizedSqlPattern {
         }
     }
 }
-
-/**
- * SQL模板
- */
-@Data
-@Builder
-@NoArgsConstructor
-@AllArgsConstructor
-class SqlTemplate {
-    private String selectTemplate;
-    private String fromTemplate;
-    private String joinTemplate;
-    private String whereTemplate;
-    private String orderTemplate;
-    private String limitTemplate;
-    private Map<String, PlaceholderRule> placeholderRules;
-}
-
-/**
- * 占位符规则
- */
-@Data
-@Builder
-@NoArgsConstructor
-@AllArgsConstructor
-class PlaceholderRule {
-    private List<String> patterns;
-    private String fallback;
-    private String ruleType;
-}
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.kami.springai.text2sql.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 大模型调用结果
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LlmResult {
+    private String content;
+    private String model;
+    private int promptTokens;
+    private int completionTokens;
+    private long latencyMs;
+
+    public int getTotalTokens() {
+        return promptTokens + completionTokens;
+    }
+}
@@ -0,0 +1,33 @@
+package com.kami.springai.text2sql.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 占位符规则
+ *
+ * ruleType 取值：
+ * - "TABLE" - 表名，取语义分析的主要实体表；patterns 为该表必须包含的字段
+ * - "VALUE" - 条件值，patterns 为从用户问题中提取值的正则（第1个分组）；必须从问题中提取，不使用 fallback
+ * - "LIMIT" - 返回行数，patterns 同 VALUE，只接受数字；问题中没有时使用 fallback 作为默认行数
+ * - "CONDITION" - 由语义分析识别出的条件拼接而成的过滤表达式
+ * 除 VALUE 外，无法解析时使用 fallback，fallback 为空则该占位符无法解析。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlaceholderRule {
+    public static final String TABLE = "TABLE";
+    public static final String VALUE = "VALUE";
+    public static final String LIMIT = "LIMIT";
+    public static final String CONDITION = "CONDITION";
+
+    private List<String> patterns;
+    private String fallback;
+    private String ruleType;
+}
@@ -0,0 +1,145 @@
+package com.kami.springai.text2sql.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 数据库结构提示词卡片
+ *
+ * 每张表的结构描述（表名、注释、字段、外键）在结构加载时渲染一次，
+ * 生成、修复、解释等提示词只需按表拼接卡片，不必每次重新格式化整个结构。
+ * 实例不可变，可在请求间共享。
+ */
+public final class SchemaPromptCards {
+
+    private final String header;
+    private final Map<String, String> cards;
+    private final String fullDescription;
+
+    private SchemaPromptCards(String header, Map<String, String> cards, String fullDescription) {
+        this.header = header;
+        this.cards = cards;
+        this.fullDescription = fullDescription;
+    }
+
+    /**
+     * 为整个数据库结构渲染卡片
+     */
+    public static SchemaPromptCards from(DatabaseSchema schema) {
+        return from(schema, null, Set.of());
+    }
+
+    /**
+     * 增量刷新后渲染卡片：未变化的表沿用上一版本的卡片，只重新渲染 changedTables 中的表
+     */
+    public static SchemaPromptCards from(DatabaseSchema schema, SchemaPromptCards previous, Set<String> changedTables) {
+        String header = "数据库: " + schema.getDatabaseName() + "\n\n";
+        List<DatabaseSchema.Table> tables = schema.getTables() != null ? schema.getTables() : List.of();
+
+        Map<String, String> cards = new LinkedHashMap<>(tables.size() * 2);
+        int length = header.length();
+        for (DatabaseSchema.Table table : tables) {
+            String card = previous != null && !changedTables.contains(table.getName())
+                    ? previous.cards.get(table.getName())
+                    : null;
+            if (card == null) {
+                card = renderTable(table);
+            }
+            cards.put(table.getName(), card);
+            length += card.length();
+        }
+
+        StringBuilder full = new StringBuilder(length);
+        full.append(header);
+        cards.values().forEach(full::append);
+        return new SchemaPromptCards(header, Collections.unmodifiableMap(cards), full.toString());
+    }
+
+    /**
+     * 完整结构描述
+     */
+    public String getFullDescription() {
+        return fullDescription;
+    }
+
+    /**
+     * 表数量
+     */
+    public int getTableCount() {
+        return cards.size();
+    }
+
+    /**
+     * 拼接给定结构（通常是结构链接裁剪后的子集）的描述
+     */
+    public String render(DatabaseSchema schema) {
+        List<DatabaseSchema.Table> tables = schema.getTables() != null ? schema.getTables() : List.of();
+        if (tables.size() == cards.size() && tables.stream().allMatch(table -> cards.containsKey(table.getName()))) {
+            return fullDescription;
+        }
+
+        StringBuilder description = new StringBuilder(header.length() + tables.size() * 256);
+        description.append(header);
+        for (DatabaseSchema.Table table : tables) {
+            String card = cards.get(table.getName());
+            description.append(card != null ? card : renderTable(table));
+        }
+        return description.toString();
+    }
+
+    /**
+     * 渲染单张表的卡片
+     */
+    public static String renderTable(DatabaseSchema.Table table) {
+        StringBuilder card = new StringBuilder(256);
+        card.append("表: ").append(table.getName());
+
+        if (hasText(table.getComment())) {
+            card.append(" (").append(table.getComment()).append(')');
+        }
+        card.append('\n');
+
+        // 字段信息（只保留关键信息）
+        card.append("  字段: ");
+        List<DatabaseSchema.Column> columns = table.getColumns() != null ? table.getColumns() : List.of();
+        for (int i = 0; i < columns.size(); i++) {
+            DatabaseSchema.Column column = columns.get(i);
+            if (i > 0) {
+                card.append(", ");
+            }
+            card.append(column.getName()).append(' ').append(column.getType());
+            if (column.isPrimaryKey()) {
+                card.append(" [PK]");
+            }
+            if (!column.isNullable()) {
+                card.append(" [NOT NULL]");
+            }
+            if (hasText(column.getComment())) {
+                card.append(" // ").append(column.getComment());
+            }
+        }
+        card.append('\n');
+
+        // 外键关系
+        if (table.getForeignKeys() != null && !table.getForeignKeys().isEmpty()) {
+            card.append("  关联: ");
+            for (int i = 0; i < table.getForeignKeys().size(); i++) {
+                if (i > 0) {
+                    card.append(", ");
+                }
+                card.append(table.getForeignKeys().get(i).getRelationshipDescription());
+            }
+            card.append('\n');
+        }
+
+        card.append('\n');
+        return card.toString();
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+}
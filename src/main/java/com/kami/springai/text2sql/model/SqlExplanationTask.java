@@ -0,0 +1,38 @@
+package com.kami.springai.text2sql.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 延迟生成的SQL解释快照
+ *
+ * status 取值：
+ * - "pending" - 正在生成
+ * - "succeeded" - 已生成，见 explanation
+ * - "failed" - 生成失败，原因见 error
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class SqlExplanationTask {
+    public static final String PENDING = "pending";
+    public static final String SUCCEEDED = "succeeded";
+    public static final String FAILED = "failed";
+
+    private String explanationId;
+    private String status;
+    private String sql;
+    private String explanation;
+    private String error;
+    private long submittedAt;
+    private long completedAt;
+
+    @JsonIgnore
+    public boolean isDone() {
+        return SUCCEEDED.equals(status) || FAILED.equals(status);
+    }
+}
@@ -0,0 +1,39 @@
+package com.kami.springai.text2sql.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 流式SQL生成事件
+ *
+ * type 取值：
+ * - "token" - 模型输出的增量片段
+ * - "sql" - 已通过验证的最终SQL
+ * - "error" - 生成失败
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SqlStreamEvent {
+    public static final String TOKEN = "token";
+    public static final String SQL = "sql";
+    public static final String ERROR = "error";
+
+    private String type;
+    private String content;
+
+    public static SqlStreamEvent token(String content) {
+        return new SqlStreamEvent(TOKEN, content);
+    }
+
+    public static SqlStreamEvent sql(String content) {
+        return new SqlStreamEvent(SQL, content);
+    }
+
+    public static SqlStreamEvent error(String content) {
+        return new SqlStreamEvent(ERROR, content);
+    }
+}
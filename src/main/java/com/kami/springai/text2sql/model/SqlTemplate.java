@@ -0,0 +1,28 @@
+package com.kami.springai.text2sql.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * SQL模板
+ *
+ * 各子句模板中的 {name} 为占位符，由 placeholderRules 中同名规则解析。
+ * 为空的子句模板不参与渲染。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SqlTemplate {
+    private String selectTemplate;
+    private String fromTemplate;
+    private String joinTemplate;
+    private String whereTemplate;
+    private String orderTemplate;
+    private String limitTemplate;
+    private Map<String, PlaceholderRule> placeholderRules;
+}
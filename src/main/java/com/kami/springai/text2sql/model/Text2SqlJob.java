@@ -0,0 +1,41 @@
+package com.kami.springai.text2sql.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 异步Text2SQL任务快照
+ *
+ * status 取值：
+ * - "pending" - 已提交，等待执行
+ * - "running" - 正在生成
+ * - "succeeded" - 已生成通过验证的SQL
+ * - "failed" - 生成失败，原因见 error
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class Text2SqlJob {
+    public static final String PENDING = "pending";
+    public static final String RUNNING = "running";
+    public static final String SUCCEEDED = "succeeded";
+    public static final String FAILED = "failed";
+
+    private String jobId;
+    private String status;
+    private String query;
+    private String sql;
+    private String error;
+    private long submittedAt;
+    private long startedAt;
+    private long completedAt;
+
+    @JsonIgnore
+    public boolean isDone() {
+        return SUCCEEDED.equals(status) || FAILED.equals(status);
+    }
+}
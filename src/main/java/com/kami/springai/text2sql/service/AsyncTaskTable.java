@@ -0,0 +1,198 @@
+package com.kami.springai.text2sql.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * 有容量上限的异步任务表
+ *
+ * 任务以不可变快照保存，状态变化时整体替换快照；完成时发出最终快照。
+ * 提交时原子地占用名额，任务移除时归还；已完成的任务超过TTL后在提交、查询或统计时移除。
+ */
+public final class AsyncTaskTable<T> {
+
+    private final String name;
+    private final int maxEntries;
+    private final long ttlSeconds;
+    private final Predicate<T> done;
+    private final ToLongFunction<T> completedAt;
+
+    private final Map<String, Entry<T>> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger reservedSlots = new AtomicInteger();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    /**
+     * @param name 任务表名称，用于错误信息
+     * @param done 快照是否已完成
+     * @param completedAt 已完成快照的完成时间（毫秒）
+     */
+    public AsyncTaskTable(String name, int maxEntries, long ttlSeconds,
+                          Predicate<T> done, ToLongFunction<T> completedAt) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.ttlSeconds = ttlSeconds;
+        this.done = done;
+        this.completedAt = completedAt;
+    }
+
+    /**
+     * 加入新任务
+     *
+     * @throws IllegalStateException 任务表已满
+     */
+    public Entry<T> add(String id, T snapshot) {
+        evictExpired();
+        if (!reserveSlot()) {
+            rejected.incrementAndGet();
+            throw new IllegalStateException(name + "已满 (" + maxEntries + ")，请稍后重试");
+        }
+        Entry<T> entry = new Entry<>(snapshot);
+        entries.put(id, entry);
+        submitted.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * 获取任务快照，不存在或已过期时返回null
+     */
+    public T get(String id) {
+        Entry<T> entry = entries.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry.snapshot)) {
+            evict(id, entry);
+            return null;
+        }
+        return entry.snapshot;
+    }
+
+    /**
+     * 任务完成时发出最终快照，任务不存在时为空
+     */
+    public Mono<T> awaitCompletion(String id) {
+        Entry<T> entry = entries.get(id);
+        return entry != null ? Mono.fromFuture(entry.completion, false) : Mono.empty();
+    }
+
+    /**
+     * 替换进行中任务的快照
+     */
+    public void update(Entry<T> entry, T snapshot) {
+        entry.snapshot = snapshot;
+    }
+
+    /**
+     * 写入最终快照并通知等待方
+     */
+    public void complete(Entry<T> entry, T snapshot, boolean success) {
+        (success ? succeeded : failed).incrementAndGet();
+        entry.snapshot = snapshot;
+        entry.completion.complete(snapshot);
+    }
+
+    /**
+     * 获取任务表统计
+     */
+    public TaskStats getStats() {
+        evictExpired();
+        long pending = entries.values().stream().filter(entry -> !done.test(entry.snapshot)).count();
+        return TaskStats.builder()
+                .maxEntries(maxEntries)
+                .ttlSeconds(ttlSeconds)
+                .entries(entries.size())
+                .pending(pending)
+                .submitted(submitted.get())
+                .succeeded(succeeded.get())
+                .failed(failed.get())
+                .rejected(rejected.get())
+                .evicted(evicted.get())
+                .build();
+    }
+
+    /**
+     * 占用一个名额，任务表已满时返回false
+     */
+    private boolean reserveSlot() {
+        while (true) {
+            int current = reservedSlots.get();
+            if (current >= maxEntries) {
+                return false;
+            }
+            if (reservedSlots.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void evictExpired() {
+        for (Map.Entry<String, Entry<T>> entry : entries.entrySet()) {
+            if (isExpired(entry.getValue().snapshot)) {
+                evict(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void evict(String id, Entry<T> entry) {
+        if (entries.remove(id, entry)) {
+            reservedSlots.decrementAndGet();
+            evicted.incrementAndGet();
+        }
+    }
+
+    private boolean isExpired(T snapshot) {
+        return done.test(snapshot) && System.currentTimeMillis() - completedAt.applyAsLong(snapshot) > ttlSeconds * 1000;
+    }
+
+    /**
+     * 任务表条目，快照在状态变化时整体替换
+     */
+    public static final class Entry<T> {
+        private volatile T snapshot;
+        private final CompletableFuture<T> completion = new CompletableFuture<>();
+
+        private Entry(T snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        public T getSnapshot() {
+            return snapshot;
+        }
+    }
+
+    /**
+     * 任务表统计
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class TaskStats {
+        private int maxEntries;
+        private long ttlSeconds;
+        private int entries;
+        /**
+         * 尚未完成的任务数
+         */
+        private long pending;
+        private long submitted;
+        private long succeeded;
+        private long failed;
+        private long rejected;
+        private long evicted;
+    }
+}
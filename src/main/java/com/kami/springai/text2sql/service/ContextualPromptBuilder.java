@@ -51,14 +51,16 @@ public class ContextualPromptBuilder {
 
     /**
      * 构建上下文用户提示词
+     *
+     * @param schemaDescription 由 SchemaPromptCards 拼接好的结构描述
      */
     public String buildContextualUserPrompt(String userQuery, QuerySemantic semantic, 
-                                           DatabaseSchema schema, List<GeneralizedSqlPattern> patterns) {
-        StringBuilder prompt = new StringBuilder();
+                                           String schemaDescription, List<GeneralizedSqlPattern> patterns) {
+        StringBuilder prompt = new StringBuilder(schemaDescription.length() + 1024);
         
         // 数据库结构信息
         prompt.append("**数据库结构信息**：\n");
-        prompt.append(generateSchemaDescription(schema));
+        prompt.append(schemaDescription);
         prompt.append("\n\n");
         
         // 用户查询需求
@@ -85,10 +87,12 @@ public class ContextualPromptBuilder {
 
     /**
      * 构建错误修复提示词
+     *
+     * @param schemaDescription 由 SchemaPromptCards 拼接好的结构描述
      */
     public String buildErrorFixPrompt(String originalSql, String userQuery, List<String> errorMessages,
-                                    QuerySemantic semantic, DatabaseSchema schema) {
-        StringBuilder prompt = new StringBuilder();
+                                    QuerySemantic semantic, String schemaDescription) {
+        StringBuilder prompt = new StringBuilder(schemaDescription.length() + 1024);
         
         prompt.append("**SQL错误修复任务**\n\n");
         
@@ -103,7 +107,7 @@ public class ContextualPromptBuilder {
         prompt.append("\n");
         
         prompt.append("**数据库结构参考**：\n");
-        prompt.append(generateSchemaDescription(schema));
+        prompt.append(schemaDescription);
         prompt.append("\n\n");
         
         if (semantic != null) {
@@ -117,51 +121,6 @@ public class ContextualPromptBuilder {
         return prompt.toString();
     }
 
-    private String generateSchemaDescription(DatabaseSchema schema) {
-        StringBuilder description = new StringBuilder();
-        
-        description.append(String.format("数据库: %s\n\n", schema.getDatabaseName()));
-        
-        for (DatabaseSchema.Table table : schema.getTables()) {
-            description.append(String.format("表: %s", table.getName()));
-            
-            if (table.getComment() != null && !table.getComment().trim().isEmpty()) {
-                description.append(String.format(" (%s)", table.getComment()));
-            }
-            description.append("\n");
-            
-            // 字段信息
-            String columns = table.getColumns().stream()
-                    .map(col -> {
-                        StringBuilder colInfo = new StringBuilder(col.getName());
-                        colInfo.append(" ").append(col.getType());
-                        
-                        if (col.isPrimaryKey()) colInfo.append(" [PK]");
-                        if (!col.isNullable()) colInfo.append(" [NOT NULL]");
-                        if (col.getComment() != null && !col.getComment().trim().isEmpty()) {
-                            colInfo.append(" // ").append(col.getComment());
-                        }
-                        
-                        return colInfo.toString();
-                    })
-                    .collect(Collectors.joining(", "));
-            
-            description.append("  字段: ").append(columns).append("\n");
-            
-            // 外键关系
-            if (table.getForeignKeys() != null && !table.getForeignKeys().isEmpty()) {
-                String relationships = table.getForeignKeys().stream()
-                        .map(fk -> fk.getRelationshipDescription())
-                        .collect(Collectors.joining(", "));
-                description.append("  关联: ").append(relationships).append("\n");
-            }
-            
-            description.append("\n");
-        }
-        
-        return description.toString();
-    }
-
     private void appendSemanticInfo(StringBuilder prompt, QuerySemantic semantic) {
         if (semantic.getIntent() != null) {
             prompt.append("- 查询类型：").append(semantic.getIntent().getQueryType()).append("\n");
@@ -133,12 +133,3 @@ public class DualPatternManager {
                 userPatterns.size(), basePatterns.size());
     }
 }
-
-/**
- * 简化的配置管理器枚举
- */
-class YamlConfigManager {
-    public enum FeedbackType {
-        POSITIVE, NEGATIVE, CORRECTION
-    }
-}
\ No newline at end of file
@@ -1,13 +1,35 @@
 package com.kami.springai.text2sql.service;
 
 import com.kami.springai.text2sql.model.GeneralizedSqlPattern;
+import com.kami.springai.text2sql.model.PlaceholderRule;
 import com.kami.springai.text2sql.model.QuerySemantic;
+import com.kami.springai.text2sql.model.SqlTemplate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.expression.DoubleValue;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.Join;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.SelectItem;
+import net.sf.jsqlparser.util.TablesNamesFinder;
+import net.sf.jsqlparser.util.deparser.ExpressionDeParser;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * 泛化学习器
@@ -32,6 +54,7 @@ public class GeneralizedLearner {
             return GeneralizedSqlPattern.builder()
                     .patternId(generatePatternId(intentSemantics, entityTypes))
                     .patternName(generatePatternName(userQuery))
+                    .sqlTemplate(buildTemplate(userQuery, sql))
                     .intentSemantics(intentSemantics)
                     .entityTypes(entityTypes)
                     .generalConfidence(0.7) // 初始置信度
@@ -45,6 +68,187 @@ public class GeneralizedLearner {
         }
     }
 
+    /**
+     * 从成功的SQL提取模板：主表和条件值替换为占位符，值的提取规则根据其在用户问题中的位置生成。
+     * 无法模板化的SQL返回null，该模式只参与匹配，生成时回退到AI。
+     */
+    SqlTemplate buildTemplate(String userQuery, String sql) {
+        try {
+            Statement statement = CCJSqlParserUtil.parse(sql.trim().replaceAll(";+$", ""));
+            if (!(statement instanceof PlainSelect select) || !(select.getFromItem() instanceof Table mainTable)) {
+                return null;
+            }
+
+            Map<String, PlaceholderRule> rules = new LinkedHashMap<>();
+            String tableName = unquote(mainTable.getName());
+            rules.put("table", PlaceholderRule.builder()
+                    .ruleType(PlaceholderRule.TABLE)
+                    .fallback(tableName)
+                    .patterns(new ArrayList<>(collectMainTableColumns(select, mainTable)))
+                    .build());
+
+            ValueTemplater templater = new ValueTemplater(userQuery, rules);
+
+            String selectTemplate = "SELECT " + (select.getDistinct() != null ? "DISTINCT " : "")
+                    + select.getSelectItems().stream().map(SelectItem::toString).collect(Collectors.joining(", "));
+            String fromTemplate = "FROM `{table}`" + (mainTable.getAlias() != null ? mainTable.getAlias().toString() : "");
+            String joinTemplate = select.getJoins() != null
+                    ? select.getJoins().stream().map(Join::toString).collect(Collectors.joining(" "))
+                    : null;
+            String whereTemplate = select.getWhere() != null ? "WHERE " + templater.template(select.getWhere()) : null;
+
+            // 分组、HAVING 和排序按SQL子句顺序合并在排序模板中
+            List<String> tail = new ArrayList<>();
+            if (select.getGroupBy() != null) {
+                tail.add(select.getGroupBy().toString());
+            }
+            if (select.getHaving() != null) {
+                tail.add("HAVING " + templater.template(select.getHaving()));
+            }
+            if (select.getOrderByElements() != null) {
+                tail.add("ORDER BY " + select.getOrderByElements().stream()
+                        .map(OrderByElement::toString).collect(Collectors.joining(", ")));
+            }
+
+            String limitValue = select.getLimit() != null && select.getLimit().getRowCount() instanceof LongValue rowCount
+                    ? rowCount.getStringValue()
+                    : null;
+            rules.put("limit", templater.rule(PlaceholderRule.LIMIT, limitValue, "100"));
+
+            return SqlTemplate.builder()
+                    .selectTemplate(selectTemplate)
+                    .fromTemplate(fromTemplate)
+                    .joinTemplate(joinTemplate)
+                    .whereTemplate(whereTemplate)
+                    .orderTemplate(tail.isEmpty() ? null : String.join(" ", tail))
+                    .limitTemplate("LIMIT {limit}")
+                    .placeholderRules(rules)
+                    .build();
+        } catch (Exception e) {
+            log.debug("SQL无法模板化: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 主表上用到的字段：有关联表时只统计带主表限定的字段
+     */
+    private Set<String> collectMainTableColumns(PlainSelect select, Table mainTable) {
+        Set<String> qualifiers = new LinkedHashSet<>();
+        qualifiers.add(unquote(mainTable.getName()).toLowerCase());
+        if (mainTable.getAlias() != null) {
+            qualifiers.add(unquote(mainTable.getAlias().getName()).toLowerCase());
+        }
+        boolean hasJoins = select.getJoins() != null && !select.getJoins().isEmpty();
+
+        Set<String> columns = new LinkedHashSet<>();
+        new TablesNamesFinder() {
+            @Override
+            public void visit(Column column) {
+                Table table = column.getTable();
+                boolean qualified = table != null && table.getName() != null;
+                if (qualified ? qualifiers.contains(unquote(table.getName()).toLowerCase()) : !hasJoins) {
+                    columns.add(unquote(column.getColumnName()));
+                }
+                super.visit(column);
+            }
+        }.getTables((Statement) select);
+
+        // 选择列表中的别名不是表字段
+        select.getSelectItems().stream()
+                .filter(item -> item.getAlias() != null)
+                .forEach(item -> columns.remove(unquote(item.getAlias().getName())));
+        return columns;
+    }
+
+    private static String unquote(String identifier) {
+        if (identifier != null && identifier.length() >= 2
+                && (identifier.startsWith("`") || identifier.startsWith("\""))) {
+            return identifier.substring(1, identifier.length() - 1);
+        }
+        return identifier;
+    }
+
+    /**
+     * 把条件中的字面量替换为占位符并生成对应规则
+     */
+    private static class ValueTemplater {
+        private static final int CONTEXT_PREFIX_LENGTH = 3;
+
+        private final String userQuery;
+        private final Map<String, PlaceholderRule> rules;
+        private int counter;
+
+        ValueTemplater(String userQuery, Map<String, PlaceholderRule> rules) {
+            this.userQuery = userQuery != null ? userQuery : "";
+            this.rules = rules;
+        }
+
+        String template(Expression expression) {
+            StringBuilder buffer = new StringBuilder();
+            ExpressionDeParser deParser = new ExpressionDeParser() {
+                @Override
+                public void visit(StringValue value) {
+                    String raw = value.getValue();
+                    String prefix = raw.startsWith("%") ? "%" : "";
+                    String suffix = raw.length() > 1 && raw.endsWith("%") ? "%" : "";
+                    String core = raw.substring(prefix.length(), raw.length() - suffix.length());
+                    getBuffer().append('\'').append(prefix).append(placeholder(core, false)).append(suffix).append('\'');
+                }
+
+                @Override
+                public void visit(LongValue value) {
+                    getBuffer().append(placeholder(value.getStringValue(), true));
+                }
+
+                @Override
+                public void visit(DoubleValue value) {
+                    getBuffer().append(placeholder(String.valueOf(value.getValue()), true));
+                }
+            };
+            deParser.setBuffer(buffer);
+            expression.accept(deParser);
+            return buffer.toString();
+        }
+
+        private String placeholder(String literal, boolean numeric) {
+            String name = "value_" + (++counter);
+            rules.put(name, rule(PlaceholderRule.VALUE, literal, null, numeric));
+            return "{" + name + "}";
+        }
+
+        PlaceholderRule rule(String ruleType, String literal, String defaultValue) {
+            return rule(ruleType, literal, defaultValue, true);
+        }
+
+        /**
+         * 字面量出现在用户问题中时，用其前面的文字生成提取正则；否则没有提取规则，
+         * 渲染时该条件值无法解析，模板不会被使用。有默认值的规则（LIMIT）以默认值而非字面量作为 fallback
+         */
+        private PlaceholderRule rule(String ruleType, String literal, String defaultValue, boolean numeric) {
+            int index = literal != null && !literal.isEmpty() ? userQuery.indexOf(literal) : -1;
+            if (index < 0) {
+                return PlaceholderRule.builder()
+                        .ruleType(ruleType)
+                        .patterns(List.of())
+                        .fallback(defaultValue != null ? defaultValue : literal)
+                        .build();
+            }
+
+            String prefix = userQuery.substring(Math.max(0, index - CONTEXT_PREFIX_LENGTH), index);
+            int end = index + literal.length();
+            String capture = numeric ? "(\\d+(?:\\.\\d+)?)" : "(.+?)";
+            String regex = Pattern.quote(prefix) + "\\s*" + capture
+                    + (end < userQuery.length() && !numeric ? Pattern.quote(userQuery.substring(end, end + 1)) : "")
+                    + (end >= userQuery.length() && !numeric ? "$" : "");
+            return PlaceholderRule.builder()
+                    .ruleType(ruleType)
+                    .patterns(List.of(regex))
+                    .fallback(defaultValue)
+                    .build();
+        }
+    }
+
     private List<String> extractIntentSemantics(QuerySemantic semantic) {
         List<String> semantics = new ArrayList<>();
         
@@ -0,0 +1,249 @@
+package com.kami.springai.text2sql.service;
+
+import com.kami.springai.text2sql.model.LlmResult;
+import com.kami.springai.text2sql.validator.ValidationPipelineResult;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 对冲式SQL生成
+ *
+ * 首个请求在p95延迟内未返回时，在虚拟线程上再发起一个请求，
+ * 取最先通过验证流水线的结果，其余请求中断取消。延迟分位数只取SQL生成调用的延迟窗口，
+ * 不受解释、修复等其他类型调用的影响；被取消的请求以取消前的耗时作为下界计入该窗口，
+ * 慢请求不会因为总被对冲取消而从分位数中消失。
+ * 也可配置为一开始就并行发起N个候选（parallel-candidates > 1）。
+ */
+@Slf4j
+@Service
+public class HedgedSqlGenerator {
+
+    private final LlmGateway llmGateway;
+    private final Executor executor;
+
+    @Value("${text2sql.llm.hedging.enabled:true}")
+    private boolean hedgingEnabled;
+
+    @Value("${text2sql.llm.hedging.percentile:0.95}")
+    private double hedgePercentile;
+
+    @Value("${text2sql.llm.hedging.min-samples:20}")
+    private int minSamples;
+
+    @Value("${text2sql.llm.hedging.default-delay-ms:8000}")
+    private long defaultDelayMs;
+
+    @Value("${text2sql.llm.hedging.min-delay-ms:1000}")
+    private long minDelayMs;
+
+    @Value("${text2sql.llm.hedging.parallel-candidates:1}")
+    private int parallelCandidates;
+
+    private final AtomicLong generations = new AtomicLong();
+    private final AtomicLong hedgesFired = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong candidatesIssued = new AtomicLong();
+    private final AtomicLong candidatesCancelled = new AtomicLong();
+    private final AtomicLong wastedTokens = new AtomicLong();
+
+    public HedgedSqlGenerator(LlmGateway llmGateway,
+                              @Qualifier("virtualThreadExecutor") Executor executor) {
+        this.llmGateway = llmGateway;
+        this.executor = executor;
+    }
+
+    /**
+     * 生成SQL，返回最先通过验证的候选；都未通过时返回最先完成的候选
+     *
+     * @param validator 对模型原始输出做清理和验证
+     */
+    public Generation generate(String systemPrompt, String userPrompt,
+                               Function<String, ValidationPipelineResult> validator) {
+        generations.incrementAndGet();
+        int initialCandidates = Math.max(1, Math.min(parallelCandidates, 4));
+        boolean hedgeAllowed = hedgingEnabled && initialCandidates == 1;
+        long hedgeDelayMs = getHedgeDelayMs();
+
+        CompletionService<Candidate> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<Candidate>> futures = new ArrayList<>();
+        for (int i = 0; i < initialCandidates; i++) {
+            futures.add(completionService.submit(() -> runCandidate(systemPrompt, userPrompt, validator, false)));
+        }
+        candidatesIssued.addAndGet(initialCandidates);
+
+        long start = System.nanoTime();
+        int pending = initialCandidates;
+        boolean hedged = false;
+        Candidate winner = null;
+        Candidate firstCompleted = null;
+        List<Candidate> completed = new ArrayList<>();
+        RuntimeException firstError = null;
+        int cancelled = 0;
+
+        try {
+            while (pending > 0 && winner == null) {
+                Future<Candidate> done;
+                if (hedgeAllowed && !hedged) {
+                    long remainingMs = hedgeDelayMs - (System.nanoTime() - start) / 1_000_000;
+                    done = completionService.poll(Math.max(0, remainingMs), TimeUnit.MILLISECONDS);
+                    if (done == null) {
+                        hedged = true;
+                        hedgesFired.incrementAndGet();
+                        candidatesIssued.incrementAndGet();
+                        log.info("首个SQL生成请求超过{}ms未返回，发起对冲请求", hedgeDelayMs);
+                        futures.add(completionService.submit(() -> runCandidate(systemPrompt, userPrompt, validator, true)));
+                        pending++;
+                        continue;
+                    }
+                } else {
+                    done = completionService.take();
+                }
+                pending--;
+
+                try {
+                    Candidate candidate = done.get();
+                    completed.add(candidate);
+                    if (firstCompleted == null) {
+                        firstCompleted = candidate;
+                    }
+                    if (candidate.validation != null && candidate.validation.isOverallValid()) {
+                        winner = candidate;
+                    }
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    log.warn("SQL生成候选失败: {}", cause.getMessage());
+                    if (firstError == null) {
+                        firstError = cause instanceof RuntimeException re ? re : new RuntimeException(cause);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("SQL生成被中断", e);
+        } finally {
+            for (Future<Candidate> future : futures) {
+                if (!future.isDone() && future.cancel(true)) {
+                    cancelled++;
+                }
+            }
+            candidatesCancelled.addAndGet(cancelled);
+        }
+
+        Candidate result = winner != null ? winner : firstCompleted;
+        if (result == null) {
+            throw firstError != null ? firstError : new RuntimeException("SQL生成失败: 没有可用的候选结果");
+        }
+        if (result.hedge) {
+            hedgeWins.incrementAndGet();
+        }
+        long wasted = 0;
+        for (Candidate candidate : completed) {
+            if (candidate != result) {
+                wasted += candidate.llmResult.getTotalTokens();
+            }
+        }
+        // 被取消的候选没有返回用量，按相同提示词的prompt token估算，已生成的completion token无法得知
+        wasted += (long) cancelled * result.llmResult.getPromptTokens();
+        wastedTokens.addAndGet(wasted);
+        return new Generation(result.llmResult.getContent(), result.validation, hedged, futures.size());
+    }
+
+    /**
+     * 当前对冲延迟：SQL生成调用的延迟样本足够时取分位数，否则使用默认值
+     */
+    public long getHedgeDelayMs() {
+        if (llmGateway.getLatencySampleCount(LlmGateway.CallType.GENERATION) < minSamples) {
+            return defaultDelayMs;
+        }
+        return Math.max(minDelayMs, llmGateway.getLatencyPercentile(LlmGateway.CallType.GENERATION, hedgePercentile));
+    }
+
+    /**
+     * 获取对冲统计
+     */
+    public HedgingStats getHedgingStats() {
+        long total = generations.get();
+        return HedgingStats.builder()
+                .enabled(hedgingEnabled)
+                .parallelCandidates(Math.max(1, Math.min(parallelCandidates, 4)))
+                .currentHedgeDelayMs(getHedgeDelayMs())
+                .generations(total)
+                .hedgesFired(hedgesFired.get())
+                .hedgeRate(total > 0 ? (double) hedgesFired.get() / total : 0.0)
+                .hedgeWins(hedgeWins.get())
+                .candidatesIssued(candidatesIssued.get())
+                .candidatesCancelled(candidatesCancelled.get())
+                .wastedTokens(wastedTokens.get())
+                .build();
+    }
+
+    private Candidate runCandidate(String systemPrompt, String userPrompt,
+                                   Function<String, ValidationPipelineResult> validator, boolean hedge) {
+        LlmResult llmResult = llmGateway.call(LlmGateway.CallType.GENERATION, systemPrompt, userPrompt);
+        ValidationPipelineResult validation = llmResult.getContent() != null
+                ? validator.apply(llmResult.getContent())
+                : null;
+        return new Candidate(llmResult, validation, hedge);
+    }
+
+    @AllArgsConstructor
+    private static class Candidate {
+        private final LlmResult llmResult;
+        private final ValidationPipelineResult validation;
+        private final boolean hedge;
+    }
+
+    /**
+     * 生成结果
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Generation {
+        private String content;
+        /**
+         * 已完成的验证结果，未验证时为null
+         */
+        private ValidationPipelineResult validation;
+        private boolean hedged;
+        private int candidates;
+    }
+
+    /**
+     * 对冲统计
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class HedgingStats {
+        private boolean enabled;
+        private int parallelCandidates;
+        private long currentHedgeDelayMs;
+        private long generations;
+        private long hedgesFired;
+        private double hedgeRate;
+        private long hedgeWins;
+        private long candidatesIssued;
+        private long candidatesCancelled;
+        /**
+         * 落选候选消耗的token：已完成候选按实际用量，被取消候选只计估算的prompt token，
+         * 不含其取消前已生成的completion token，因此是下界
+         */
+        private long wastedTokens;
+    }
+}
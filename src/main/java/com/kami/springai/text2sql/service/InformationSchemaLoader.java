@@ -0,0 +1,368 @@
+package com.kami.springai.text2sql.service;
+
+import com.kami.springai.text2sql.model.DatabaseSchema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 基于 information_schema 的批量结构加载
+ *
+ * 表、列（含主键标记和注释）、外键各用一条集合查询取回，查询次数与表数无关；
+ * DatabaseMetaData 逐表调用 getPrimaryKeys / getColumns / getImportedKeys 需要 3N+1 次往返。
+ * 另提供每张表的版本摘要（表、列和键约束签名的数量与校验和），供增量刷新找出变化的表。
+ * 支持的方言：
+ * - "mysql" - MySQL / MariaDB，按 TABLE_SCHEMA = 当前库 过滤
+ * - "h2" - H2 2.x，按 TABLE_CATALOG = 当前库 过滤，排除 INFORMATION_SCHEMA
+ * 其他驱动返回null，由调用方回退到 DatabaseMetaData。
+ */
+@Slf4j
+@Component
+public class InformationSchemaLoader {
+
+    public static final String DIALECT_MYSQL = "mysql";
+    public static final String DIALECT_H2 = "h2";
+
+    // 按表名过滤时每条查询的 IN 列表长度上限
+    private static final int MAX_FILTER_SIZE = 500;
+
+    private static final Query MYSQL_TABLES = new Query("""
+            SELECT TABLE_SCHEMA, TABLE_NAME, TABLE_COMMENT
+            FROM information_schema.TABLES
+            WHERE TABLE_SCHEMA = ? AND TABLE_TYPE = 'BASE TABLE'""",
+            "TABLE_NAME", "TABLE_NAME");
+
+    private static final Query MYSQL_COLUMNS = new Query("""
+            SELECT TABLE_SCHEMA, TABLE_NAME, COLUMN_NAME,
+                   CONCAT(UPPER(DATA_TYPE), IF(COLUMN_TYPE LIKE '%unsigned%', ' UNSIGNED', '')) AS TYPE_NAME,
+                   IS_NULLABLE, COLUMN_COMMENT,
+                   CASE WHEN COLUMN_KEY = 'PRI' THEN 1 ELSE 0 END AS IS_PRIMARY_KEY
+            FROM information_schema.COLUMNS
+            WHERE TABLE_SCHEMA = ?""",
+            "TABLE_NAME", "TABLE_NAME, ORDINAL_POSITION");
+
+    private static final Query MYSQL_FOREIGN_KEYS = new Query("""
+            SELECT TABLE_SCHEMA, TABLE_NAME, COLUMN_NAME, REFERENCED_TABLE_NAME, REFERENCED_COLUMN_NAME
+            FROM information_schema.KEY_COLUMN_USAGE
+            WHERE TABLE_SCHEMA = ? AND REFERENCED_TABLE_NAME IS NOT NULL""",
+            "TABLE_NAME", "TABLE_NAME, CONSTRAINT_NAME, ORDINAL_POSITION");
+
+    // CREATE_TIME 在 ALTER TABLE 重建表时变化；UPDATE_TIME 随数据写入变化，不参与摘要
+    private static final Query MYSQL_TABLE_VERSIONS = new Query("""
+            SELECT TABLE_SCHEMA, TABLE_NAME, CONCAT_WS('|', CREATE_TIME, TABLE_COMMENT) AS VERSION
+            FROM information_schema.TABLES
+            WHERE TABLE_SCHEMA = ? AND TABLE_TYPE = 'BASE TABLE'""",
+            "TABLE_NAME", "TABLE_SCHEMA, TABLE_NAME");
+
+    private static final Query MYSQL_COLUMN_VERSIONS = new Query("""
+            SELECT TABLE_SCHEMA, TABLE_NAME, CONCAT_WS('|', COLUMN_NAME, ORDINAL_POSITION,
+                   COLUMN_TYPE, IS_NULLABLE, COLUMN_KEY, COLUMN_COMMENT) AS VERSION
+            FROM information_schema.COLUMNS
+            WHERE TABLE_SCHEMA = ?""",
+            "TABLE_NAME", "TABLE_SCHEMA, TABLE_NAME");
+
+    private static final Query MYSQL_KEY_VERSIONS = new Query("""
+            SELECT TABLE_SCHEMA, TABLE_NAME, CONCAT_WS('|', CONSTRAINT_NAME, COLUMN_NAME,
+                   ORDINAL_POSITION, REFERENCED_TABLE_NAME, REFERENCED_COLUMN_NAME) AS VERSION
+            FROM information_schema.KEY_COLUMN_USAGE
+            WHERE TABLE_SCHEMA = ?""",
+            "TABLE_NAME", "TABLE_SCHEMA, TABLE_NAME");
+
+    private static final Query H2_TABLES = new Query("""
+            SELECT TABLE_SCHEMA, TABLE_NAME, REMARKS AS TABLE_COMMENT
+            FROM INFORMATION_SCHEMA.TABLES
+            WHERE TABLE_CATALOG = ? AND TABLE_SCHEMA <> 'INFORMATION_SCHEMA' AND TABLE_TYPE = 'BASE TABLE'""",
+            "TABLE_NAME", "TABLE_SCHEMA, TABLE_NAME");
+
+    private static final Query H2_COLUMNS = new Query("""
+            SELECT C.TABLE_SCHEMA, C.TABLE_NAME, C.COLUMN_NAME, COALESCE(C.DECLARED_DATA_TYPE, C.DATA_TYPE) AS TYPE_NAME,
+                   C.IS_NULLABLE, C.REMARKS AS COLUMN_COMMENT,
+                   CASE WHEN PK.COLUMN_NAME IS NULL THEN 0 ELSE 1 END AS IS_PRIMARY_KEY
+            FROM INFORMATION_SCHEMA.COLUMNS C
+            LEFT JOIN (
+                SELECT K.TABLE_SCHEMA, K.TABLE_NAME, K.COLUMN_NAME
+                FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS T
+                JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE K
+                  ON K.CONSTRAINT_SCHEMA = T.CONSTRAINT_SCHEMA AND K.CONSTRAINT_NAME = T.CONSTRAINT_NAME
+                WHERE T.CONSTRAINT_TYPE = 'PRIMARY KEY'
+            ) PK ON PK.TABLE_SCHEMA = C.TABLE_SCHEMA AND PK.TABLE_NAME = C.TABLE_NAME AND PK.COLUMN_NAME = C.COLUMN_NAME
+            WHERE C.TABLE_CATALOG = ? AND C.TABLE_SCHEMA <> 'INFORMATION_SCHEMA'""",
+            "C.TABLE_NAME", "C.TABLE_SCHEMA, C.TABLE_NAME, C.ORDINAL_POSITION");
+
+    private static final Query H2_FOREIGN_KEYS = new Query("""
+            SELECT F.TABLE_SCHEMA, F.TABLE_NAME, F.COLUMN_NAME,
+                   P.TABLE_NAME AS REFERENCED_TABLE_NAME, P.COLUMN_NAME AS REFERENCED_COLUMN_NAME
+            FROM INFORMATION_SCHEMA.REFERENTIAL_CONSTRAINTS R
+            JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE F
+              ON F.CONSTRAINT_SCHEMA = R.CONSTRAINT_SCHEMA AND F.CONSTRAINT_NAME = R.CONSTRAINT_NAME
+            JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE P
+              ON P.CONSTRAINT_SCHEMA = R.UNIQUE_CONSTRAINT_SCHEMA AND P.CONSTRAINT_NAME = R.UNIQUE_CONSTRAINT_NAME
+             AND P.ORDINAL_POSITION = F.POSITION_IN_UNIQUE_CONSTRAINT
+            WHERE F.TABLE_CATALOG = ?""",
+            "F.TABLE_NAME", "F.TABLE_SCHEMA, F.TABLE_NAME, F.CONSTRAINT_NAME, F.ORDINAL_POSITION");
+
+    private static final Query H2_TABLE_VERSIONS = new Query("""
+            SELECT TABLE_SCHEMA, TABLE_NAME, REMARKS AS VERSION
+            FROM INFORMATION_SCHEMA.TABLES
+            WHERE TABLE_CATALOG = ? AND TABLE_SCHEMA <> 'INFORMATION_SCHEMA' AND TABLE_TYPE = 'BASE TABLE'""",
+            "TABLE_NAME", "TABLE_SCHEMA, TABLE_NAME");
+
+    private static final Query H2_COLUMN_VERSIONS = new Query("""
+            SELECT TABLE_SCHEMA, TABLE_NAME, CONCAT_WS('|', COLUMN_NAME, ORDINAL_POSITION,
+                   COALESCE(DECLARED_DATA_TYPE, DATA_TYPE), CHARACTER_MAXIMUM_LENGTH, NUMERIC_PRECISION, NUMERIC_SCALE,
+                   IS_NULLABLE, REMARKS) AS VERSION
+            FROM INFORMATION_SCHEMA.COLUMNS
+            WHERE TABLE_CATALOG = ? AND TABLE_SCHEMA <> 'INFORMATION_SCHEMA'""",
+            "TABLE_NAME", "TABLE_SCHEMA, TABLE_NAME");
+
+    private static final Query H2_KEY_VERSIONS = new Query("""
+            SELECT TABLE_SCHEMA, TABLE_NAME, CONCAT_WS('|', CONSTRAINT_NAME, COLUMN_NAME,
+                   ORDINAL_POSITION, POSITION_IN_UNIQUE_CONSTRAINT) AS VERSION
+            FROM INFORMATION_SCHEMA.KEY_COLUMN_USAGE
+            WHERE TABLE_CATALOG = ? AND TABLE_SCHEMA <> 'INFORMATION_SCHEMA'""",
+            "TABLE_NAME", "TABLE_SCHEMA, TABLE_NAME");
+
+    /**
+     * 识别连接的方言，不支持批量加载时返回null
+     */
+    public static String detectDialect(Connection connection) throws SQLException {
+        String productName = connection.getMetaData().getDatabaseProductName();
+        if (productName == null) {
+            return null;
+        }
+        String normalized = productName.toLowerCase(Locale.ROOT);
+        if (normalized.contains("mysql") || normalized.contains("mariadb")) {
+            return DIALECT_MYSQL;
+        }
+        if (normalized.equals("h2")) {
+            return DIALECT_H2;
+        }
+        return null;
+    }
+
+    /**
+     * 批量加载当前库的全部表，方言不支持时返回null
+     */
+    public List<DatabaseSchema.Table> load(Connection connection) throws SQLException {
+        return load(connection, null);
+    }
+
+    /**
+     * 批量加载当前库中指定名称的表（null 表示全部），方言不支持时返回null
+     */
+    public List<DatabaseSchema.Table> load(Connection connection, Collection<String> tableNames) throws SQLException {
+        String dialect = detectDialect(connection);
+        if (dialect == null) {
+            return null;
+        }
+        boolean mysql = DIALECT_MYSQL.equals(dialect);
+        List<String> filter = tableNames != null ? List.copyOf(tableNames) : null;
+        if (filter != null && filter.isEmpty()) {
+            return new ArrayList<>();
+        }
+        long start = System.nanoTime();
+
+        Map<String, TableBuilder> tables = new LinkedHashMap<>();
+        query(connection, mysql ? MYSQL_TABLES : H2_TABLES, filter, rs -> {
+            String name = rs.getString("TABLE_NAME");
+            tables.put(key(rs.getString("TABLE_SCHEMA"), name), new TableBuilder(name, rs.getString("TABLE_COMMENT")));
+        });
+
+        query(connection, mysql ? MYSQL_COLUMNS : H2_COLUMNS, filter, rs -> {
+            TableBuilder table = tables.get(key(rs.getString("TABLE_SCHEMA"), rs.getString("TABLE_NAME")));
+            if (table == null) {
+                return; // 视图的列
+            }
+            table.columns.add(DatabaseSchema.Column.builder()
+                    .name(rs.getString("COLUMN_NAME"))
+                    .type(rs.getString("TYPE_NAME"))
+                    .nullable("YES".equalsIgnoreCase(rs.getString("IS_NULLABLE")))
+                    .primaryKey(rs.getInt("IS_PRIMARY_KEY") == 1)
+                    .comment(rs.getString("COLUMN_COMMENT"))
+                    .build());
+        });
+
+        query(connection, mysql ? MYSQL_FOREIGN_KEYS : H2_FOREIGN_KEYS, filter, rs -> {
+            TableBuilder table = tables.get(key(rs.getString("TABLE_SCHEMA"), rs.getString("TABLE_NAME")));
+            if (table == null) {
+                return;
+            }
+            table.foreignKeys.add(DatabaseSchema.ForeignKey.builder()
+                    .columnName(rs.getString("COLUMN_NAME"))
+                    .referencedTable(rs.getString("REFERENCED_TABLE_NAME"))
+                    .referencedColumn(rs.getString("REFERENCED_COLUMN_NAME"))
+                    .build());
+        });
+
+        List<DatabaseSchema.Table> result = new ArrayList<>(tables.size());
+        for (TableBuilder table : tables.values()) {
+            result.add(DatabaseSchema.Table.builder()
+                    .name(table.name)
+                    .comment(table.comment)
+                    .columns(table.columns)
+                    .foreignKeys(table.foreignKeys)
+                    .build());
+        }
+        log.debug("批量加载数据库结构完成 ({}): {} 张表，耗时 {}ms",
+                dialect, result.size(), (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * 读取每张表的版本摘要（表名 -> 摘要），方言不支持时返回null
+     *
+     * 摘要相同的表视为结构未变化。三条查询按行返回表、列和键约束的签名，在这里按表折叠：
+     * 每类签名计数并对校验和求和，与行的返回顺序无关；签名带模式名，不同模式下的同名表
+     * 折叠进同一个摘要，其中任何一张变化都会让该表名被重新加载。
+     */
+    public Map<String, String> loadTableVersions(Connection connection) throws SQLException {
+        String dialect = detectDialect(connection);
+        if (dialect == null) {
+            return null;
+        }
+        boolean mysql = DIALECT_MYSQL.equals(dialect);
+
+        Map<String, VersionDigest> digests = new LinkedHashMap<>();
+        query(connection, mysql ? MYSQL_TABLE_VERSIONS : H2_TABLE_VERSIONS, null, rs ->
+                digests.computeIfAbsent(rs.getString("TABLE_NAME"), name -> new VersionDigest())
+                        .add(VersionDigest.TABLE, rs.getString("TABLE_SCHEMA"), rs.getString("VERSION")));
+        query(connection, mysql ? MYSQL_COLUMN_VERSIONS : H2_COLUMN_VERSIONS, null, rs -> {
+            VersionDigest digest = digests.get(rs.getString("TABLE_NAME"));
+            if (digest != null) {
+                digest.add(VersionDigest.COLUMN, rs.getString("TABLE_SCHEMA"), rs.getString("VERSION"));
+            }
+        });
+        query(connection, mysql ? MYSQL_KEY_VERSIONS : H2_KEY_VERSIONS, null, rs -> {
+            VersionDigest digest = digests.get(rs.getString("TABLE_NAME"));
+            if (digest != null) {
+                digest.add(VersionDigest.KEY, rs.getString("TABLE_SCHEMA"), rs.getString("VERSION"));
+            }
+        });
+
+        Map<String, String> result = new HashMap<>(digests.size() * 2);
+        digests.forEach((table, digest) -> result.put(table, digest.toString()));
+        return result;
+    }
+
+    /**
+     * 执行查询；按表名过滤时分批追加 IN 条件
+     */
+    private static void query(Connection connection, Query query, List<String> tableNames, RowHandler handler)
+            throws SQLException {
+        if (tableNames == null) {
+            execute(connection, query.toSql(0), List.of(), handler);
+            return;
+        }
+        for (int from = 0; from < tableNames.size(); from += MAX_FILTER_SIZE) {
+            List<String> chunk = tableNames.subList(from, Math.min(from + MAX_FILTER_SIZE, tableNames.size()));
+            execute(connection, query.toSql(chunk.size()), chunk, handler);
+        }
+    }
+
+    private static void execute(Connection connection, String sql, List<String> tableNames, RowHandler handler)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, connection.getCatalog());
+            for (int i = 0; i < tableNames.size(); i++) {
+                statement.setString(i + 2, tableNames.get(i));
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                }
+            }
+        }
+    }
+
+    private static String key(String schema, String table) {
+        return schema + '\u0000' + table;
+    }
+
+    @FunctionalInterface
+    private interface RowHandler {
+        void handle(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * 查询语句：表名过滤条件追加在 WHERE 末尾（GROUP BY 之前），再拼接 ORDER BY
+     */
+    private static class Query {
+        private final String select;
+        private final String tableNameColumn;
+        private final String orderBy;
+
+        Query(String select, String tableNameColumn, String orderBy) {
+            this.select = select;
+            this.tableNameColumn = tableNameColumn;
+            this.orderBy = orderBy;
+        }
+
+        String toSql(int filterSize) {
+            String filter = filterSize > 0
+                    ? " AND " + tableNameColumn + " IN (" + "?, ".repeat(filterSize - 1) + "?)"
+                    : "";
+            int groupBy = select.lastIndexOf("\nGROUP BY ");
+            String sql = groupBy >= 0
+                    ? select.substring(0, groupBy) + filter + select.substring(groupBy)
+                    : select + filter;
+            return sql + "\nORDER BY " + orderBy;
+        }
+    }
+
+    /**
+     * 一张表的版本摘要：按签名类别分别计数并累加校验和，结果与签名的加入顺序无关
+     */
+    private static class VersionDigest {
+        static final int TABLE = 0;
+        static final int COLUMN = 1;
+        static final int KEY = 2;
+        private static final char[] PREFIXES = {'T', 'C', 'K'};
+
+        private final long[] counts = new long[3];
+        private final long[] checksums = new long[3];
+
+        void add(int kind, String schema, String signature) {
+            CRC32 crc = new CRC32();
+            crc.update((schema + '|' + signature).getBytes(StandardCharsets.UTF_8));
+            counts[kind]++;
+            checksums[kind] += crc.getValue();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder version = new StringBuilder();
+            for (int kind = 0; kind < PREFIXES.length; kind++) {
+                if (kind > 0) {
+                    version.append('|');
+                }
+                version.append(PREFIXES[kind]).append(counts[kind]).append(':').append(checksums[kind]);
+            }
+            return version.toString();
+        }
+    }
+
+    private static class TableBuilder {
+        private final String name;
+        private final String comment;
+        private final List<DatabaseSchema.Column> columns = new ArrayList<>();
+        private final List<DatabaseSchema.ForeignKey> foreignKeys = new ArrayList<>();
+
+        TableBuilder(String name, String comment) {
+            this.name = name;
+            this.comment = comment;
+        }
+    }
+}
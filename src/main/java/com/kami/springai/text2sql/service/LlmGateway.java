@@ -0,0 +1,376 @@
+package com.kami.springai.text2sql.service;
+
+import com.kami.springai.text2sql.config.LlmConnectionPoolMetrics;
+import com.kami.springai.text2sql.model.LlmResult;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 大模型调用网关
+ *
+ * 按模型缓存长期复用的 ChatClient，系统提示词随每次请求传入：提示词通常带有按请求生成的表结构，
+ * 放进缓存键会让每个不同的结构都新建客户端并挤掉其他条目。底层HTTP连接由
+ * {@link com.kami.springai.text2sql.config.LlmHttpClientConfig} 的连接池复用。
+ * 同时统计调用延迟和token用量；延迟除总体窗口外按调用类型分别统计，
+ * 生成、修复、解释等调用的提示词和输出长度差别很大，混在一起的分位数不能代表任何一类调用。
+ * 被中断取消的调用（如对冲中落选的请求）以取消前已耗费的时间作为延迟下界计入窗口，
+ * 否则最慢的那部分调用总被取消而不留样本，分位数会越来越低。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LlmGateway {
+
+    private static final int LATENCY_WINDOW_SIZE = 1024;
+
+    private final ChatModel chatModel;
+    private final LlmConnectionPoolMetrics poolMetrics;
+
+    @Value("${spring.ai.deepseek.chat.options.model:deepseek-chat}")
+    private String defaultModel;
+
+    @Value("${text2sql.llm.client-cache-size:64}")
+    private int clientCacheSize;
+
+    private final Map<String, ChatClient> clients = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ChatClient> eldest) {
+            return size() > Math.max(1, clientCacheSize);
+        }
+    };
+
+    private final LatencyWindow latencyWindow = new LatencyWindow(LATENCY_WINDOW_SIZE);
+    private final Map<CallType, LatencyWindow> latencyWindowsByType = createTypeWindows();
+    private final AtomicLong callCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong cancelledCount = new AtomicLong();
+    private final AtomicLong streamCount = new AtomicLong();
+    private final AtomicLong promptTokens = new AtomicLong();
+    private final AtomicLong completionTokens = new AtomicLong();
+    private final AtomicLong clientsCreated = new AtomicLong();
+
+    /**
+     * 使用默认模型同步调用
+     */
+    public LlmResult call(String systemPrompt, String userPrompt) {
+        return call(CallType.OTHER, defaultModel, systemPrompt, userPrompt);
+    }
+
+    /**
+     * 使用默认模型同步调用，延迟计入指定调用类型
+     */
+    public LlmResult call(CallType callType, String systemPrompt, String userPrompt) {
+        return call(callType, defaultModel, systemPrompt, userPrompt);
+    }
+
+    /**
+     * 同步调用大模型
+     */
+    public LlmResult call(String model, String systemPrompt, String userPrompt) {
+        return call(CallType.OTHER, model, systemPrompt, userPrompt);
+    }
+
+    /**
+     * 同步调用大模型，延迟计入指定调用类型
+     */
+    public LlmResult call(CallType callType, String model, String systemPrompt, String userPrompt) {
+        long start = System.nanoTime();
+        try {
+            ChatResponse response = prompt(getClient(model), systemPrompt)
+                    .user(userPrompt)
+                    .call()
+                    .chatResponse();
+
+            long latencyMs = (System.nanoTime() - start) / 1_000_000;
+            latencyWindow.record(latencyMs);
+            latencyWindowsByType.get(callType).record(latencyMs);
+            callCount.incrementAndGet();
+
+            String content = response != null && response.getResult() != null
+                    ? response.getResult().getOutput().getText()
+                    : null;
+            Usage usage = response != null ? response.getMetadata().getUsage() : null;
+            int prompt = usage != null && usage.getPromptTokens() != null ? usage.getPromptTokens() : 0;
+            int completion = usage != null && usage.getCompletionTokens() != null ? usage.getCompletionTokens() : 0;
+            promptTokens.addAndGet(prompt);
+            completionTokens.addAndGet(completion);
+
+            log.debug("大模型调用完成: model={}, latency={}ms, tokens={}+{}", model, latencyMs, prompt, completion);
+            return LlmResult.builder()
+                    .content(content)
+                    .model(model)
+                    .promptTokens(prompt)
+                    .completionTokens(completion)
+                    .latencyMs(latencyMs)
+                    .build();
+        } catch (RuntimeException e) {
+            if (isInterrupted(e)) {
+                long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+                latencyWindow.record(elapsedMs);
+                latencyWindowsByType.get(callType).record(elapsedMs);
+                cancelledCount.incrementAndGet();
+                log.debug("大模型调用被取消: model={}, elapsed={}ms", model, elapsedMs);
+            } else {
+                failureCount.incrementAndGet();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 使用默认模型同步调用，只返回文本
+     */
+    public String callForContent(String systemPrompt, String userPrompt) {
+        return callForContent(CallType.OTHER, systemPrompt, userPrompt);
+    }
+
+    /**
+     * 使用默认模型同步调用，只返回文本，延迟计入指定调用类型
+     */
+    public String callForContent(CallType callType, String systemPrompt, String userPrompt) {
+        String content = call(callType, systemPrompt, userPrompt).getContent();
+        if (content == null) {
+            throw new RuntimeException("大模型未返回内容");
+        }
+        return content;
+    }
+
+    /**
+     * 使用默认模型流式调用
+     */
+    public Flux<String> stream(String systemPrompt, String userPrompt) {
+        streamCount.incrementAndGet();
+        return prompt(getClient(defaultModel), systemPrompt)
+                .user(userPrompt)
+                .stream()
+                .content()
+                .doOnError(e -> failureCount.incrementAndGet());
+    }
+
+    /**
+     * 获取延迟分位数（毫秒），样本不足时返回-1
+     */
+    public long getLatencyPercentile(double percentile) {
+        return latencyWindow.percentile(percentile);
+    }
+
+    /**
+     * 获取某类调用的延迟分位数（毫秒），样本不足时返回-1
+     */
+    public long getLatencyPercentile(CallType callType, double percentile) {
+        return latencyWindowsByType.get(callType).percentile(percentile);
+    }
+
+    /**
+     * 延迟窗口中的样本数
+     */
+    public int getLatencySampleCount() {
+        return latencyWindow.size();
+    }
+
+    /**
+     * 某类调用的延迟窗口中的样本数
+     */
+    public int getLatencySampleCount(CallType callType) {
+        return latencyWindowsByType.get(callType).size();
+    }
+
+    /**
+     * 获取网关统计
+     */
+    public GatewayStats getGatewayStats() {
+        int cachedClients;
+        synchronized (clients) {
+            cachedClients = clients.size();
+        }
+        return GatewayStats.builder()
+                .defaultModel(defaultModel)
+                .cachedClients(cachedClients)
+                .clientsCreated(clientsCreated.get())
+                .calls(callCount.get())
+                .streams(streamCount.get())
+                .failures(failureCount.get())
+                .cancelled(cancelledCount.get())
+                .promptTokens(promptTokens.get())
+                .completionTokens(completionTokens.get())
+                .latencyP50Ms(latencyWindow.percentile(0.50))
+                .latencyP95Ms(latencyWindow.percentile(0.95))
+                .latencyP99Ms(latencyWindow.percentile(0.99))
+                .latencyMaxMs(latencyWindow.max())
+                .latencyP95MsByCallType(latencyP95ByType())
+                .connectionPools(poolMetrics.getPoolStats())
+                .build();
+    }
+
+    private static ChatClient.ChatClientRequestSpec prompt(ChatClient client, String systemPrompt) {
+        ChatClient.ChatClientRequestSpec spec = client.prompt();
+        return systemPrompt != null ? spec.system(systemPrompt) : spec;
+    }
+
+    private ChatClient getClient(String model) {
+        String key = model != null ? model : "";
+        synchronized (clients) {
+            ChatClient client = clients.get(key);
+            if (client == null) {
+                ChatClient.Builder builder = ChatClient.builder(chatModel);
+                if (model != null && !model.equals(defaultModel)) {
+                    builder.defaultOptions(ChatOptions.builder().model(model).build());
+                }
+                client = builder.build();
+                clients.put(key, client);
+                clientsCreated.incrementAndGet();
+            }
+            return client;
+        }
+    }
+
+    /**
+     * 调用是否因线程中断而结束
+     */
+    private static boolean isInterrupted(Throwable error) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<CallType, LatencyWindow> createTypeWindows() {
+        Map<CallType, LatencyWindow> windows = new EnumMap<>(CallType.class);
+        for (CallType callType : CallType.values()) {
+            windows.put(callType, new LatencyWindow(LATENCY_WINDOW_SIZE));
+        }
+        return windows;
+    }
+
+    private Map<String, Long> latencyP95ByType() {
+        Map<String, Long> p95 = new LinkedHashMap<>();
+        latencyWindowsByType.forEach((callType, window) -> {
+            if (window.size() > 0) {
+                p95.put(callType.name().toLowerCase(Locale.ROOT), window.percentile(0.95));
+            }
+        });
+        return p95;
+    }
+
+    /**
+     * 调用类型，用于分别统计延迟
+     */
+    public enum CallType {
+        /**
+         * 单个问题的SQL生成
+         */
+        GENERATION,
+        /**
+         * 根据验证错误改进SQL
+         */
+        REPAIR,
+        /**
+         * SQL解释
+         */
+        EXPLAIN,
+        /**
+         * 多个问题合并生成
+         */
+        BATCH,
+        /**
+         * SQL和解释合并生成
+         */
+        COMBINED,
+        OTHER
+    }
+
+    /**
+     * 最近N次调用的延迟环形缓冲
+     */
+    private static class LatencyWindow {
+        private final long[] samples;
+        private int next;
+        private int size;
+
+        LatencyWindow(int capacity) {
+            this.samples = new long[capacity];
+        }
+
+        synchronized void record(long latencyMs) {
+            samples[next] = latencyMs;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+        }
+
+        synchronized long percentile(double percentile) {
+            if (size == 0) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * size) - 1;
+            return sorted[Math.max(0, Math.min(index, size - 1))];
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long max() {
+            long max = -1;
+            for (int i = 0; i < size; i++) {
+                max = Math.max(max, samples[i]);
+            }
+            return max;
+        }
+    }
+
+    /**
+     * 网关统计
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class GatewayStats {
+        private String defaultModel;
+        private int cachedClients;
+        private long clientsCreated;
+        private long calls;
+        private long streams;
+        private long failures;
+        /**
+         * 被中断取消的调用数，其已耗费时间作为延迟下界计入延迟窗口
+         */
+        private long cancelled;
+        private long promptTokens;
+        private long completionTokens;
+        private long latencyP50Ms;
+        private long latencyP95Ms;
+        private long latencyP99Ms;
+        private long latencyMaxMs;
+        /**
+         * 各调用类型的p95延迟，没有样本的类型不列出
+         */
+        private Map<String, Long> latencyP95MsByCallType;
+        private List<LlmConnectionPoolMetrics.PoolStats> connectionPools;
+    }
+}
@@ -3,18 +3,35 @@ package com.kami.springai.text2sql.service;
 import com.kami.springai.datasource.service.DataSourceContextHolder;
 import com.kami.springai.datasource.service.DynamicDataSourceManager;
 import com.kami.springai.text2sql.model.DatabaseSchema;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 数据库结构发现服务
+ *
+ * MySQL/H2 通过 information_schema 批量加载；其他驱动使用 DatabaseMetaData 逐表加载，
+ * 表较多时从连接池再借若干连接并行加载，借用数量不超过连接池的一半，避免挤占交互查询。
  */
 @Slf4j
 @Service
@@ -22,10 +39,28 @@ import java.util.List;
 public class SchemaDiscoveryService {
 
     private final DynamicDataSourceManager dynamicDataSourceManager;
+    private final InformationSchemaLoader informationSchemaLoader;
 
     @Value("${spring.datasource.url:}")
     private String databaseUrl;
 
+    @Value("${text2sql.schema.bulk-discovery:true}")
+    private boolean bulkDiscovery;
+
+    @Value("${text2sql.schema.discovery-parallelism:4}")
+    private int discoveryParallelism;
+
+    @Autowired
+    @Qualifier("virtualThreadExecutor")
+    private Executor virtualThreadExecutor;
+
+    public static final String MODE_INFORMATION_SCHEMA = "information_schema";
+    public static final String MODE_METADATA = "metadata";
+    public static final String MODE_PARALLEL_METADATA = "parallel_metadata";
+
+    // 每个数据源最近一次（或正在进行的）结构发现
+    private final Map<String, DiscoveryProgress> discoveries = new ConcurrentHashMap<>();
+
     /**
      * 测试数据库连接
      */
@@ -75,11 +110,7 @@ public class SchemaDiscoveryService {
      */
     public DatabaseSchema discoverSchema(String dataSourceId) {
         try {
-            // 使用指定数据源或当前上下文数据源
-            DataSource dataSource = dataSourceId != null ? 
-                dynamicDataSourceManager.getDataSourceById(dataSourceId).orElse(dynamicDataSourceManager.getCurrentDataSource()) :
-                dynamicDataSourceManager.getCurrentDataSource();
-                
+            DataSource dataSource = resolveDataSource(dataSourceId);
             if (dataSource == null) {
                 log.warn("没有配置数据源，无法发现数据库结构");
                 return DatabaseSchema.builder()
@@ -88,33 +119,27 @@ public class SchemaDiscoveryService {
                         .build();
             }
                 
+            DiscoveryProgress progress = new DiscoveryProgress(Objects.toString(dataSourceId, ""));
+            discoveries.put(progress.dataSourceId, progress);
             try (Connection connection = dataSource.getConnection()) {
                 String databaseName = connection.getCatalog();
-                List<DatabaseSchema.Table> tables = new ArrayList<>();
-
-                // 获取所有表
-                DatabaseMetaData metaData = connection.getMetaData();
-                try (ResultSet tablesResult = metaData.getTables(databaseName, null, "%", new String[]{"TABLE"})) {
-                    while (tablesResult.next()) {
-                        String tableName = tablesResult.getString("TABLE_NAME");
-                        String tableComment = tablesResult.getString("REMARKS");
-                        
-                        List<DatabaseSchema.Column> columns = getTableColumns(metaData, databaseName, tableName);
-                        List<DatabaseSchema.ForeignKey> foreignKeys = getTableForeignKeys(metaData, databaseName, tableName);
-                        
-                        tables.add(DatabaseSchema.Table.builder()
-                                .name(tableName)
-                                .comment(tableComment)
-                                .columns(columns)
-                                .foreignKeys(foreignKeys)
-                                .build());
-                    }
+                List<DatabaseSchema.Table> tables = bulkDiscovery ? loadTablesInBulk(connection) : null;
+                if (tables != null) {
+                    progress.start(MODE_INFORMATION_SCHEMA, tables.size(), 1);
+                    progress.loaded.set(tables.size());
+                } else {
+                    tables = loadTablesWithMetaData(dataSource, connection, databaseName, progress);
                 }
+                progress.finish();
+                log.info("数据源[{}]结构发现完成 ({}): {} 张表，并行度 {}，耗时 {}ms",
+                        dataSourceId, progress.mode, tables.size(), progress.parallelism, progress.durationMs);
 
                 return DatabaseSchema.builder()
                         .databaseName(databaseName)
                         .tables(tables)
                         .build();
+            } finally {
+                progress.finish();
             }
         } catch (Exception e) {
             log.error("数据库结构发现失败: {}", e.getMessage(), e);
@@ -122,6 +147,168 @@ public class SchemaDiscoveryService {
         }
     }
 
+    /**
+     * 读取指定数据源每张表的版本摘要（表名 -> 摘要），供增量刷新比对
+     *
+     * 未开启批量加载、驱动不支持或查询失败时返回null，调用方应回退到完整的结构发现
+     */
+    public Map<String, String> loadTableVersions(String dataSourceId) {
+        DataSource dataSource = resolveDataSource(dataSourceId);
+        if (!bulkDiscovery || dataSource == null) {
+            return null;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            return informationSchemaLoader.loadTableVersions(connection);
+        } catch (SQLException e) {
+            log.warn("读取数据源[{}]的表版本失败: {}", dataSourceId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 只加载指定数据源中给定名称的表
+     *
+     * 未开启批量加载、驱动不支持或查询失败时返回null
+     */
+    public List<DatabaseSchema.Table> loadTables(String dataSourceId, Collection<String> tableNames) {
+        DataSource dataSource = resolveDataSource(dataSourceId);
+        if (!bulkDiscovery || dataSource == null) {
+            return null;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            return informationSchemaLoader.load(connection, tableNames);
+        } catch (SQLException e) {
+            log.warn("加载数据源[{}]的 {} 张表失败: {}", dataSourceId, tableNames.size(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 通过 information_schema 批量加载，驱动不支持或查询失败时返回null
+     */
+    private List<DatabaseSchema.Table> loadTablesInBulk(Connection connection) {
+        try {
+            return informationSchemaLoader.load(connection);
+        } catch (SQLException e) {
+            log.warn("批量加载数据库结构失败，回退到DatabaseMetaData: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 通过 DatabaseMetaData 逐表加载（每张表3次元数据调用）
+     */
+    List<DatabaseSchema.Table> loadTablesWithMetaData(Connection connection, String databaseName) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        List<DatabaseSchema.Table> tables = new ArrayList<>();
+        for (DatabaseSchema.Table table : listTables(metaData, databaseName)) {
+            tables.add(loadTable(metaData, databaseName, table));
+        }
+        return tables;
+    }
+
+    /**
+     * 通过 DatabaseMetaData 加载，表数足够时把表分给多个连接并行加载
+     *
+     * 当前连接也参与加载；借不到额外连接或某个连接出错时，其余连接继续，
+     * 未加载的表最后在当前连接上补齐
+     */
+    private List<DatabaseSchema.Table> loadTablesWithMetaData(DataSource dataSource, Connection connection,
+            String databaseName, DiscoveryProgress progress) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        List<DatabaseSchema.Table> tableList = listTables(metaData, databaseName);
+        int parallelism = resolveParallelism(dataSource, tableList.size());
+        progress.start(parallelism > 1 ? MODE_PARALLEL_METADATA : MODE_METADATA, tableList.size(), parallelism);
+
+        DatabaseSchema.Table[] loaded = new DatabaseSchema.Table[tableList.size()];
+        AtomicInteger next = new AtomicInteger();
+        List<CompletableFuture<Void>> workers = new ArrayList<>(parallelism - 1);
+        for (int i = 1; i < parallelism; i++) {
+            workers.add(CompletableFuture.runAsync(() -> {
+                try (Connection workerConnection = dataSource.getConnection()) {
+                    drainTables(workerConnection.getMetaData(), databaseName, tableList, loaded, next, progress);
+                } catch (Exception e) {
+                    log.warn("并行结构发现的连接出错，剩余表由其他连接加载: {}", e.getMessage());
+                }
+            }, virtualThreadExecutor));
+        }
+        drainTables(metaData, databaseName, tableList, loaded, next, progress);
+        CompletableFuture.allOf(workers.toArray(CompletableFuture[]::new)).join();
+
+        for (int i = 0; i < loaded.length; i++) {
+            if (loaded[i] == null) {
+                loaded[i] = loadTable(metaData, databaseName, tableList.get(i));
+                progress.tableLoaded();
+            }
+        }
+        return new ArrayList<>(Arrays.asList(loaded));
+    }
+
+    /**
+     * 从共享下标领取表并加载，直到没有剩余的表
+     */
+    private void drainTables(DatabaseMetaData metaData, String databaseName, List<DatabaseSchema.Table> tableList,
+            DatabaseSchema.Table[] loaded, AtomicInteger next, DiscoveryProgress progress) throws SQLException {
+        int index;
+        while ((index = next.getAndIncrement()) < tableList.size()) {
+            loaded[index] = loadTable(metaData, databaseName, tableList.get(index));
+            progress.tableLoaded();
+        }
+    }
+
+    /**
+     * 并行度：不超过配置值、表数和连接池大小的一半
+     */
+    private int resolveParallelism(DataSource dataSource, int tableCount) {
+        int parallelism = Math.min(discoveryParallelism, tableCount);
+        if (dataSource instanceof HikariDataSource hikariDataSource) {
+            parallelism = Math.min(parallelism, hikariDataSource.getMaximumPoolSize() / 2);
+        }
+        return virtualThreadExecutor != null ? Math.max(1, parallelism) : 1;
+    }
+
+    /**
+     * 列出表名和注释（列和外键为空）
+     */
+    private List<DatabaseSchema.Table> listTables(DatabaseMetaData metaData, String databaseName) throws SQLException {
+        List<DatabaseSchema.Table> tables = new ArrayList<>();
+        try (ResultSet tablesResult = metaData.getTables(databaseName, null, "%", new String[]{"TABLE"})) {
+            while (tablesResult.next()) {
+                tables.add(DatabaseSchema.Table.builder()
+                        .name(tablesResult.getString("TABLE_NAME"))
+                        .comment(tablesResult.getString("REMARKS"))
+                        .build());
+            }
+        }
+        return tables;
+    }
+
+    private DatabaseSchema.Table loadTable(DatabaseMetaData metaData, String databaseName, DatabaseSchema.Table table)
+            throws SQLException {
+        return DatabaseSchema.Table.builder()
+                .name(table.getName())
+                .comment(table.getComment())
+                .columns(getTableColumns(metaData, databaseName, table.getName()))
+                .foreignKeys(getTableForeignKeys(metaData, databaseName, table.getName()))
+                .build();
+    }
+
+    /**
+     * 获取结构发现的进度和耗时（每个数据源最近一次）
+     */
+    public List<DiscoveryStats> getDiscoveryStats() {
+        return discoveries.values().stream().map(DiscoveryProgress::snapshot).toList();
+    }
+
+    /**
+     * 使用指定数据源，未指定或不存在时使用当前上下文数据源
+     */
+    private DataSource resolveDataSource(String dataSourceId) {
+        return dataSourceId != null ?
+            dynamicDataSourceManager.getDataSourceById(dataSourceId).orElse(dynamicDataSourceManager.getCurrentDataSource()) :
+            dynamicDataSourceManager.getCurrentDataSource();
+    }
+
     /**
      * 获取当前数据源
      */
@@ -219,4 +406,83 @@ public class SchemaDiscoveryService {
 
         return foreignKeys;
     }
-}
\ No newline at end of file
+
+    /**
+     * 进行中的结构发现，供进度查询
+     */
+    private static class DiscoveryProgress {
+        // 表数较少时不输出进度日志
+        private static final int PROGRESS_LOG_MIN_TABLES = 100;
+
+        private final String dataSourceId;
+        private final long startedAt = System.currentTimeMillis();
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger loaded = new AtomicInteger();
+        private volatile String mode;
+        private volatile int tables;
+        private volatile int parallelism;
+        private volatile boolean running = true;
+        private volatile long durationMs;
+        private volatile int lastLoggedDecile;
+
+        DiscoveryProgress(String dataSourceId) {
+            this.dataSourceId = dataSourceId;
+        }
+
+        void start(String mode, int tables, int parallelism) {
+            this.mode = mode;
+            this.tables = tables;
+            this.parallelism = parallelism;
+        }
+
+        void tableLoaded() {
+            int count = loaded.incrementAndGet();
+            int decile = tables > 0 ? count * 10 / tables : 10;
+            if (tables >= PROGRESS_LOG_MIN_TABLES && decile > lastLoggedDecile) {
+                lastLoggedDecile = decile;
+                log.info("数据源[{}]结构发现进度: {}/{} 张表，已耗时 {}ms",
+                        dataSourceId, count, tables, (System.nanoTime() - startNanos) / 1_000_000);
+            }
+        }
+
+        void finish() {
+            if (running) {
+                durationMs = (System.nanoTime() - startNanos) / 1_000_000;
+                running = false;
+            }
+        }
+
+        DiscoveryStats snapshot() {
+            return DiscoveryStats.builder()
+                    .dataSourceId(dataSourceId)
+                    .mode(mode)
+                    .tables(tables)
+                    .loadedTables(loaded.get())
+                    .parallelism(parallelism)
+                    .running(running)
+                    .startedAt(startedAt)
+                    .durationMs(running ? (System.nanoTime() - startNanos) / 1_000_000 : durationMs)
+                    .build();
+        }
+    }
+
+    /**
+     * 结构发现统计
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class DiscoveryStats {
+        private String dataSourceId;
+        /**
+         * information_schema / metadata / parallel_metadata
+         */
+        private String mode;
+        private int tables;
+        private int loadedTables;
+        private int parallelism;
+        private boolean running;
+        private long startedAt;
+        private long durationMs;
+    }
+}
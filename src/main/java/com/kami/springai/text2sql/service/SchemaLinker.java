@@ -0,0 +1,365 @@
+package com.kami.springai.text2sql.service;
+
+import com.kami.springai.common.cache.SchemaFingerprint;
+import com.kami.springai.text2sql.model.DatabaseSchema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 结构链接器 - 为提示词挑选与问题相关的表
+ *
+ * 每个结构版本建立一次倒排索引，索引项来自表名、字段名以及表和字段注释
+ * （英文标识符按下划线和驼峰拆分，中文注释按标点切段并拆成字符二元组）。
+ * 查询时按 TF-IDF 加权打分取前k张表，再补充外键相邻的表；
+ * 得分过低时认为置信度不足，回退到完整结构。
+ */
+@Slf4j
+@Service
+public class SchemaLinker {
+
+    private static final int MAX_CACHED_INDEXES = 32;
+
+    private static final double TABLE_NAME_WEIGHT = 3.0;
+    private static final double TABLE_COMMENT_WEIGHT = 2.0;
+    private static final double COLUMN_WEIGHT = 1.0;
+
+    // 出现在几乎所有表中的字段名，对区分表没有帮助
+    private static final Set<String> STOP_TERMS = Set.of(
+            "id", "is", "at", "by", "of", "to", "the", "and",
+            "create", "created", "update", "updated", "time", "date", "deleted", "status",
+            "查询", "所有", "数据", "信息", "记录", "时间", "一个", "哪些", "多少");
+
+    @Value("${text2sql.schema-linking.enabled:true}")
+    private boolean enabled;
+
+    @Value("${text2sql.schema-linking.top-k:8}")
+    private int topK;
+
+    @Value("${text2sql.schema-linking.min-score:1.0}")
+    private double minScore;
+
+    @Value("${text2sql.schema-linking.min-tables:20}")
+    private int minTablesToPrune;
+
+    // 按结构指纹缓存的索引，访问顺序淘汰
+    private final LinkedHashMap<String, SchemaIndex> indexes = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong prunedCount = new AtomicLong();
+    private final AtomicLong fallbackCount = new AtomicLong();
+    private final AtomicLong estimatedTokensSaved = new AtomicLong();
+    private final AtomicLong estimatedTokensTotal = new AtomicLong();
+
+    /**
+     * 为问题挑选相关表，返回裁剪后的结构
+     *
+     * @param schemaVersion 结构指纹，为null时现场计算
+     * @param hintTables 语义分析识别出的相关表，会被优先保留
+     */
+    public LinkResult link(String userQuery, DatabaseSchema schema, String schemaVersion, Collection<String> hintTables) {
+        requestCount.incrementAndGet();
+        List<DatabaseSchema.Table> tables = schema.getTables() != null ? schema.getTables() : List.of();
+
+        if (!enabled || tables.size() < minTablesToPrune) {
+            return LinkResult.full(schema);
+        }
+
+        SchemaIndex index = getIndex(schemaVersion != null ? schemaVersion : SchemaFingerprint.of(schema), schema);
+        estimatedTokensTotal.addAndGet(index.totalTokens);
+
+        // 1. 打分
+        double[] scores = new double[tables.size()];
+        for (String term : queryTerms(userQuery)) {
+            Map<Integer, Double> postings = index.postings.get(term);
+            if (postings == null) {
+                continue;
+            }
+            double idf = Math.log(1.0 + (double) tables.size() / postings.size());
+            for (Map.Entry<Integer, Double> posting : postings.entrySet()) {
+                scores[posting.getKey()] += posting.getValue() * idf;
+            }
+        }
+
+        // 2. 取前k张表，语义分析给出的表优先
+        Set<Integer> selected = new LinkedHashSet<>();
+        if (hintTables != null) {
+            for (String hint : hintTables) {
+                Integer position = index.positions.get(hint.toLowerCase(Locale.ROOT));
+                if (position != null) {
+                    selected.add(position);
+                }
+            }
+        }
+
+        List<Integer> ranked = new ArrayList<>();
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] >= minScore) {
+                ranked.add(i);
+            }
+        }
+        ranked.sort((a, b) -> Double.compare(scores[b], scores[a]));
+        for (Integer position : ranked) {
+            if (selected.size() >= topK) {
+                break;
+            }
+            selected.add(position);
+        }
+
+        double confidence = ranked.isEmpty() ? 0.0 : Math.min(1.0, scores[ranked.get(0)] / (minScore * 4));
+        if (selected.isEmpty()) {
+            fallbackCount.incrementAndGet();
+            log.info("结构链接置信度不足，使用完整结构 ({} 张表)", tables.size());
+            return LinkResult.full(schema);
+        }
+
+        // 3. 补充外键相邻表
+        Set<Integer> linked = new LinkedHashSet<>(selected);
+        for (Integer position : selected) {
+            linked.addAll(index.neighbours.getOrDefault(position, Set.of()));
+        }
+
+        List<DatabaseSchema.Table> linkedTables = new ArrayList<>(linked.size());
+        long keptTokens = 0;
+        for (int i = 0; i < tables.size(); i++) {
+            if (linked.contains(i)) {
+                linkedTables.add(tables.get(i));
+                keptTokens += index.tableTokens[i];
+            }
+        }
+
+        long saved = index.totalTokens - keptTokens;
+        prunedCount.incrementAndGet();
+        estimatedTokensSaved.addAndGet(saved);
+        log.info("结构链接: 从 {} 张表中选取 {} 张 (含外键相邻表 {} 张), 预计节省 {} tokens, 置信度 {}",
+                tables.size(), linkedTables.size(), linked.size() - selected.size(), saved,
+                String.format("%.2f", confidence));
+
+        DatabaseSchema pruned = DatabaseSchema.builder()
+                .databaseName(schema.getDatabaseName())
+                .tables(linkedTables)
+                .build();
+        return new LinkResult(pruned, true, confidence, saved);
+    }
+
+    /**
+     * 获取结构链接统计信息
+     */
+    public LinkStats getLinkStats() {
+        long total = estimatedTokensTotal.get();
+        return LinkStats.builder()
+                .requestCount(requestCount.get())
+                .prunedCount(prunedCount.get())
+                .fallbackCount(fallbackCount.get())
+                .estimatedTokensSaved(estimatedTokensSaved.get())
+                .estimatedTokensSavedRatio(total == 0 ? 0.0 : (double) estimatedTokensSaved.get() / total)
+                .enabled(enabled)
+                .build();
+    }
+
+    private SchemaIndex getIndex(String schemaVersion, DatabaseSchema schema) {
+        synchronized (indexes) {
+            SchemaIndex index = indexes.get(schemaVersion);
+            if (index == null) {
+                long start = System.currentTimeMillis();
+                index = buildIndex(schema);
+                indexes.put(schemaVersion, index);
+                if (indexes.size() > MAX_CACHED_INDEXES) {
+                    indexes.remove(indexes.keySet().iterator().next());
+                }
+                log.info("结构链接索引已建立: {} 张表, {} 个索引项, 耗时 {}ms",
+                        schema.getTables().size(), index.postings.size(), System.currentTimeMillis() - start);
+            }
+            return index;
+        }
+    }
+
+    private SchemaIndex buildIndex(DatabaseSchema schema) {
+        List<DatabaseSchema.Table> tables = schema.getTables();
+        SchemaIndex index = new SchemaIndex(tables.size());
+
+        for (int i = 0; i < tables.size(); i++) {
+            DatabaseSchema.Table table = tables.get(i);
+            index.positions.put(table.getName().toLowerCase(Locale.ROOT), i);
+
+            index.addTerms(i, identifierTerms(table.getName()), TABLE_NAME_WEIGHT);
+            index.addTerms(i, textTerms(table.getComment()), TABLE_COMMENT_WEIGHT);
+            long tokens = estimateTokens(table.getName()) + estimateTokens(table.getComment()) + 4;
+
+            if (table.getColumns() != null) {
+                for (DatabaseSchema.Column column : table.getColumns()) {
+                    index.addTerms(i, identifierTerms(column.getName()), COLUMN_WEIGHT);
+                    index.addTerms(i, textTerms(column.getComment()), COLUMN_WEIGHT);
+                    tokens += estimateTokens(column.getName()) + estimateTokens(column.getType())
+                            + estimateTokens(column.getComment()) + 3;
+                }
+            }
+            index.tableTokens[i] = tokens;
+            index.totalTokens += tokens;
+        }
+
+        // 外键邻接关系（双向）
+        for (int i = 0; i < tables.size(); i++) {
+            DatabaseSchema.Table table = tables.get(i);
+            if (table.getForeignKeys() == null) {
+                continue;
+            }
+            for (DatabaseSchema.ForeignKey foreignKey : table.getForeignKeys()) {
+                if (foreignKey.getReferencedTable() == null) {
+                    continue;
+                }
+                Integer referenced = index.positions.get(foreignKey.getReferencedTable().toLowerCase(Locale.ROOT));
+                if (referenced != null && referenced != i) {
+                    index.neighbours.computeIfAbsent(i, k -> new HashSet<>()).add(referenced);
+                    index.neighbours.computeIfAbsent(referenced, k -> new HashSet<>()).add(i);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 问题中的索引项：英文单词及其拆分、中文字符二元组
+     */
+    private static Set<String> queryTerms(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (query == null) {
+            return terms;
+        }
+        String lower = query.toLowerCase(Locale.ROOT);
+        for (String word : lower.split("[^a-z0-9_]+")) {
+            terms.addAll(identifierTerms(word));
+        }
+        terms.addAll(textTerms(query));
+        return terms;
+    }
+
+    /**
+     * 标识符拆分：完整名称 + 下划线/驼峰拆分后的各部分
+     */
+    private static Set<String> identifierTerms(String identifier) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (identifier == null || identifier.isBlank()) {
+            return terms;
+        }
+        String spaced = identifier.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase(Locale.ROOT);
+        addTerm(terms, spaced);
+        for (String part : spaced.split("[^a-z0-9]+")) {
+            addTerm(terms, part);
+            // 简单的复数归一：users -> user
+            if (part.length() > 3 && part.endsWith("s")) {
+                addTerm(terms, part.substring(0, part.length() - 1));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * 文本拆分：英文按标识符处理，中文按标点和非中文字符切段，每段保留整段和字符二元组
+     */
+    private static Set<String> textTerms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null || text.isBlank()) {
+            return terms;
+        }
+        for (String word : text.split("[^A-Za-z0-9_]+")) {
+            terms.addAll(identifierTerms(word));
+        }
+        for (String segment : text.split("[^\\p{IsHan}]+")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (segment.length() <= 6) {
+                addTerm(terms, segment);
+            }
+            for (int i = 0; i + 2 <= segment.length(); i++) {
+                addTerm(terms, segment.substring(i, i + 2));
+            }
+        }
+        return terms;
+    }
+
+    private static void addTerm(Set<String> terms, String term) {
+        // 纯数字多为查询条件中的取值，不参与表匹配
+        if (term.length() >= 2 && !STOP_TERMS.contains(term) && !term.chars().allMatch(Character::isDigit)) {
+            terms.add(term);
+        }
+    }
+
+    /**
+     * 粗略估算token数：英文约4个字符一个token，中文约1个字一个token
+     */
+    static long estimateTokens(String text) {
+        if (text == null) {
+            return 0;
+        }
+        long ascii = 0;
+        long other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < 128) {
+                ascii++;
+            } else {
+                other++;
+            }
+        }
+        return ascii / 4 + other;
+    }
+
+    private static class SchemaIndex {
+        private final Map<String, Map<Integer, Double>> postings = new HashMap<>();
+        private final Map<String, Integer> positions = new HashMap<>();
+        private final Map<Integer, Set<Integer>> neighbours = new HashMap<>();
+        private final long[] tableTokens;
+        private long totalTokens;
+
+        SchemaIndex(int tableCount) {
+            this.tableTokens = new long[tableCount];
+        }
+
+        void addTerms(int position, Set<String> terms, double weight) {
+            for (String term : terms) {
+                postings.computeIfAbsent(term, k -> new HashMap<>()).merge(position, weight, Double::sum);
+            }
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class LinkResult {
+        private DatabaseSchema schema;
+        private boolean pruned;
+        private double confidence;
+        private long estimatedTokensSaved;
+
+        static LinkResult full(DatabaseSchema schema) {
+            return new LinkResult(schema, false, 0.0, 0);
+        }
+    }
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class LinkStats {
+        private long requestCount;
+        private long prunedCount;
+        private long fallbackCount;
+        private long estimatedTokensSaved;
+        private double estimatedTokensSavedRatio;
+        private boolean enabled;
+    }
+}
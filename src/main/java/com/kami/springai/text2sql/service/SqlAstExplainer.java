@@ -0,0 +1,541 @@
+package com.kami.springai.text2sql.service;
+
+import com.kami.springai.text2sql.model.DatabaseSchema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.*;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
+import net.sf.jsqlparser.expression.operators.relational.*;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 基于AST的SQL解释器
+ *
+ * 遍历JSqlParser语法树，为常见的查询形态（单表筛选、简单连接、GROUP BY聚合）生成与
+ * {@link Text2SqlService#explainSql} 相同结构的中文解释：查询目的、涉及的表和字段、查询条件、预期结果。
+ * 表和字段优先使用数据库结构中的注释。子查询、WITH、集合运算、计算表达式等无法覆盖的语句，
+ * 以及解释过程中出现的任何运行时异常都返回null，由调用方交给大模型解释。
+ */
+@Slf4j
+@Service
+public class SqlAstExplainer {
+
+    private static final Map<String, String> AGGREGATES = Map.of(
+            "COUNT", "数量",
+            "SUM", "总和",
+            "AVG", "平均值",
+            "MAX", "最大值",
+            "MIN", "最小值");
+
+    @Value("${text2sql.explain.ast-enabled:true}")
+    private boolean enabled;
+
+    private final AtomicLong explained = new AtomicLong();
+    private final AtomicLong unsupported = new AtomicLong();
+
+    /**
+     * 生成解释，语句形态不受支持时返回null
+     */
+    public String explain(String sql, DatabaseSchema schema) {
+        if (!enabled || sql == null || sql.isBlank()) {
+            return null;
+        }
+        try {
+            Statement statement = CCJSqlParserUtil.parse(sql.trim());
+            if (!(statement instanceof PlainSelect select)) {
+                throw new UnsupportedShapeException("非简单SELECT语句");
+            }
+            String explanation = new Explanation(select, schema).render();
+            explained.incrementAndGet();
+            return explanation;
+        } catch (JSQLParserException | UnsupportedShapeException e) {
+            unsupported.incrementAndGet();
+            log.debug("AST解释不支持该语句，交给大模型: {}", e.getMessage());
+            return null;
+        } catch (RuntimeException e) {
+            // 语法树或结构中的意外形态（如空字段）同样交给大模型，不影响解释请求
+            unsupported.incrementAndGet();
+            log.warn("AST解释失败，交给大模型: {}", e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * 获取AST解释统计
+     */
+    public ExplainerStats getExplainerStats() {
+        long covered = explained.get();
+        long total = covered + unsupported.get();
+        return ExplainerStats.builder()
+                .enabled(enabled)
+                .explained(covered)
+                .unsupported(unsupported.get())
+                .coverage(total > 0 ? (double) covered / total : 0.0)
+                .build();
+    }
+
+    /**
+     * 单条语句的解释过程，持有表别名和结构注释的解析上下文
+     */
+    private static class Explanation {
+        private final PlainSelect select;
+        private final DatabaseSchema schema;
+        // 别名或表名（小写） -> 查询中的表
+        private final Map<String, QueryTable> aliases = new LinkedHashMap<>();
+        private final List<QueryTable> tables = new ArrayList<>();
+
+        Explanation(PlainSelect select, DatabaseSchema schema) {
+            this.select = select;
+            this.schema = schema;
+        }
+
+        String render() {
+            checkShape();
+            registerTable(select.getFromItem());
+            List<String> joinDescriptions = new ArrayList<>();
+            if (select.getJoins() != null) {
+                for (Join join : select.getJoins()) {
+                    registerTable(join.getFromItem());
+                }
+                for (Join join : select.getJoins()) {
+                    joinDescriptions.add(describeJoin(join));
+                }
+            }
+
+            List<String> outputs = new ArrayList<>();
+            List<String> aggregates = new ArrayList<>();
+            for (SelectItem<?> item : select.getSelectItems()) {
+                String description = describeSelectItem(item);
+                outputs.add(description);
+                if (isAggregate(item.getExpression())) {
+                    aggregates.add(description);
+                }
+            }
+            List<String> groupBy = groupByExpressions().stream().map(this::describeOperand).toList();
+            boolean aggregate = !aggregates.isEmpty();
+            List<String> conditions = new ArrayList<>();
+            if (select.getWhere() != null) {
+                collectConditions(select.getWhere(), conditions);
+            }
+            List<String> havingConditions = new ArrayList<>();
+            if (select.getHaving() != null) {
+                collectConditions(select.getHaving(), havingConditions);
+            }
+            // 排序字段也要在列出表字段之前解析
+            String result = expectedResult(outputs, groupBy, aggregate);
+
+            StringBuilder text = new StringBuilder(512);
+            text.append("1. 查询目的：").append(purpose(outputs, aggregates, groupBy, !conditions.isEmpty())).append("\n\n");
+
+            text.append("2. 涉及的表和字段：\n");
+            for (QueryTable table : tables) {
+                text.append("   - ").append(table.label());
+                if (!table.usedColumns.isEmpty()) {
+                    text.append("：").append(String.join("、", table.usedColumns));
+                }
+                text.append('\n');
+            }
+            for (String join : joinDescriptions) {
+                text.append("   - ").append(join).append('\n');
+            }
+            text.append('\n');
+
+            text.append("3. 查询条件：");
+            if (conditions.isEmpty() && havingConditions.isEmpty()) {
+                text.append("无筛选条件").append(select.getJoins() != null ? "，返回所有关联成功的记录" : "，返回表中全部记录").append('\n');
+            } else {
+                text.append('\n');
+                conditions.forEach(condition -> text.append("   - ").append(condition).append('\n'));
+                havingConditions.forEach(condition -> text.append("   - 分组后筛选：").append(condition).append('\n'));
+            }
+            text.append('\n');
+
+            text.append("4. 预期结果：").append(result);
+            return text.toString();
+        }
+
+        /**
+         * 只支持单个 SELECT ... FROM 表 [JOIN 表 ON ...]，不含子查询、WITH、INTO等
+         */
+        private void checkShape() {
+            if (select.getWithItemsList() != null && !select.getWithItemsList().isEmpty()) {
+                throw new UnsupportedShapeException("WITH子句");
+            }
+            if (select.getFromItem() == null) {
+                throw new UnsupportedShapeException("缺少FROM");
+            }
+            if (select.getIntoTables() != null || select.getLateralViews() != null || select.getFetch() != null
+                    || select.getTop() != null || select.getOracleHierarchical() != null || select.getQualify() != null
+                    || select.getWindowDefinitions() != null) {
+                throw new UnsupportedShapeException("不支持的子句");
+            }
+            if (select.getDistinct() != null && select.getDistinct().getOnSelectItems() != null) {
+                throw new UnsupportedShapeException("DISTINCT ON");
+            }
+        }
+
+        private void registerTable(FromItem fromItem) {
+            if (!(fromItem instanceof Table table)) {
+                throw new UnsupportedShapeException("FROM/JOIN中不是表: " + fromItem);
+            }
+            QueryTable queryTable = new QueryTable(strip(table.getName()), findTable(strip(table.getName())));
+            tables.add(queryTable);
+            aliases.put(queryTable.name.toLowerCase(Locale.ROOT), queryTable);
+            if (table.getAlias() != null) {
+                aliases.put(strip(table.getAlias().getName()).toLowerCase(Locale.ROOT), queryTable);
+            }
+        }
+
+        private String describeJoin(Join join) {
+            QueryTable right = aliases.get(strip(((Table) join.getFromItem()).getName()).toLowerCase(Locale.ROOT));
+            String type;
+            if (join.isLeft()) {
+                type = "左连接，保留左侧表的全部记录";
+            } else if (join.isRight()) {
+                type = "右连接，保留" + right.label() + "的全部记录";
+            } else if (join.isFull()) {
+                type = "全外连接";
+            } else if (join.isCross() || join.isSimple() && (join.getOnExpressions() == null || join.getOnExpressions().isEmpty())) {
+                type = "交叉连接";
+            } else {
+                type = "内连接，只保留两侧都匹配的记录";
+            }
+            if (join.getUsingColumns() != null && !join.getUsingColumns().isEmpty()) {
+                String columns = join.getUsingColumns().stream().map(this::describeColumn).collect(Collectors.joining("、"));
+                return "通过相同字段 " + columns + " 关联" + right.label() + "（" + type + "）";
+            }
+            if (join.getOnExpressions() == null || join.getOnExpressions().isEmpty()) {
+                return "与" + right.label() + "关联（" + type + "）";
+            }
+            List<String> on = new ArrayList<>();
+            for (Expression expression : join.getOnExpressions()) {
+                collectConditions(expression, on);
+            }
+            return "通过 " + String.join(" 且 ", on) + " 关联" + right.label() + "（" + type + "）";
+        }
+
+        private String purpose(List<String> outputs, List<String> aggregates, List<String> groupBy, boolean filtered) {
+            String source = tables.stream().map(QueryTable::label).collect(Collectors.joining("、"));
+            String scope = (filtered ? "满足条件的" : "全部") + (select.getDistinct() != null ? "去重后的" : "");
+            if (!aggregates.isEmpty() && !groupBy.isEmpty()) {
+                return "在" + source + "中按" + String.join("、", groupBy) + "分组，统计每组" + scope + "记录的"
+                        + String.join("、", aggregates) + "。";
+            }
+            if (!aggregates.isEmpty()) {
+                return "统计" + source + "中" + scope + "记录的" + String.join("、", aggregates) + "。";
+            }
+            return "从" + source + "中查询" + scope + "记录，返回" + String.join("、", outputs) + "。";
+        }
+
+        private String expectedResult(List<String> outputs, List<String> groupBy, boolean aggregate) {
+            StringBuilder text = new StringBuilder();
+            if (aggregate && groupBy.isEmpty()) {
+                text.append("返回一行汇总结果");
+            } else if (!groupBy.isEmpty()) {
+                text.append("每个").append(String.join("、", groupBy)).append("的组合返回一行");
+            } else {
+                text.append("每条匹配的记录返回一行");
+            }
+            text.append("，包含 ").append(String.join("、", outputs));
+
+            List<OrderByElement> orderBy = select.getOrderByElements();
+            if (orderBy != null && !orderBy.isEmpty()) {
+                text.append("；按 ").append(orderBy.stream()
+                        .map(element -> describeOperand(element.getExpression()) + (element.isAsc() ? " 升序" : " 降序"))
+                        .collect(Collectors.joining("、"))).append("排列");
+            }
+            Limit limit = select.getLimit();
+            if (limit != null && limit.getOffset() != null) {
+                text.append("；跳过前 ").append(describeOperand(limit.getOffset())).append(" 行");
+            } else if (select.getOffset() != null) {
+                text.append("；跳过前 ").append(describeOperand(select.getOffset().getOffset())).append(" 行");
+            }
+            if (limit != null && limit.getRowCount() != null) {
+                text.append("；最多返回 ").append(describeOperand(limit.getRowCount())).append(" 行");
+            }
+            return text.append("。").toString();
+        }
+
+        private String describeSelectItem(SelectItem<?> item) {
+            Expression expression = item.getExpression();
+            String description;
+            if (expression instanceof AllColumns) {
+                description = "全部字段";
+            } else if (expression instanceof AllTableColumns allTableColumns) {
+                description = lookup(allTableColumns.getTable()).label() + "的全部字段";
+            } else {
+                description = describeOperand(expression);
+            }
+            if (item.getAlias() != null) {
+                description += "（结果列名 " + strip(item.getAlias().getName()) + "）";
+            }
+            return description;
+        }
+
+        /**
+         * 把条件按AND拆开；OR整体作为一条条件
+         */
+        private void collectConditions(Expression expression, List<String> conditions) {
+            if (expression instanceof AndExpression and) {
+                collectConditions(and.getLeftExpression(), conditions);
+                collectConditions(and.getRightExpression(), conditions);
+            } else if (expression instanceof Parenthesis parenthesis && parenthesis.getExpression() instanceof AndExpression) {
+                collectConditions(parenthesis.getExpression(), conditions);
+            } else {
+                conditions.add(describeCondition(expression));
+            }
+        }
+
+        private String describeCondition(Expression expression) {
+            if (expression instanceof AndExpression and) {
+                return describeCondition(and.getLeftExpression()) + " 且 " + describeCondition(and.getRightExpression());
+            }
+            if (expression instanceof OrExpression or) {
+                return describeCondition(or.getLeftExpression()) + " 或 " + describeCondition(or.getRightExpression());
+            }
+            if (expression instanceof Parenthesis parenthesis) {
+                return "（" + describeCondition(parenthesis.getExpression()) + "）";
+            }
+            if (expression instanceof NotExpression not) {
+                return "不满足（" + describeCondition(not.getExpression()) + "）";
+            }
+            if (expression instanceof EqualsTo equals) {
+                return describeOperand(equals.getLeftExpression()) + " 等于 " + describeOperand(equals.getRightExpression());
+            }
+            if (expression instanceof NotEqualsTo notEquals) {
+                return describeOperand(notEquals.getLeftExpression()) + " 不等于 " + describeOperand(notEquals.getRightExpression());
+            }
+            if (expression instanceof GreaterThan greater) {
+                return describeOperand(greater.getLeftExpression()) + " 大于 " + describeOperand(greater.getRightExpression());
+            }
+            if (expression instanceof GreaterThanEquals greaterEquals) {
+                return describeOperand(greaterEquals.getLeftExpression()) + " 大于等于 " + describeOperand(greaterEquals.getRightExpression());
+            }
+            if (expression instanceof MinorThan minor) {
+                return describeOperand(minor.getLeftExpression()) + " 小于 " + describeOperand(minor.getRightExpression());
+            }
+            if (expression instanceof MinorThanEquals minorEquals) {
+                return describeOperand(minorEquals.getLeftExpression()) + " 小于等于 " + describeOperand(minorEquals.getRightExpression());
+            }
+            if (expression instanceof LikeExpression like) {
+                return describeOperand(like.getLeftExpression()) + (like.isNot() ? " 不匹配 " : " 匹配 ")
+                        + describeOperand(like.getRightExpression()) + "（模糊匹配）";
+            }
+            if (expression instanceof InExpression in) {
+                if (!(in.getRightExpression() instanceof ExpressionList<?> values) || in.getRightExpression() instanceof Select) {
+                    throw new UnsupportedShapeException("IN子查询");
+                }
+                String list = values.stream().map(value -> describeOperand((Expression) value)).collect(Collectors.joining("、"));
+                return describeOperand(in.getLeftExpression()) + (in.isNot() ? " 不在 " : " 属于 ") + list + " 之中";
+            }
+            if (expression instanceof Between between) {
+                return describeOperand(between.getLeftExpression()) + (between.isNot() ? " 不在 " : " 在 ")
+                        + describeOperand(between.getBetweenExpressionStart()) + " 到 "
+                        + describeOperand(between.getBetweenExpressionEnd()) + " 之间";
+            }
+            if (expression instanceof IsNullExpression isNull) {
+                return describeOperand(isNull.getLeftExpression()) + (isNull.isNot() ? " 不为空" : " 为空");
+            }
+            throw new UnsupportedShapeException("条件: " + expression);
+        }
+
+        /**
+         * 描述取值：字段、常量、聚合函数；其他表达式不受支持
+         */
+        private String describeOperand(Expression expression) {
+            if (expression instanceof Select) {
+                throw new UnsupportedShapeException("子查询");
+            }
+            if (expression instanceof Column column) {
+                return describeColumn(column);
+            }
+            if (expression instanceof StringValue string) {
+                return "'" + string.getValue() + "'";
+            }
+            if (expression instanceof LongValue || expression instanceof DoubleValue) {
+                return expression.toString();
+            }
+            if (expression instanceof NullValue) {
+                return "空值";
+            }
+            if (expression instanceof Function function && function.getName() != null
+                    && AGGREGATES.containsKey(function.getName().toUpperCase(Locale.ROOT))) {
+                return describeAggregate(function);
+            }
+            if (expression instanceof Parenthesis parenthesis) {
+                return describeOperand(parenthesis.getExpression());
+            }
+            throw new UnsupportedShapeException("表达式: " + expression);
+        }
+
+        private String describeAggregate(Function function) {
+            String name = AGGREGATES.get(function.getName().toUpperCase(Locale.ROOT));
+            ExpressionList<?> parameters = function.getParameters();
+            if (function.isAllColumns() || parameters == null || parameters.isEmpty()
+                    || parameters.get(0) instanceof AllColumns) {
+                return "记录数";
+            }
+            if (parameters.size() != 1) {
+                throw new UnsupportedShapeException("多参数聚合: " + function);
+            }
+            String argument = describeOperand(parameters.get(0));
+            return function.isDistinct() ? "不同" + argument + "的" + name : argument + "的" + name;
+        }
+
+        private String describeColumn(Column column) {
+            String name = strip(column.getColumnName());
+            QueryTable table = column.getTable() != null && column.getTable().getName() != null
+                    ? lookup(column.getTable())
+                    : findOwner(name);
+            if (table == null) {
+                // 未找到所属表时可能是结果列别名
+                return name;
+            }
+            String comment = table.columnComment(name);
+            String label = comment != null ? comment + "（" + name + "）" : name;
+            if (!table.usedColumns.contains(label)) {
+                table.usedColumns.add(label);
+            }
+            return tables.size() > 1 && comment == null ? table.name + "." + name : label;
+        }
+
+        private QueryTable lookup(Table table) {
+            QueryTable queryTable = aliases.get(strip(table.getName()).toLowerCase(Locale.ROOT));
+            if (queryTable == null) {
+                throw new UnsupportedShapeException("未知的表引用: " + table);
+            }
+            return queryTable;
+        }
+
+        private QueryTable findOwner(String columnName) {
+            for (QueryTable table : tables) {
+                if (table.hasColumn(columnName)) {
+                    return table;
+                }
+            }
+            return tables.size() == 1 ? tables.get(0) : null;
+        }
+
+        private List<Expression> groupByExpressions() {
+            if (select.getGroupBy() == null || select.getGroupBy().getGroupByExpressionList() == null) {
+                return List.of();
+            }
+            List<Expression> expressions = new ArrayList<>();
+            for (Object expression : select.getGroupBy().getGroupByExpressionList()) {
+                expressions.add((Expression) expression);
+            }
+            return expressions;
+        }
+
+        private boolean isAggregate(Expression expression) {
+            return expression instanceof Function function && function.getName() != null
+                    && AGGREGATES.containsKey(function.getName().toUpperCase(Locale.ROOT));
+        }
+
+        private DatabaseSchema.Table findTable(String name) {
+            if (schema == null || schema.getTables() == null) {
+                return null;
+            }
+            return schema.getTables().stream()
+                    .filter(table -> table.getName().equalsIgnoreCase(name))
+                    .findFirst()
+                    .orElse(null);
+        }
+    }
+
+    /**
+     * 查询中出现的表及其在结构中的定义（可能不存在）
+     */
+    private static class QueryTable {
+        private final String name;
+        private final DatabaseSchema.Table definition;
+        private final List<String> usedColumns = new ArrayList<>();
+
+        QueryTable(String name, DatabaseSchema.Table definition) {
+            this.name = name;
+            this.definition = definition;
+        }
+
+        String label() {
+            String comment = definition != null ? blankToNull(definition.getComment()) : null;
+            return comment != null ? comment + "表（" + name + "）" : name + "表";
+        }
+
+        boolean hasColumn(String columnName) {
+            return column(columnName) != null;
+        }
+
+        String columnComment(String columnName) {
+            DatabaseSchema.Column column = column(columnName);
+            return column != null ? blankToNull(column.getComment()) : null;
+        }
+
+        private DatabaseSchema.Column column(String columnName) {
+            if (definition == null || definition.getColumns() == null) {
+                return null;
+            }
+            return definition.getColumns().stream()
+                    .filter(column -> column.getName().equalsIgnoreCase(columnName))
+                    .findFirst()
+                    .orElse(null);
+        }
+    }
+
+    private static String strip(String identifier) {
+        if (identifier != null && identifier.length() >= 2) {
+            char first = identifier.charAt(0);
+            char last = identifier.charAt(identifier.length() - 1);
+            if ((first == '`' && last == '`') || (first == '"' && last == '"')) {
+                return identifier.substring(1, identifier.length() - 1);
+            }
+        }
+        return identifier;
+    }
+
+    private static String blankToNull(String value) {
+        return value != null && !value.isBlank() ? value.trim() : null;
+    }
+
+    /**
+     * 语句形态超出AST解释器的覆盖范围
+     */
+    private static class UnsupportedShapeException extends RuntimeException {
+        UnsupportedShapeException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * AST解释统计
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class ExplainerStats {
+        private boolean enabled;
+        private long explained;
+        private long unsupported;
+        /**
+         * 无需调用大模型的解释占比
+         */
+        private double coverage;
+    }
+}
@@ -1,6 +1,9 @@
 package com.kami.springai.text2sql.service;
 
+import com.kami.springai.datasource.service.DataSourceContextHolder;
 import com.kami.springai.datasource.service.DynamicDataSourceManager;
+import com.kami.springai.text2sql.config.Text2SqlMetrics;
+import io.micrometer.core.instrument.Timer;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -24,6 +27,7 @@ import java.util.Map;
 public class SqlExecutionService {
 
     private final DynamicDataSourceManager dynamicDataSourceManager;
+    private final Text2SqlMetrics metrics;
 
     /**
      * 执行查询
@@ -35,6 +39,7 @@ public class SqlExecutionService {
         validateSqlSafety(sql);
         
         long startTime = System.currentTimeMillis();
+        Timer.Sample sample = metrics.start();
         
         try (Connection connection = getCurrentDataSource().getConnection();
              PreparedStatement statement = connection.prepareStatement(sql);
@@ -62,6 +67,7 @@ public class SqlExecutionService {
             }
             
             long executionTime = System.currentTimeMillis() - startTime;
+            recordExecution(sample, Text2SqlMetrics.OUTCOME_SUCCESS);
             
             return QueryResult.builder()
                     .columns(columns)
@@ -74,6 +80,7 @@ public class SqlExecutionService {
         } catch (Exception e) {
             log.error("SQL执行失败: {}", e.getMessage(), e);
             long executionTime = System.currentTimeMillis() - startTime;
+            recordExecution(sample, Text2SqlMetrics.OUTCOME_FAILURE);
             
             return QueryResult.builder()
                     .success(false)
@@ -83,6 +90,10 @@ public class SqlExecutionService {
         }
     }
     
+    private void recordExecution(Timer.Sample sample, String outcome) {
+        metrics.stop(sample, Text2SqlMetrics.STAGE_SQL_EXECUTION, DataSourceContextHolder.getDataSourceId(), null, outcome);
+    }
+
     /**
      * 获取当前数据源
      */
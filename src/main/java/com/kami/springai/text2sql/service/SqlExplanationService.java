@@ -0,0 +1,139 @@
+package com.kami.springai.text2sql.service;
+
+import com.kami.springai.datasource.service.DataSourceContextHolder;
+import com.kami.springai.text2sql.model.SqlExplanationTask;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * 延迟SQL解释
+ *
+ * SQL通过验证后立即返回给调用方，解释在虚拟线程上并行生成，调用方凭解释ID稍后获取。
+ * 结构已缓存时先在提交线程上尝试AST解释器和解释缓存（不加载结构、不调用大模型），
+ * 命中则直接返回已完成的解释，不占用解释表；否则整个解释（可能需要加载结构）在虚拟线程上进行。
+ * 解释表有容量上限，已完成的解释超过TTL后移除。
+ */
+@Slf4j
+@Service
+public class SqlExplanationService {
+
+    private final Text2SqlService text2SqlService;
+    private final Executor executor;
+
+    @Value("${text2sql.explain.max-pending:1000}")
+    private int maxEntries;
+
+    @Value("${text2sql.explain.ttl:600}")
+    private long ttlSeconds;
+
+    private AsyncTaskTable<SqlExplanationTask> explanations;
+
+    public SqlExplanationService(Text2SqlService text2SqlService,
+                                 @Qualifier("virtualThreadExecutor") Executor executor) {
+        this.text2SqlService = text2SqlService;
+        this.executor = executor;
+    }
+
+    @PostConstruct
+    public void init() {
+        explanations = new AsyncTaskTable<>("解释表", maxEntries, ttlSeconds,
+                SqlExplanationTask::isDone, SqlExplanationTask::getCompletedAt);
+    }
+
+    /**
+     * 提交SQL解释，本地可解释时返回已完成的解释
+     *
+     * @throws IllegalStateException 需要异步生成而解释表已满
+     */
+    public SqlExplanationTask submit(String dataSourceId, String sql, String context) {
+        SqlExplanationTask task = SqlExplanationTask.builder()
+                .explanationId(UUID.randomUUID().toString())
+                .status(SqlExplanationTask.PENDING)
+                .sql(sql)
+                .submittedAt(System.currentTimeMillis())
+                .build();
+
+        String localExplanation = explainLocally(dataSourceId, sql, context);
+        if (localExplanation != null) {
+            log.debug("SQL解释由本地生成: {}", sql);
+            return task.toBuilder()
+                    .status(SqlExplanationTask.SUCCEEDED)
+                    .explanation(localExplanation)
+                    .completedAt(System.currentTimeMillis())
+                    .build();
+        }
+
+        AsyncTaskTable.Entry<SqlExplanationTask> entry = explanations.add(task.getExplanationId(), task);
+
+        CompletableFuture
+                .supplyAsync(() -> explain(dataSourceId, sql, context), executor)
+                .whenComplete((explanation, e) -> complete(entry, explanation, e));
+
+        log.debug("提交SQL解释 {}: {}", task.getExplanationId(), sql);
+        return task;
+    }
+
+    /**
+     * 获取解释快照，不存在或已过期时返回null
+     */
+    public SqlExplanationTask get(String explanationId) {
+        return explanations.get(explanationId);
+    }
+
+    /**
+     * 解释完成时发出最终快照，解释不存在时为空
+     */
+    public Mono<SqlExplanationTask> awaitCompletion(String explanationId) {
+        return explanations.awaitCompletion(explanationId);
+    }
+
+    /**
+     * 获取解释表统计
+     */
+    public AsyncTaskTable.TaskStats getStats() {
+        return explanations.getStats();
+    }
+
+    /**
+     * 本地解释失败不影响提交，回退到异步解释
+     */
+    private String explainLocally(String dataSourceId, String sql, String context) {
+        try {
+            return text2SqlService.explainSqlLocally(dataSourceId, sql, context);
+        } catch (RuntimeException e) {
+            log.warn("本地SQL解释失败，转为异步生成: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private String explain(String dataSourceId, String sql, String context) {
+        // 结构缓存过期时的重新加载依赖线程上下文中的数据源
+        DataSourceContextHolder.setDataSourceId(dataSourceId);
+        try {
+            return text2SqlService.explainSql(dataSourceId, sql, context);
+        } finally {
+            DataSourceContextHolder.clear();
+        }
+    }
+
+    private void complete(AsyncTaskTable.Entry<SqlExplanationTask> entry, String explanation, Throwable error) {
+        SqlExplanationTask.SqlExplanationTaskBuilder builder = entry.getSnapshot().toBuilder()
+                .completedAt(System.currentTimeMillis());
+        if (error == null) {
+            builder.status(SqlExplanationTask.SUCCEEDED).explanation(explanation);
+        } else {
+            Throwable cause = error.getCause() != null ? error.getCause() : error;
+            builder.status(SqlExplanationTask.FAILED).error(cause.getMessage());
+            log.warn("SQL解释 {} 生成失败: {}", entry.getSnapshot().getExplanationId(), cause.getMessage());
+        }
+        explanations.complete(entry, builder.build(), error == null);
+    }
+}
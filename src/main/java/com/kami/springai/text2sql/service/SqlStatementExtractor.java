@@ -0,0 +1,315 @@
+package com.kami.springai.text2sql.service;
+
+/**
+ * 从大模型输出中提取完整SQL语句
+ *
+ * 模型输出可能带有代码块标记、前置说明或SQL之后的解释文字。
+ * 语句只能从行首（允许前导空白）或代码块开始标记（```、```sql）之后的 SELECT/WITH 关键字开始，
+ * 避免把 "Here is the query with ..." 这类说明文字中的单词当作语句开头；
+ * 之后在引号、反引号和注释之外遇到的第一个分号处截止。
+ */
+public final class SqlStatementExtractor {
+
+    private static final String[] KEYWORDS = {"SELECT", "WITH"};
+    private static final String FENCE = "```";
+
+    private SqlStatementExtractor() {
+    }
+
+    /**
+     * 提取第一条以分号结尾的完整语句，语句尚未结束时返回null
+     */
+    public static String extractCompleteStatement(CharSequence text) {
+        return text != null ? scan(text).completeStatement() : null;
+    }
+
+    /**
+     * 提取语句主体：有分号时截止到分号，否则截止到代码块结束标记或文本末尾
+     */
+    public static String extractStatement(CharSequence text) {
+        return text != null ? scan(text).statement() : null;
+    }
+
+    /**
+     * 判断文本中是否已出现一条完整的SQL语句
+     */
+    public static boolean isComplete(CharSequence text) {
+        return text != null && scan(text).isComplete();
+    }
+
+    /**
+     * 创建增量扫描器，用于逐段追加的流式输出
+     */
+    public static Scanner scanner() {
+        return new Scanner();
+    }
+
+    private static Scanner scan(CharSequence text) {
+        Scanner scanner = new Scanner();
+        scanner.append(text);
+        scanner.finish();
+        return scanner;
+    }
+
+    /**
+     * 增量扫描器：每次追加只扫描新增的部分，扫描状态（行首、代码块标记、引号、注释）跨片段保留。
+     * 关键字、转义符或注释标记被片段边界截断时，停在该位置等待下一段。非线程安全。
+     */
+    public static final class Scanner {
+
+        private static final int FENCE_NONE = 0;
+        private static final int FENCE_OPENED = 1;
+        private static final int FENCE_LANGUAGE = 2;
+        private static final int FENCE_DONE = 3;
+
+        private final StringBuilder text = new StringBuilder();
+        private int cursor;
+        private boolean finished;
+        private int start = -1;
+        private int end = -1;
+
+        // 语句开始之前：当前行的状态
+        private boolean lineRejected;
+        private int fenceState = FENCE_NONE;
+
+        // 语句开始之后：引号和注释状态
+        private char quote;
+        private boolean lineComment;
+        private boolean blockComment;
+
+        private Scanner() {
+        }
+
+        /**
+         * 追加一段输出，返回是否已出现完整语句；出现完整语句后追加的内容被忽略
+         */
+        public boolean append(CharSequence chunk) {
+            if (end < 0 && !finished) {
+                text.append(chunk);
+                scan();
+            }
+            return end >= 0;
+        }
+
+        /**
+         * 输出结束：被截断在末尾的关键字或标记按文本末尾处理
+         */
+        public void finish() {
+            if (!finished) {
+                finished = true;
+                scan();
+            }
+        }
+
+        public boolean isComplete() {
+            return end >= 0;
+        }
+
+        /**
+         * 以分号结尾的完整语句，尚未结束时返回null
+         */
+        public String completeStatement() {
+            return end >= 0 ? text.substring(start, end + 1).trim() : null;
+        }
+
+        /**
+         * 语句主体：有分号时截止到分号，否则截止到代码块结束标记或文本末尾；未找到语句开头时返回全文
+         */
+        public String statement() {
+            if (end >= 0) {
+                return completeStatement();
+            }
+            if (start < 0) {
+                return text.toString().trim();
+            }
+            String rest = text.substring(start);
+            int fence = rest.indexOf(FENCE);
+            if (fence >= 0) {
+                rest = rest.substring(0, fence);
+            }
+            return rest.trim();
+        }
+
+        private void scan() {
+            while (end < 0 && cursor < text.length()) {
+                boolean progressed = start < 0 ? findStart() : findTerminator();
+                if (!progressed) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 在行首或代码块开始标记之后查找 SELECT/WITH，返回false表示需要更多输入
+         */
+        private boolean findStart() {
+            int length = text.length();
+            while (cursor < length) {
+                if (lineRejected) {
+                    int newline = text.indexOf("\n", cursor);
+                    if (newline < 0) {
+                        cursor = length;
+                        return true;
+                    }
+                    cursor = newline;
+                    lineRejected = false;
+                }
+
+                char c = text.charAt(cursor);
+                if (c == '\n') {
+                    fenceState = FENCE_NONE;
+                    cursor++;
+                    continue;
+                }
+                if (fenceState == FENCE_LANGUAGE) {
+                    // 代码块语言标记，如 ```sql
+                    if (Character.isLetterOrDigit(c)) {
+                        cursor++;
+                        continue;
+                    }
+                    fenceState = FENCE_DONE;
+                }
+                if (Character.isWhitespace(c)) {
+                    if (fenceState == FENCE_OPENED) {
+                        fenceState = FENCE_DONE;
+                    }
+                    cursor++;
+                    continue;
+                }
+                if (c == '`' && fenceState == FENCE_NONE) {
+                    int matched = matchPrefix(cursor, FENCE);
+                    if (matched == 0) {
+                        return false;
+                    }
+                    if (matched > 0) {
+                        cursor += FENCE.length();
+                        fenceState = FENCE_OPENED;
+                    } else {
+                        lineRejected = true;
+                    }
+                    continue;
+                }
+
+                int keyword = matchKeyword(cursor);
+                if (keyword == 0) {
+                    return false;
+                }
+                if (keyword > 0) {
+                    start = cursor;
+                    cursor += keyword;
+                    return true;
+                }
+                if (fenceState == FENCE_OPENED && Character.isLetterOrDigit(c)) {
+                    fenceState = FENCE_LANGUAGE;
+                } else {
+                    lineRejected = true;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 在引号和注释之外查找分号，返回false表示需要更多输入
+         */
+        private boolean findTerminator() {
+            int length = text.length();
+            while (cursor < length) {
+                char c = text.charAt(cursor);
+                boolean hasNext = cursor + 1 < length;
+                if (!hasNext && !finished && needsLookahead(c)) {
+                    return false;
+                }
+                char next = hasNext ? text.charAt(cursor + 1) : 0;
+
+                if (lineComment) {
+                    if (c == '\n') {
+                        lineComment = false;
+                    }
+                } else if (blockComment) {
+                    if (c == '*' && next == '/') {
+                        blockComment = false;
+                        cursor++;
+                    }
+                } else if (quote != 0) {
+                    if (c == '\\' && quote != '`') {
+                        cursor++;
+                    } else if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '\'' || c == '"' || c == '`') {
+                    quote = c;
+                } else if (c == '-' && next == '-') {
+                    lineComment = true;
+                    cursor++;
+                } else if (c == '/' && next == '*') {
+                    blockComment = true;
+                    cursor++;
+                } else if (c == ';') {
+                    end = cursor;
+                    return true;
+                }
+                cursor++;
+            }
+            return true;
+        }
+
+        /**
+         * 当前字符的含义是否取决于下一个字符
+         */
+        private boolean needsLookahead(char c) {
+            if (lineComment) {
+                return false;
+            }
+            if (blockComment) {
+                return c == '*';
+            }
+            if (quote != 0) {
+                return c == '\\' && quote != '`';
+            }
+            return c == '-' || c == '/';
+        }
+
+        /**
+         * 匹配语句开头的关键字：返回关键字长度，0 表示需要更多输入，-1 表示不匹配
+         */
+        private int matchKeyword(int position) {
+            boolean pending = false;
+            for (String keyword : KEYWORDS) {
+                int matched = matchPrefix(position, keyword);
+                if (matched == 0) {
+                    pending = true;
+                    continue;
+                }
+                if (matched < 0) {
+                    continue;
+                }
+                int after = position + keyword.length();
+                if (after >= text.length()) {
+                    if (finished) {
+                        return keyword.length();
+                    }
+                    pending = true;
+                } else if (!Character.isLetterOrDigit(text.charAt(after))) {
+                    return keyword.length();
+                }
+            }
+            return pending ? 0 : -1;
+        }
+
+        /**
+         * 忽略大小写匹配前缀：1 表示匹配，0 表示已有字符匹配但需要更多输入，-1 表示不匹配
+         */
+        private int matchPrefix(int position, String prefix) {
+            int available = Math.min(prefix.length(), text.length() - position);
+            for (int i = 0; i < available; i++) {
+                if (Character.toUpperCase(text.charAt(position + i)) != prefix.charAt(i)) {
+                    return -1;
+                }
+            }
+            if (available < prefix.length()) {
+                return finished ? -1 : 0;
+            }
+            return 1;
+        }
+    }
+}
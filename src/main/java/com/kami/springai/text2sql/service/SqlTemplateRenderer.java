@@ -0,0 +1,438 @@
+package com.kami.springai.text2sql.service;
+
+import com.kami.springai.text2sql.model.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+
+/**
+ * SQL模板渲染器
+ *
+ * 根据语义分析结果、用户问题和缓存的数据库结构填充学习模式的 {@link SqlTemplate}，
+ * 不调用大模型。任一占位符无法解析时返回null，由调用方回退到AI生成。
+ *
+ * 条件值只从当前问题中提取，不回退到学习时SQL中的字面量——否则新问题会得到旧问题的答案，
+ * 通过验证后 recordSuccess 还会进一步提高该模式的置信度。语义条件的值一律作为带引号的字面量拼接，
+ * 运算符只接受白名单中的比较运算。
+ *
+ * 模板还必须覆盖问题中的全部约束：语义分析识别出字段和值的每个条件、问题中的每个数字和引号内的字面量，
+ * 都要被某个占位符用到，否则返回null。例如从"查询所有用户"学到的无条件模板不能回答"查询年龄大于30的用户"，
+ * 渲染出的SQL能通过验证，却会丢掉过滤条件。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SqlTemplateRenderer {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([A-Za-z0-9_]+)}");
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+    private static final Pattern QUOTED = Pattern.compile("['\"“‘「]([^'\"”’」]+)['\"”’」]");
+    private static final Set<String> CONDITION_OPERATORS = Set.of("=", "!=", "<>", ">", ">=", "<", "<=", "LIKE", "NOT LIKE");
+
+    @Value("${text2sql.security.max-rows:1000}")
+    private long maxRows;
+
+    private final Map<String, Pattern> compiledPatterns = new ConcurrentHashMap<>();
+
+    private final AtomicLong renderAttempts = new AtomicLong();
+    private final AtomicLong rendered = new AtomicLong();
+    private final AtomicLong unresolved = new AtomicLong();
+    private final AtomicLong patternServed = new AtomicLong();
+    private final AtomicLong totalRenderNanos = new AtomicLong();
+
+    /**
+     * 渲染模板，无法解析全部占位符时返回null
+     */
+    public String render(SqlTemplate template, String userQuery, QuerySemantic semantic, DatabaseSchema schema) {
+        if (template == null || template.getFromTemplate() == null || template.getSelectTemplate() == null) {
+            return null;
+        }
+        renderAttempts.incrementAndGet();
+        long start = System.nanoTime();
+
+        Map<String, PlaceholderRule> rules = template.getPlaceholderRules() != null
+                ? template.getPlaceholderRules()
+                : Map.of();
+        Map<String, String> values = new HashMap<>();
+        // 从问题中提取并用到的值，以及拼接进条件的语义条件值，用于检查问题中的约束是否都被模板覆盖
+        Set<String> consumed = new HashSet<>();
+        // 先解析表名，条件占位符依赖已选定的表
+        for (Map.Entry<String, PlaceholderRule> entry : rules.entrySet()) {
+            if (PlaceholderRule.TABLE.equals(entry.getValue().getRuleType())) {
+                String table = resolveTable(entry.getValue(), template, semantic, schema);
+                if (table == null) {
+                    return unresolved(entry.getKey(), start);
+                }
+                values.put(entry.getKey(), table);
+            }
+        }
+
+        StringBuilder sql = new StringBuilder(128);
+        for (String clause : clauses(template)) {
+            if (clause == null || clause.isBlank()) {
+                continue;
+            }
+            Matcher matcher = PLACEHOLDER.matcher(clause);
+            StringBuilder part = new StringBuilder(clause.length() + 16);
+            while (matcher.find()) {
+                String name = matcher.group(1);
+                String value = values.get(name);
+                if (value == null) {
+                    value = resolve(rules.get(name), userQuery, semantic, schema, values, consumed);
+                    if (value == null) {
+                        return unresolved(name, start);
+                    }
+                    values.put(name, value);
+                }
+                matcher.appendReplacement(part, Matcher.quoteReplacement(value));
+            }
+            matcher.appendTail(part);
+            if (!sql.isEmpty()) {
+                sql.append(' ');
+            }
+            sql.append(part);
+        }
+        sql.append(';');
+
+        String uncovered = findUncovered(userQuery, semantic, consumed);
+        if (uncovered != null) {
+            log.debug("模板没有覆盖问题中的{}", uncovered);
+            unresolved.incrementAndGet();
+            totalRenderNanos.addAndGet(System.nanoTime() - start);
+            return null;
+        }
+
+        rendered.incrementAndGet();
+        totalRenderNanos.addAndGet(System.nanoTime() - start);
+        log.debug("模板渲染SQL: {}", sql);
+        return sql.toString();
+    }
+
+    /**
+     * 记录一次由模式直接提供（通过验证、未调用大模型）的请求
+     */
+    public void recordPatternServed() {
+        patternServed.incrementAndGet();
+    }
+
+    /**
+     * 获取模板渲染统计
+     */
+    public TemplateStats getTemplateStats() {
+        long count = rendered.get();
+        return TemplateStats.builder()
+                .renderAttempts(renderAttempts.get())
+                .rendered(count)
+                .unresolved(unresolved.get())
+                .patternServed(patternServed.get())
+                .averageRenderMicros(count > 0 ? totalRenderNanos.get() / 1000.0 / count : 0.0)
+                .build();
+    }
+
+    private String unresolved(String placeholder, long start) {
+        unresolved.incrementAndGet();
+        totalRenderNanos.addAndGet(System.nanoTime() - start);
+        log.debug("模板占位符无法解析: {}", placeholder);
+        return null;
+    }
+
+    private String resolve(PlaceholderRule rule, String userQuery, QuerySemantic semantic,
+                           DatabaseSchema schema, Map<String, String> values, Set<String> consumed) {
+        if (rule == null || rule.getRuleType() == null) {
+            return null;
+        }
+        return switch (rule.getRuleType()) {
+            case PlaceholderRule.VALUE -> {
+                String value = firstMatch(rule, userQuery);
+                if (value != null) {
+                    consumed.add(value);
+                }
+                yield escape(value);
+            }
+            case PlaceholderRule.LIMIT -> resolveLimit(rule, userQuery, consumed);
+            case PlaceholderRule.CONDITION -> resolveConditions(rule, semantic, schema, values, consumed);
+            default -> null;
+        };
+    }
+
+    /**
+     * 依次尝试主要实体、其余实体和意图中的相关表，要求表存在且包含模板用到的字段。
+     * 模板有关联子句，或在字段限定、排序中直接写了学习时的表名时，换表后这些引用会失效，只能使用原表
+     */
+    private String resolveTable(PlaceholderRule rule, SqlTemplate template, QuerySemantic semantic, DatabaseSchema schema) {
+        List<String> candidates = new ArrayList<>();
+        if (semantic != null && semantic.getEntities() != null) {
+            semantic.getEntities().stream()
+                    .sorted((a, b) -> Boolean.compare(b.isPrimary(), a.isPrimary()))
+                    .map(EntitySemantic::getTableName)
+                    .forEach(candidates::add);
+        }
+        if (semantic != null && semantic.getIntent() != null && semantic.getIntent().getRelevantTables() != null) {
+            candidates.addAll(semantic.getIntent().getRelevantTables());
+        }
+        candidates.add(rule.getFallback());
+
+        String original = rule.getFallback();
+        boolean pinned = original != null && referencesTable(template, original);
+        List<String> requiredColumns = rule.getPatterns() != null ? rule.getPatterns() : List.of();
+        for (String candidate : candidates) {
+            DatabaseSchema.Table table = findTable(schema, candidate);
+            if (table == null || !columnNames(table).containsAll(lowerCase(requiredColumns))) {
+                continue;
+            }
+            if (pinned && !table.getName().equalsIgnoreCase(original)) {
+                log.debug("模板引用了原表 {}，不替换为 {}", original, table.getName());
+                continue;
+            }
+            return table.getName();
+        }
+        return null;
+    }
+
+    /**
+     * 模板除表名占位符外是否还依赖原表：有关联子句，或选择列表、条件、排序中有以原表名限定的字段
+     */
+    private static boolean referencesTable(SqlTemplate template, String tableName) {
+        if (template.getJoinTemplate() != null && !template.getJoinTemplate().isBlank()) {
+            return true;
+        }
+        Pattern qualifier = Pattern.compile("(?<![A-Za-z0-9_])[`\"]?" + Pattern.quote(tableName) + "[`\"]?\\s*\\.",
+                Pattern.CASE_INSENSITIVE);
+        for (String clause : List.of(
+                Objects.toString(template.getSelectTemplate(), ""),
+                Objects.toString(template.getWhereTemplate(), ""),
+                Objects.toString(template.getOrderTemplate(), ""))) {
+            if (qualifier.matcher(clause).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String resolveLimit(PlaceholderRule rule, String userQuery, Set<String> consumed) {
+        String limit = firstMatch(rule, userQuery);
+        if (limit != null) {
+            consumed.add(limit);
+        } else {
+            // 问题中没有指定行数时使用默认行数
+            limit = rule.getFallback();
+        }
+        if (limit == null || !NUMBER.matcher(limit).matches()) {
+            return null;
+        }
+        return String.valueOf(Math.min(Long.parseLong(limit), maxRows));
+    }
+
+    /**
+     * 拼接字段和值都已识别的条件；字段不属于已选表或运算符不在白名单中时无法解析。
+     * 没有已识别的条件时使用 fallback
+     */
+    private String resolveConditions(PlaceholderRule rule, QuerySemantic semantic,
+                                     DatabaseSchema schema, Map<String, String> values, Set<String> consumed) {
+        if (semantic == null || semantic.getConditions() == null) {
+            return rule.getFallback();
+        }
+        Set<String> columns = values.values().stream()
+                .map(name -> findTable(schema, name))
+                .filter(table -> table != null)
+                .flatMap(table -> columnNames(table).stream())
+                .collect(Collectors.toSet());
+
+        List<String> expressions = new ArrayList<>();
+        for (ConditionSemantic condition : semantic.getConditions()) {
+            String field = condition.getField();
+            String value = condition.getValue();
+            if (!isKnown(condition)) {
+                continue;
+            }
+            String column = field.contains(".") ? field.substring(field.lastIndexOf('.') + 1) : field;
+            if (!columns.contains(column.toLowerCase(Locale.ROOT))) {
+                log.debug("条件字段不属于已选表: {}", field);
+                return null;
+            }
+            String operator = condition.getOperator() != null
+                    ? condition.getOperator().trim().replaceAll("\\s+", " ").toUpperCase(Locale.ROOT)
+                    : null;
+            if (!CONDITION_OPERATORS.contains(operator)) {
+                log.debug("条件运算符不受支持: {}", condition.getOperator());
+                return null;
+            }
+            expressions.add("`" + column + "` " + operator + " '" + escape(value) + "'");
+            consumed.add(value);
+        }
+        return expressions.isEmpty() ? rule.getFallback() : String.join(" AND ", expressions);
+    }
+
+    /**
+     * 找出模板没有用到的约束：已识别的语义条件值、问题中的数字和引号内的字面量，全部覆盖时返回null
+     */
+    private static String findUncovered(String userQuery, QuerySemantic semantic, Set<String> consumed) {
+        if (semantic != null && semantic.getConditions() != null) {
+            for (ConditionSemantic condition : semantic.getConditions()) {
+                if (isKnown(condition) && !covers(consumed, condition.getValue().trim())) {
+                    return "条件 " + condition.getField() + " " + condition.getOperator() + " " + condition.getValue();
+                }
+            }
+        }
+        if (userQuery == null) {
+            return null;
+        }
+        Matcher quoted = QUOTED.matcher(userQuery);
+        while (quoted.find()) {
+            if (!covers(consumed, quoted.group(1).trim())) {
+                return "字面量 " + quoted.group();
+            }
+        }
+        Matcher number = NUMBER.matcher(userQuery);
+        while (number.find()) {
+            if (!covers(consumed, number.group())) {
+                return "数字 " + number.group();
+            }
+        }
+        return null;
+    }
+
+    private static boolean isKnown(ConditionSemantic condition) {
+        String field = condition.getField();
+        String value = condition.getValue();
+        return field != null && value != null && !value.isBlank() && !"unknown".equals(field) && !"unknown".equals(value);
+    }
+
+    /**
+     * 字面量与某个用到的值相同，或作为独立片段出现在其中（反之亦然，如条件值"30岁"与提取的"30"）
+     */
+    private static boolean covers(Set<String> consumed, String literal) {
+        for (String value : consumed) {
+            if (containsToken(value, literal) || containsToken(literal, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * needle 在 haystack 中出现，且两侧不紧邻ASCII字母或数字（"30" 不算出现在 "300" 中）
+     */
+    private static boolean containsToken(String haystack, String needle) {
+        if (needle.isEmpty()) {
+            return false;
+        }
+        for (int index = haystack.indexOf(needle); index >= 0; index = haystack.indexOf(needle, index + 1)) {
+            int end = index + needle.length();
+            if ((index == 0 || !isAsciiAlphanumeric(haystack.charAt(index - 1)))
+                    && (end == haystack.length() || !isAsciiAlphanumeric(haystack.charAt(end)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAsciiAlphanumeric(char c) {
+        return c < 128 && Character.isLetterOrDigit(c);
+    }
+
+    /**
+     * 按规则从用户问题中提取值，没有匹配时返回null
+     */
+    private String firstMatch(PlaceholderRule rule, String userQuery) {
+        if (rule.getPatterns() != null && userQuery != null) {
+            for (String regex : rule.getPatterns()) {
+                Pattern pattern = compile(regex);
+                if (pattern == null) {
+                    continue;
+                }
+                Matcher matcher = pattern.matcher(userQuery);
+                if (matcher.find() && matcher.groupCount() >= 1 && matcher.group(1) != null) {
+                    return matcher.group(1).trim();
+                }
+            }
+        }
+        return null;
+    }
+
+    private Pattern compile(String regex) {
+        try {
+            return compiledPatterns.computeIfAbsent(regex, Pattern::compile);
+        } catch (PatternSyntaxException e) {
+            log.warn("占位符正则无效: {}", regex);
+            return null;
+        }
+    }
+
+    private static String escape(String value) {
+        return value != null ? value.replace("\\", "\\\\").replace("'", "''") : null;
+    }
+
+    private static List<String> clauses(SqlTemplate template) {
+        List<String> clauses = new ArrayList<>(6);
+        clauses.add(template.getSelectTemplate());
+        clauses.add(template.getFromTemplate());
+        clauses.add(template.getJoinTemplate());
+        clauses.add(template.getWhereTemplate());
+        clauses.add(template.getOrderTemplate());
+        clauses.add(template.getLimitTemplate());
+        return clauses;
+    }
+
+    private static DatabaseSchema.Table findTable(DatabaseSchema schema, String name) {
+        if (schema == null || schema.getTables() == null || name == null) {
+            return null;
+        }
+        return schema.getTables().stream()
+                .filter(table -> table.getName().equalsIgnoreCase(name))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static Set<String> columnNames(DatabaseSchema.Table table) {
+        if (table.getColumns() == null) {
+            return Set.of();
+        }
+        return table.getColumns().stream()
+                .map(column -> column.getName().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+    }
+
+    private static List<String> lowerCase(List<String> names) {
+        return names.stream().map(name -> name.toLowerCase(Locale.ROOT)).collect(Collectors.toList());
+    }
+
+    /**
+     * 模板渲染统计
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class TemplateStats {
+        private long renderAttempts;
+        private long rendered;
+        /**
+         * 占位符无法解析或没有覆盖问题中的约束、回退到AI生成的次数
+         */
+        private long unresolved;
+        /**
+         * 由学习模式直接提供且通过验证的请求数（未调用大模型）
+         */
+        private long patternServed;
+        private double averageRenderMicros;
+    }
+}
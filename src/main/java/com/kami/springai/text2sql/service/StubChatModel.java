@@ -0,0 +1,251 @@
+package com.kami.springai.text2sql.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 离线模拟大模型（stub-llm 配置文件启用）
+ *
+ * 按固定问答文件返回确定的SQL，并按配置模拟延迟分布、错误率和token用量，
+ * 用于在无网络环境下压测本服务自身的流水线开销、并发上限和尾延迟。
+ * 启用后 DeepSeek 对话模型不再创建，{@link LlmGateway} 直接使用本实现。
+ *
+ * 延迟分布：
+ * - "none" - 不等待
+ * - "fixed" - 固定为 median-ms
+ * - "lognormal" - 对数正态分布，中位数为 median-ms，p99 为 p99-ms
+ */
+@Slf4j
+@Service
+@Profile("stub-llm")
+public class StubChatModel implements ChatModel {
+
+    public static final String MODEL = "stub";
+
+    private static final Pattern NUMBERED_QUESTION = Pattern.compile("(?m)^(\\d+)\\.\\s*(.+)$");
+    // 标准正态分布的 0.99 分位数
+    private static final double Z_99 = 2.3263;
+
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${text2sql.llm.stub.fixtures:classpath:config/stub-llm-fixtures.yml}")
+    private String fixturesLocation;
+
+    @Value("${text2sql.llm.stub.fallback-sql:SELECT 1;}")
+    private String fallbackSql;
+
+    @Value("${text2sql.llm.stub.latency.profile:lognormal}")
+    private String latencyProfile;
+
+    @Value("${text2sql.llm.stub.latency.median-ms:800}")
+    private long medianMs;
+
+    @Value("${text2sql.llm.stub.latency.p99-ms:4000}")
+    private long p99Ms;
+
+    @Value("${text2sql.llm.stub.error-rate:0.0}")
+    private double errorRate;
+
+    @Value("${text2sql.llm.stub.chars-per-token:4}")
+    private int charsPerToken;
+
+    @Value("${text2sql.llm.stub.stream-chunk-chars:8}")
+    private int streamChunkChars;
+
+    @Value("${text2sql.llm.stub.seed:42}")
+    private long seed;
+
+    // 按问题长度降序，优先匹配更具体的问题
+    private List<Map.Entry<String, String>> fixtures = List.of();
+    private Random random;
+
+    public StubChatModel(ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    @PostConstruct
+    public void init() {
+        random = new Random(seed);
+        fixtures = loadFixtures();
+        log.info("离线模拟大模型已启用: {} 条固定问答, 延迟分布={}, 中位数={}ms, p99={}ms, 错误率={}",
+                fixtures.size(), latencyProfile, medianMs, p99Ms, errorRate);
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        String content = answer(prompt);
+        sleep(sampleLatencyMs());
+        failRandomly();
+        return response(prompt, content);
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        String content = answer(prompt);
+        List<String> chunks = new ArrayList<>();
+        int chunkChars = Math.max(1, streamChunkChars);
+        for (int i = 0; i < content.length(); i += chunkChars) {
+            chunks.add(content.substring(i, Math.min(i + chunkChars, content.length())));
+        }
+        return Flux.fromIterable(chunks)
+                .map(chunk -> new ChatResponse(List.of(new Generation(new AssistantMessage(chunk)))))
+                .doOnSubscribe(subscription -> failRandomly())
+                .delaySubscription(Duration.ofMillis(sampleLatencyMs()));
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return ChatOptions.builder().model(MODEL).build();
+    }
+
+    /**
+     * 生成回答：合并批量提示词返回JSON数组，SQL与解释合并生成返回JSON对象，其余返回单条SQL
+     */
+    private String answer(Prompt prompt) {
+        String system = prompt.getSystemMessage() != null ? prompt.getSystemMessage().getText() : "";
+        String user = prompt.getUserMessage() != null ? prompt.getUserMessage().getText() : "";
+        if (system != null && system.contains("JSON数组") && user != null) {
+            ArrayNode answers = objectMapper.createArrayNode();
+            Matcher matcher = NUMBERED_QUESTION.matcher(user);
+            while (matcher.find()) {
+                answers.addObject()
+                        .put("id", Integer.parseInt(matcher.group(1)))
+                        .put("sql", findSql(matcher.group(2)));
+            }
+            return answers.toString();
+        }
+        if (system != null && system.contains("JSON对象")) {
+            return objectMapper.createObjectNode()
+                    .put("sql", findSql(user))
+                    .put("explanation", "模拟解释")
+                    .toString();
+        }
+        return findSql(user);
+    }
+
+    private String findSql(String text) {
+        if (text == null) {
+            return fallbackSql;
+        }
+        String normalized = normalize(text);
+        for (Map.Entry<String, String> fixture : fixtures) {
+            if (normalized.contains(fixture.getKey())) {
+                return fixture.getValue();
+            }
+        }
+        return fallbackSql;
+    }
+
+    private ChatResponse response(Prompt prompt, String content) {
+        int promptChars = prompt.getInstructions().stream()
+                .mapToInt(message -> message.getText() != null ? message.getText().length() : 0)
+                .sum();
+        int tokenChars = Math.max(1, charsPerToken);
+        ChatResponseMetadata metadata = ChatResponseMetadata.builder()
+                .model(MODEL)
+                .usage(new DefaultUsage(promptChars / tokenChars + 1, content.length() / tokenChars + 1))
+                .build();
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(content))), metadata);
+    }
+
+    private long sampleLatencyMs() {
+        return switch (latencyProfile.toLowerCase(Locale.ROOT)) {
+            case "none" -> 0;
+            case "fixed" -> medianMs;
+            default -> {
+                double mu = Math.log(Math.max(1, medianMs));
+                double sigma = Math.max(0, (Math.log(Math.max(p99Ms, medianMs)) - mu) / Z_99);
+                double gaussian;
+                synchronized (random) {
+                    gaussian = random.nextGaussian();
+                }
+                yield Math.round(Math.exp(mu + sigma * gaussian));
+            }
+        };
+    }
+
+    private void failRandomly() {
+        if (errorRate <= 0) {
+            return;
+        }
+        double sample;
+        synchronized (random) {
+            sample = random.nextDouble();
+        }
+        if (sample < errorRate) {
+            throw new RuntimeException("模拟大模型调用失败");
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("模拟大模型调用被中断", e);
+        }
+    }
+
+    private List<Map.Entry<String, String>> loadFixtures() {
+        Resource resource = resourceLoader.getResource(fixturesLocation);
+        if (!resource.exists()) {
+            log.warn("离线模拟大模型的固定问答文件不存在: {}，所有问题返回 {}", fixturesLocation, fallbackSql);
+            return List.of();
+        }
+        Map<String, String> loaded = new LinkedHashMap<>();
+        try (InputStream in = resource.getInputStream()) {
+            JsonNode root = new ObjectMapper(new YAMLFactory()).readTree(in);
+            for (JsonNode fixture : root.path("fixtures")) {
+                String question = fixture.path("question").asText(null);
+                String sql = fixture.path("sql").asText(null);
+                if (question != null && sql != null) {
+                    loaded.put(normalize(question), sql.trim());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("加载离线模拟大模型的固定问答失败: " + fixturesLocation, e);
+        }
+        List<Map.Entry<String, String>> sorted = new ArrayList<>(loaded.entrySet());
+        sorted.sort(Comparator.comparingInt((Map.Entry<String, String> entry) -> entry.getKey().length()).reversed());
+        return List.copyOf(sorted);
+    }
+
+    private static String normalize(String text) {
+        return text.replaceAll("\\s+", " ").replaceAll("[。？?！!]", "").trim().toLowerCase(Locale.ROOT);
+    }
+}
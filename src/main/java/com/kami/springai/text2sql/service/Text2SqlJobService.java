@@ -0,0 +1,221 @@
+package com.kami.springai.text2sql.service;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.kami.springai.text2sql.model.Text2SqlJob;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 异步Text2SQL任务
+ *
+ * 提交后立即返回任务ID，生成-验证-修复流程在虚拟线程上执行，请求线程不再等待大模型。
+ * 客户端可轮询任务、订阅完成事件，或提供回调地址。
+ * 回调只发往配置的主机白名单（text2sql.jobs.callback-allowed-hosts），白名单为空时不接受回调地址，
+ * 避免服务被用来向内网地址发起请求。
+ * 任务表有容量上限（提交时原子地占用名额，移除时归还），已完成的任务超过TTL后移除。
+ */
+@Slf4j
+@Service
+public class Text2SqlJobService {
+
+    private final Text2SqlService text2SqlService;
+    private final Executor executor;
+
+    @Value("${text2sql.jobs.max-jobs:1000}")
+    private int maxJobs;
+
+    @Value("${text2sql.jobs.ttl:600}")
+    private long ttlSeconds;
+
+    @Value("${text2sql.jobs.callback-timeout:5000}")
+    private int callbackTimeoutMillis;
+
+    @Value("${text2sql.jobs.callback-allowed-hosts:}")
+    private String callbackAllowedHosts;
+
+    private AsyncTaskTable<Text2SqlJob> jobs;
+    private volatile RestClient callbackClient;
+
+    private final AtomicLong callbacksSent = new AtomicLong();
+    private final AtomicLong callbacksFailed = new AtomicLong();
+
+    public Text2SqlJobService(Text2SqlService text2SqlService,
+                              @Qualifier("virtualThreadExecutor") Executor executor) {
+        this.text2SqlService = text2SqlService;
+        this.executor = executor;
+    }
+
+    @PostConstruct
+    public void init() {
+        jobs = new AsyncTaskTable<>("任务表", maxJobs, ttlSeconds, Text2SqlJob::isDone, Text2SqlJob::getCompletedAt);
+    }
+
+    /**
+     * 提交任务
+     *
+     * @throws IllegalArgumentException 回调地址无效、不在白名单中或回调未启用
+     * @throws IllegalStateException 任务表已满
+     */
+    public Text2SqlJob submit(String dataSourceId, String query, String context, String callbackUrl) {
+        URI callback = parseCallbackUrl(callbackUrl);
+        Text2SqlJob job = Text2SqlJob.builder()
+                .jobId(UUID.randomUUID().toString())
+                .status(Text2SqlJob.PENDING)
+                .query(query)
+                .submittedAt(System.currentTimeMillis())
+                .build();
+        AsyncTaskTable.Entry<Text2SqlJob> entry = jobs.add(job.getJobId(), job);
+
+        CompletableFuture
+                .supplyAsync(() -> run(entry, dataSourceId, query, context), executor)
+                .whenComplete((sql, e) -> complete(entry, sql, e, callback));
+
+        log.info("提交Text2SQL任务 {}: {}", job.getJobId(), query);
+        return job;
+    }
+
+    /**
+     * 获取任务快照，不存在或已过期时返回null
+     */
+    public Text2SqlJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * 任务完成时发出最终快照，任务不存在时为空
+     */
+    public Mono<Text2SqlJob> awaitCompletion(String jobId) {
+        return jobs.awaitCompletion(jobId);
+    }
+
+    /**
+     * 获取任务统计
+     */
+    public JobStats getJobStats() {
+        return JobStats.builder()
+                .tasks(jobs.getStats())
+                .callbacksSent(callbacksSent.get())
+                .callbacksFailed(callbacksFailed.get())
+                .build();
+    }
+
+    private String run(AsyncTaskTable.Entry<Text2SqlJob> entry, String dataSourceId, String query, String context) {
+        jobs.update(entry, entry.getSnapshot().toBuilder()
+                .status(Text2SqlJob.RUNNING)
+                .startedAt(System.currentTimeMillis())
+                .build());
+        return text2SqlService.convertToSql(dataSourceId, query, context);
+    }
+
+    private void complete(AsyncTaskTable.Entry<Text2SqlJob> entry, String sql, Throwable error, URI callback) {
+        Text2SqlJob.Text2SqlJobBuilder builder = entry.getSnapshot().toBuilder().completedAt(System.currentTimeMillis());
+        if (error == null) {
+            builder.status(Text2SqlJob.SUCCEEDED).sql(sql);
+        } else {
+            Throwable cause = error.getCause() != null ? error.getCause() : error;
+            builder.status(Text2SqlJob.FAILED).error(cause.getMessage());
+        }
+        Text2SqlJob job = builder.build();
+        jobs.complete(entry, job, error == null);
+        log.info("Text2SQL任务 {} 完成: {}", job.getJobId(), job.getStatus());
+
+        if (callback != null) {
+            sendCallback(callback, job);
+        }
+    }
+
+    private void sendCallback(URI callback, Text2SqlJob job) {
+        try {
+            getCallbackClient().post()
+                    .uri(callback)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(job)
+                    .retrieve()
+                    .toBodilessEntity();
+            callbacksSent.incrementAndGet();
+        } catch (Exception e) {
+            callbacksFailed.incrementAndGet();
+            log.warn("Text2SQL任务 {} 回调失败: {}", job.getJobId(), e.getMessage());
+        }
+    }
+
+    private RestClient getCallbackClient() {
+        if (callbackClient == null) {
+            synchronized (this) {
+                if (callbackClient == null) {
+                    SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+                    requestFactory.setConnectTimeout(callbackTimeoutMillis);
+                    requestFactory.setReadTimeout(callbackTimeoutMillis);
+                    callbackClient = RestClient.builder().requestFactory(requestFactory).build();
+                }
+            }
+        }
+        return callbackClient;
+    }
+
+    private URI parseCallbackUrl(String callbackUrl) {
+        if (callbackUrl == null || callbackUrl.isBlank()) {
+            return null;
+        }
+        URI uri;
+        try {
+            uri = URI.create(callbackUrl.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("回调地址无效: " + callbackUrl, e);
+        }
+        if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())) {
+            throw new IllegalArgumentException("回调地址只支持http/https: " + callbackUrl);
+        }
+        Set<String> allowedHosts = allowedCallbackHosts();
+        if (allowedHosts.isEmpty()) {
+            throw new IllegalArgumentException("未配置回调主机白名单，不支持回调");
+        }
+        if (uri.getHost() == null || !allowedHosts.contains(uri.getHost().toLowerCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("回调主机不在白名单中: " + uri.getHost());
+        }
+        return uri;
+    }
+
+    private Set<String> allowedCallbackHosts() {
+        if (callbackAllowedHosts == null || callbackAllowedHosts.isBlank()) {
+            return Set.of();
+        }
+        return Arrays.stream(callbackAllowedHosts.split(","))
+                .map(host -> host.trim().toLowerCase(Locale.ROOT))
+                .filter(host -> !host.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * 任务统计
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class JobStats {
+        @JsonUnwrapped
+        private AsyncTaskTable.TaskStats tasks;
+        private long callbacksSent;
+        private long callbacksFailed;
+    }
+}
@@ -1,19 +1,44 @@
 package com.kami.springai.text2sql.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kami.springai.common.cache.SchemaCache;
+import com.kami.springai.common.cache.SchemaFingerprint;
+import com.kami.springai.common.cache.SimilarQueryIndex;
+import com.kami.springai.common.cache.SingleFlightGroup;
+import com.kami.springai.common.cache.SqlExplanationCache;
+import com.kami.springai.common.cache.SqlFingerprint;
+import com.kami.springai.common.cache.Text2SqlResultCache;
+import com.kami.springai.datasource.service.DataSourceContextHolder;
 import com.kami.springai.text2sql.config.EnhancedConfigurationManager;
+import com.kami.springai.text2sql.config.Text2SqlMetrics;
 import com.kami.springai.text2sql.model.*;
+import com.kami.springai.text2sql.validator.SqlRepairEngine;
 import com.kami.springai.text2sql.validator.SqlValidationPipeline;
 import com.kami.springai.text2sql.validator.ValidationPipelineResult;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -24,7 +49,10 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class Text2SqlService {
 
-    private final ChatClient.Builder chatClientBuilder;
+    private final LlmGateway llmGateway;
+    private final HedgedSqlGenerator hedgedSqlGenerator;
+    private final SqlRepairEngine repairEngine;
+    private final SqlTemplateRenderer templateRenderer;
     private final SchemaDiscoveryService schemaDiscoveryService;
     private final SchemaCache schemaCache;
     private final SemanticAnalyzer semanticAnalyzer;
@@ -33,6 +61,30 @@ public class Text2SqlService {
     private final SqlValidationPipeline validationPipeline;
     private final ContextualPromptBuilder promptBuilder;
     private final EnhancedConfigurationManager enhancedConfig;
+    private final Text2SqlResultCache resultCache;
+    private final SqlExplanationCache explanationCache;
+    private final SimilarQueryIndex similarQueryIndex;
+    private final SchemaLinker schemaLinker;
+    private final SqlAstExplainer astExplainer;
+    private final ObjectMapper objectMapper;
+    private final Text2SqlMetrics metrics;
+
+    @Autowired
+    @Qualifier("virtualThreadExecutor")
+    private Executor virtualThreadExecutor;
+
+    @Value("${text2sql.batch.concurrency:8}")
+    private int batchConcurrency;
+
+    @Value("${text2sql.batch.max-questions:500}")
+    private int batchMaxQuestions;
+
+    @Value("${text2sql.batch.pack-size:1}")
+    private int defaultPackSize;
+
+    private static final int MAX_PACK_SIZE = 20;
+
+    private final SingleFlightGroup<String, String> singleFlight = new SingleFlightGroup<>();
 
     /**
      * 系统Prompt模板
@@ -62,26 +114,128 @@ public class Text2SqlService {
             你的回答：SELECT `name` FROM `users` WHERE `age` > 25 LIMIT 100;
             """;
 
+    /**
+     * 批量生成的系统Prompt：一次回答多个问题，按编号返回JSON数组
+     */
+    private static final String BATCH_SYSTEM_PROMPT = """
+            你是一个专业的SQL查询生成助手，根据数据库结构为每个编号的问题生成一条MySQL SELECT语句。
+
+            **严格安全约束**：只能生成SELECT查询语句，严禁生成任何包含以下关键词的语句：
+            INSERT, UPDATE, DELETE, DROP, ALTER, CREATE, TRUNCATE, REPLACE, MERGE, CALL, EXEC
+
+            **输出格式要求**：
+            - 只返回一个JSON数组，不要任何解释文字或代码块标记
+            - 数组元素格式为 {"id": 问题编号, "sql": "SQL语句"}，每个问题一个元素
+            - 表名和字段名使用反引号包围，自动添加合理的LIMIT限制（默认100条）
+
+            **示例**：
+            [{"id": 1, "sql": "SELECT * FROM `users` LIMIT 100;"}, {"id": 2, "sql": "SELECT COUNT(*) FROM `orders`;"}]
+            """;
+
+    /**
+     * 合并生成的系统Prompt：一次返回SQL和解释
+     */
+    private static final String COMBINED_SYSTEM_PROMPT = """
+            你是一个专业的SQL查询生成助手，根据数据库结构为用户的问题生成一条MySQL SELECT语句，并用简洁的中文解释该语句。
+
+            **严格安全约束**：只能生成SELECT查询语句，严禁生成任何包含以下关键词的语句：
+            INSERT, UPDATE, DELETE, DROP, ALTER, CREATE, TRUNCATE, REPLACE, MERGE, CALL, EXEC
+
+            **输出格式要求**：
+            - 只返回一个JSON对象，不要任何其他文字或代码块标记
+            - 格式为 {"sql": "SQL语句", "explanation": "解释"}
+            - 表名和字段名使用反引号包围，自动添加合理的LIMIT限制（默认100条）
+            - 解释依次说明：1. 查询目的 2. 涉及的表和字段 3. 查询条件 4. 预期结果
+
+            **示例**：
+            {"sql": "SELECT `name` FROM `users` WHERE `age` > 25 LIMIT 100;", "explanation": "1. 查询目的：查询年龄大于25岁的用户姓名 2. 涉及的表和字段：users 表的 name、age 字段 3. 查询条件：age > 25 4. 预期结果：最多100条用户姓名"}
+            """;
+
     /**
      * 将自然语言查询转换为SQL语句（集成学习框架和可靠性验证）
      */
     public String convertToSql(String userQuery, String context) {
+        // 使用数据源ID作为缓存键，确保与UUID数据源ID正确关联
+        String dataSourceId = com.kami.springai.datasource.service.DataSourceContextHolder.getDataSourceId();
+        return convertToSql(dataSourceId, userQuery, context);
+    }
+
+    /**
+     * 将自然语言查询转换为SQL语句（显式指定数据源，供非请求线程调用）
+     *
+     * 相同 (数据源, 规范化查询, 上下文) 的并发请求合并为一次生成，
+     * 调用方被中断只放弃自己的等待，不影响其他等待者
+     */
+    public String convertToSql(String dataSourceId, String userQuery, String context) {
+        String key = Objects.toString(dataSourceId, "") + '\u0000'
+                + Text2SqlResultCache.normalizeQuery(userQuery) + '\u0000'
+                + (context != null ? context.trim() : "");
+        CompletableFuture<String> result = singleFlight.execute(key, () -> {
+            // 结构缓存过期时的重新加载依赖线程上下文中的数据源
+            DataSourceContextHolder.setDataSourceId(dataSourceId);
+            try {
+                return generateSql(dataSourceId, userQuery, context);
+            } finally {
+                DataSourceContextHolder.clear();
+            }
+        }, virtualThreadExecutor);
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("SQL生成被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw cause instanceof RuntimeException re ? re : new RuntimeException("SQL生成失败: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * 获取并发请求合并统计
+     */
+    public SingleFlightGroup.SingleFlightStats getSingleFlightStats() {
+        return singleFlight.getStats();
+    }
+
+    private String generateSql(String dataSourceId, String userQuery, String context) {
         log.info("开始转换自然语言查询为SQL (含学习框架和可靠性验证): {}", userQuery);
+        Timer.Sample total = metrics.start();
+        String queryType = null;
+        int attemptCount = 0;
 
         try {
             // 1. 获取数据库结构（使用缓存）
-            // 使用数据源ID作为缓存键，确保与UUID数据源ID正确关联
-            String dataSourceId = com.kami.springai.datasource.service.DataSourceContextHolder.getDataSourceId();
-            DatabaseSchema schema = schemaCache.getSchema(dataSourceId);
+            DatabaseSchema schema = metrics.record(Text2SqlMetrics.STAGE_SCHEMA_FETCH, dataSourceId, null,
+                    () -> schemaCache.getSchema(dataSourceId));
+
+            // 1.1. 查询结果缓存：同一数据源、同一结构版本下的重复问题直接返回已验证的SQL
+            Timer.Sample cacheLookup = metrics.start();
+            String schemaVersion = resolveSchemaVersion(dataSourceId, schema);
+            String cachedSql = resultCache.get(dataSourceId, schemaVersion, userQuery, context);
+            metrics.stop(cacheLookup, Text2SqlMetrics.STAGE_RESULT_CACHE, dataSourceId, null,
+                    cachedSql != null ? Text2SqlMetrics.OUTCOME_HIT : Text2SqlMetrics.OUTCOME_MISS);
+            if (cachedSql != null) {
+                log.info("命中Text2SQL结果缓存: {}", cachedSql);
+                metrics.stop(total, Text2SqlMetrics.STAGE_TOTAL, dataSourceId, null, Text2SqlMetrics.OUTCOME_HIT);
+                return cachedSql;
+            }
 
             // 2. 语义分析
-            QuerySemantic semantic = semanticAnalyzer.analyzeQuery(userQuery, schema.getTables());
+            QuerySemantic semantic = metrics.record(Text2SqlMetrics.STAGE_SEMANTIC_ANALYSIS, dataSourceId, null,
+                    () -> semanticAnalyzer.analyzeQuery(userQuery, schema.getTables()));
+            queryType = semantic.getIntent() != null ? semantic.getIntent().getPrimaryIntent() : null;
             log.info("语义分析完成，置信度: {:.2f}", semantic.getConfidence());
 
+            // 2.1. 结构链接：提示词只包含与问题相关的表，验证仍使用完整结构
+            DatabaseSchema promptSchema = linkSchema(userQuery, schema, schemaVersion, semantic);
+            String schemaDescription = describeSchema(dataSourceId, schema, promptSchema);
+
             String sql = null;
             GeneralizedSqlPattern usedPattern = null;
+            boolean patternTried = false;
             ValidationPipelineResult validationResult = null;
-            int attemptCount = 0;
             int maxAttempts = 3;
 
             // 3. 多次尝试生成和验证SQL，直到通过验证或达到最大尝试次数
@@ -90,6 +244,7 @@ public class Text2SqlService {
                 log.info("SQL生成尝试 {}/{}", attemptCount, maxAttempts);
 
                 // 3.1. 尝试从学习模式中匹配
+                Timer.Sample patternLookup = metrics.start();
                 List<String> intentSemantics = List.of(semantic.getIntent().getPrimaryIntent());
                 List<String> entityTypes = semantic.getEntities().stream()
                         .map(EntitySemantic::getSemanticType)
@@ -98,30 +253,62 @@ public class Text2SqlService {
                 List<GeneralizedSqlPattern> matchingPatterns = dualPatternManager
                         .findMatchingPatterns(intentSemantics, entityTypes);
 
-                // 3.2. 如果找到高置信度模式，优先使用
-                if (sql == null && !matchingPatterns.isEmpty()) {
+                // 3.2. 如果找到高置信度模式，优先使用模板渲染（不调用大模型），每次请求只尝试一次
+                if (sql == null && !patternTried && !matchingPatterns.isEmpty()) {
                     GeneralizedSqlPattern bestPattern = matchingPatterns.get(0);
                     if (bestPattern.isHighQualityPattern() && bestPattern.getGeneralConfidence() > 0.8) {
+                        patternTried = true;
                         log.info("使用学习模式生成SQL: {}", bestPattern.getPatternName());
-                        sql = applyPatternToGenerate(bestPattern, semantic, schema);
-                        usedPattern = bestPattern;
+                        sql = applyPatternToGenerate(bestPattern, userQuery, semantic, schema);
+                        usedPattern = sql != null ? bestPattern : null;
                     }
                 }
+                metrics.stop(patternLookup, Text2SqlMetrics.STAGE_PATTERN_LOOKUP, dataSourceId, queryType,
+                        usedPattern != null ? Text2SqlMetrics.OUTCOME_HIT : Text2SqlMetrics.OUTCOME_MISS);
+
+                // 3.3. 近似问题缓存：复用相似历史问题已验证的SQL
+                if (sql == null && attemptCount == 1) {
+                    sql = findSimilarQuerySql(dataSourceId, schemaVersion, userQuery, context, schema);
+                }
 
-                // 3.3. 如果没有合适模式，使用AI生成
+                // 3.4. 如果没有合适模式，使用AI生成（对冲生成时候选已在并行线程中完成验证）
+                ValidationPipelineResult prevalidated = null;
                 if (sql == null) {
                     log.info("使用AI生成SQL");
-                    sql = generateSqlWithAI(userQuery, schema, semantic, context);
+                    HedgedSqlGenerator.Generation generation = metrics.record(
+                            Text2SqlMetrics.STAGE_LLM_GENERATION, dataSourceId, queryType,
+                            () -> generateSqlWithAI(userQuery, promptSchema, schemaDescription, semantic, context, schema));
+                    sql = generation.getContent();
+                    prevalidated = generation.getValidation();
                 }
 
-                // 3.4. 清理生成的SQL
+                // 3.5. 清理生成的SQL
                 sql = cleanGeneratedSql(sql);
 
-                // 3.5. 执行可靠性验证流水线
+                // 3.6. 执行可靠性验证流水线
                 log.info("执行SQL可靠性验证");
-                validationResult = validationPipeline.validateSql(sql, userQuery, schema);
+                if (prevalidated != null) {
+                    validationResult = prevalidated;
+                } else {
+                    Timer.Sample validation = metrics.start();
+                    validationResult = validationPipeline.validateSql(sql, userQuery, schema);
+                    metrics.stop(validation, Text2SqlMetrics.STAGE_VALIDATION, dataSourceId, queryType,
+                            validationResult.isOverallValid() ? Text2SqlMetrics.OUTCOME_PASSED : Text2SqlMetrics.OUTCOME_REJECTED);
+                }
 
-                // 3.6. 检查验证结果
+                // 3.7. 验证失败时先尝试本地规则修复，修复成功则不再调用大模型修复
+                if (!validationResult.isOverallValid()) {
+                    Timer.Sample localRepair = metrics.start();
+                    SqlRepairEngine.Repair repair = repairEngine.repair(sql, userQuery, schema);
+                    metrics.stop(localRepair, Text2SqlMetrics.STAGE_LOCAL_REPAIR, dataSourceId, queryType,
+                            repair != null ? Text2SqlMetrics.OUTCOME_SUCCESS : Text2SqlMetrics.OUTCOME_FAILURE);
+                    if (repair != null) {
+                        sql = repair.getSql();
+                        validationResult = repair.getValidation();
+                    }
+                }
+
+                // 3.8. 检查验证结果
                 if (validationResult.isOverallValid()) {
                     // 验证通过，记录成功
                     log.info("SQL验证通过: {}", validationResult.getOverallMessage());
@@ -136,7 +323,10 @@ public class Text2SqlService {
 
                     if (attemptCount < maxAttempts) {
                         // 根据验证结果尝试修复SQL
-                        String improvedSql = attemptSqlImprovement(sql, userQuery, validationResult, schema, semantic);
+                        Timer.Sample llmRepair = metrics.start();
+                        String improvedSql = attemptSqlImprovement(sql, userQuery, validationResult, schemaDescription, semantic);
+                        metrics.stop(llmRepair, Text2SqlMetrics.STAGE_LLM_REPAIR, dataSourceId, queryType,
+                                improvedSql != null ? Text2SqlMetrics.OUTCOME_SUCCESS : Text2SqlMetrics.OUTCOME_FAILURE);
                         if (improvedSql != null && !improvedSql.equals(sql)) {
                             sql = improvedSql;
                             log.info("尝试使用改进的SQL: {}", sql);
@@ -145,6 +335,9 @@ public class Text2SqlService {
                     }
 
                     // 如果无法改进或达到最大尝试次数，清空sql以触发重新生成
+                    if (usedPattern != null) {
+                        usedPattern.recordFailure("mysql");
+                    }
                     sql = null;
                     usedPattern = null;
                 }
@@ -160,9 +353,12 @@ public class Text2SqlService {
             validateGeneratedSql(sql);
 
             // 6. 记录成功使用的模式
-            if (usedPattern != null && !usedPattern.getPatternId().startsWith("base_")) {
-                usedPattern.recordSuccess("mysql");
-                log.debug("模式使用记录: {}", usedPattern.getPatternId());
+            if (usedPattern != null) {
+                templateRenderer.recordPatternServed();
+                if (!usedPattern.getPatternId().startsWith("base_")) {
+                    usedPattern.recordSuccess("mysql");
+                    log.debug("模式使用记录: {}", usedPattern.getPatternId());
+                }
             }
 
             // 7. 记录验证结果
@@ -172,44 +368,349 @@ public class Text2SqlService {
 
             log.info("SQL生成成功 (尝试{}次，验证耗时{}ms): {}",
                     attemptCount, validationResult.getTotalExecutionTimeMs(), sql);
+
+            // 8. 缓存已验证的SQL
+            resultCache.put(dataSourceId, schemaVersion, userQuery, context, sql);
+            similarQueryIndex.add(dataSourceId, schemaVersion, userQuery, context, sql);
+            metrics.recordAttempts(dataSourceId, queryType, Text2SqlMetrics.OUTCOME_SUCCESS, attemptCount);
+            metrics.stop(total, Text2SqlMetrics.STAGE_TOTAL, dataSourceId, queryType, Text2SqlMetrics.OUTCOME_SUCCESS);
             return sql;
 
         } catch (Exception e) {
             log.error("Text2SQL转换失败", e);
+            metrics.recordAttempts(dataSourceId, queryType, Text2SqlMetrics.OUTCOME_FAILURE, attemptCount);
+            metrics.stop(total, Text2SqlMetrics.STAGE_TOTAL, dataSourceId, queryType, Text2SqlMetrics.OUTCOME_FAILURE);
             throw new RuntimeException("SQL生成失败: " + e.getMessage(), e);
         }
     }
 
-    // 注入具体的 ChatModel 以支持动态选择
-    // Note: Gemini support temporarily disabled
-    private final org.springframework.ai.deepseek.DeepSeekChatModel deepSeekChatModel;
+    /**
+     * 流式生成SQL：逐段转发模型输出，一旦收到以分号结束的完整SELECT语句即截断流，
+     * 不再等待模型追加的解释文字。截断后的语句经过验证流水线，未通过时回退到完整的生成-修复流程。
+     *
+     * 结构获取和语义分析在订阅后于虚拟线程上执行，不阻塞请求线程；各阶段耗时与同步流程一样记录，
+     * 回退时流式请求的总耗时结果记为 rejected，完整流程另行记录自己的各阶段。
+     */
+    public Flux<SqlStreamEvent> streamSql(String userQuery, String context) {
+        // 数据源上下文只在调用线程有效
+        String dataSourceId = DataSourceContextHolder.getDataSourceId();
+        log.info("开始流式转换自然语言查询为SQL: {}", userQuery);
+        Scheduler scheduler = Schedulers.fromExecutor(virtualThreadExecutor);
+
+        return Flux.defer(() -> {
+            StreamState state = new StreamState(metrics.start());
+            return Mono.fromCallable(() -> prepareStream(state, dataSourceId, userQuery, context))
+                    .subscribeOn(scheduler)
+                    .flatMapMany(cachedSql -> cachedSql.isEmpty()
+                            ? streamGeneration(state, dataSourceId, userQuery, context, scheduler)
+                            : Flux.just(SqlStreamEvent.sql(cachedSql)))
+                    .onErrorResume(e -> {
+                        log.error("流式Text2SQL转换失败", e);
+                        state.outcome = Text2SqlMetrics.OUTCOME_FAILURE;
+                        return Flux.just(SqlStreamEvent.error("SQL生成失败: " + e.getMessage()));
+                    })
+                    .doFinally(signal -> metrics.stop(state.total, Text2SqlMetrics.STAGE_TOTAL, dataSourceId,
+                            state.queryType, state.outcome));
+        });
+    }
+
+    /**
+     * 获取结构、查询结果缓存并构建提示词，命中缓存时返回缓存的SQL，否则返回空字符串
+     */
+    private String prepareStream(StreamState state, String dataSourceId, String userQuery, String context) {
+        // 结构缓存过期时的重新加载依赖线程上下文中的数据源
+        DataSourceContextHolder.setDataSourceId(dataSourceId);
+        try {
+            state.schema = metrics.record(Text2SqlMetrics.STAGE_SCHEMA_FETCH, dataSourceId, null,
+                    () -> schemaCache.getSchema(dataSourceId));
+        } finally {
+            DataSourceContextHolder.clear();
+        }
+
+        Timer.Sample cacheLookup = metrics.start();
+        state.schemaVersion = resolveSchemaVersion(dataSourceId, state.schema);
+        String cachedSql = resultCache.get(dataSourceId, state.schemaVersion, userQuery, context);
+        metrics.stop(cacheLookup, Text2SqlMetrics.STAGE_RESULT_CACHE, dataSourceId, null,
+                cachedSql != null ? Text2SqlMetrics.OUTCOME_HIT : Text2SqlMetrics.OUTCOME_MISS);
+        if (cachedSql != null) {
+            log.info("命中Text2SQL结果缓存: {}", cachedSql);
+            state.outcome = Text2SqlMetrics.OUTCOME_HIT;
+            return cachedSql;
+        }
+
+        QuerySemantic semantic = metrics.record(Text2SqlMetrics.STAGE_SEMANTIC_ANALYSIS, dataSourceId, null,
+                () -> semanticAnalyzer.analyzeQuery(userQuery, state.schema.getTables()));
+        state.queryType = semantic.getIntent() != null ? semantic.getIntent().getPrimaryIntent() : null;
+        DatabaseSchema promptSchema = linkSchema(userQuery, state.schema, state.schemaVersion, semantic);
+        String schemaDescription = describeSchema(dataSourceId, state.schema, promptSchema);
+        state.systemPrompt = promptBuilder.buildEnhancedSystemPrompt(semantic, promptSchema);
+        state.userPrompt = promptBuilder.buildContextualUserPrompt(userQuery, semantic, schemaDescription, new ArrayList<>());
+        return "";
+    }
+
+    /**
+     * 转发模型输出直到出现完整语句，再验证截断后的语句
+     */
+    private Flux<SqlStreamEvent> streamGeneration(StreamState state, String dataSourceId, String userQuery,
+            String context, Scheduler scheduler) {
+        SqlStatementExtractor.Scanner scanner = SqlStatementExtractor.scanner();
+        Timer.Sample generation = metrics.start();
+        Flux<SqlStreamEvent> tokens = llmGateway.stream(state.systemPrompt, state.userPrompt)
+                // 收到完整语句后 takeUntil 会取消上游订阅，模型不再继续输出
+                .takeUntil(scanner::append)
+                .doFinally(signal -> metrics.stop(generation, Text2SqlMetrics.STAGE_LLM_GENERATION, dataSourceId,
+                        state.queryType, signal == SignalType.ON_COMPLETE
+                                ? Text2SqlMetrics.OUTCOME_SUCCESS : Text2SqlMetrics.OUTCOME_FAILURE))
+                .map(SqlStreamEvent::token);
+
+        Mono<SqlStreamEvent> result = Mono.fromCallable(() -> {
+            scanner.finish();
+            String sql = cleanGeneratedSql(scanner.statement());
+
+            Timer.Sample validation = metrics.start();
+            ValidationPipelineResult validationResult = validationPipeline.validateSql(sql, userQuery, state.schema);
+            metrics.stop(validation, Text2SqlMetrics.STAGE_VALIDATION, dataSourceId, state.queryType,
+                    validationResult.isOverallValid() ? Text2SqlMetrics.OUTCOME_PASSED : Text2SqlMetrics.OUTCOME_REJECTED);
+            if (!validationResult.isOverallValid()) {
+                Timer.Sample localRepair = metrics.start();
+                SqlRepairEngine.Repair repair = repairEngine.repair(sql, userQuery, state.schema);
+                metrics.stop(localRepair, Text2SqlMetrics.STAGE_LOCAL_REPAIR, dataSourceId, state.queryType,
+                        repair != null ? Text2SqlMetrics.OUTCOME_SUCCESS : Text2SqlMetrics.OUTCOME_FAILURE);
+                if (repair != null) {
+                    sql = repair.getSql();
+                    validationResult = repair.getValidation();
+                }
+            }
+            if (validationResult.isOverallValid()) {
+                log.info("流式SQL生成成功: {}", sql);
+                resultCache.put(dataSourceId, state.schemaVersion, userQuery, context, sql);
+                similarQueryIndex.add(dataSourceId, state.schemaVersion, userQuery, context, sql);
+                state.outcome = Text2SqlMetrics.OUTCOME_SUCCESS;
+                return SqlStreamEvent.sql(sql);
+            }
+
+            log.warn("流式SQL验证未通过，回退到完整生成流程: {}", validationResult.getOverallMessage());
+            state.outcome = Text2SqlMetrics.OUTCOME_REJECTED;
+            return SqlStreamEvent.sql(convertToSql(dataSourceId, userQuery, context));
+        }).subscribeOn(scheduler);
+
+        return tokens.concatWith(result);
+    }
+
+    /**
+     * 批量将自然语言查询转换为SQL，结果按完成顺序逐条返回
+     *
+     * 结构和结果缓存只在调用线程上查询一次，相同问题（规范化后）只生成一次；
+     * 其余问题在虚拟线程上以有限并发生成。packSize > 1 时每packSize个问题合并到一次大模型调用，
+     * 合并调用中未通过验证的问题单独回退到完整生成流程。
+     */
+    public Flux<BatchSqlResult> convertBatch(String dataSourceId, List<String> questions, String context, Integer packSize) {
+        if (questions == null || questions.isEmpty()) {
+            return Flux.empty();
+        }
+        if (questions.size() > batchMaxQuestions) {
+            throw new RuntimeException("批量问题数超过上限: " + questions.size() + " > " + batchMaxQuestions);
+        }
+        long start = System.nanoTime();
+        int pack = Math.max(1, Math.min(packSize != null ? packSize : defaultPackSize, MAX_PACK_SIZE));
+        log.info("开始批量转换 {} 个问题 (合并大小{}, 并发{})", questions.size(), pack, batchConcurrency);
+
+        // 1. 数据源上下文只在调用线程有效，结构在返回Flux之前获取
+        DatabaseSchema schema = schemaCache.getSchema(dataSourceId);
+        String schemaVersion = resolveSchemaVersion(dataSourceId, schema);
+
+        // 2. 去重
+        List<BatchSqlResult> immediate = new ArrayList<>();
+        Map<String, BatchItem> items = new LinkedHashMap<>();
+        for (int i = 0; i < questions.size(); i++) {
+            String question = questions.get(i);
+            if (question == null || question.isBlank()) {
+                immediate.add(BatchSqlResult.builder()
+                        .index(i)
+                        .question(question)
+                        .error("问题不能为空")
+                        .source(BatchSqlResult.SOURCE_ERROR)
+                        .build());
+                continue;
+            }
+            items.computeIfAbsent(Text2SqlResultCache.normalizeQuery(question), key -> new BatchItem(question, new ArrayList<>()))
+                    .indices.add(i);
+        }
+
+        // 3. 命中结果缓存的问题直接返回
+        List<BatchItem> pending = new ArrayList<>();
+        for (BatchItem item : items.values()) {
+            String cachedSql = resultCache.get(dataSourceId, schemaVersion, item.question, context);
+            if (cachedSql != null) {
+                immediate.addAll(expand(item, cachedSql, null, BatchSqlResult.SOURCE_CACHE, start));
+            } else {
+                pending.add(item);
+            }
+        }
+        log.info("批量转换去重后 {} 个问题，缓存命中 {} 个", items.size(), items.size() - pending.size());
+
+        // 4. 未命中的问题按合并大小分组，在虚拟线程上有限并发生成
+        List<List<BatchItem>> units = new ArrayList<>();
+        for (int i = 0; i < pending.size(); i += pack) {
+            units.add(pending.subList(i, Math.min(i + pack, pending.size())));
+        }
+        Scheduler scheduler = Schedulers.fromExecutor(virtualThreadExecutor);
+        Flux<BatchSqlResult> generated = Flux.fromIterable(units)
+                .flatMap(unit -> unit.size() == 1
+                        ? generateSingle(dataSourceId, unit.get(0), context, start, scheduler)
+                        : generatePacked(dataSourceId, schemaVersion, schema, unit, context, start, scheduler),
+                        Math.max(1, batchConcurrency));
+
+        return Flux.fromIterable(immediate).concatWith(generated);
+    }
+
+    /**
+     * 单个问题走完整生成流程
+     */
+    private Flux<BatchSqlResult> generateSingle(String dataSourceId, BatchItem item, String context,
+            long start, Scheduler scheduler) {
+        return Mono.fromCallable(() -> {
+                    try {
+                        return expand(item, convertToSql(dataSourceId, item.question, context), null,
+                                BatchSqlResult.SOURCE_SINGLE, start);
+                    } catch (Exception e) {
+                        return expand(item, null, e.getMessage(), BatchSqlResult.SOURCE_ERROR, start);
+                    }
+                })
+                .subscribeOn(scheduler)
+                .flatMapIterable(results -> results);
+    }
+
+    /**
+     * 多个问题合并到一次大模型调用，未通过验证的问题依次回退到单独生成
+     */
+    private Flux<BatchSqlResult> generatePacked(String dataSourceId, String schemaVersion, DatabaseSchema schema,
+            List<BatchItem> unit, String context, long start, Scheduler scheduler) {
+        return Flux.defer(() -> {
+            List<BatchItem> failed = new ArrayList<>();
+            return Mono.fromCallable(() -> generatePackedSql(dataSourceId, schemaVersion, schema, unit, context, start, failed))
+                    .subscribeOn(scheduler)
+                    .flatMapIterable(results -> results)
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(failed))
+                            .concatMap(item -> generateSingle(dataSourceId, item, context, start, scheduler)));
+        });
+    }
+
+    private List<BatchSqlResult> generatePackedSql(String dataSourceId, String schemaVersion, DatabaseSchema schema,
+            List<BatchItem> unit, String context, long start, List<BatchItem> failed) {
+        List<BatchSqlResult> results = new ArrayList<>();
+        try {
+            String questionsText = unit.stream().map(item -> item.question).collect(Collectors.joining("\n"));
+            DatabaseSchema promptSchema = schemaLinker.link(questionsText, schema, schemaVersion, List.of()).getSchema();
+
+            StringBuilder userPrompt = new StringBuilder()
+                    .append("**数据库结构信息**：\n")
+                    .append(describeSchema(dataSourceId, schema, promptSchema))
+                    .append("\n\n**用户查询需求**：\n");
+            for (int i = 0; i < unit.size(); i++) {
+                userPrompt.append(i + 1).append(". ").append(unit.get(i).question).append('\n');
+            }
+            if (context != null && !context.isBlank()) {
+                userPrompt.append("\n**额外上下文**：").append(context).append('\n');
+            }
+            userPrompt.append("\n请为每个问题生成对应的SQL语句，按要求的JSON数组格式返回。");
+
+            String content = metrics.record(Text2SqlMetrics.STAGE_LLM_GENERATION, dataSourceId, Text2SqlMetrics.QUERY_TYPE_BATCH,
+                    () -> llmGateway.callForContent(LlmGateway.CallType.BATCH, BATCH_SYSTEM_PROMPT, userPrompt.toString()));
+            Map<Integer, String> answers = parseBatchAnswers(content);
+            for (int i = 0; i < unit.size(); i++) {
+                BatchItem item = unit.get(i);
+                String sql = validatePackedSql(answers.get(i + 1), item.question, schema);
+                if (sql == null) {
+                    failed.add(item);
+                    continue;
+                }
+                resultCache.put(dataSourceId, schemaVersion, item.question, context, sql);
+                similarQueryIndex.add(dataSourceId, schemaVersion, item.question, context, sql);
+                results.addAll(expand(item, sql, null, BatchSqlResult.SOURCE_PACKED, start));
+            }
+            log.info("合并生成 {} 个问题，{} 个需要单独重新生成", unit.size(), failed.size());
+        } catch (Exception e) {
+            log.warn("合并生成失败，逐个回退到单独生成: {}", e.getMessage());
+            failed.clear();
+            results.clear();
+            failed.addAll(unit);
+        }
+        return results;
+    }
+
+    /**
+     * 验证（必要时本地修复）合并调用返回的SQL，未通过时返回null
+     */
+    private String validatePackedSql(String sql, String userQuery, DatabaseSchema schema) {
+        if (sql == null || sql.isBlank()) {
+            return null;
+        }
+        sql = cleanGeneratedSql(sql);
+        ValidationPipelineResult validationResult = validationPipeline.validateSql(sql, userQuery, schema);
+        if (validationResult.isOverallValid()) {
+            return sql;
+        }
+        SqlRepairEngine.Repair repair = repairEngine.repair(sql, userQuery, schema);
+        return repair != null ? repair.getSql() : null;
+    }
+
+    /**
+     * 解析 [{"id":1,"sql":"..."}] 格式的回答，容忍代码块标记和前后说明文字
+     */
+    private Map<Integer, String> parseBatchAnswers(String content) throws Exception {
+        int begin = content.indexOf('[');
+        int end = content.lastIndexOf(']');
+        if (begin < 0 || end <= begin) {
+            throw new RuntimeException("合并生成的回答不是JSON数组");
+        }
+        Map<Integer, String> answers = new HashMap<>();
+        for (JsonNode node : objectMapper.readTree(content.substring(begin, end + 1))) {
+            if (node.hasNonNull("id") && node.hasNonNull("sql")) {
+                answers.put(node.get("id").asInt(), node.get("sql").asText());
+            }
+        }
+        return answers;
+    }
+
+    /**
+     * 将一个去重后的问题结果展开到其在请求中的所有位置
+     */
+    private List<BatchSqlResult> expand(BatchItem item, String sql, String error, String source, long start) {
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        List<BatchSqlResult> results = new ArrayList<>(item.indices.size());
+        for (int i = 0; i < item.indices.size(); i++) {
+            results.add(BatchSqlResult.builder()
+                    .index(item.indices.get(i))
+                    .question(item.question)
+                    .sql(sql)
+                    .error(error != null ? "SQL生成失败: " + error : null)
+                    .source(source)
+                    .deduplicated(i > 0)
+                    .elapsedMs(elapsedMs)
+                    .build());
+        }
+        return results;
+    }
 
     // 简化版本的辅助方法
-    private String generateSqlWithAI(String userQuery, DatabaseSchema schema, QuerySemantic semantic, String context) {
+    private HedgedSqlGenerator.Generation generateSqlWithAI(String userQuery, DatabaseSchema schema,
+            String schemaDescription, QuerySemantic semantic, String context, DatabaseSchema validationSchema) {
         try {
             String systemPrompt = promptBuilder.buildEnhancedSystemPrompt(semantic, schema);
-            String userPrompt = promptBuilder.buildContextualUserPrompt(userQuery, semantic, schema, new ArrayList<>());
+            String userPrompt = promptBuilder.buildContextualUserPrompt(userQuery, semantic, schemaDescription, new ArrayList<>());
 
             // 当前仅使用 DeepSeek 模型
             log.info("使用 DeepSeek 模型处理查询");
-            ChatClient clientToUse = ChatClient.builder(deepSeekChatModel)
-                    .defaultSystem(systemPrompt)
-                    .build();
-
-            return clientToUse.prompt()
-                    .user(userPrompt)
-                    .call()
-                    .content()
-                    .trim();
+            return hedgedSqlGenerator.generate(systemPrompt, userPrompt,
+                    content -> validationPipeline.validateSql(cleanGeneratedSql(content.trim()), userQuery, validationSchema));
         } catch (Exception e) {
             log.warn("增强AI生成失败，使用基础模式: {}", e.getMessage());
-            return generateBasicSql(userQuery, schema, context);
+            return new HedgedSqlGenerator.Generation(generateBasicSql(userQuery, schemaDescription, context), null, false, 1);
         }
     }
 
-    private String generateBasicSql(String userQuery, DatabaseSchema schema, String context) {
-        String schemaDescription = generateSchemaForAI(schema);
-
+    private String generateBasicSql(String userQuery, String schemaDescription, String context) {
         String userPrompt = String.format("""
                 **数据库结构信息**：
                 %s
@@ -221,43 +722,78 @@ public class Text2SqlService {
                 请根据以上数据库结构，为用户的查询需求生成对应的SQL语句。
                 """, schemaDescription, userQuery, context != null ? "**额外上下文**：" + context : "");
 
-        ChatClient chatClient = chatClientBuilder
-                .defaultSystem(SYSTEM_PROMPT)
-                .build();
+        return llmGateway.callForContent(LlmGateway.CallType.GENERATION, SYSTEM_PROMPT, userPrompt).trim();
+    }
 
-        return chatClient.prompt()
-                .user(userPrompt)
-                .call()
-                .content()
-                .trim();
+    /**
+     * 为提示词挑选相关表，置信度不足时返回完整结构
+     */
+    private DatabaseSchema linkSchema(String userQuery, DatabaseSchema schema, String schemaVersion,
+            QuerySemantic semantic) {
+        List<String> hintTables = semantic.getIntent() != null && semantic.getIntent().getRelevantTables() != null
+                ? semantic.getIntent().getRelevantTables()
+                : List.of();
+        return schemaLinker.link(userQuery, schema, schemaVersion, hintTables).getSchema();
     }
 
-    private String applyPatternToGenerate(GeneralizedSqlPattern pattern, QuerySemantic semantic,
-            DatabaseSchema schema) {
-        // 简化的模式应用，实际应用中会更复杂
-        log.debug("应用模式: {}", pattern.getPatternName());
+    /**
+     * 拼接提示词中的结构描述，优先使用结构缓存中预先渲染的卡片
+     */
+    private String describeSchema(String dataSourceId, DatabaseSchema schema, DatabaseSchema promptSchema) {
+        SchemaPromptCards cards = schemaCache.getPromptCards(dataSourceId);
+        if (cards == null) {
+            cards = SchemaPromptCards.from(schema);
+        }
+        return cards.render(promptSchema);
+    }
+
+    private String resolveSchemaVersion(String dataSourceId, DatabaseSchema schema) {
+        String schemaVersion = schemaCache.getSchemaVersion(dataSourceId);
+        return schemaVersion != null ? schemaVersion : SchemaFingerprint.of(schema);
+    }
+
+    /**
+     * 从近似问题索引中查找可复用的SQL，复用前重新执行验证流水线
+     */
+    private String findSimilarQuerySql(String dataSourceId, String schemaVersion, String userQuery,
+            String context, DatabaseSchema schema) {
+        SimilarQueryIndex.Match match = similarQueryIndex.findSimilar(dataSourceId, schemaVersion, userQuery, context);
+        if (match == null) {
+            return null;
+        }
+
+        ValidationPipelineResult revalidation = validationPipeline.validateSql(match.getSql(), userQuery, schema);
+        if (!revalidation.isOverallValid()) {
+            similarQueryIndex.recordRejected(match);
+            return null;
+        }
 
-        // 如果模式应用失败，回退到AI生成
-        return generateBasicSql("查询数据", schema, null);
+        log.info("复用近似问题的SQL (相似度{}): {}", String.format("%.2f", match.getSimilarity()), match.getMatchedQuery());
+        return match.getSql();
+    }
+
+    /**
+     * 用学习模式的SQL模板渲染SQL，占位符无法解析时返回null，由后续步骤回退到AI生成
+     */
+    private String applyPatternToGenerate(GeneralizedSqlPattern pattern, String userQuery,
+            QuerySemantic semantic, DatabaseSchema schema) {
+        log.debug("应用模式: {}", pattern.getPatternName());
+        String sql = templateRenderer.render(pattern.getSqlTemplate(), userQuery, semantic, schema);
+        if (sql == null) {
+            log.info("学习模式 {} 的模板无法解析，回退到AI生成", pattern.getPatternName());
+        }
+        return sql;
     }
 
     private String attemptSqlImprovement(String originalSql, String userQuery,
             ValidationPipelineResult validationResult,
-            DatabaseSchema schema, QuerySemantic semantic) {
+            String schemaDescription, QuerySemantic semantic) {
         try {
             List<String> errorMessages = validationResult.getAllErrorMessages();
             String improvementPrompt = promptBuilder.buildErrorFixPrompt(
-                    originalSql, userQuery, errorMessages, semantic, schema);
-
-            ChatClient chatClient = chatClientBuilder
-                    .defaultSystem(SYSTEM_PROMPT)
-                    .build();
+                    originalSql, userQuery, errorMessages, semantic, schemaDescription);
 
-            String improvedSql = chatClient.prompt()
-                    .user(improvementPrompt)
-                    .call()
-                    .content()
-                    .trim();
+            String improvedSql = llmGateway.callForContent(LlmGateway.CallType.REPAIR, SYSTEM_PROMPT, improvementPrompt).trim();
 
             return cleanGeneratedSql(improvedSql);
         } catch (Exception e) {
@@ -303,15 +839,32 @@ public class Text2SqlService {
 
     /**
      * 解释SQL语句的含义
+     *
+     * 常见查询形态由 {@link SqlAstExplainer} 直接生成解释；其余语句调用大模型，
+     * 结果按SQL指纹缓存，只有常量不同的SQL复用已有解释
      */
     public String explainSql(String sql, String context) {
+        // 使用数据源ID而不是数据库名称作为缓存键
+        String dataSourceId = com.kami.springai.datasource.service.DataSourceContextHolder.getDataSourceId();
+        return explainSql(dataSourceId, sql, context);
+    }
+
+    /**
+     * 解释SQL语句的含义（显式指定数据源，供非请求线程调用）
+     */
+    public String explainSql(String dataSourceId, String sql, String context) {
         log.info("开始解释SQL语句: {}", sql);
 
         try {
-            // 使用数据源ID而不是数据库名称作为缓存键
-            String dataSourceId = com.kami.springai.datasource.service.DataSourceContextHolder.getDataSourceId();
             DatabaseSchema schema = schemaCache.getSchema(dataSourceId);
-            String schemaDescription = generateSchemaForAI(schema);
+            String schemaVersion = resolveSchemaVersion(dataSourceId, schema);
+            SqlFingerprint fingerprint = SqlFingerprint.of(sql);
+            String localExplanation = explainLocally(dataSourceId, schema, schemaVersion, fingerprint, sql, context);
+            if (localExplanation != null) {
+                return localExplanation;
+            }
+
+            String schemaDescription = describeSchema(dataSourceId, schema, schema);
 
             String explainPrompt = String.format("""
                     请用简洁的中文解释以下SQL语句的含义和作用：
@@ -331,14 +884,13 @@ public class Text2SqlService {
                     4. 预期返回什么样的数据
                     """, schemaDescription, sql, context != null ? "额外上下文：" + context : "");
 
-            ChatClient chatClient = chatClientBuilder.build();
-            String explanation = chatClient.prompt()
-                    .user(explainPrompt)
-                    .call()
-                    .content();
+            String explanation = metrics.record(Text2SqlMetrics.STAGE_LLM_EXPLAIN, dataSourceId, null,
+                    () -> llmGateway.callForContent(LlmGateway.CallType.EXPLAIN, null, explainPrompt));
 
             log.info("SQL解释生成完成");
-            return explanation.trim();
+            explanation = explanation.trim();
+            explanationCache.put(dataSourceId, schemaVersion, fingerprint, context, explanation);
+            return explanation;
 
         } catch (Exception e) {
             log.error("SQL解释生成失败", e);
@@ -347,54 +899,121 @@ public class Text2SqlService {
     }
 
     /**
-     * 为AI生成简化的数据库结构描述
+     * 只用AST解释器和解释缓存解释SQL，不加载结构、不调用大模型
+     *
+     * 结构未缓存或本地无法解释时返回null，调用方再决定是否走 {@link #explainSql(String, String, String)}
      */
-    private String generateSchemaForAI(DatabaseSchema schema) {
-        StringBuilder description = new StringBuilder();
+    public String explainSqlLocally(String dataSourceId, String sql, String context) {
+        DatabaseSchema schema = schemaCache.peekSchema(dataSourceId);
+        if (schema == null) {
+            return null;
+        }
+        String schemaVersion = resolveSchemaVersion(dataSourceId, schema);
+        return explainLocally(dataSourceId, schema, schemaVersion, SqlFingerprint.of(sql), sql, context);
+    }
 
-        description.append(String.format("数据库: %s\n\n", schema.getDatabaseName()));
+    /**
+     * 生成SQL并附带解释
+     *
+     * 结果缓存或近似问题索引命中时直接解释已有SQL；否则用一次大模型调用同时生成SQL和解释，
+     * SQL经过验证（必要时本地修复）后缓存，解释写入解释缓存。
+     * 合并调用不走学习模式模板和对冲生成，回答无法解析或SQL未通过验证时回退到分别生成和解释。
+     */
+    public ExplainedSql convertAndExplain(String dataSourceId, String userQuery, String context) {
+        String sql = null;
+        try {
+            DatabaseSchema schema = schemaCache.getSchema(dataSourceId);
+            String schemaVersion = resolveSchemaVersion(dataSourceId, schema);
+            sql = resultCache.get(dataSourceId, schemaVersion, userQuery, context);
+            if (sql == null) {
+                sql = findSimilarQuerySql(dataSourceId, schemaVersion, userQuery, context, schema);
+            }
+            if (sql == null) {
+                ExplainedSql combined = generateCombined(dataSourceId, schemaVersion, schema, userQuery, context);
+                if (combined != null) {
+                    return combined;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("合并生成SQL和解释失败，回退到分别生成: {}", e.getMessage());
+        }
 
-        for (DatabaseSchema.Table table : schema.getTables()) {
-            description.append(String.format("表: %s", table.getName()));
+        if (sql == null) {
+            sql = convertToSql(dataSourceId, userQuery, context);
+        }
+        return ExplainedSql.builder()
+                .sql(sql)
+                .explanation(explainSql(dataSourceId, sql, context))
+                .combined(false)
+                .build();
+    }
 
-            // 添加表注释
-            if (table.getComment() != null && !table.getComment().trim().isEmpty()) {
-                description.append(String.format(" (%s)", table.getComment()));
-            }
-            description.append("\n");
-
-            // 字段信息（只保留关键信息）
-            String columns = table.getColumns().stream()
-                    .map(col -> {
-                        StringBuilder colInfo = new StringBuilder(col.getName());
-                        colInfo.append(" ").append(col.getType());
-
-                        if (col.isPrimaryKey())
-                            colInfo.append(" [PK]");
-                        if (!col.isNullable())
-                            colInfo.append(" [NOT NULL]");
-                        if (col.getComment() != null && !col.getComment().trim().isEmpty()) {
-                            colInfo.append(" // ").append(col.getComment());
-                        }
+    /**
+     * 一次大模型调用生成SQL和解释，回答无法使用时返回null
+     */
+    private ExplainedSql generateCombined(String dataSourceId, String schemaVersion, DatabaseSchema schema,
+            String userQuery, String context) throws Exception {
+        QuerySemantic semantic = semanticAnalyzer.analyzeQuery(userQuery, schema.getTables());
+        String queryType = semantic.getIntent() != null ? semantic.getIntent().getPrimaryIntent() : null;
+        DatabaseSchema promptSchema = linkSchema(userQuery, schema, schemaVersion, semantic);
 
-                        return colInfo.toString();
-                    })
-                    .collect(Collectors.joining(", "));
+        String userPrompt = String.format("""
+                **数据库结构信息**：
+                %s
 
-            description.append("  字段: ").append(columns).append("\n");
+                **用户查询需求**：%s
 
-            // 外键关系
-            if (table.getForeignKeys() != null && !table.getForeignKeys().isEmpty()) {
-                String relationships = table.getForeignKeys().stream()
-                        .map(fk -> fk.getRelationshipDescription())
-                        .collect(Collectors.joining(", "));
-                description.append("  关联: ").append(relationships).append("\n");
-            }
+                %s
 
-            description.append("\n");
+                请根据以上数据库结构生成SQL语句并解释，按要求的JSON对象格式返回。
+                """, describeSchema(dataSourceId, schema, promptSchema), userQuery,
+                context != null ? "**额外上下文**：" + context : "");
+
+        String content = metrics.record(Text2SqlMetrics.STAGE_LLM_GENERATION, dataSourceId, queryType,
+                () -> llmGateway.callForContent(LlmGateway.CallType.COMBINED, COMBINED_SYSTEM_PROMPT, userPrompt));
+        int begin = content.indexOf('{');
+        int end = content.lastIndexOf('}');
+        if (begin < 0 || end <= begin) {
+            log.warn("合并生成的回答不是JSON对象，回退到分别生成");
+            return null;
         }
+        JsonNode answer = objectMapper.readTree(content.substring(begin, end + 1));
+        String generatedSql = answer.path("sql").asText(null);
+        String sql = validatePackedSql(generatedSql, userQuery, schema);
+        if (sql == null) {
+            log.warn("合并生成的SQL未通过验证，回退到分别生成");
+            return null;
+        }
+
+        resultCache.put(dataSourceId, schemaVersion, userQuery, context, sql);
+        similarQueryIndex.add(dataSourceId, schemaVersion, userQuery, context, sql);
+
+        // 本地修复改写过的SQL与模型给出的解释不再对应，重新解释
+        String explanation = answer.path("explanation").asText("").trim();
+        if (explanation.isEmpty() || !sql.equals(cleanGeneratedSql(generatedSql))) {
+            explanation = explainSql(dataSourceId, sql, context);
+        } else {
+            explanationCache.put(dataSourceId, schemaVersion, SqlFingerprint.of(sql), context, explanation);
+        }
+        log.info("合并生成SQL和解释完成: {}", sql);
+        return ExplainedSql.builder().sql(sql).explanation(explanation).combined(true).build();
+    }
 
-        return description.toString();
+    /**
+     * 依次尝试AST解释器和解释缓存
+     */
+    private String explainLocally(String dataSourceId, DatabaseSchema schema, String schemaVersion,
+            SqlFingerprint fingerprint, String sql, String context) {
+        String astExplanation = astExplainer.explain(sql, schema);
+        if (astExplanation != null) {
+            log.info("SQL解释由AST解释器生成");
+            return astExplanation;
+        }
+        String cachedExplanation = explanationCache.get(dataSourceId, schemaVersion, fingerprint, context);
+        if (cachedExplanation != null) {
+            log.info("命中SQL解释缓存: {}", fingerprint.getHash());
+        }
+        return cachedExplanation;
     }
 
     /**
@@ -432,4 +1051,30 @@ public class Text2SqlService {
             throw new RuntimeException("生成的SQL为空");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 一次流式请求在各阶段之间传递的状态，每次订阅一份
+     */
+    private static class StreamState {
+        private final Timer.Sample total;
+        private String outcome = Text2SqlMetrics.OUTCOME_FAILURE;
+        private String queryType;
+        private DatabaseSchema schema;
+        private String schemaVersion;
+        private String systemPrompt;
+        private String userPrompt;
+
+        StreamState(Timer.Sample total) {
+            this.total = total;
+        }
+    }
+
+    /**
+     * 去重后的批量问题及其在请求中的位置
+     */
+    @AllArgsConstructor
+    private static class BatchItem {
+        private final String question;
+        private final List<Integer> indices;
+    }
+}
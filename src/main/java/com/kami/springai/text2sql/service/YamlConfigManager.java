@@ -0,0 +1,10 @@
+package com.kami.springai.text2sql.service;
+
+/**
+ * 简化的配置管理器枚举
+ */
+class YamlConfigManager {
+    public enum FeedbackType {
+        POSITIVE, NEGATIVE, CORRECTION
+    }
+}
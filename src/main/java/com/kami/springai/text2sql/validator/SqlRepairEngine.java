@@ -0,0 +1,392 @@
+package com.kami.springai.text2sql.validator;
+
+import com.kami.springai.text2sql.model.DatabaseSchema;
+import com.kami.springai.text2sql.service.SqlStatementExtractor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.Limit;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.util.TablesNamesFinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 本地SQL修复引擎
+ *
+ * 在调用大模型修复之前，按规则修复机械性错误并重新验证：
+ * - SQL之前的说明文字、代码块标记，分号或代码块结束标记之后的说明文字
+ * - 括号不匹配
+ * - 标识符使用双引号或方括号（MySQL应使用反引号）
+ * - 缺少LIMIT或LIMIT超过最大行数
+ * 规则无法修复时返回null，由调用方继续使用大模型修复。
+ * 修复方式不唯一时同样放弃：要丢弃的文字中含有SQL关键字（可能是被分号截断的条件），
+ * 或缺少的右括号之后还有子句关键字（补在哪里会改变分组、条件的含义）。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SqlRepairEngine {
+
+    public static final String RULE_EXTRACT_STATEMENT = "extract_statement";
+    public static final String RULE_TRAILING_TEXT = "trailing_text";
+    public static final String RULE_PARENTHESES = "parentheses";
+    public static final String RULE_IDENTIFIER_QUOTING = "identifier_quoting";
+    public static final String RULE_LIMIT = "limit";
+
+    private static final Pattern SQL_KEYWORD = Pattern.compile(
+            "\\b(SELECT|FROM|WHERE|JOIN|ON|GROUP\\s+BY|ORDER\\s+BY|HAVING|LIMIT|UNION|AND|OR)\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern CODE_FENCE = Pattern.compile("```[A-Za-z0-9]*");
+    private static final Pattern TRAILING_CLOSING = Pattern.compile("[\\s);]*");
+    private static final Pattern BRACKET_IDENTIFIER = Pattern.compile("\\[([A-Za-z_][A-Za-z0-9_]*)]");
+
+    private final SqlValidationPipeline validationPipeline;
+
+    @Value("${text2sql.repair.enabled:true}")
+    private boolean enabled;
+
+    @Value("${text2sql.repair.default-limit:100}")
+    private long defaultLimit;
+
+    @Value("${text2sql.security.max-rows:1000}")
+    private long maxRows;
+
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong llmRepairsAvoided = new AtomicLong();
+    private final AtomicLong unrepairable = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private final Map<String, LongAdder> ruleCounts = new ConcurrentHashMap<>();
+
+    /**
+     * 本地修复并重新验证，修复后仍未通过验证时返回null
+     */
+    public Repair repair(String sql, String userQuery, DatabaseSchema schema) {
+        if (!enabled || sql == null || sql.isBlank()) {
+            return null;
+        }
+        attempts.incrementAndGet();
+
+        List<String> appliedRules = new ArrayList<>();
+        String repaired = applyRules(sql, schema, appliedRules);
+        if (repaired == null || appliedRules.isEmpty() || repaired.equals(sql)) {
+            unrepairable.incrementAndGet();
+            return null;
+        }
+
+        ValidationPipelineResult validation = validationPipeline.validateSql(repaired, userQuery, schema);
+        if (!validation.isOverallValid()) {
+            log.debug("本地修复后仍未通过验证: rules={}, {}", appliedRules, validation.getOverallMessage());
+            unrepairable.incrementAndGet();
+            return null;
+        }
+
+        llmRepairsAvoided.incrementAndGet();
+        appliedRules.forEach(rule -> ruleCounts.computeIfAbsent(rule, k -> new LongAdder()).increment());
+        log.info("本地修复SQL成功: rules={}, sql={}", appliedRules, repaired);
+        return new Repair(repaired, appliedRules, validation);
+    }
+
+    /**
+     * 获取修复统计
+     */
+    public RepairStats getRepairStats() {
+        Map<String, Long> rules = new ConcurrentHashMap<>();
+        ruleCounts.forEach((rule, count) -> rules.put(rule, count.sum()));
+        return RepairStats.builder()
+                .enabled(enabled)
+                .attempts(attempts.get())
+                .llmRepairsAvoided(llmRepairsAvoided.get())
+                .unrepairable(unrepairable.get())
+                .refused(refused.get())
+                .ruleCounts(rules)
+                .build();
+    }
+
+    String applyRules(String sql, DatabaseSchema schema, List<String> appliedRules) {
+        // 1. 去掉SQL之前的说明文字，以及分号或代码块结束标记之后的文字
+        String text = sql.trim();
+        String extracted = SqlStatementExtractor.extractStatement(text);
+        if (extracted != null && !extracted.isEmpty() && !extracted.equals(text)) {
+            int start = text.indexOf(extracted);
+            String leading = text.substring(0, start);
+            String trailing = text.substring(start + extracted.length());
+            if (containsSql(leading) || containsSql(trailing)) {
+                log.debug("要丢弃的文字中含有SQL关键字，放弃本地修复: {}", sql);
+                refused.incrementAndGet();
+                return null;
+            }
+            if (!leading.isBlank()) {
+                appliedRules.add(RULE_EXTRACT_STATEMENT);
+            }
+            if (!trailing.isBlank()) {
+                appliedRules.add(RULE_TRAILING_TEXT);
+            }
+            text = extracted;
+        }
+
+        // 2. 补齐或删除多余的括号
+        String balanced = balanceParentheses(text);
+        if (balanced == null) {
+            log.debug("括号修复位置不唯一，放弃本地修复: {}", text);
+            refused.incrementAndGet();
+            return null;
+        }
+        if (!balanced.equals(text)) {
+            text = balanced;
+            appliedRules.add(RULE_PARENTHESES);
+        }
+
+        // 3. 方括号标识符改为反引号
+        Set<String> identifiers = knownIdentifiers(schema);
+        String requoted = requoteBrackets(text, identifiers);
+        if (!requoted.equals(text)) {
+            text = requoted;
+            appliedRules.add(RULE_IDENTIFIER_QUOTING);
+        }
+
+        // 4. 仍无法解析的语句交给大模型修复
+        Statement statement = parse(text);
+        if (!(statement instanceof Select select)) {
+            return null;
+        }
+
+        // 5. 基于AST修复双引号标识符和LIMIT
+        boolean astChanged = fixIdentifierQuoting(statement, identifiers);
+        if (astChanged && !appliedRules.contains(RULE_IDENTIFIER_QUOTING)) {
+            appliedRules.add(RULE_IDENTIFIER_QUOTING);
+        }
+        if (fixLimit(select)) {
+            appliedRules.add(RULE_LIMIT);
+            astChanged = true;
+        }
+
+        String result = astChanged ? statement.toString() : stripTerminator(text);
+        return result + ";";
+    }
+
+    private boolean fixIdentifierQuoting(Statement statement, Set<String> identifiers) {
+        boolean[] changed = {false};
+
+        TablesNamesFinder rewriter = new TablesNamesFinder() {
+            @Override
+            public void visit(Table table) {
+                String fixed = requote(table.getName(), identifiers);
+                if (fixed != null) {
+                    table.setName(fixed);
+                    changed[0] = true;
+                }
+                super.visit(table);
+            }
+
+            @Override
+            public void visit(Column column) {
+                String fixed = requote(column.getColumnName(), identifiers);
+                if (fixed != null) {
+                    column.setColumnName(fixed);
+                    changed[0] = true;
+                }
+                if (column.getTable() != null && column.getTable().getName() != null) {
+                    String fixedTable = requote(column.getTable().getName(), identifiers);
+                    if (fixedTable != null) {
+                        column.getTable().setName(fixedTable);
+                        changed[0] = true;
+                    }
+                }
+                super.visit(column);
+            }
+        };
+        try {
+            rewriter.getTables(statement);
+        } catch (RuntimeException e) {
+            // 个别语法不被 TablesNamesFinder 支持时放弃该规则
+            log.debug("标识符引号修复跳过: {}", e.getMessage());
+            return false;
+        }
+        return changed[0];
+    }
+
+    /**
+     * 双引号包围的已知表名/字段名改为反引号；未知名称可能是字符串值，保持不变
+     */
+    private static String requote(String name, Set<String> identifiers) {
+        if (name == null || name.length() < 3) {
+            return null;
+        }
+        char first = name.charAt(0);
+        char last = name.charAt(name.length() - 1);
+        if (first != '"' || last != '"') {
+            return null;
+        }
+        String bare = name.substring(1, name.length() - 1);
+        if (!identifiers.contains(bare.toLowerCase(Locale.ROOT))) {
+            return null;
+        }
+        return "`" + bare + "`";
+    }
+
+    private boolean fixLimit(Select select) {
+        Limit limit = select.getLimit();
+        if (limit == null) {
+            select.setLimit(new Limit().withRowCount(new LongValue(defaultLimit)));
+            return true;
+        }
+        if (limit.getRowCount() instanceof LongValue rowCount && rowCount.getValue() > maxRows) {
+            limit.setRowCount(new LongValue(maxRows));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 在引号之外补齐缺少的右括号、删除多余的右括号，修复位置不唯一时返回null
+     *
+     * 缺少的右括号只在最外层未闭合括号之后没有子句关键字时补在语句末尾，如 "IN (1, 2, 3"；
+     * "COUNT(`id` FROM t GROUP BY ..." 这类无法确定括号应在何处闭合。多余的右括号只在语句末尾时删除。
+     */
+    static String balanceParentheses(String sql) {
+        StringBuilder result = new StringBuilder(sql.length() + 4);
+        int depth = 0;
+        int outermostUnclosed = -1;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == '\\' && quote != '`' && i + 1 < sql.length()) {
+                    result.append(c).append(sql.charAt(++i));
+                    continue;
+                }
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '(') {
+                if (depth == 0) {
+                    outermostUnclosed = result.length();
+                }
+                depth++;
+            } else if (c == ')') {
+                if (depth == 0) {
+                    if (!TRAILING_CLOSING.matcher(sql.substring(i + 1)).matches()) {
+                        return null;
+                    }
+                    continue;
+                }
+                depth--;
+            }
+            result.append(c);
+        }
+        if (depth == 0 || quote != 0) {
+            return result.toString();
+        }
+
+        boolean terminated = result.toString().trim().endsWith(";");
+        String body = stripTerminator(result.toString());
+        if (SQL_KEYWORD.matcher(body).find(outermostUnclosed + 1)) {
+            return null;
+        }
+        return body + ")".repeat(depth) + (terminated ? ";" : "");
+    }
+
+    /**
+     * 要丢弃的文字（去掉代码块标记后）是否含有SQL关键字
+     */
+    private static boolean containsSql(String discarded) {
+        return SQL_KEYWORD.matcher(CODE_FENCE.matcher(discarded).replaceAll(" ")).find();
+    }
+
+    /**
+     * 方括号包围的已知标识符改为反引号（方括号无法被解析器识别，需在解析前处理）
+     */
+    private static String requoteBrackets(String sql, Set<String> identifiers) {
+        Matcher matcher = BRACKET_IDENTIFIER.matcher(sql);
+        StringBuilder result = new StringBuilder(sql.length());
+        while (matcher.find()) {
+            String name = matcher.group(1);
+            String replacement = identifiers.contains(name.toLowerCase(Locale.ROOT)) ? "`" + name + "`" : matcher.group();
+            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    private static String stripTerminator(String sql) {
+        String trimmed = sql.trim();
+        while (trimmed.endsWith(";")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1).trim();
+        }
+        return trimmed;
+    }
+
+    private static Statement parse(String sql) {
+        try {
+            return CCJSqlParserUtil.parse(stripTerminator(sql));
+        } catch (JSQLParserException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Set<String> knownIdentifiers(DatabaseSchema schema) {
+        Set<String> identifiers = new HashSet<>();
+        if (schema == null || schema.getTables() == null) {
+            return identifiers;
+        }
+        for (DatabaseSchema.Table table : schema.getTables()) {
+            identifiers.add(table.getName().toLowerCase(Locale.ROOT));
+            if (table.getColumns() != null) {
+                table.getColumns().forEach(column -> identifiers.add(column.getName().toLowerCase(Locale.ROOT)));
+            }
+        }
+        return identifiers;
+    }
+
+    /**
+     * 修复结果
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Repair {
+        private String sql;
+        private List<String> appliedRules;
+        private ValidationPipelineResult validation;
+    }
+
+    /**
+     * 修复统计
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class RepairStats {
+        private boolean enabled;
+        private long attempts;
+        private long llmRepairsAvoided;
+        private long unrepairable;
+        /**
+         * 修复方式不唯一而放弃的次数
+         */
+        private long refused;
+        private Map<String, Long> ruleCounts;
+    }
+}
@@ -1,5 +1,6 @@
 package com.kami.springai.text2sql.validator;
 
+import com.kami.springai.text2sql.config.Text2SqlMetrics;
 import com.kami.springai.text2sql.model.DatabaseSchema;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -7,6 +8,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * SQL验证流水线
@@ -16,6 +18,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class SqlValidationPipeline {
 
+    private final Text2SqlMetrics metrics;
+
     /**
      * 验证SQL
      */
@@ -27,16 +31,16 @@ public class SqlValidationPipeline {
 
         try {
             // 语法验证
-            results.add(validateSyntax(sql));
+            results.add(timed(() -> validateSyntax(sql)));
 
             // 安全验证
-            results.add(validateSecurity(sql));
+            results.add(timed(() -> validateSecurity(sql)));
 
             // 语义验证
-            results.add(validateSemantics(sql, schema));
+            results.add(timed(() -> validateSemantics(sql, schema)));
 
             // 性能验证
-            results.add(validatePerformance(sql, schema));
+            results.add(timed(() -> validatePerformance(sql, schema)));
 
             // 计算总体结果
             boolean overallValid = results.stream().allMatch(ValidatorResult::isValid);
@@ -62,6 +66,16 @@ public class SqlValidationPipeline {
         }
     }
 
+    /**
+     * 执行单个验证器并记录耗时指标
+     */
+    private ValidatorResult timed(Supplier<ValidatorResult> validator) {
+        long start = System.nanoTime();
+        ValidatorResult result = validator.get();
+        metrics.recordValidator(result.getValidatorName(), result.isValid(), System.nanoTime() - start);
+        return result;
+    }
+
     private ValidatorResult validateSyntax(String sql) {
         long startTime = System.currentTimeMillis();
         List<String> errors = new ArrayList<>();
@@ -0,0 +1,219 @@
+package com.kami.springai.common.cache;
+
+import com.kami.springai.text2sql.model.DatabaseSchema;
+import com.kami.springai.text2sql.service.SchemaDiscoveryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 并发压力下的结构缓存：同一数据源同时只进行一次结构发现，所有调用方共享结果
+ */
+class SchemaCacheConcurrencyTest {
+
+    private static final int CALLERS = 64;
+    private static final int DATA_SOURCES = 4;
+
+    private final Map<String, AtomicInteger> discoveries = new ConcurrentHashMap<>();
+    private final AtomicInteger concurrentDiscoveries = new AtomicInteger();
+    private final AtomicInteger maxConcurrentDiscoveries = new AtomicInteger();
+    private final AtomicBoolean failDiscovery = new AtomicBoolean();
+
+    private ExecutorService callers;
+    private ExecutorService refreshExecutor;
+    private SchemaCache cache;
+
+    @BeforeEach
+    void setUp() {
+        callers = Executors.newFixedThreadPool(CALLERS);
+        refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+        cache = new SchemaCache(new SlowDiscoveryService(),
+                new StaticListableBeanFactory().getBeanProvider(SchemaChangeListener.class));
+        ReflectionTestUtils.setField(cache, "incrementalRefresh", true);
+        ReflectionTestUtils.setField(cache, "softTtlSeconds", 1800L);
+        ReflectionTestUtils.setField(cache, "hardTtlSeconds", 7200L);
+        ReflectionTestUtils.setField(cache, "refreshRetryIntervalSeconds", 60L);
+        ReflectionTestUtils.setField(cache, "refreshExecutor", refreshExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        refreshExecutor.shutdownNow();
+    }
+
+    @Test
+    void coldStartRunsOneDiscoveryPerDataSource() throws Exception {
+        List<DatabaseSchema> results = getConcurrently(CALLERS * DATA_SOURCES);
+
+        for (int i = 0; i < DATA_SOURCES; i++) {
+            assertEquals(1, discoveries("ds-" + i), "ds-" + i);
+        }
+        for (int i = 0; i < results.size(); i++) {
+            assertSame(cache.getSchema("ds-" + i % DATA_SOURCES), results.get(i));
+        }
+        assertTrue(maxConcurrentDiscoveries.get() <= DATA_SOURCES);
+        assertTrue(cache.getCacheStats().getCoalescedLoads() > 0);
+        assertEquals(0, cache.getCacheStats().getLoadsInFlight());
+    }
+
+    @Test
+    void hardExpiredEntryIsReloadedOnce() throws Exception {
+        getConcurrently(DATA_SOURCES);
+        for (int i = 0; i < DATA_SOURCES; i++) {
+            age("ds-" + i, 9000);
+        }
+
+        List<DatabaseSchema> results = getConcurrently(CALLERS * DATA_SOURCES);
+
+        for (int i = 0; i < DATA_SOURCES; i++) {
+            assertEquals(2, discoveries("ds-" + i), "ds-" + i);
+        }
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals("ds-" + i % DATA_SOURCES + "#2", results.get(i).getDatabaseName());
+        }
+    }
+
+    @Test
+    void softExpiredEntryIsServedWhileOneRefreshRuns() throws Exception {
+        DatabaseSchema first = cache.getSchema("ds-0");
+        age("ds-0", 3600);
+
+        List<Future<DatabaseSchema>> futures = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(callers.submit(() -> {
+                start.await();
+                return cache.getSchema("ds-0");
+            }));
+        }
+        start.countDown();
+        for (Future<DatabaseSchema> future : futures) {
+            assertSame(first, future.get(5, TimeUnit.SECONDS));
+        }
+
+        awaitIdle();
+        assertEquals(2, discoveries("ds-0"));
+        assertEquals(1, cache.getCacheStats().getBackgroundRefreshes());
+        assertEquals("ds-0#2", cache.getSchema("ds-0").getDatabaseName());
+    }
+
+    @Test
+    void failedDiscoveryIsSharedAndRetriedByTheNextCaller() throws Exception {
+        failDiscovery.set(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<DatabaseSchema>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(callers.submit(() -> {
+                start.await();
+                return cache.getSchema("ds-0");
+            }));
+        }
+        start.countDown();
+        for (Future<DatabaseSchema> future : futures) {
+            Exception e = assertThrows(Exception.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause().getMessage().contains("metadata unavailable"), e.getCause().getMessage());
+        }
+        assertEquals(1, discoveries("ds-0"));
+
+        failDiscovery.set(false);
+        assertEquals("ds-0#2", cache.getSchema("ds-0").getDatabaseName());
+    }
+
+    /**
+     * 所有调用方同时起跑，第 i 个调用方获取 ds-(i % DATA_SOURCES)
+     */
+    private List<DatabaseSchema> getConcurrently(int count) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<DatabaseSchema>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String dataSourceId = "ds-" + i % DATA_SOURCES;
+            futures.add(callers.submit(() -> {
+                start.await();
+                return cache.getSchema(dataSourceId);
+            }));
+        }
+        start.countDown();
+        List<DatabaseSchema> results = new ArrayList<>(count);
+        for (Future<DatabaseSchema> future : futures) {
+            results.add(future.get(10, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache.getCacheStats().getLoadsInFlight() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, cache.getCacheStats().getLoadsInFlight());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void age(String dataSourceId, long seconds) {
+        Map<String, Object> entries = (Map<String, Object>) ReflectionTestUtils.getField(cache, "localCache");
+        ReflectionTestUtils.setField(entries.get(dataSourceId), "createTime", LocalDateTime.now().minusSeconds(seconds));
+    }
+
+    private int discoveries(String dataSourceId) {
+        AtomicInteger count = discoveries.get(dataSourceId);
+        return count != null ? count.get() : 0;
+    }
+
+    /**
+     * 每次结构发现耗时100ms，记录每个数据源的发现次数和同时进行的发现数
+     */
+    private class SlowDiscoveryService extends SchemaDiscoveryService {
+
+        SlowDiscoveryService() {
+            super(null, null);
+        }
+
+        @Override
+        public Map<String, String> loadTableVersions(String dataSourceId) {
+            return null;
+        }
+
+        @Override
+        public DatabaseSchema discoverSchema(String dataSourceId) {
+            int attempt = discoveries.computeIfAbsent(dataSourceId, id -> new AtomicInteger()).incrementAndGet();
+            maxConcurrentDiscoveries.accumulateAndGet(concurrentDiscoveries.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(100);
+                if (failDiscovery.get()) {
+                    throw new RuntimeException("数据库结构发现失败: metadata unavailable");
+                }
+                return DatabaseSchema.builder()
+                        .databaseName(dataSourceId + "#" + attempt)
+                        .tables(new ArrayList<>())
+                        .build();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } finally {
+                concurrentDiscoveries.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.kami.springai.common.cache;
+
+import com.kami.springai.text2sql.model.DatabaseSchema;
+import com.kami.springai.text2sql.service.InformationSchemaLoader;
+import com.kami.springai.text2sql.service.SchemaDiscoveryService;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 在H2内存库上执行DDL，验证结构缓存按表版本增量刷新：只重新加载变化的表，并保持表的原有顺序
+ */
+class SchemaCacheIncrementalRefreshTest {
+
+    private static final String DATA_SOURCE_ID = "h2";
+
+    private final List<Set<String>> reloads = new ArrayList<>();
+    private final InformationSchemaLoader loader = new InformationSchemaLoader();
+
+    private JdbcDataSource dataSource;
+    private Connection keepAlive;
+    private ExecutorService refreshExecutor;
+    private SchemaCache cache;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:incremental_" + UUID.randomUUID().toString().replace("-", ""));
+        keepAlive = dataSource.getConnection();
+        execute("""
+                CREATE TABLE CATEGORIES (ID INT PRIMARY KEY, NAME VARCHAR(50));
+                CREATE TABLE ORDERS (ID INT PRIMARY KEY, USER_ID INT, AMOUNT INT);
+                CREATE TABLE PRODUCTS (ID INT PRIMARY KEY, NAME VARCHAR(50), PRICE INT);
+                CREATE TABLE USERS (ID INT PRIMARY KEY, NAME VARCHAR(50));
+                """);
+
+        refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        cache = new SchemaCache(new H2DiscoveryService(),
+                new StaticListableBeanFactory().getBeanProvider(SchemaChangeListener.class));
+        ReflectionTestUtils.setField(cache, "incrementalRefresh", true);
+        ReflectionTestUtils.setField(cache, "softTtlSeconds", 1800L);
+        ReflectionTestUtils.setField(cache, "hardTtlSeconds", 7200L);
+        ReflectionTestUtils.setField(cache, "refreshRetryIntervalSeconds", 60L);
+        ReflectionTestUtils.setField(cache, "refreshExecutor", refreshExecutor);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        refreshExecutor.shutdownNow();
+        keepAlive.close();
+    }
+
+    @Test
+    void reloadsOnlyChangedTablesAndKeepsOrder() throws SQLException {
+        DatabaseSchema initial = cache.getSchema(DATA_SOURCE_ID);
+        assertEquals(List.of("CATEGORIES", "ORDERS", "PRODUCTS", "USERS"), tableNames(initial));
+
+        execute("""
+                ALTER TABLE ORDERS ADD COLUMN NOTE VARCHAR(100);
+                ALTER TABLE PRODUCTS ALTER COLUMN NAME VARCHAR(200);
+                DROP TABLE CATEGORIES;
+                CREATE TABLE REVIEWS (ID INT PRIMARY KEY, CONTENT VARCHAR(500));
+                """);
+        DatabaseSchema refreshed = refreshNow();
+
+        assertEquals(List.of(Set.of("ORDERS", "PRODUCTS", "REVIEWS")), reloads);
+        // 变化的表原位替换，删除的表移除，新增的表追加在末尾
+        assertEquals(List.of("ORDERS", "PRODUCTS", "USERS", "REVIEWS"), tableNames(refreshed));
+        assertEquals(List.of("ID", "USER_ID", "AMOUNT", "NOTE"), columnNames(table(refreshed, "ORDERS")));
+        assertSame(table(initial, "USERS"), table(refreshed, "USERS"));
+
+        SchemaCache.CacheStats stats = cache.getCacheStats();
+        assertEquals(0, stats.getFullRefreshes());
+        assertEquals(1, stats.getIncrementalRefreshes());
+        assertEquals(3, stats.getReloadedTables());
+    }
+
+    @Test
+    void unchangedSchemaReloadsNothing() {
+        DatabaseSchema initial = cache.getSchema(DATA_SOURCE_ID);
+
+        assertSame(initial, refreshNow());
+        assertTrue(reloads.isEmpty());
+        assertEquals(1, cache.getCacheStats().getUnchangedRefreshes());
+    }
+
+    @Test
+    void foreignKeyChangeReloadsOnlyReferencingTable() throws SQLException {
+        cache.getSchema(DATA_SOURCE_ID);
+
+        execute("ALTER TABLE ORDERS ADD CONSTRAINT FK_ORDERS_USER FOREIGN KEY (USER_ID) REFERENCES USERS (ID)");
+        DatabaseSchema refreshed = refreshNow();
+
+        assertEquals(List.of(Set.of("ORDERS")), reloads);
+        assertEquals(List.of("CATEGORIES", "ORDERS", "PRODUCTS", "USERS"), tableNames(refreshed));
+        assertEquals(1, table(refreshed, "ORDERS").getForeignKeys().size());
+    }
+
+    @Test
+    void changeInAnotherSchemaReloadsSameNamedTables() throws SQLException {
+        execute("""
+                CREATE SCHEMA ARCHIVE;
+                CREATE TABLE ARCHIVE.ORDERS (ID INT PRIMARY KEY);
+                """);
+        cache.getSchema(DATA_SOURCE_ID);
+
+        execute("ALTER TABLE ARCHIVE.ORDERS ADD COLUMN ARCHIVED_AT TIMESTAMP");
+        DatabaseSchema refreshed = refreshNow();
+
+        assertEquals(List.of(Set.of("ORDERS")), reloads);
+        // 两个模式下的 ORDERS 各自原位替换，其余表不受影响
+        assertEquals(List.of("ORDERS", "CATEGORIES", "ORDERS", "PRODUCTS", "USERS"), tableNames(refreshed));
+        assertEquals(List.of("ID", "ARCHIVED_AT"), columnNames(refreshed.getTables().get(0)));
+        assertEquals(List.of("ID", "USER_ID", "AMOUNT"), columnNames(refreshed.getTables().get(2)));
+    }
+
+    /**
+     * 让缓存条目超过硬过期时间，下一次获取同步刷新
+     */
+    @SuppressWarnings("unchecked")
+    private DatabaseSchema refreshNow() {
+        Map<String, Object> entries = (Map<String, Object>) ReflectionTestUtils.getField(cache, "localCache");
+        ReflectionTestUtils.setField(entries.get(DATA_SOURCE_ID), "createTime", LocalDateTime.now().minusSeconds(9000));
+        return cache.getSchema(DATA_SOURCE_ID);
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static List<String> tableNames(DatabaseSchema schema) {
+        return schema.getTables().stream().map(DatabaseSchema.Table::getName).toList();
+    }
+
+    private static List<String> columnNames(DatabaseSchema.Table table) {
+        return table.getColumns().stream().map(DatabaseSchema.Column::getName).toList();
+    }
+
+    private static DatabaseSchema.Table table(DatabaseSchema schema, String name) {
+        return schema.getTables().stream().filter(table -> table.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    /**
+     * 直接在H2连接上使用 information_schema 加载，记录每次按表名重新加载的表
+     */
+    private class H2DiscoveryService extends SchemaDiscoveryService {
+
+        H2DiscoveryService() {
+            super(null, loader);
+        }
+
+        @Override
+        public DatabaseSchema discoverSchema(String dataSourceId) {
+            try (Connection connection = dataSource.getConnection()) {
+                return DatabaseSchema.builder()
+                        .databaseName(connection.getCatalog())
+                        .tables(loader.load(connection))
+                        .build();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public Map<String, String> loadTableVersions(String dataSourceId) {
+            try (Connection connection = dataSource.getConnection()) {
+                return loader.loadTableVersions(connection);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public List<DatabaseSchema.Table> loadTables(String dataSourceId, Collection<String> tableNames) {
+            reloads.add(Set.copyOf(tableNames));
+            try (Connection connection = dataSource.getConnection()) {
+                return loader.load(connection, tableNames);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
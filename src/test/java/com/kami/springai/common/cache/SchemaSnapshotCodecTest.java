@@ -0,0 +1,111 @@
+package com.kami.springai.common.cache;
+
+import com.kami.springai.text2sql.model.DatabaseSchema;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 结构快照编码：编码后解码得到相同的结构，损坏、截断或格式版本不符的快照被拒绝
+ */
+class SchemaSnapshotCodecTest {
+
+    @Test
+    void roundTripsSchemaAndTableVersions() {
+        SchemaSnapshot snapshot = snapshot();
+
+        SchemaSnapshot decoded = SchemaSnapshotCodec.decode(ByteBuffer.wrap(SchemaSnapshotCodec.encode(snapshot)));
+
+        assertEquals(snapshot, decoded);
+    }
+
+    @Test
+    void rejectsChecksumMismatch() {
+        byte[] bytes = SchemaSnapshotCodec.encode(snapshot());
+        bytes[bytes.length / 2] ^= 0x01;
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> SchemaSnapshotCodec.decode(ByteBuffer.wrap(bytes)));
+        assertTrue(e.getMessage().contains("校验和"));
+    }
+
+    @Test
+    void rejectsUnknownFormatVersion() {
+        byte[] bytes = SchemaSnapshotCodec.encode(snapshot());
+        // 魔数之后的两个字节是格式版本，改写后重新计算校验和，确保是版本检查拒绝
+        ByteBuffer.wrap(bytes).putShort(Integer.BYTES, (short) 99);
+        updateChecksum(bytes);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> SchemaSnapshotCodec.decode(ByteBuffer.wrap(bytes)));
+        assertTrue(e.getMessage().contains("格式版本"));
+    }
+
+    @Test
+    void rejectsTruncatedSnapshot() {
+        byte[] bytes = SchemaSnapshotCodec.encode(snapshot());
+        byte[] truncated = new byte[bytes.length - 20];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length - Integer.BYTES);
+        updateChecksum(truncated);
+
+        assertThrows(IllegalArgumentException.class, () -> SchemaSnapshotCodec.decode(ByteBuffer.wrap(truncated)));
+    }
+
+    static SchemaSnapshot snapshot() {
+        return snapshot("ds1");
+    }
+
+    static SchemaSnapshot snapshot(String dataSourceId) {
+        DatabaseSchema schema = DatabaseSchema.builder()
+                .databaseName("shop")
+                .tables(List.of(
+                        DatabaseSchema.Table.builder()
+                                .name("orders")
+                                .comment("订单")
+                                .columns(List.of(
+                                        column("id", true, false, "订单ID"),
+                                        column("user_id", false, false, null),
+                                        column("remark", false, true, "备注")))
+                                .foreignKeys(List.of(DatabaseSchema.ForeignKey.builder()
+                                        .columnName("user_id")
+                                        .referencedTable("users")
+                                        .referencedColumn("id")
+                                        .build()))
+                                .build(),
+                        DatabaseSchema.Table.builder()
+                                .name("users")
+                                .columns(List.of(column("id", true, false, "用户ID")))
+                                .build()))
+                .build();
+        return SchemaSnapshot.builder()
+                .dataSourceId(dataSourceId)
+                .fingerprint(SchemaFingerprint.of(schema))
+                .schema(schema)
+                .tableVersions(Map.of("orders", "v1", "users", "v2"))
+                .savedAt(1_700_000_000_000L)
+                .build();
+    }
+
+    private static DatabaseSchema.Column column(String name, boolean primaryKey, boolean nullable, String comment) {
+        return DatabaseSchema.Column.builder()
+                .name(name)
+                .type("bigint")
+                .primaryKey(primaryKey)
+                .nullable(nullable)
+                .comment(comment)
+                .build();
+    }
+
+    private static void updateChecksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - Integer.BYTES);
+        ByteBuffer.wrap(bytes).putInt(bytes.length - Integer.BYTES, (int) crc.getValue());
+    }
+}
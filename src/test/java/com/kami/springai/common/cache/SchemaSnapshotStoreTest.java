@@ -0,0 +1,91 @@
+package com.kami.springai.common.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 结构快照存储：每个数据源保留最新版本，无效快照跳过，已不存在的数据源的快照在启动时删除
+ */
+class SchemaSnapshotStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private SchemaSnapshotStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new SchemaSnapshotStore();
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "directory", directory.toString());
+    }
+
+    @Test
+    void savesAndLoadsSnapshot() {
+        SchemaSnapshot snapshot = SchemaSnapshotCodecTest.snapshot();
+        store.save(snapshot);
+
+        List<SchemaSnapshot> loaded = store.loadAll(dataSourceId -> true);
+
+        assertEquals(List.of(snapshot), loaded);
+        assertEquals(1, store.getStats().getWritten());
+        assertEquals(1, store.getStats().getRestored());
+    }
+
+    @Test
+    void replacesPreviousVersionOfSameDataSource() throws IOException {
+        SchemaSnapshot first = SchemaSnapshotCodecTest.snapshot();
+        SchemaSnapshot second = SchemaSnapshotCodecTest.snapshot();
+        second.getSchema().setDatabaseName("shop_v2");
+        second.setFingerprint(SchemaFingerprint.of(second.getSchema()));
+        second.setSavedAt(first.getSavedAt() + 1000);
+
+        store.save(first);
+        store.save(second);
+
+        assertEquals(1, snapshotFiles().size());
+        assertEquals(second.getFingerprint(), store.loadAll(dataSourceId -> true).get(0).getFingerprint());
+    }
+
+    @Test
+    void skipsCorruptedSnapshot() throws IOException {
+        store.save(SchemaSnapshotCodecTest.snapshot());
+        Path file = snapshotFiles().get(0);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(file, bytes);
+
+        assertTrue(store.loadAll(dataSourceId -> true).isEmpty());
+        assertEquals(1, store.getStats().getFailed());
+    }
+
+    @Test
+    void deletesSnapshotsOfUnregisteredDataSources() throws IOException {
+        store.save(SchemaSnapshotCodecTest.snapshot("kept"));
+        store.save(SchemaSnapshotCodecTest.snapshot("removed"));
+
+        List<SchemaSnapshot> loaded = store.loadAll("kept"::equals);
+
+        assertEquals(1, loaded.size());
+        assertEquals("kept", loaded.get(0).getDataSourceId());
+        assertEquals(1, snapshotFiles().size());
+        assertEquals(1, store.getStats().getDiscarded());
+    }
+
+    private List<Path> snapshotFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".snapshot")).toList();
+        }
+    }
+}
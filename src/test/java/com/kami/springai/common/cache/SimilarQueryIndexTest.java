@@ -0,0 +1,92 @@
+package com.kami.springai.common.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 近似问题索引：措辞不同的同一问题可以复用SQL，一字之差但含义相反的问题不能复用
+ */
+class SimilarQueryIndexTest {
+
+    private static final String DATA_SOURCE = "ds1";
+    private static final String SCHEMA_VERSION = "v1";
+
+    private SimilarQueryIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SimilarQueryIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "similarityThreshold", 0.8);
+        ReflectionTestUtils.setField(index, "maxEntriesPerScope", 100);
+    }
+
+    @Test
+    void reusesRephrasedQuestion() {
+        index.add(DATA_SOURCE, SCHEMA_VERSION, "查询最近一个月已付款订单的总金额和订单数量", null, "SELECT 1");
+
+        SimilarQueryIndex.Match match = index.findSimilar(DATA_SOURCE, SCHEMA_VERSION,
+                "请帮我查询一下最近一个月已付款订单的总金额和订单数量", null);
+
+        assertNotNull(match);
+        assertEquals("SELECT 1", match.getSql());
+    }
+
+    @Test
+    void reusesShortQuestionWithQuantifierParticle() {
+        index.add(DATA_SOURCE, SCHEMA_VERSION, "查询所有用户", null, "SELECT * FROM users");
+
+        SimilarQueryIndex.Match match = index.findSimilar(DATA_SOURCE, SCHEMA_VERSION, "查询全部的用户", null);
+
+        assertNotNull(match);
+        assertEquals("SELECT * FROM users", match.getSql());
+    }
+
+    @Test
+    void rejectsOppositeNegation() {
+        index.add(DATA_SOURCE, SCHEMA_VERSION, "查询最近一个月已付款订单的总金额和订单数量", null, "SELECT 1");
+
+        assertNull(index.findSimilar(DATA_SOURCE, SCHEMA_VERSION,
+                "查询最近一个月未付款订单的总金额和订单数量", null));
+    }
+
+    @Test
+    void rejectsOppositeComparison() {
+        index.add(DATA_SOURCE, SCHEMA_VERSION, "统计注册时间早于去年并且消费金额大于平均值的会员人数", null, "SELECT 1");
+
+        assertNull(index.findSimilar(DATA_SOURCE, SCHEMA_VERSION,
+                "统计注册时间早于去年并且消费金额小于平均值的会员人数", null));
+    }
+
+    @Test
+    void rejectsOppositeSortDirection() {
+        index.add(DATA_SOURCE, SCHEMA_VERSION, "列出华东地区所有门店本季度的销售额并按销售额升序排列", null, "SELECT 1");
+
+        assertNull(index.findSimilar(DATA_SOURCE, SCHEMA_VERSION,
+                "列出华东地区所有门店本季度的销售额并按销售额降序排列", null));
+    }
+
+    @Test
+    void rejectsAddedNegation() {
+        index.add(DATA_SOURCE, SCHEMA_VERSION, "查询最近一个月下过订单的所有用户的姓名和手机号", null, "SELECT 1");
+
+        assertNull(index.findSimilar(DATA_SOURCE, SCHEMA_VERSION,
+                "查询最近一个月没有下过订单的所有用户的姓名和手机号", null));
+    }
+
+    @Test
+    void keepsParticlesInNormalizedQuery() {
+        assertEquals("查询已付款的订单", SimilarQueryIndex.normalize("请帮我查询已付款的订单吗"));
+        assertEquals("查询所有用户的姓名", SimilarQueryIndex.normalize("查询全部的用户的姓名"));
+        assertEquals(List.of("已"), SimilarQueryIndex.polarityTokens("查询已付款的订单"));
+        assertEquals(List.of("未", "大于", "降序"),
+                SimilarQueryIndex.polarityTokens("查询未付款且金额大于100的订单按时间降序"));
+    }
+}
@@ -0,0 +1,139 @@
+package com.kami.springai.common.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 测试相同键的并发请求合并执行
+ */
+class SingleFlightGroupTest {
+
+    private static final int WAITERS = 5;
+
+    private final SingleFlightGroup<String, String> group = new SingleFlightGroup<>();
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void followersShareLeaderResult() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger computations = new AtomicInteger();
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < WAITERS; i++) {
+            futures.add(group.execute("q", () -> {
+                computations.incrementAndGet();
+                await(release);
+                return "SELECT 1";
+            }, executor));
+        }
+        assertEquals(1, group.inFlightCount());
+        release.countDown();
+
+        for (CompletableFuture<String> future : futures) {
+            assertEquals("SELECT 1", future.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, computations.get());
+        SingleFlightGroup.SingleFlightStats stats = group.getStats();
+        assertEquals(1, stats.getLeaders());
+        assertEquals(WAITERS - 1, stats.getCoalesced());
+        assertEquals((double) (WAITERS - 1) / WAITERS, stats.getCoalesceRate(), 1e-9);
+        awaitIdle();
+        assertEquals(0, group.inFlightCount());
+    }
+
+    @Test
+    void failureReachesEveryWaiter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < WAITERS; i++) {
+            futures.add(group.execute("q", () -> {
+                await(release);
+                throw new IllegalStateException("大模型不可用");
+            }, executor));
+        }
+        release.countDown();
+
+        for (CompletableFuture<String> future : futures) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+            assertEquals("大模型不可用", e.getCause().getMessage());
+        }
+        assertEquals(1, group.getStats().getFailures());
+        awaitIdle();
+        assertEquals(0, group.inFlightCount());
+    }
+
+    @Test
+    void cancellingOneWaiterKeepsSharedComputation() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger computations = new AtomicInteger();
+
+        CompletableFuture<String> leader = group.execute("q", () -> {
+            computations.incrementAndGet();
+            await(release);
+            return "SELECT 1";
+        }, executor);
+        CompletableFuture<String> follower = group.execute("q", () -> "不应执行", executor);
+
+        assertTrue(leader.cancel(true));
+        release.countDown();
+
+        assertEquals("SELECT 1", follower.get(5, TimeUnit.SECONDS));
+        assertTrue(leader.isCancelled());
+        assertEquals(1, computations.get());
+        assertEquals(0, group.getStats().getFailures());
+    }
+
+    @Test
+    void completedKeyStartsNewComputation() throws Exception {
+        assertEquals("A", group.execute("q", () -> "A", executor).get(5, TimeUnit.SECONDS));
+        awaitIdle();
+        assertEquals("B", group.execute("q", () -> "B", executor).get(5, TimeUnit.SECONDS));
+
+        assertEquals(2, group.getStats().getLeaders());
+        assertEquals(0, group.getStats().getCoalesced());
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (group.inFlightCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.kami.springai.common.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * SQL解释缓存的常量替换：只有能确定解释中对应位置时才替换，否则按未命中处理
+ */
+class SqlExplanationCacheTest {
+
+    @Test
+    void substitutesLiteralsThatOccurOnce() {
+        String explanation = "查询城市为北京且状态为1的订单，按金额降序取前10条";
+
+        String substituted = SqlExplanationCache.substituteLiterals(explanation,
+                List.of("北京", "1", "10"), List.of("上海", "2", "20"));
+
+        assertEquals("查询城市为上海且状态为2的订单，按金额降序取前20条", substituted);
+    }
+
+    @Test
+    void keepsExplanationWhenLiteralsUnchanged() {
+        String explanation = "查询状态为1的订单";
+
+        assertEquals(explanation, SqlExplanationCache.substituteLiterals(explanation, List.of("1"), List.of("1")));
+    }
+
+    @Test
+    void missesWhenChangedLiteralIsAbsent() {
+        String explanation = "查询已付款的订单";
+
+        assertNull(SqlExplanationCache.substituteLiterals(explanation, List.of("1"), List.of("2")));
+    }
+
+    @Test
+    void missesWhenChangedLiteralOccursMoreThanOnce() {
+        // SQL中的 LIMIT 10 与说明中无关的 "前10条" 无法区分
+        String explanation = "统计状态为10的订单，结果只返回前10条";
+
+        assertNull(SqlExplanationCache.substituteLiterals(explanation, List.of("10"), List.of("20")));
+    }
+
+    @Test
+    void missesWhenLiteralIsPartOfLargerToken() {
+        assertNull(SqlExplanationCache.substituteLiterals("查询金额大于1.5的订单", List.of("1"), List.of("2")));
+        assertNull(SqlExplanationCache.substituteLiterals("查询编号为A10的订单", List.of("10"), List.of("20")));
+    }
+
+    @Test
+    void missesWhenSameLiteralMapsToDifferentValues() {
+        String explanation = "查询状态为1且类型为1的订单";
+
+        assertNull(SqlExplanationCache.substituteLiterals(explanation, List.of("1", "1"), List.of("2", "3")));
+    }
+}
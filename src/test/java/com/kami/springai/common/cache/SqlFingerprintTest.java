@@ -0,0 +1,42 @@
+package com.kami.springai.common.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SQL指纹：只有常量、空白、大小写和反引号不同的SQL指纹相同，常量按出现顺序保留
+ */
+class SqlFingerprintTest {
+
+    @Test
+    void ignoresLiteralsWhitespaceCaseAndBackticks() {
+        SqlFingerprint first = SqlFingerprint.of("SELECT * FROM `orders` WHERE status = 1 AND city = '北京' LIMIT 10;");
+        SqlFingerprint second = SqlFingerprint.of("select *\n  from orders where status = 2 and city = '上海' limit 20");
+
+        assertEquals(first.getCanonical(), second.getCanonical());
+        assertEquals(first.getHash(), second.getHash());
+        assertEquals(List.of("1", "北京", "10"), first.getLiterals());
+        assertEquals(List.of("2", "上海", "20"), second.getLiterals());
+    }
+
+    @Test
+    void distinguishesDifferentStructure() {
+        SqlFingerprint first = SqlFingerprint.of("SELECT id FROM orders WHERE status = 1");
+        SqlFingerprint second = SqlFingerprint.of("SELECT id FROM orders WHERE status > 1");
+
+        assertNotEquals(first.getHash(), second.getHash());
+    }
+
+    @Test
+    void fallsBackToNormalizedTextWhenUnparsable() {
+        SqlFingerprint fingerprint = SqlFingerprint.of("SELEC  id FRM orders WHERE status = 1");
+
+        assertEquals("SELEC ID FRM ORDERS WHERE STATUS = 1", fingerprint.getCanonical());
+        assertTrue(fingerprint.getLiterals().isEmpty());
+    }
+}
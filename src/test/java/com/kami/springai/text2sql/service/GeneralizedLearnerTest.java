@@ -0,0 +1,71 @@
+package com.kami.springai.text2sql.service;
+
+import com.kami.springai.text2sql.model.PlaceholderRule;
+import com.kami.springai.text2sql.model.SqlTemplate;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 从成功SQL提取模板：主表和条件值替换为占位符，问题中出现的值生成提取正则
+ */
+class GeneralizedLearnerTest {
+
+    private final GeneralizedLearner learner = new GeneralizedLearner();
+
+    @Test
+    void templatesNumericConditionFromQuestion() {
+        SqlTemplate template = learner.buildTemplate("查询年龄大于25的用户姓名",
+                "SELECT `name` FROM `users` WHERE `age` > 25 LIMIT 100;");
+
+        assertNotNull(template);
+        assertEquals("SELECT `name`", template.getSelectTemplate());
+        assertEquals("FROM `{table}`", template.getFromTemplate());
+        assertEquals("WHERE `age` > {value_1}", template.getWhereTemplate());
+        assertEquals("LIMIT {limit}", template.getLimitTemplate());
+
+        PlaceholderRule table = template.getPlaceholderRules().get("table");
+        assertEquals(PlaceholderRule.TABLE, table.getRuleType());
+        assertEquals("users", table.getFallback());
+        assertTrue(table.getPatterns().containsAll(List.of("name", "age")));
+
+        PlaceholderRule value = template.getPlaceholderRules().get("value_1");
+        assertEquals(PlaceholderRule.VALUE, value.getRuleType());
+        assertEquals(1, value.getPatterns().size());
+    }
+
+    @Test
+    void templatesStringConditionInsideQuotes() {
+        SqlTemplate template = learner.buildTemplate("查询城市为北京的用户",
+                "SELECT * FROM `users` WHERE `city` = '北京' LIMIT 100");
+
+        assertNotNull(template);
+        assertEquals("WHERE `city` = '{value_1}'", template.getWhereTemplate());
+        assertEquals(1, template.getPlaceholderRules().get("value_1").getPatterns().size());
+    }
+
+    @Test
+    void literalMissingFromQuestionHasNoExtractionRule() {
+        SqlTemplate template = learner.buildTemplate("查询已付款的订单",
+                "SELECT * FROM `orders` WHERE `status` = 'paid' LIMIT 20");
+
+        assertNotNull(template);
+        PlaceholderRule value = template.getPlaceholderRules().get("value_1");
+        assertTrue(value.getPatterns().isEmpty());
+        // 行数不在问题中时以默认行数而不是学习时的字面量作为 fallback
+        PlaceholderRule limit = template.getPlaceholderRules().get("limit");
+        assertTrue(limit.getPatterns().isEmpty());
+        assertEquals("100", limit.getFallback());
+    }
+
+    @Test
+    void rejectsStatementsThatCannotBeTemplated() {
+        assertNull(learner.buildTemplate("合并两张表", "SELECT `id` FROM `a` UNION SELECT `id` FROM `b`"));
+        assertNull(learner.buildTemplate("子查询", "SELECT * FROM (SELECT `id` FROM `a`) t"));
+    }
+}
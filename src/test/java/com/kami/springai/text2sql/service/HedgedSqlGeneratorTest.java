@@ -0,0 +1,184 @@
+package com.kami.springai.text2sql.service;
+
+import com.kami.springai.text2sql.validator.ValidationPipelineResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 使用按调用顺序编排延迟和输出的模拟大模型测试对冲式SQL生成
+ */
+class HedgedSqlGeneratorTest {
+
+    private static final long STALL_MS = 10_000;
+    private static final int PROMPT_TOKENS = 30;
+    private static final int COMPLETION_TOKENS = 5;
+
+    private static final Function<String, ValidationPipelineResult> VALIDATOR = content ->
+            ValidationPipelineResult.builder()
+                    .validatorResults(List.of())
+                    .overallValid(content.startsWith("SELECT"))
+                    .build();
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        // 预热 ChatClient 调用链，避免首次类加载拖慢首个候选，使脚本的调用顺序与候选发起顺序一致
+        gateway(new ScriptedChatModel(new long[]{0}, new String[]{"SELECT 0"})).call("系统", "预热");
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void returnsPrimaryWithoutHedgeWhenItAnswersInTime() {
+        ScriptedChatModel chatModel = new ScriptedChatModel(new long[]{0}, new String[]{"SELECT 1"});
+        HedgedSqlGenerator generator = generator(gateway(chatModel), 1, 500);
+
+        HedgedSqlGenerator.Generation generation = generator.generate("系统", "查询", VALIDATOR);
+
+        assertEquals("SELECT 1", generation.getContent());
+        assertFalse(generation.isHedged());
+        assertEquals(1, generation.getCandidates());
+        assertEquals(1, chatModel.calls.get());
+        HedgedSqlGenerator.HedgingStats stats = generator.getHedgingStats();
+        assertEquals(0, stats.getHedgesFired());
+        assertEquals(0, stats.getCandidatesCancelled());
+        assertEquals(0, stats.getWastedTokens());
+    }
+
+    @Test
+    void firesHedgeAfterDelayAndCancelsStalledPrimary() throws Exception {
+        ScriptedChatModel chatModel = new ScriptedChatModel(
+                new long[]{STALL_MS, 0}, new String[]{"SELECT 'primary'", "SELECT 'hedge'"});
+        LlmGateway gateway = gateway(chatModel);
+        HedgedSqlGenerator generator = generator(gateway, 1, 100);
+
+        long start = System.nanoTime();
+        HedgedSqlGenerator.Generation generation = generator.generate("系统", "查询", VALIDATOR);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("SELECT 'hedge'", generation.getContent());
+        assertTrue(generation.isHedged());
+        assertEquals(2, generation.getCandidates());
+        assertTrue(elapsedMs >= 100, "对冲请求应在延迟到期后才发起: " + elapsedMs);
+        assertTrue(elapsedMs < STALL_MS, "不应等待停滞的首个请求: " + elapsedMs);
+
+        // 首个请求被中断，其已耗费时间作为下界样本计入生成延迟窗口
+        assertTrue(chatModel.interrupted.await(5, TimeUnit.SECONDS));
+        awaitSamples(gateway, 2);
+        assertTrue(gateway.getLatencyPercentile(LlmGateway.CallType.GENERATION, 1.0) >= 100);
+
+        HedgedSqlGenerator.HedgingStats stats = generator.getHedgingStats();
+        assertEquals(1, stats.getHedgesFired());
+        assertEquals(1, stats.getHedgeWins());
+        assertEquals(2, stats.getCandidatesIssued());
+        assertEquals(1, stats.getCandidatesCancelled());
+        // 被取消的候选按prompt token估算
+        assertEquals(PROMPT_TOKENS, stats.getWastedTokens());
+    }
+
+    @Test
+    void firstValidCandidateWinsAmongParallelCandidates() throws Exception {
+        ScriptedChatModel chatModel = new ScriptedChatModel(
+                new long[]{0, 50, STALL_MS}, new String[]{"无法生成", "SELECT 2", "SELECT 3"});
+        HedgedSqlGenerator generator = generator(gateway(chatModel), 3, 100);
+
+        HedgedSqlGenerator.Generation generation = generator.generate("系统", "查询", VALIDATOR);
+
+        assertEquals("SELECT 2", generation.getContent());
+        assertTrue(generation.getValidation().isOverallValid());
+        assertFalse(generation.isHedged());
+        assertEquals(3, generation.getCandidates());
+        assertTrue(chatModel.interrupted.await(5, TimeUnit.SECONDS));
+
+        HedgedSqlGenerator.HedgingStats stats = generator.getHedgingStats();
+        assertEquals(0, stats.getHedgesFired());
+        assertEquals(3, stats.getCandidatesIssued());
+        assertEquals(1, stats.getCandidatesCancelled());
+        // 未通过验证的候选计实际用量，被取消的候选计估算的prompt token
+        assertEquals(PROMPT_TOKENS + COMPLETION_TOKENS + PROMPT_TOKENS, stats.getWastedTokens());
+    }
+
+    private static LlmGateway gateway(ChatModel chatModel) {
+        LlmGateway gateway = new LlmGateway(chatModel, null);
+        ReflectionTestUtils.setField(gateway, "defaultModel", "deepseek-chat");
+        ReflectionTestUtils.setField(gateway, "clientCacheSize", 8);
+        return gateway;
+    }
+
+    private HedgedSqlGenerator generator(LlmGateway gateway, int parallelCandidates, long delayMs) {
+        HedgedSqlGenerator generator = new HedgedSqlGenerator(gateway, executor);
+        ReflectionTestUtils.setField(generator, "hedgingEnabled", true);
+        ReflectionTestUtils.setField(generator, "hedgePercentile", 0.95);
+        // 样本数门槛设得足够高，始终使用默认延迟
+        ReflectionTestUtils.setField(generator, "minSamples", 1000);
+        ReflectionTestUtils.setField(generator, "defaultDelayMs", delayMs);
+        ReflectionTestUtils.setField(generator, "minDelayMs", 0L);
+        ReflectionTestUtils.setField(generator, "parallelCandidates", parallelCandidates);
+        return generator;
+    }
+
+    private static void awaitSamples(LlmGateway gateway, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (gateway.getLatencySampleCount(LlmGateway.CallType.GENERATION) < expected
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, gateway.getLatencySampleCount(LlmGateway.CallType.GENERATION));
+    }
+
+    /**
+     * 第N次调用按脚本延迟后返回第N个输出，超出脚本时重复最后一项；延迟期间被中断时抛出异常
+     */
+    private static class ScriptedChatModel implements ChatModel {
+        private final long[] delaysMs;
+        private final String[] contents;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+
+        ScriptedChatModel(long[] delaysMs, String[] contents) {
+            this.delaysMs = delaysMs;
+            this.contents = contents;
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            int index = Math.min(calls.getAndIncrement(), delaysMs.length - 1);
+            try {
+                Thread.sleep(delaysMs[index]);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                interrupted.countDown();
+                throw new RuntimeException("调用被中断", e);
+            }
+            return new ChatResponse(
+                    List.of(new Generation(new AssistantMessage(contents[index]))),
+                    ChatResponseMetadata.builder().usage(new DefaultUsage(PROMPT_TOKENS, COMPLETION_TOKENS)).build());
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.kami.springai.text2sql.service;
+
+import com.kami.springai.text2sql.config.LlmConnectionPoolMetrics;
+import com.kami.springai.text2sql.config.LlmHttpClientConfig;
+import com.kami.springai.text2sql.model.LlmResult;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.deepseek.DeepSeekChatModel;
+import org.springframework.ai.deepseek.DeepSeekChatOptions;
+import org.springframework.ai.deepseek.api.DeepSeekApi;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 使用模拟 DeepSeek 对话接口的本地HTTP服务测试大模型网关
+ */
+class LlmGatewayTest {
+
+    private static final String COMPLETION_RESPONSE = """
+            {"id":"stub-1","object":"chat.completion","created":1700000000,"model":"deepseek-chat",
+             "choices":[{"index":0,"message":{"role":"assistant","content":"SELECT id, name FROM users LIMIT 10;"},
+                         "finish_reason":"stop"}],
+             "usage":{"prompt_tokens":42,"completion_tokens":9,"total_tokens":51}}
+            """;
+
+    private HttpServer server;
+    private ConnectionProvider connectionProvider;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final List<String> requestBodies = new CopyOnWriteArrayList<>();
+
+    private LlmConnectionPoolMetrics poolMetrics;
+    private LlmGateway gateway;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/chat/completions", exchange -> {
+            requests.incrementAndGet();
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            requestBodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            byte[] body = COMPLETION_RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        LlmHttpClientConfig config = new LlmHttpClientConfig();
+        ReflectionTestUtils.setField(config, "maxConnections", 4);
+        ReflectionTestUtils.setField(config, "pendingAcquireMaxCount", 16);
+        ReflectionTestUtils.setField(config, "pendingAcquireTimeoutSeconds", 5L);
+        ReflectionTestUtils.setField(config, "maxIdleTimeSeconds", 60L);
+        ReflectionTestUtils.setField(config, "maxLifeTimeSeconds", 300L);
+        ReflectionTestUtils.setField(config, "connectTimeoutMillis", 2000);
+        ReflectionTestUtils.setField(config, "responseTimeoutSeconds", 10L);
+        ReflectionTestUtils.setField(config, "http2Enabled", true);
+
+        poolMetrics = config.llmConnectionPoolMetrics();
+        connectionProvider = config.llmConnectionProvider(poolMetrics);
+        HttpClient httpClient = config.llmHttpClient(connectionProvider);
+
+        DeepSeekApi api = DeepSeekApi.builder()
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+                .apiKey("test-key")
+                .restClientBuilder(config.llmRestClientBuilder(httpClient))
+                .webClientBuilder(config.llmWebClientBuilder(httpClient))
+                .build();
+        DeepSeekChatModel chatModel = DeepSeekChatModel.builder()
+                .deepSeekApi(api)
+                .defaultOptions(DeepSeekChatOptions.builder().model("deepseek-chat").build())
+                .build();
+
+        gateway = new LlmGateway(chatModel, poolMetrics);
+        ReflectionTestUtils.setField(gateway, "defaultModel", "deepseek-chat");
+        ReflectionTestUtils.setField(gateway, "clientCacheSize", 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionProvider.dispose();
+        server.stop(0);
+    }
+
+    @Test
+    void callReturnsContentAndUsage() {
+        LlmResult result = gateway.call("你是SQL专家", "查询用户");
+
+        assertEquals("SELECT id, name FROM users LIMIT 10;", result.getContent());
+        assertEquals(42, result.getPromptTokens());
+        assertEquals(9, result.getCompletionTokens());
+        assertTrue(result.getLatencyMs() >= 0);
+    }
+
+    @Test
+    void reusesClientAndConnectionAcrossCalls() {
+        for (int i = 0; i < 5; i++) {
+            gateway.callForContent("你是SQL专家", "查询用户 " + i);
+        }
+
+        LlmGateway.GatewayStats stats = gateway.getGatewayStats();
+        assertEquals(5, requests.get());
+        assertEquals(1, stats.getClientsCreated());
+        assertEquals(5, stats.getCalls());
+        assertEquals(5 * 51, stats.getPromptTokens() + stats.getCompletionTokens());
+        assertTrue(stats.getLatencyP95Ms() >= 0);
+        // 顺序调用应复用同一条保活连接
+        assertEquals(1, clientPorts.size());
+        assertFalse(stats.getConnectionPools().isEmpty());
+        assertEquals(1, stats.getConnectionPools().get(0).getAllocated());
+    }
+
+    @Test
+    void sharesClientAcrossSystemPrompts() {
+        gateway.callForContent("系统提示A", "查询");
+        gateway.callForContent("系统提示B", "查询");
+        gateway.callForContent("系统提示A", "查询");
+
+        // 系统提示词随请求传入，不同提示词共用同一模型的客户端
+        assertEquals(1, gateway.getGatewayStats().getClientsCreated());
+        assertEquals(1, gateway.getGatewayStats().getCachedClients());
+        assertEquals(3, requestBodies.size());
+        assertTrue(requestBodies.get(0).contains("系统提示A"));
+        assertTrue(requestBodies.get(1).contains("系统提示B"));
+        assertFalse(requestBodies.get(1).contains("系统提示A"));
+    }
+}
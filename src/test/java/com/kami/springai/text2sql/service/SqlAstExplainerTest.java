@@ -0,0 +1,99 @@
+package com.kami.springai.text2sql.service;
+
+import com.kami.springai.text2sql.model.DatabaseSchema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * AST解释器：常见查询形态直接生成解释，覆盖不了的语句和意外异常返回null交给大模型
+ */
+class SqlAstExplainerTest {
+
+    private SqlAstExplainer explainer;
+    private DatabaseSchema schema;
+
+    @BeforeEach
+    void setUp() {
+        explainer = new SqlAstExplainer();
+        ReflectionTestUtils.setField(explainer, "enabled", true);
+        schema = DatabaseSchema.builder()
+                .databaseName("shop")
+                .tables(List.of(
+                        table("orders", "订单", column("id", "订单ID"), column("user_id", "用户ID"),
+                                column("status", "订单状态"), column("amount", "订单金额")),
+                        table("users", "用户", column("id", "用户ID"), column("city", "城市"))))
+                .build();
+    }
+
+    @Test
+    void explainsSingleTableFilter() {
+        String explanation = explainer.explain(
+                "SELECT id, amount FROM orders WHERE status = 1 ORDER BY amount DESC LIMIT 10", schema);
+
+        assertNotNull(explanation);
+        assertTrue(explanation.contains("订单表（orders）"));
+        assertTrue(explanation.contains("订单状态（status） 等于 1"));
+        assertTrue(explanation.contains("订单金额（amount） 降序"));
+        assertTrue(explanation.contains("最多返回 10 行"));
+    }
+
+    @Test
+    void explainsJoin() {
+        String explanation = explainer.explain(
+                "SELECT o.id, u.city FROM orders o LEFT JOIN users u ON o.user_id = u.id", schema);
+
+        assertNotNull(explanation);
+        assertTrue(explanation.contains("关联用户表（users）"));
+        assertTrue(explanation.contains("左连接"));
+    }
+
+    @Test
+    void explainsGroupByAggregate() {
+        String explanation = explainer.explain(
+                "SELECT status, COUNT(*), SUM(amount) FROM orders GROUP BY status", schema);
+
+        assertNotNull(explanation);
+        assertTrue(explanation.contains("按订单状态（status）分组"));
+        assertTrue(explanation.contains("记录数、订单金额（amount）的总和"));
+    }
+
+    @Test
+    void fallsBackForSubqueryAndWith() {
+        assertNull(explainer.explain(
+                "SELECT id FROM orders WHERE user_id IN (SELECT id FROM users WHERE city = '北京')", schema));
+        assertNull(explainer.explain("WITH paid AS (SELECT * FROM orders) SELECT * FROM paid", schema));
+    }
+
+    @Test
+    void fallsBackForComputedExpression() {
+        assertNull(explainer.explain("SELECT amount * 2 FROM orders", schema));
+        assertNull(explainer.explain("SELECT id FROM orders WHERE amount > 100 - 1", schema));
+    }
+
+    @Test
+    void fallsBackOnUnexpectedRuntimeException() {
+        // 结构中缺少表名，查找表定义时抛出空指针
+        DatabaseSchema broken = DatabaseSchema.builder()
+                .tables(List.of(DatabaseSchema.Table.builder().build()))
+                .build();
+
+        assertNull(explainer.explain("SELECT id FROM orders", broken));
+        assertEquals(1, explainer.getExplainerStats().getUnsupported());
+    }
+
+    private static DatabaseSchema.Table table(String name, String comment, DatabaseSchema.Column... columns) {
+        return DatabaseSchema.Table.builder().name(name).comment(comment).columns(List.of(columns)).build();
+    }
+
+    private static DatabaseSchema.Column column(String name, String comment) {
+        return DatabaseSchema.Column.builder().name(name).type("varchar").comment(comment).build();
+    }
+}
@@ -0,0 +1,69 @@
+package com.kami.springai.text2sql.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SQL语句提取：语句只能从行首或代码块标记之后开始，逐字符追加与一次性提取结果一致
+ */
+class SqlStatementExtractorTest {
+
+    @Test
+    void ignoresKeywordInsidePreamble() {
+        String text = "Here is the query with the filter you asked for:\nSELECT `name` FROM `users` WHERE `age` > 25;\nDone.";
+
+        assertEquals("SELECT `name` FROM `users` WHERE `age` > 25;", SqlStatementExtractor.extractCompleteStatement(text));
+    }
+
+    @Test
+    void startsAfterCodeFence() {
+        assertEquals("SELECT 1;", SqlStatementExtractor.extractCompleteStatement("```sql\nSELECT 1;\n```"));
+        assertEquals("WITH t AS (SELECT 1) SELECT * FROM t;",
+                SqlStatementExtractor.extractCompleteStatement("```sql WITH t AS (SELECT 1) SELECT * FROM t;```"));
+        assertEquals("SELECT 1", SqlStatementExtractor.extractStatement("```\nSELECT 1\n```\n说明"));
+    }
+
+    @Test
+    void skipsTerminatorInsideQuotesAndComments() {
+        String text = "SELECT ';' AS a -- ;\n/* ; */ FROM `t`; trailing";
+
+        assertEquals("SELECT ';' AS a -- ;\n/* ; */ FROM `t`;", SqlStatementExtractor.extractCompleteStatement(text));
+    }
+
+    @Test
+    void returnsTextWhenNoStatementStart() {
+        assertNull(SqlStatementExtractor.extractCompleteStatement("I cannot answer that, select a table first;"));
+        assertEquals("I cannot answer", SqlStatementExtractor.extractStatement(" I cannot answer "));
+    }
+
+    @Test
+    void incrementalScanMatchesOneShot() {
+        String text = "以下是查询：\n```sql\nSELECT `id`, 'a\\';b' FROM `orders` /* x; */ WHERE `note` = \"--;\";\n```\n说明文字";
+        String expected = SqlStatementExtractor.extractCompleteStatement(text);
+
+        SqlStatementExtractor.Scanner scanner = SqlStatementExtractor.scanner();
+        int completedAt = -1;
+        for (int i = 0; i < text.length(); i++) {
+            if (scanner.append(text.substring(i, i + 1)) && completedAt < 0) {
+                completedAt = i;
+            }
+        }
+
+        assertEquals(expected, scanner.completeStatement());
+        assertEquals(text.indexOf("\";") + 1, completedAt);
+    }
+
+    @Test
+    void waitsForKeywordSplitAcrossChunks() {
+        SqlStatementExtractor.Scanner scanner = SqlStatementExtractor.scanner();
+
+        assertFalse(scanner.append("SEL"));
+        assertFalse(scanner.append("ECT * FROM t"));
+        assertTrue(scanner.append(" LIMIT 10; 解释"));
+        assertEquals("SELECT * FROM t LIMIT 10;", scanner.completeStatement());
+    }
+}
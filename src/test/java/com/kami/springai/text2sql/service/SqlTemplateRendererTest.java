@@ -0,0 +1,174 @@
+package com.kami.springai.text2sql.service;
+
+import com.kami.springai.text2sql.model.ConditionSemantic;
+import com.kami.springai.text2sql.model.DatabaseSchema;
+import com.kami.springai.text2sql.model.EntitySemantic;
+import com.kami.springai.text2sql.model.PlaceholderRule;
+import com.kami.springai.text2sql.model.QuerySemantic;
+import com.kami.springai.text2sql.model.SqlTemplate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * SQL模板渲染：值只从当前问题中提取，无法覆盖全部占位符时不使用模板
+ */
+class SqlTemplateRendererTest {
+
+    private final GeneralizedLearner learner = new GeneralizedLearner();
+
+    private final DatabaseSchema schema = DatabaseSchema.builder()
+            .tables(List.of(DatabaseSchema.Table.builder()
+                    .name("users")
+                    .columns(List.of(
+                            DatabaseSchema.Column.builder().name("name").type("VARCHAR").build(),
+                            DatabaseSchema.Column.builder().name("city").type("VARCHAR").build(),
+                            DatabaseSchema.Column.builder().name("age").type("INT").build(),
+                            DatabaseSchema.Column.builder().name("status").type("VARCHAR").build()))
+                    .build()))
+            .build();
+
+    private final QuerySemantic semantic = QuerySemantic.builder()
+            .entities(List.of(EntitySemantic.builder().tableName("users").primary(true).build()))
+            .build();
+
+    private SqlTemplateRenderer renderer;
+
+    @BeforeEach
+    void setUp() {
+        renderer = new SqlTemplateRenderer();
+        ReflectionTestUtils.setField(renderer, "maxRows", 1000L);
+    }
+
+    @Test
+    void rendersValuesExtractedFromNewQuestion() {
+        SqlTemplate template = learner.buildTemplate("查询年龄大于25的用户姓名",
+                "SELECT `name` FROM `users` WHERE `age` > 25 LIMIT 100;");
+
+        assertEquals("SELECT `name` FROM `users` WHERE `age` > 30 LIMIT 100;",
+                renderer.render(template, "查询年龄大于30的用户姓名", semantic, schema));
+    }
+
+    @Test
+    void skipsTemplateWhenQuestionDoesNotCoverPlaceholder() {
+        SqlTemplate template = learner.buildTemplate("查询年龄大于25的用户姓名",
+                "SELECT `name` FROM `users` WHERE `age` > 25 LIMIT 100;");
+
+        // 不能回退到学习时的 25
+        assertNull(renderer.render(template, "查询所有用户姓名", semantic, schema));
+        assertEquals(1, renderer.getTemplateStats().getUnresolved());
+    }
+
+    @Test
+    void skipsTemplateWithLearnedConstant() {
+        SqlTemplate template = learner.buildTemplate("查询已激活的用户",
+                "SELECT * FROM `users` WHERE `status` = 'active' LIMIT 100");
+
+        assertNull(renderer.render(template, "查询未激活的用户", semantic, schema));
+    }
+
+    @Test
+    void escapesExtractedStringValue() {
+        SqlTemplate template = learner.buildTemplate("查询城市为北京的用户",
+                "SELECT * FROM `users` WHERE `city` = '北京' LIMIT 100");
+
+        assertEquals("SELECT * FROM `users` WHERE `city` = 'O''Brien\\\\' LIMIT 100;",
+                renderer.render(template, "查询城市为O'Brien\\的用户", semantic, schema));
+    }
+
+    @Test
+    void capsLimitAndDefaultsWhenQuestionHasNoCount() {
+        SqlTemplate template = learner.buildTemplate("查询前10个用户", "SELECT * FROM `users` LIMIT 10");
+
+        assertEquals("SELECT * FROM `users` LIMIT 1000;", renderer.render(template, "查询前5000个用户", semantic, schema));
+        assertEquals("SELECT * FROM `users` LIMIT 100;", renderer.render(template, "查询全部用户", semantic, schema));
+    }
+
+    @Test
+    void bindsConditionValuesAsQuotedLiterals() {
+        SqlTemplate template = conditionTemplate();
+        QuerySemantic withCondition = semanticWithCondition(">", "25 OR 1=1");
+
+        assertEquals("SELECT * FROM `users` WHERE `age` > '25 OR 1=1' LIMIT 100;",
+                renderer.render(template, "查询用户", withCondition, schema));
+    }
+
+    @Test
+    void rejectsUnknownConditionOperator() {
+        SqlTemplate template = conditionTemplate();
+
+        assertNull(renderer.render(template, "查询用户", semanticWithCondition("= 1; DROP TABLE users; --", "1"), schema));
+        assertEquals("SELECT * FROM `users` WHERE `name` LIKE '%张%' LIMIT 100;",
+                renderer.render(template, "查询用户", semanticWithCondition("like", "%张%", "name"), schema));
+    }
+
+    @Test
+    void rejectsUnfilteredTemplateForFilteredQuestion() {
+        SqlTemplate template = learner.buildTemplate("查询所有用户", "SELECT * FROM `users` LIMIT 100");
+
+        assertEquals("SELECT * FROM `users` LIMIT 100;", renderer.render(template, "查询所有用户", semantic, schema));
+        // 问题中的 30 没有被任何占位符用到，模板会丢掉过滤条件
+        assertNull(renderer.render(template, "查询年龄大于30的用户", semantic, schema));
+        assertNull(renderer.render(template, "查询年龄大于30的用户", semanticWithCondition(">", "30"), schema));
+        assertNull(renderer.render(template, "查询城市为'北京'的用户", semantic, schema));
+    }
+
+    @Test
+    void rejectsConditionOnColumnOutsideChosenTable() {
+        SqlTemplate template = conditionTemplate();
+
+        assertNull(renderer.render(template, "查询用户", semanticWithCondition(">", "5000", "salary"), schema));
+    }
+
+    @Test
+    void swapsTableOnlyWhenTemplateDoesNotNameOriginalTable() {
+        DatabaseSchema twoTables = DatabaseSchema.builder()
+                .tables(List.of(schema.getTables().get(0), DatabaseSchema.Table.builder()
+                        .name("customers")
+                        .columns(schema.getTables().get(0).getColumns())
+                        .build()))
+                .build();
+        QuerySemantic customers = QuerySemantic.builder()
+                .entities(List.of(EntitySemantic.builder().tableName("customers").primary(true).build()))
+                .build();
+
+        SqlTemplate unqualified = learner.buildTemplate("查询用户姓名", "SELECT `name` FROM `users` LIMIT 100");
+        assertEquals("SELECT `name` FROM `customers` LIMIT 100;",
+                renderer.render(unqualified, "查询客户姓名", customers, twoTables));
+
+        // 字段限定和排序仍指向 users，换表后会引用不存在的表
+        SqlTemplate qualified = learner.buildTemplate("查询用户姓名",
+                "SELECT `users`.`name` FROM `users` ORDER BY `users`.`age` DESC LIMIT 100");
+        assertEquals("SELECT `users`.`name` FROM `users` ORDER BY `users`.`age` DESC LIMIT 100;",
+                renderer.render(qualified, "查询客户姓名", customers, twoTables));
+    }
+
+    private SqlTemplate conditionTemplate() {
+        return SqlTemplate.builder()
+                .selectTemplate("SELECT *")
+                .fromTemplate("FROM `{table}`")
+                .whereTemplate("WHERE {conditions}")
+                .limitTemplate("LIMIT 100")
+                .placeholderRules(Map.of(
+                        "table", PlaceholderRule.builder().ruleType(PlaceholderRule.TABLE).fallback("users").build(),
+                        "conditions", PlaceholderRule.builder().ruleType(PlaceholderRule.CONDITION).fallback("1=1").build()))
+                .build();
+    }
+
+    private QuerySemantic semanticWithCondition(String operator, String value) {
+        return semanticWithCondition(operator, value, "age");
+    }
+
+    private QuerySemantic semanticWithCondition(String operator, String value, String field) {
+        return QuerySemantic.builder()
+                .entities(semantic.getEntities())
+                .conditions(List.of(ConditionSemantic.builder().field(field).operator(operator).value(value).build()))
+                .build();
+    }
+}
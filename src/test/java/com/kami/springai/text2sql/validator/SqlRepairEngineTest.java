@@ -0,0 +1,131 @@
+package com.kami.springai.text2sql.validator;
+
+import com.kami.springai.text2sql.model.DatabaseSchema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 本地SQL修复规则：每条规则的修复结果，以及修复方式不唯一时放弃修复
+ */
+class SqlRepairEngineTest {
+
+    private final DatabaseSchema schema = DatabaseSchema.builder()
+            .databaseName("shop")
+            .tables(List.of(DatabaseSchema.Table.builder()
+                    .name("users")
+                    .columns(List.of(
+                            DatabaseSchema.Column.builder().name("id").type("BIGINT").primaryKey(true).build(),
+                            DatabaseSchema.Column.builder().name("name").type("VARCHAR").build(),
+                            DatabaseSchema.Column.builder().name("city").type("VARCHAR").build(),
+                            DatabaseSchema.Column.builder().name("age").type("INT").build()))
+                    .build()))
+            .build();
+
+    private SqlRepairEngine engine;
+    private List<String> rules;
+
+    @BeforeEach
+    void setUp() {
+        engine = new SqlRepairEngine(null);
+        ReflectionTestUtils.setField(engine, "enabled", true);
+        ReflectionTestUtils.setField(engine, "defaultLimit", 100L);
+        ReflectionTestUtils.setField(engine, "maxRows", 1000L);
+        rules = new ArrayList<>();
+    }
+
+    @Test
+    void extractsStatementAfterPreamble() {
+        String repaired = engine.applyRules("以下是查询语句：\nSELECT `name` FROM `users` LIMIT 10;", schema, rules);
+
+        assertEquals("SELECT `name` FROM `users` LIMIT 10;", repaired);
+        assertEquals(List.of(SqlRepairEngine.RULE_EXTRACT_STATEMENT), rules);
+    }
+
+    @Test
+    void dropsExplanationAfterTerminator() {
+        String repaired = engine.applyRules("SELECT `name` FROM `users` LIMIT 10;\n该查询返回用户姓名。", schema, rules);
+
+        assertEquals("SELECT `name` FROM `users` LIMIT 10;", repaired);
+        assertEquals(List.of(SqlRepairEngine.RULE_TRAILING_TEXT), rules);
+    }
+
+    @Test
+    void dropsTextOutsideCodeFence() {
+        String repaired = engine.applyRules("```sql\nSELECT `name` FROM `users` LIMIT 10\n```\n说明：返回前10个用户", schema, rules);
+
+        assertEquals("SELECT `name` FROM `users` LIMIT 10;", repaired);
+        assertEquals(List.of(SqlRepairEngine.RULE_EXTRACT_STATEMENT, SqlRepairEngine.RULE_TRAILING_TEXT), rules);
+    }
+
+    @Test
+    void refusesToDropTrailingSqlClause() {
+        assertNull(engine.applyRules("SELECT `name` FROM `users`;\nWHERE `age` > 25 ORDER BY `name`", schema, rules));
+        assertEquals(1, engine.getRepairStats().getRefused());
+    }
+
+    @Test
+    void refusesUnparsableTrailingLines() {
+        // 没有分号或代码块标记时不再逐行删除，避免丢掉 WHERE / ORDER BY
+        assertNull(engine.applyRules("SELECT `name` FROM `users`\nWHERE `age` > 25\n这会返回所有成年用户", schema, rules));
+    }
+
+    @Test
+    void closesUnambiguousParenthesis() {
+        String repaired = engine.applyRules("SELECT `name` FROM `users` WHERE `id` IN (1, 2, 3", schema, rules);
+
+        assertEquals("SELECT `name` FROM `users` WHERE `id` IN (1, 2, 3) LIMIT 100;", repaired);
+        assertEquals(List.of(SqlRepairEngine.RULE_PARENTHESES, SqlRepairEngine.RULE_LIMIT), rules);
+    }
+
+    @Test
+    void removesTrailingExtraParenthesis() {
+        assertEquals("SELECT `name` FROM `users` LIMIT 10;",
+                engine.applyRules("SELECT `name` FROM `users` LIMIT 10);", schema, rules));
+        assertEquals(List.of(SqlRepairEngine.RULE_PARENTHESES), rules);
+    }
+
+    @Test
+    void refusesAmbiguousMissingParenthesis() {
+        assertNull(SqlRepairEngine.balanceParentheses("SELECT `city`, COUNT(`id` FROM `users` GROUP BY `city`"));
+        assertNull(SqlRepairEngine.balanceParentheses("SELECT `name` FROM `users` WHERE (`age` > 18 OR `city` = 'x' ORDER BY `name`"));
+        assertNull(engine.applyRules("SELECT `city`, COUNT(`id` FROM `users` GROUP BY `city` LIMIT 10", schema, rules));
+    }
+
+    @Test
+    void refusesExtraParenthesisInsideStatement() {
+        assertNull(SqlRepairEngine.balanceParentheses("SELECT `name` FROM `users` WHERE `age` > 1 OR `age` < 5) AND `city` = 'x'"));
+    }
+
+    @Test
+    void ignoresParenthesesInsideQuotes() {
+        String sql = "SELECT `name` FROM `users` WHERE `city` = 'a(b'";
+        assertEquals(sql, SqlRepairEngine.balanceParentheses(sql));
+    }
+
+    @Test
+    void requotesBracketAndDoubleQuotedIdentifiers() {
+        String repaired = engine.applyRules("SELECT [name] FROM [users] LIMIT 10", schema, rules);
+        assertEquals("SELECT `name` FROM `users` LIMIT 10;", repaired);
+        assertEquals(List.of(SqlRepairEngine.RULE_IDENTIFIER_QUOTING), rules);
+
+        rules.clear();
+        repaired = engine.applyRules("SELECT \"name\" FROM \"users\" LIMIT 10", schema, rules);
+        assertEquals("SELECT `name` FROM `users` LIMIT 10;", repaired);
+        assertEquals(List.of(SqlRepairEngine.RULE_IDENTIFIER_QUOTING), rules);
+    }
+
+    @Test
+    void capsLimitAtMaxRows() {
+        String repaired = engine.applyRules("SELECT `name` FROM `users` LIMIT 5000", schema, rules);
+
+        assertEquals("SELECT `name` FROM `users` LIMIT 1000;", repaired);
+        assertEquals(List.of(SqlRepairEngine.RULE_LIMIT), rules);
+    }
+}